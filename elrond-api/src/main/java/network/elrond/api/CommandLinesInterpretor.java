@@ -1,5 +1,6 @@
 package network.elrond.api;
 
+import network.elrond.application.AppContext;
 import network.elrond.core.ResponseObject;
 import network.elrond.core.Util;
 import network.elrond.crypto.PKSKPair;
@@ -273,6 +274,9 @@ public class CommandLinesInterpretor {
                 collect(Collectors.toList()));
         System.out.println("blockchain_path=AUTO    => will get the node's name");
         System.out.println("blockchain_restore_path=AUTO    => will get the node's name");
+        System.out.println("nonce_ordered_pool=true    => pending transactions are assembled in sender nonce order (optional, default false)");
+        System.out.println("state_sync_min_blocks=0    => always replay the blocks to catch up instead of downloading the account state (optional, default " +
+                AppContext.DEFAULT_STATE_SYNC_MIN_BLOCKS + ")");
     }
 
     static Map<String, Object> parseFileProperties(String configFileName){
@@ -373,6 +377,13 @@ public class CommandLinesInterpretor {
             }
             data.put("blockchain_restore_path", blockchainRestorePath);
 
+            String nonceOrderedPool = (String)properties.get("nonce_ordered_pool");
+            data.put("nonce_ordered_pool", Boolean.parseBoolean(nonceOrderedPool));
+
+            Object stateSyncMinBlocks = properties.get("state_sync_min_blocks");
+            data.put("state_sync_min_blocks", (stateSyncMinBlocks == null) ? AppContext.DEFAULT_STATE_SYNC_MIN_BLOCKS :
+                    Integer.valueOf(stateSyncMinBlocks.toString()));
+
             return(data);
         } catch (Exception ex){
             ex.printStackTrace();
@@ -108,7 +108,9 @@ public class ElrondApiApplication {
                                     data.get("peer_ip").toString(),
                                     data.get("node_private_key").toString(),
                                     null,
-                                    (BootstrapType)data.get("startup_type"));
+                                    (BootstrapType)data.get("startup_type"),
+                                    (Boolean)data.get("nonce_ordered_pool"),
+                                    (Integer)data.get("state_sync_min_blocks"));
                         } catch (Exception ex) {
                             logger.catching(ex);
                             logger.error("Can not auto-start node!");
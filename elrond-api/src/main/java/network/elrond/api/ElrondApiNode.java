@@ -99,6 +99,12 @@ class ElrondApiNode {
         return logger.traceExit(facade.getBalance(address, application));
     }
 
+    ResponseObject getBalanceProof(AccountAddress address) {
+        logger.traceEntry("params: {}", address);
+        ElrondFacade facade = getFacade();
+        return logger.traceExit(facade.getBalanceProof(address, application));
+    }
+
     ResponseObject getBenchmarkResult() {
         if (thrBenchmarkResultSolver.getState() == Thread.State.NEW){
             //thread is not started
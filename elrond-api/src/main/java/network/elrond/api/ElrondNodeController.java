@@ -76,16 +76,22 @@ public class ElrondNodeController {
             @RequestParam(defaultValue = "127.0.0.1", required = false) String masterPeerIpAddress,
             @RequestParam(defaultValue = "00e15fc71adc4832c56c4e6a8b50a9503a4ede9485c4efbc585def0c657d93066a", required = true) String privateKey,
             @RequestParam(defaultValue = "21000000", required = false) String mintValue,
-            @RequestParam(defaultValue = "START_FROM_SCRATCH", required = true) BootstrapType bootstrapType//,
+            @RequestParam(defaultValue = "START_FROM_SCRATCH", required = true) BootstrapType bootstrapType,
+            @RequestParam(defaultValue = "false", required = false) Boolean nonceOrderedPool,
+            @RequestParam(required = false) Integer stateSyncMinBlocks//,
             //@RequestParam(defaultValue = "elrond-node-1", required = false) String blockchainPath,
             //@RequestParam(defaultValue = "elrond-node-1", required = false) String blockchainRestorePath
 
     ) throws IOException {
-        logger.traceEntry("params: {} {} {} {} {} {} {}", nodeName, port, masterPeerPort, masterPeerIpAddress,
-                privateKey, mintValue, bootstrapType);
+        logger.traceEntry("params: {} {} {} {} {} {} {} {} {}", nodeName, port, masterPeerPort, masterPeerIpAddress,
+                privateKey, mintValue, bootstrapType, nonceOrderedPool, stateSyncMinBlocks);
         //Reuploaded
         AppContext context = ContextCreator.createAppContext(nodeName, privateKey, masterPeerIpAddress,
                 masterPeerPort, port, bootstrapType, nodeName);
+        context.setNonceOrderedPool(Boolean.TRUE.equals(nonceOrderedPool));
+        if (stateSyncMinBlocks != null) {
+            context.setStateSyncMinBlocks(stateSyncMinBlocks);
+        }
 
         logger.info("Node name: {}", nodeName);
 
@@ -127,11 +133,16 @@ public class ElrondNodeController {
     public @ResponseBody
     ResponseObject getBalance(
             HttpServletResponse response,
-            @RequestParam() String address) {
+            @RequestParam() String address,
+            @RequestParam(defaultValue = "false", required = false) boolean proof) {
 
-        logger.traceEntry("params: {}", address);
+        logger.traceEntry("params: {} {}", address, proof);
         try {
             AccountAddress _add = AccountAddress.fromHexString(address);
+            if (proof) {
+                // the account state with its Merkle proof against the last committed state root
+                return logger.traceExit(elrondApiNode.getBalanceProof(_add));
+            }
             return logger.traceExit(elrondApiNode.getBalance(_add));
         } catch (Exception ex){
             logger.catching(ex);
@@ -50,11 +50,11 @@ public class BlockchainServiceIT extends BaseBlockchainTest {
         db.setAppStateHash(buff);
         for (int i = 0; i < 1000; i++) {
             rdm.nextBytes(buff);
-            db.getListTXHashes().add(buff);
+            db.addTXHash(buff);
         }
 
-        db.getListPublicKeys().add("025f37d20e5b18909361e0ead7ed17c69b417bee70746c9e9c2bcb1394d921d4ae");
-        db.getListPublicKeys().add("025f37d20e5b18909361e0ead7ed17c69b417bee70746c9e9c2bcb1394d921d4af");
+        db.addPublicKey("025f37d20e5b18909361e0ead7ed17c69b417bee70746c9e9c2bcb1394d921d4ae");
+        db.addPublicKey("025f37d20e5b18909361e0ead7ed17c69b417bee70746c9e9c2bcb1394d921d4af");
 
         return (db);
 
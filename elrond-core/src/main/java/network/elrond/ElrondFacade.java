@@ -34,6 +34,16 @@ public interface ElrondFacade {
      */
     ResponseObject getBalance(AccountAddress address, Application application);
 
+    /**
+     * Get account state with the Merkle proof of it against the state root of the last committed block of its shard;
+     * a proof from another shard holds for the root it carries, to be checked against a block the caller trusts
+     *
+     * @param address
+     * @param application
+     * @return
+     */
+    ResponseObject getBalanceProof(AccountAddress address, Application application);
+
 
     /**
      * Get transaction receipt
@@ -2,12 +2,14 @@ package network.elrond;
 
 import network.elrond.account.AccountAddress;
 import network.elrond.account.AccountState;
+import network.elrond.account.AccountStateProof;
 import network.elrond.account.Accounts;
 import network.elrond.application.AppContext;
 import network.elrond.application.AppState;
 import network.elrond.benchmark.*;
 import network.elrond.blockchain.Blockchain;
 import network.elrond.blockchain.BlockchainUnitType;
+import network.elrond.blockchain.TransactionsPool;
 import network.elrond.core.*;
 import network.elrond.crypto.KeysManager;
 import network.elrond.crypto.PKSKPair;
@@ -18,6 +20,7 @@ import network.elrond.data.model.Receipt;
 import network.elrond.data.model.Transaction;
 import network.elrond.p2p.*;
 import network.elrond.p2p.model.*;
+import network.elrond.p2p.service.P2PRequestService;
 import network.elrond.service.AppServiceProvider;
 import network.elrond.sharding.AppShardingManager;
 import network.elrond.sharding.Shard;
@@ -104,8 +107,8 @@ public class ElrondFacadeImpl implements ElrondFacade {
 
         try {
 
-            P2PRequestChannel channel = state.getChannel(P2PRequestChannelName.ACCOUNT);
-            AccountState account = AppServiceProvider.getP2PRequestService().get(channel, addressShard, P2PRequestChannelName.ACCOUNT, address);
+            AccountStateProof proof = requestAccountStateProof(address, addressShard, state);
+            AccountState account = (proof == null) ? null : proof.getState();
 
             if (account == null) {
                 return logger.traceExit(new ResponseObject(true, "", BigInteger.ZERO));
@@ -118,6 +121,79 @@ public class ElrondFacadeImpl implements ElrondFacade {
         }
     }
 
+    @Override
+    public ResponseObject getBalanceProof(AccountAddress address, Application application) {
+        logger.traceEntry("params: {} {}", address, application);
+
+        if (application == null) {
+            logger.warn("application is null");
+            return (new ResponseObject(false, "Invalid application state, application is null", null));
+        }
+
+        if (address == null) {
+            logger.warn("address is null");
+            return logger.traceExit(new ResponseObject(false, "Address is null", null));
+        }
+
+        AppState state = application.getState();
+        Shard currentShard = state.getShard();
+        Shard addressShard = AppServiceProvider.getShardingService().getShard(address.getBytes());
+
+        try {
+            AccountStateProof proof;
+            if (ObjectUtil.isEqual(addressShard, currentShard)) {
+                proof = AppServiceProvider.getAccountStateService().getAccountStateProof(address, state.getAccounts());
+
+                // the state root of the current block is the one trusted here
+                Block currentBlock = state.getBlockchain().getCurrentBlock();
+                if (proof != null && currentBlock != null && !proof.verify(currentBlock.getAppStateHash())) {
+                    return logger.traceExit(new ResponseObject(false, "Account state proof does not hold for the current block", null));
+                }
+            } else {
+                proof = requestAccountStateProof(address, addressShard, state);
+            }
+
+            if (proof == null) {
+                return logger.traceExit(new ResponseObject(false, "No account state proof received", null));
+            }
+            return logger.traceExit(new ResponseObject(true, "", proof));
+        } catch (Exception ex) {
+            logger.throwing(ex);
+            return logger.traceExit(new ResponseObject(false, ex.getMessage(), null));
+        }
+    }
+
+    /**
+     * Asks the peers of the shard for the account state, proven against the state root of the current block of
+     * that shard, as a local proof is against the current block here. The block is asked for too and checked to
+     * have the hash it is indexed under and a valid signature; a proof taken while the shard moves to a new block
+     * is refused, the caller asks again
+     */
+    private AccountStateProof requestAccountStateProof(AccountAddress address, Shard shard, AppState state) {
+        Block currentBlock = requestCurrentBlock(shard, state);
+
+        P2PRequestChannel channel = state.getChannel(P2PRequestChannelName.ACCOUNT);
+        AccountStateProof proof = AppServiceProvider.getP2PRequestService().get(channel, shard, P2PRequestChannelName.ACCOUNT, address);
+
+        Util.check(proof == null || proof.verify(currentBlock.getAppStateHash()), "account state proof holds for the current block of the shard");
+        return proof;
+    }
+
+    private Block requestCurrentBlock(Shard shard, AppState state) {
+        P2PRequestService requestService = AppServiceProvider.getP2PRequestService();
+
+        BigInteger height = requestService.get(state.getChannel(P2PRequestChannelName.BLOCK_HEIGHT), shard, P2PRequestChannelName.BLOCK_HEIGHT, "");
+        Util.check(height != null && height.signum() >= 0, "shard has a current block");
+        String blockHash = requestService.get(state.getChannel(P2PRequestChannelName.BLOCK_INDEX), shard, P2PRequestChannelName.BLOCK_INDEX, height);
+        Util.check(blockHash != null, "current block of the shard is indexed");
+        Block block = requestService.get(state.getChannel(P2PRequestChannelName.BLOCK), shard, P2PRequestChannelName.BLOCK, blockHash);
+
+        Util.check(block != null && blockHash.equals(AppServiceProvider.getSerializationService().getHashString(block)),
+                "current block of the shard matches its hash");
+        Util.check(AppServiceProvider.getExecutionService().isBlockSignatureValid(block), "current block of the shard is signed");
+        return block;
+    }
+
     @Override
     public ResponseObject getReceipt(String transactionHash, Application application) {
         logger.traceEntry("params: {} {}", transactionHash, application);
@@ -354,9 +430,26 @@ public class ElrondFacadeImpl implements ElrondFacade {
             return logger.traceExit(new ResponseObject(false, "Receiver account is invalid", null));
         }
 
-        BigInteger nonce = senderAccount.getNonce();
-        Transaction transaction = AppServiceProvider.getTransactionService().generateTransaction(senderPublicKey, receiverPublicKey, value, nonce);
-        AppServiceProvider.getTransactionService().signTransaction(transaction, senderPrivateKey.getValue(), senderPublicKey.getValue());
+        Blockchain blockchain = state.getBlockchain();
+        TransactionsPool pool = blockchain.getPool();
+        boolean nonceOrderedPool = blockchain.getContext().isNonceOrderedPool();
+        Transaction transaction;
+
+        // the nonce is picked and the transaction queued in one step, so two sends never share a nonce
+        synchronized (pool) {
+            BigInteger nonce = senderAccount.getNonce();
+            if (nonceOrderedPool) {
+                nonce = pool.getNextNonce(Util.getAddressFromPublicKey(senderPublicKey.getValue()), nonce);
+            }
+
+            transaction = AppServiceProvider.getTransactionService().generateTransaction(senderPublicKey, receiverPublicKey, value, nonce);
+            AppServiceProvider.getTransactionService().signTransaction(transaction, senderPrivateKey.getValue(), senderPublicKey.getValue());
+
+            if (nonceOrderedPool && !addPendingTransaction(blockchain, transaction)) {
+                return logger.traceExit(new ResponseObject(false, "Transaction refused by the pool", transaction));
+            }
+        }
+
         if (transaction == null) {
             return logger.traceExit(new ResponseObject(false, "Error generating transaction", transaction));
         } else {
@@ -364,6 +457,15 @@ public class ElrondFacadeImpl implements ElrondFacade {
         }
     }
 
+    /**
+     * Stores an own transaction and queues it under its sender, the pool then gives the next send the nonce after it
+     */
+    private boolean addPendingTransaction(Blockchain blockchain, Transaction transaction) {
+        String hash = AppServiceProvider.getSerializationService().getHashString(transaction);
+        AppServiceProvider.getBlockchainService().putLocal(hash, transaction, blockchain, BlockchainUnitType.TRANSACTION);
+        return blockchain.getPool().addTransaction(hash, transaction.getSenderAddress(), transaction.getNonce());
+    }
+
     private void sendTransaction(AppState state, Transaction transaction) throws java.io.IOException {
         //String hash = AppServiceProvider.getSerializationService().getHashString(transaction);
         //P2PConnection connection = state.getConnection();
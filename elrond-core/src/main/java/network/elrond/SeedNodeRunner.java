@@ -38,7 +38,7 @@ public class SeedNodeRunner {
             do {
                 ThreadUtil.sleep(1);
 
-                if (application.getState().getBlockchain().getPool().getTransactions().size() > 1000){
+                if (application.getState().getBlockchain().getPool().size() > 1000){
                     continue;
                 }
 
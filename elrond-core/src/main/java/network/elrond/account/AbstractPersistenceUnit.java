@@ -1,8 +1,6 @@
 package network.elrond.account;
 
-import network.elrond.db.ByteArrayWrapper;
-
-import org.apache.commons.collections4.map.LRUMap;
+import network.elrond.db.WeightedCache;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.iq80.leveldb.DB;
@@ -11,8 +9,6 @@ import org.iq80.leveldb.impl.Iq80DBFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
-import java.util.Map;
 
 /**
  * Abstract implementation of key => value persistence unit
@@ -24,13 +20,18 @@ public abstract class AbstractPersistenceUnit<K, V> implements PersistenceUnit<K
     protected final String databasePath;
     protected DB database;
 
-    private final Map<K, V> cache = Collections.synchronizedMap(new LRUMap<>(MAX_ENTRIES));
+    private final WeightedCache<K, V> cache;
 
     private static final Logger logger = LogManager.getLogger(AbstractPersistenceUnit.class);
 
     public AbstractPersistenceUnit(String databasePath) throws IOException {
+        this(databasePath, new WeightedCache<>(MAX_ENTRIES));
+    }
+
+    protected AbstractPersistenceUnit(String databasePath, WeightedCache<K, V> cache) throws IOException {
         logger.traceEntry("params: {}", databasePath);
         this.databasePath = databasePath;
+        this.cache = cache;
         if (databasePath == null || databasePath.isEmpty()) {
             this.database = new MockDB();
             logger.trace("MockDB selected!");
@@ -41,6 +42,15 @@ public abstract class AbstractPersistenceUnit<K, V> implements PersistenceUnit<K
         logger.traceExit();
     }
 
+    /**
+     * Unit over a database it shares with others, which close it
+     */
+    protected AbstractPersistenceUnit(DB database, WeightedCache<K, V> cache) {
+        this.databasePath = null;
+        this.database = database;
+        this.cache = cache;
+    }
+
     protected DB initDatabase(String databasePath) throws IOException {
         logger.traceEntry("params: {}", databasePath);
         Options options = new Options();
@@ -49,7 +59,7 @@ public abstract class AbstractPersistenceUnit<K, V> implements PersistenceUnit<K
         return logger.traceExit(factory.open(new File(databasePath), options));
     }
 
-    public Map<K, V> getCache() {
+    public WeightedCache<K, V> getCache() {
         return cache;
     }
 
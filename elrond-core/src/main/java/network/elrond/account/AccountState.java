@@ -1,87 +1,179 @@
 package network.elrond.account;
 
 import network.elrond.core.Util;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 import java.io.Serializable;
 import java.math.BigInteger;
 
+/**
+ * Nonce and balance of an account, kept in primitives: a long nonce and an unsigned 128 bit balance
+ * split in two longs. Balance arithmetic runs on the two words, {@link BigInteger} is only built on request.
+ */
 public class AccountState implements Serializable {
 
-    private static final Logger logger = LogManager.getLogger(AccountState.class);
+    public static final int BALANCE_BITS = 128;
 
-    private BigInteger nonce;
-    private BigInteger balance;
+    private long nonce;
+    private long balanceHigh;
+    private long balanceLow;
     private final AccountAddress address;
 
 
     public AccountState(AccountAddress address) {
-        this(BigInteger.ZERO, BigInteger.ZERO, address);
+        Util.check(address != null, "address !=null");
+        this.address = address;
     }
 
     public AccountState(BigInteger nonce, BigInteger balance, AccountAddress address) {
-        logger.traceEntry("params: {} {}", nonce, balance);
-        Util.check(!(nonce == null || nonce.compareTo(BigInteger.ZERO) < 0), "nonce>=0");
-        Util.check(!(balance == null || balance.compareTo(BigInteger.ZERO) < 0), "balance>=0");
-        Util.check(address != null, "address !=null");
-
-        this.nonce = nonce;
-        this.balance = balance;
-        this.address = address;
-        logger.traceExit();
+        this(address);
+        setNonce(nonce);
+        setBalance(balance);
     }
 
     public AccountState(AccountState source) {
-        logger.traceEntry("params: {}", source);
         Util.check(source != null, "source!=null");
 
-        setNonce(source.getNonce());
-        setBalance(source.getBalance());
+        this.nonce = source.nonce;
+        this.balanceHigh = source.balanceHigh;
+        this.balanceLow = source.balanceLow;
         this.address = source.getAddress();
-
-        logger.traceExit();
     }
 
 
     public BigInteger getNonce() {
+        return BigInteger.valueOf(nonce);
+    }
+
+    public long getNonceValue() {
         return nonce;
     }
 
     public void setNonce(BigInteger nonce) {
-        logger.traceEntry("params: {}", nonce);
-        Util.check(!(nonce == null || nonce.compareTo(BigInteger.ZERO) < 0), "nonce>=0");
-        Util.check(!(this.nonce != null && this.nonce.compareTo(nonce) > 0), "new nonce should be bigger");
+        Util.check(!(nonce == null || nonce.signum() < 0), "nonce>=0");
+        Util.check(nonce.bitLength() < Long.SIZE, "nonce fits in a long");
+        setNonceValue(nonce.longValue());
+    }
+
+    public void setNonceValue(long nonce) {
+        Util.check(nonce >= 0, "nonce>=0");
+        Util.check(this.nonce <= nonce, "new nonce should be bigger");
         this.nonce = nonce;
-        logger.traceExit();
+    }
+
+    public void incrementNonce() {
+        Util.check(nonce < Long.MAX_VALUE, "nonce fits in a long");
+        nonce++;
     }
 
     public BigInteger getBalance() {
-        return balance;
+        if (balanceHigh == 0 && balanceLow >= 0) {
+            return BigInteger.valueOf(balanceLow);
+        }
+
+        byte[] bytes = new byte[16];
+        writeLong(bytes, 0, balanceHigh);
+        writeLong(bytes, 8, balanceLow);
+        return new BigInteger(1, bytes);
     }
 
     public void setBalance(BigInteger balance) {
-        logger.traceEntry("params: {}", balance);
-        Util.check(!(balance == null || balance.compareTo(BigInteger.ZERO) < 0), "balance>=0");
+        Util.check(!(balance == null || balance.signum() < 0), "balance>=0");
+        Util.check(balance.bitLength() <= BALANCE_BITS, "balance fits in 128 bits");
 
-        this.balance = balance;
-        logger.traceExit();
+        setBalanceWords(high(balance), balance.longValue());
+    }
+
+    /**
+     * @return true if the balance is at least value
+     */
+    public boolean hasBalance(BigInteger value) {
+        Util.check(!(value == null || value.signum() < 0), "value>=0");
+        if (value.bitLength() > BALANCE_BITS) {
+            return false;
+        }
+        return compareBalance(high(value), value.longValue()) >= 0;
     }
 
     public BigInteger addToBalance(BigInteger value) {
-        logger.traceEntry("params: {}", value);
         Util.check(value != null, "value!=null");
         Util.check(value.compareTo(BigInteger.ZERO) > 0, "value must be positive");
-        Util.check(balance.add(value).compareTo(BigInteger.ZERO) > 0, "Balance would be negative!!!");
 
-        this.balance = balance.add(value);
-        return logger.traceExit(this.balance);
+        credit(value);
+        return getBalance();
+    }
+
+    /**
+     * Adds a non negative value to the balance
+     */
+    public void credit(BigInteger value) {
+        Util.check(!(value == null || value.signum() < 0), "value>=0");
+        Util.check(value.bitLength() <= BALANCE_BITS, "balance fits in 128 bits");
+
+        long valueHigh = high(value);
+        long valueLow = value.longValue();
+
+        long low = balanceLow + valueLow;
+        long carry = Long.compareUnsigned(low, balanceLow) < 0 ? 1 : 0;
+        Util.check(Long.compareUnsigned(balanceHigh, ~valueHigh) <= 0, "balance fits in 128 bits");
+        long high = balanceHigh + valueHigh;
+        Util.check(carry == 0 || high != -1L, "balance fits in 128 bits");
+
+        setBalanceWords(high + carry, low);
+    }
+
+    /**
+     * Takes a non negative value, not bigger than the balance, from the balance
+     */
+    public void debit(BigInteger value) {
+        Util.check(!(value == null || value.signum() < 0), "value>=0");
+        Util.check(hasBalance(value), "Balance would be negative!!!");
+
+        long valueHigh = high(value);
+        long valueLow = value.longValue();
+
+        long borrow = Long.compareUnsigned(balanceLow, valueLow) < 0 ? 1 : 0;
+        setBalanceWords(balanceHigh - valueHigh - borrow, balanceLow - valueLow);
+    }
+
+    /**
+     * @return the upper 64 bits of the unsigned 128 bit balance
+     */
+    public long getBalanceHigh() {
+        return balanceHigh;
+    }
+
+    /**
+     * @return the lower 64 bits of the unsigned 128 bit balance
+     */
+    public long getBalanceLow() {
+        return balanceLow;
+    }
+
+    public void setBalanceWords(long high, long low) {
+        this.balanceHigh = high;
+        this.balanceLow = low;
     }
 
     public AccountAddress getAddress() {
         return address;
     }
 
+    private int compareBalance(long high, long low) {
+        int result = Long.compareUnsigned(balanceHigh, high);
+        return (result != 0) ? result : Long.compareUnsigned(balanceLow, low);
+    }
+
+    private static long high(BigInteger value) {
+        return (value.bitLength() > Long.SIZE) ? value.shiftRight(Long.SIZE).longValue() : 0;
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
     @Override
 	public String toString() {
         return String.format("AccountState{nonce=%d, balance=%d}", this.getNonce(), this.getBalance());
@@ -0,0 +1,199 @@
+package network.elrond.account;
+
+import network.elrond.core.Util;
+
+import java.util.Arrays;
+
+/**
+ * Trie value of an account: the RLP list [nonce, balance, address], numbers as minimal unsigned big-endian
+ * (zero is the empty item). The bytes are the same as the ones built through {@link network.elrond.core.RLP},
+ * so state roots do not change, but encoding allocates only the result and decoding only the state.
+ */
+public final class AccountStateCodec {
+
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+    private static final int SIZE_THRESHOLD = 56;
+
+    private static final byte[] EMPTY_ADDRESS = {0};
+
+    private AccountStateCodec() {
+    }
+
+    public static byte[] encode(AccountState state) {
+        Util.check(state != null, "state!=null");
+
+        long nonce = state.getNonceValue();
+        long high = state.getBalanceHigh();
+        long low = state.getBalanceLow();
+        byte[] address = state.getAddress().getBytes();
+
+        int nonceLength = byteCount(nonce);
+        int balanceLength = (high != 0) ? 8 + byteCount(high) : byteCount(low);
+
+        // a one byte number is its own first byte
+        int payloadLength = itemLength(nonceLength, (int) nonce)
+                + itemLength(balanceLength, (int) low)
+                + itemLength(address.length, address.length == 1 ? address[0] & 0xFF : 0);
+
+        byte[] data = new byte[headerLength(payloadLength) + payloadLength];
+        int position = writeHeader(data, 0, OFFSET_SHORT_LIST, OFFSET_LONG_LIST, payloadLength);
+
+        position = writeNumber(data, position, 0, nonce, nonceLength);
+        position = writeNumber(data, position, high, low, balanceLength);
+
+        if (address.length == 1 && (address[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            data[position] = address[0];
+        } else {
+            position = writeHeader(data, position, OFFSET_SHORT_ITEM, OFFSET_LONG_ITEM, address.length);
+            System.arraycopy(address, 0, data, position, address.length);
+        }
+        return data;
+    }
+
+    public static AccountState decode(byte[] data) {
+        return decode(data, null);
+    }
+
+    /**
+     * @param address the address the value was read for, reused instead of decoding a new one when it matches
+     */
+    public static AccountState decode(byte[] data, AccountAddress address) {
+        Util.check(data != null && data.length > 0, "data!=null");
+
+        int position = skipHeader(data, 0);
+
+        long nonceItem = readItem(data, position);
+        int nonceOffset = offset(nonceItem);
+        int nonceLength = length(nonceItem);
+        Util.check(nonceLength <= 8 && !(nonceLength == 8 && data[nonceOffset] < 0), "nonce fits in a long");
+        long nonce = readLong(data, nonceOffset, nonceLength);
+        position = nonceOffset + nonceLength;
+
+        long balanceItem = readItem(data, position);
+        int balanceOffset = offset(balanceItem);
+        int balanceLength = length(balanceItem);
+        Util.check(balanceLength <= 16, "balance fits in 128 bits");
+        int lowLength = Math.min(balanceLength, 8);
+        long high = readLong(data, balanceOffset, balanceLength - lowLength);
+        long low = readLong(data, balanceOffset + balanceLength - lowLength, lowLength);
+        position = balanceOffset + balanceLength;
+
+        long addressItem = readItem(data, position);
+        int addressOffset = offset(addressItem);
+        int addressLength = length(addressItem);
+        if (address == null || !matches(address.getBytes(), data, addressOffset, addressLength)) {
+            address = AccountAddress.fromBytes(addressLength == 0 ? EMPTY_ADDRESS : Arrays.copyOfRange(data, addressOffset, addressOffset + addressLength));
+        }
+
+        AccountState state = new AccountState(address);
+        state.setNonceValue(nonce);
+        state.setBalanceWords(high, low);
+        return state;
+    }
+
+    private static int byteCount(long value) {
+        return (Long.SIZE - Long.numberOfLeadingZeros(value) + 7) / 8;
+    }
+
+    private static int itemLength(int length, int firstByte) {
+        if (length == 1 && (firstByte & 0xFF) < OFFSET_SHORT_ITEM) {
+            return 1;
+        }
+        return headerLength(length) + length;
+    }
+
+    private static int headerLength(int length) {
+        return (length < SIZE_THRESHOLD) ? 1 : 1 + byteCount(length);
+    }
+
+    private static int writeHeader(byte[] data, int position, int shortOffset, int longOffset, int length) {
+        if (length < SIZE_THRESHOLD) {
+            data[position] = (byte) (shortOffset + length);
+            return position + 1;
+        }
+
+        int lengthOfLength = byteCount(length);
+        data[position] = (byte) (longOffset + lengthOfLength);
+        for (int i = lengthOfLength; i > 0; i--) {
+            data[position + i] = (byte) length;
+            length >>>= 8;
+        }
+        return position + 1 + lengthOfLength;
+    }
+
+    private static int writeNumber(byte[] data, int position, long high, long low, int length) {
+        if (length == 1 && (low & 0xFF) < OFFSET_SHORT_ITEM) {
+            data[position] = (byte) low;
+            return position + 1;
+        }
+
+        data[position++] = (byte) (OFFSET_SHORT_ITEM + length);
+        for (int i = length - 1; i >= 0; i--) {
+            data[position + i] = (byte) low;
+            low >>>= 8;
+            if (i == length - 8) {
+                low = high;
+            }
+        }
+        return position + length;
+    }
+
+    private static int skipHeader(byte[] data, int position) {
+        int prefix = data[position] & 0xFF;
+        Util.check(prefix >= OFFSET_SHORT_LIST, "account state is an RLP list");
+        return (prefix <= OFFSET_LONG_LIST) ? position + 1 : position + 1 + (prefix - OFFSET_LONG_LIST);
+    }
+
+    /**
+     * @return the payload offset in the upper and the payload length in the lower half
+     */
+    private static long readItem(byte[] data, int position) {
+        int prefix = data[position] & 0xFF;
+        if (prefix < OFFSET_SHORT_ITEM) {
+            return item(position, 1);
+        }
+        if (prefix <= OFFSET_LONG_ITEM) {
+            return item(position + 1, prefix - OFFSET_SHORT_ITEM);
+        }
+        Util.check(prefix < OFFSET_SHORT_LIST, "account state field is an RLP item");
+
+        int lengthOfLength = prefix - OFFSET_LONG_ITEM;
+        int length = (int) readLong(data, position + 1, lengthOfLength);
+        return item(position + 1 + lengthOfLength, length);
+    }
+
+    private static long item(int offset, int length) {
+        return ((long) offset << 32) | length;
+    }
+
+    private static int offset(long item) {
+        return (int) (item >>> 32);
+    }
+
+    private static int length(long item) {
+        return (int) item;
+    }
+
+    private static long readLong(byte[] data, int offset, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static boolean matches(byte[] bytes, byte[] data, int offset, int length) {
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != data[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
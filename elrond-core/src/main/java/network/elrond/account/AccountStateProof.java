@@ -0,0 +1,71 @@
+package network.elrond.account;
+
+import network.elrond.core.Util;
+import network.elrond.trie.TrieProof;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Account state with the Merkle proof of its value in the accounts trie. Checked against the appStateHash
+ * of a block, one response is enough instead of a vote over the responses of all peers in the shard.
+ */
+public class AccountStateProof implements Serializable {
+
+    private final AccountAddress address;
+    // null if the account is proven absent
+    private final AccountState state;
+    private final TrieProof proof;
+
+    public AccountStateProof(AccountAddress address, AccountState state, TrieProof proof) {
+        Util.check(address != null, "address!=null");
+        Util.check(proof != null, "proof!=null");
+
+        this.address = address;
+        this.state = state;
+        this.proof = proof;
+    }
+
+    /**
+     * @param appStateHash the trusted state root, usually the one of a block header
+     * @return true if the proof holds for the state root and proves this state for this address
+     */
+    public boolean verify(byte[] appStateHash) {
+        if (!Arrays.equals(address.getBytes(), proof.getKey())) {
+            return false;
+        }
+
+        byte[] value = proof.verify(appStateHash);
+        if (value == null) {
+            return false;
+        }
+        if (state == null) {
+            return value.length == 0;
+        }
+        return Arrays.equals(value, AccountStateCodec.encode(state));
+    }
+
+    public AccountAddress getAddress() {
+        return address;
+    }
+
+    public AccountState getState() {
+        return state;
+    }
+
+    public TrieProof getProof() {
+        return proof;
+    }
+
+    /**
+     * @return the state root the proof was built for
+     */
+    public byte[] getRootHash() {
+        return proof.getRootHash();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AccountStateProof{state=%s, proofNodes=%d}", state, proof.getNodes().size());
+    }
+}
@@ -9,6 +9,7 @@ import org.mapdb.Fun;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Iterator;
 
 public interface AccountStateService {
 
@@ -20,6 +21,11 @@ public interface AccountStateService {
 
     AccountState getAccountState(AccountAddress address, Accounts accounts) throws IOException, ClassNotFoundException;
 
+    /** Account states between two addresses in address order, read as the iterator gets to them; null bounds for none */
+    Iterator<AccountState> getAccountStates(AccountAddress from, AccountAddress to, Accounts accounts);
+
+    AccountStateProof getAccountStateProof(AccountAddress address, Accounts accounts);
+
     AccountState getOrCreateAccountState(AccountAddress address, Accounts accounts) throws IOException, ClassNotFoundException;
 
     byte[] convertAccountStateToRLP(AccountState accountState);
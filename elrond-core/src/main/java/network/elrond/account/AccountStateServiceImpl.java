@@ -3,8 +3,6 @@ package network.elrond.account;
 import network.elrond.application.AppContext;
 import network.elrond.application.AppState;
 import network.elrond.chronology.NTPClient;
-import network.elrond.core.RLP;
-import network.elrond.core.RLPList;
 import network.elrond.core.Util;
 import network.elrond.crypto.PrivateKey;
 import network.elrond.crypto.PublicKey;
@@ -14,6 +12,7 @@ import network.elrond.data.model.ExecutionReport;
 import network.elrond.data.model.Transaction;
 import network.elrond.data.service.ExecutionService;
 import network.elrond.service.AppServiceProvider;
+import network.elrond.trie.TrieProof;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.mapdb.Fun;
@@ -21,13 +20,14 @@ import org.mapdb.Fun;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public class AccountStateServiceImpl implements AccountStateService {
     private static final Logger logger = LogManager.getLogger(AccountStateServiceImpl.class);
 
     @Override
-    public synchronized AccountState getOrCreateAccountState(AccountAddress address, Accounts accounts) throws IOException, ClassNotFoundException {
+    public AccountState getOrCreateAccountState(AccountAddress address, Accounts accounts) throws IOException, ClassNotFoundException {
         logger.traceEntry("params: {} {}", address, accounts);
 
         Util.check(address != null, "address!=null");
@@ -40,24 +40,47 @@ public class AccountStateServiceImpl implements AccountStateService {
             return logger.traceExit(state);
         }
 
+        // created by the unit, a state set by another thread in between is kept
         logger.trace("Create account state...");
-        setAccountState(address, new AccountState(address), accounts);
-        return logger.traceExit(getAccountState(address, accounts));
+        state = accounts.getAccountsPersistenceUnit().getOrCreateAccountState(address);
+        accounts.addAddress(address);
+        return logger.traceExit(state);
     }
 
     @Override
-    public synchronized AccountState getAccountState(AccountAddress address, Accounts accounts) {
+    public AccountState getAccountState(AccountAddress address, Accounts accounts) {
         logger.traceEntry("params: {} {}", address, accounts);
         if (address == null) {
             logger.trace("address is null");
             return logger.traceExit((AccountState) null);
         }
 
-        PersistenceUnit<AccountAddress, AccountState> unit = accounts.getAccountsPersistenceUnit();
-        byte[] bytes = address.getBytes();
-        byte[] data = unit.get(bytes);
+        AccountsPersistenceUnit<AccountAddress, AccountState> unit = accounts.getAccountsPersistenceUnit();
+        return logger.traceExit(unit.getAccountState(address));
+    }
 
-        return logger.traceExit((data != null) ? convertToAccountStateFromRLP(data) : null);
+    @Override
+    public Iterator<AccountState> getAccountStates(AccountAddress from, AccountAddress to, Accounts accounts) {
+        logger.traceEntry("params: {} {} {}", from, to, accounts);
+        Util.check(accounts != null, "accounts!=null");
+
+        AccountsPersistenceUnit<AccountAddress, AccountState> unit = accounts.getAccountsPersistenceUnit();
+        return logger.traceExit(unit.getAccountStates(from, to));
+    }
+
+    @Override
+    public synchronized AccountStateProof getAccountStateProof(AccountAddress address, Accounts accounts) {
+        logger.traceEntry("params: {} {}", address, accounts);
+        Util.check(address != null, "address!=null");
+        Util.check(accounts != null, "accounts!=null");
+
+        AccountsPersistenceUnit<AccountAddress, AccountState> unit = accounts.getAccountsPersistenceUnit();
+        TrieProof proof = unit.getProof(address);
+
+        // the committed state, the one the proof is for
+        byte[] value = proof.verify(proof.getRootHash());
+        AccountState state = (value == null || value.length == 0) ? null : AccountStateCodec.decode(value, address);
+        return logger.traceExit(new AccountStateProof(address, state, proof));
     }
 
     @Override
@@ -87,20 +110,15 @@ public class AccountStateServiceImpl implements AccountStateService {
 
         logger.trace("Setting account state...");
         AccountsPersistenceUnit<AccountAddress, AccountState> unit = accounts.getAccountsPersistenceUnit();
-        unit.put(address.getBytes(), convertAccountStateToRLP(state));
-        unit.getCache().put(address, state);
-        accounts.getAddresses().add(address);
+        unit.setAccountState(address, state);
+        accounts.addAddress(address);
         logger.traceExit();
     }
 
     @Override
     public byte[] convertAccountStateToRLP(AccountState accountState) {
         logger.traceEntry("params: {}", accountState);
-        byte[] nonce = RLP.encodeBigInteger(accountState.getNonce());
-        byte[] balance = RLP.encodeBigInteger(accountState.getBalance());
-        byte[] address = RLP.encodeElement(accountState.getAddress().getBytes());
-
-        return logger.traceExit(RLP.encodeList(nonce, balance, address));
+        return logger.traceExit(AccountStateCodec.encode(accountState));
     }
 
 
@@ -112,27 +130,7 @@ public class AccountStateServiceImpl implements AccountStateService {
             return logger.traceExit((AccountState) null);
         }
 
-        byte[] EMPTY_DATA = {0};
-        RLPList items = (RLPList) RLP.decode2(data).get(0);
-
-        byte[] nonceRlpData = items.get(0).getRLPData();
-        BigInteger nonce = new BigInteger(1, (nonceRlpData == null ? EMPTY_DATA : nonceRlpData));
-
-
-        byte[] balanceRlpData = items.get(1).getRLPData();
-        BigInteger balance = new BigInteger(1, (balanceRlpData == null ? EMPTY_DATA : balanceRlpData));
-
-
-        byte[] addressRlpData = items.get(2).getRLPData();
-        AccountAddress address = AccountAddress.fromBytes((addressRlpData == null ? EMPTY_DATA : addressRlpData));
-
-
-        AccountState accountState = new AccountState(address);
-        accountState.setNonce(nonce);
-        accountState.setBalance(balance);
-
-
-        return logger.traceExit(accountState);
+        return logger.traceExit(AccountStateCodec.decode(data));
     }
 
     @Override
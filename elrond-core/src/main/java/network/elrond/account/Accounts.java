@@ -13,13 +13,15 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
-public class Accounts implements Serializable, PersistenceUnitContainer {
+public class Accounts implements Serializable, PersistenceUnitContainer, AccountsView {
 
     private final AccountsContext context;
 
     private final AccountsPersistenceUnit<AccountAddress, AccountState> unit;
 
-    private final Set<AccountAddress> addresses;
+    // shared with the snapshots taken since the last write, copied by whichever side writes first
+    private Set<AccountAddress> addresses;
+    private boolean addressesShared;
     private static final Logger logger = LogManager.getLogger(Accounts.class);
 
     public Accounts(AccountsContext context, AccountsPersistenceUnit<AccountAddress, AccountState> unit) {
@@ -33,16 +35,61 @@ public class Accounts implements Serializable, PersistenceUnitContainer {
         logger.traceExit();
     }
 
+    private Accounts(Accounts source, AccountsPersistenceUnit<AccountAddress, AccountState> unit) {
+        this.context = source.context;
+        this.unit = unit;
+        synchronized (source) {
+            this.addresses = source.addresses;
+            this.addressesShared = true;
+            source.addressesShared = true;
+        }
+    }
+
+    /**
+     * @return accounts over a snapshot of the current states, for execution that must not touch these
+     */
+    public Accounts snapshot() throws IOException {
+        logger.traceEntry();
+        return logger.traceExit(new Accounts(this, unit.snapshot()));
+    }
+
+    @Override
     public Shard getShard() {
         return context.getShard();
     }
 
+    @Override
+    public AccountState getOrCreateAccountState(AccountAddress address) throws IOException, ClassNotFoundException {
+        return AppServiceProvider.getAccountStateService().getOrCreateAccountState(address, this);
+    }
+
+    @Override
+    public void setAccountState(AccountAddress address, AccountState state) throws IOException {
+        AppServiceProvider.getAccountStateService().setAccountState(address, state, this);
+    }
+
+    public boolean isParallelExecution() {
+        return context.isParallelExecution();
+    }
+
     public AccountsPersistenceUnit<AccountAddress, AccountState> getAccountsPersistenceUnit() {
         return unit;
     }
 
-    public Set<AccountAddress> getAddresses() {
-        return (Collections.synchronizedSet(addresses));
+    public synchronized Set<AccountAddress> getAddresses() {
+        return (Collections.unmodifiableSet(addresses));
+    }
+
+    public synchronized void addAddress(AccountAddress address) {
+        Util.check(address != null, "address!=null");
+        if (addresses.contains(address)) {
+            return;
+        }
+        if (addressesShared) {
+            addresses = new HashSet<>(addresses);
+            addressesShared = false;
+        }
+        addresses.add(address);
     }
 
     public void flush() {
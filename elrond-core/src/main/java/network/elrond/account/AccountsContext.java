@@ -10,6 +10,9 @@ public class AccountsContext implements Serializable {
 
     private Shard shard;
 
+    // execute non conflicting transactions of a block on all cores, false falls back to serial execution
+    private boolean parallelExecution = true;
+
     public String getDatabasePath() {
         return databasePath;
     }
@@ -25,4 +28,12 @@ public class AccountsContext implements Serializable {
     public void setShard(Shard shard) {
         this.shard = shard;
     }
+
+    public boolean isParallelExecution() {
+        return parallelExecution;
+    }
+
+    public void setParallelExecution(boolean parallelExecution) {
+        this.parallelExecution = parallelExecution;
+    }
 }
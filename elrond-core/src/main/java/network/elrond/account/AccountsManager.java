@@ -19,18 +19,18 @@ public class AccountsManager {
         return instance;
     }
 
-    public Boolean hasFunds(Accounts accounts, String addressString, BigInteger value) throws IOException, ClassNotFoundException {
+    public Boolean hasFunds(AccountsView accounts, String addressString, BigInteger value) throws IOException, ClassNotFoundException {
         logger.traceEntry("params: {} {} {}", accounts, addressString, value);
         Util.check(accounts != null, "accounts!=null");
         Util.check(!(addressString == null || addressString.isEmpty()), "addressString!=null");
 
         AccountAddress sendAddress = AccountAddress.fromHexString(addressString);
-        AccountState senderAccountState = AppServiceProvider.getAccountStateService().getOrCreateAccountState(sendAddress, accounts);
+        AccountState senderAccountState = accounts.getOrCreateAccountState(sendAddress);
 
-        return logger.traceExit(senderAccountState.getBalance().compareTo(value) >= 0);
+        return logger.traceExit(senderAccountState.hasBalance(value));
     }
 
-    public Boolean hasCorrectNonce(Accounts accounts, String addressString, BigInteger nonce) throws IOException, ClassNotFoundException {
+    public Boolean hasCorrectNonce(AccountsView accounts, String addressString, BigInteger nonce) throws IOException, ClassNotFoundException {
         logger.traceEntry("params: {} {} {}", accounts, addressString, nonce);
         Util.check(accounts != null, "accounts!=null");
         Util.check(!(addressString == null || addressString.isEmpty()), "addressString!=null");
@@ -38,7 +38,21 @@ public class AccountsManager {
         return logger.traceExit(true);
     }
 
-    public void transferFunds(Accounts accounts, String senderAddress, String receiverAddress, BigInteger value, BigInteger nonce, ShardOperation operation) throws IOException, ClassNotFoundException {
+    public BigInteger getNonce(Accounts accounts, String addressString) throws IOException, ClassNotFoundException {
+        logger.traceEntry("params: {} {}", accounts, addressString);
+        Util.check(accounts != null, "accounts!=null");
+        Util.check(!(addressString == null || addressString.isEmpty()), "addressString!=null");
+
+        AccountState accountState = AppServiceProvider.getAccountStateService().getAccountState(AccountAddress.fromHexString(addressString), accounts);
+
+        return logger.traceExit(accountState == null ? BigInteger.ZERO : accountState.getNonce());
+    }
+
+    /**
+     * Moves the value from the sender to the receiver, on the accounts or on a write set over them, so it can
+     * run concurrently with other non conflicting transfers
+     */
+    public void transferFunds(AccountsView accounts, String senderAddress, String receiverAddress, BigInteger value, BigInteger nonce, ShardOperation operation) throws IOException, ClassNotFoundException {
 
         logger.traceEntry("params: {} {} {} {} {}", accounts, senderAddress, receiverAddress, value, nonce);
         Util.check(accounts != null, "accounts!=null");
@@ -59,31 +73,31 @@ public class AccountsManager {
         if (operation.isCheckTarget()) {
 
             AccountAddress receiver = AccountAddress.fromHexString(receiverAddress);
-            AccountState receiverAccountState = AppServiceProvider.getAccountStateService().getOrCreateAccountState(receiver, accounts);
+            AccountState receiverAccountState = accounts.getOrCreateAccountState(receiver);
 
 
             logger.trace("Transfer asset > adding");
-            receiverAccountState.setBalance(receiverAccountState.getBalance().add(value));
-            AppServiceProvider.getAccountStateService().setAccountState(receiver, receiverAccountState, accounts); // PMS
+            receiverAccountState.credit(value);
+            accounts.setAccountState(receiver, receiverAccountState); // PMS
 
         }
 
         if (operation.isCheckSource()) {
 
             AccountAddress sender = AccountAddress.fromHexString(senderAddress);
-            AccountState senderAccountState = AppServiceProvider.getAccountStateService().getOrCreateAccountState(sender, accounts);
+            AccountState senderAccountState = accounts.getOrCreateAccountState(sender);
 
             logger.trace("Transfer asset > substracting");
-            senderAccountState.setBalance(senderAccountState.getBalance().subtract(value));
+            senderAccountState.debit(value);
 
 
             //increase sender nonce
             logger.trace("Transfer asset > increasing sender nonce");
-            senderAccountState.setNonce(senderAccountState.getNonce().add(BigInteger.ONE));
+            senderAccountState.incrementNonce();
 
 
             logger.trace("Transfer asset > saving");
-            AppServiceProvider.getAccountStateService().setAccountState(sender, senderAccountState, accounts); // PMS
+            accounts.setAccountState(sender, senderAccountState); // PMS
         }
 
 
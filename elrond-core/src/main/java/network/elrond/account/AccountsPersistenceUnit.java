@@ -1,56 +1,349 @@
 package network.elrond.account;
 
+import network.elrond.core.ThreadUtil;
+import network.elrond.db.ByteArrayWrapper;
+import network.elrond.trie.Cache;
 import network.elrond.trie.Trie;
 import network.elrond.trie.TrieImpl;
+import network.elrond.trie.TrieIterator;
+import network.elrond.trie.TrieProof;
+import network.elrond.trie.TrieSync;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Accounts trie with a write-back layer for the block being executed.
+ * Account states written during a block stay in memory, coalesced per address, and reach the trie only when
+ * the state root is needed or the block is committed; a rollback drops them. Decoded states read from the trie
+ * are kept in the unit cache. Account reads run side by side under a read lock, everything else takes the
+ * write lock.
+ */
 public class AccountsPersistenceUnit<K extends AccountAddress, S extends AccountState> extends AbstractPersistenceUnit<K, S> {
 
     final Trie trie;
 
+    // states written since the last write to the trie, in first write order
+    private final Map<AccountAddress, AccountState> pending = new LinkedHashMap<>();
+
+    // addresses written to the trie since the last commit, their cached states go away on rollback
+    private final Set<AccountAddress> uncommitted = new HashSet<>();
+
+    // account reads share the trie, anything writing to it or to the pending states is alone
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
     private static final Logger logger = LogManager.getLogger(AccountsPersistenceUnit.class);
 
+    // state roots of the last blocks whose trie nodes stay in the db
+    public static final int KEPT_STATE_ROOTS = 32;
+
     public AccountsPersistenceUnit(String databasePath) throws IOException {
         super(databasePath);
         logger.traceEntry("params: {}", databasePath);
-        trie = new TrieImpl(database);
+        TrieImpl accountsTrie = new TrieImpl(database);
+        // the state root is needed once per block, not after every account write
+        accountsTrie.setDeferredHashing(true);
+        accountsTrie.enablePruning(KEPT_STATE_ROOTS);
+        trie = accountsTrie;
         logger.traceExit();
     }
 
+    /**
+     * Unit over a trie snapshot; the in-memory database of its own stays unused
+     */
+    private AccountsPersistenceUnit(TrieImpl snapshot) throws IOException {
+        super((String) null);
+        trie = snapshot;
+    }
+
     @Override
     public void put(byte[] key, byte[] val) {
-        trie.update(key, val);
+        lock.writeLock().lock();
+        try {
+            writePending();
+            trie.update(key, val);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts many values at once, rewriting the trie nodes above them once
+     *
+     * @param values values by key, an empty value deletes the key
+     */
+    public void putAll(Map<ByteArrayWrapper, byte[]> values) {
+        lock.writeLock().lock();
+        try {
+            writePending();
+            trie.updateAll(values);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
     public byte[] get(byte[] key) {
-        return trie.get(key);
+        lock.writeLock().lock();
+        try {
+            writePending();
+            return trie.get(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void delete(byte[] key) {
-        trie.delete(key);
+        lock.writeLock().lock();
+        try {
+            writePending();
+            trie.delete(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the latest state of the account, null if it does not exist
+     */
+    @SuppressWarnings("unchecked")
+    public AccountState getAccountState(AccountAddress address) {
+        lock.readLock().lock();
+        try {
+            AccountState state = pending.get(address);
+            if (state == null) {
+                state = getCache().get(address);
+            }
+
+            if (state == null) {
+                byte[] data = trie.get(address.getBytes());
+                if (data == null || data.length == 0) {
+                    return null;
+                }
+                state = AccountStateCodec.decode(data, address);
+                getCache().put((K) address, (S) state);
+            }
+
+            return new AccountState(state);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the latest state of the account, a new empty one set first if it does not exist
+     */
+    public AccountState getOrCreateAccountState(AccountAddress address) {
+        lock.writeLock().lock();
+        try {
+            AccountState state = getAccountState(address);
+            if (state == null) {
+                state = new AccountState(address);
+                pending.put(address, new AccountState(state));
+            }
+            return state;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setAccountState(AccountAddress address, AccountState state) {
+        lock.writeLock().lock();
+        try {
+            pending.put(address, new AccountState(state));
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void commit() {
-        trie.sync();
+        lock.writeLock().lock();
+        try {
+            writePending();
+            trie.sync();
+            uncommitted.clear();
+
+            Cache cache = ((TrieImpl) trie).getCache();
+            logger.debug("Committed accounts: {} trie nodes, {} bytes written", cache.getLastCommitNodes(), cache.getLastCommitBytes());
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void rollBack() {
-        trie.undo();
+        lock.writeLock().lock();
+        try {
+            logger.trace("Dropping {} pending account states", pending.size());
+            pending.clear();
+            for (AccountAddress address : uncommitted) {
+                getCache().remove(address);
+            }
+            uncommitted.clear();
+            trie.undo();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the pending account states to the trie in one batched update
+     */
+    @SuppressWarnings("unchecked")
+    public void writePending() {
+        lock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            logger.trace("Writing {} pending account states", pending.size());
+            Map<ByteArrayWrapper, byte[]> values = new HashMap<>();
+            for (Map.Entry<AccountAddress, AccountState> entry : pending.entrySet()) {
+                values.put(new ByteArrayWrapper(entry.getKey().getBytes()), AccountStateCodec.encode(entry.getValue()));
+                getCache().put((K) entry.getKey(), (S) entry.getValue());
+                uncommitted.add(entry.getKey());
+            }
+            pending.clear();
+            trie.updateAll(values);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public void cleanCache() {
         ((TrieImpl) trie).cleanCache();
     }
 
+    /**
+     * @return a unit over the current account states, pending ones included, that shares the trie nodes
+     * with this one; changes on either side are not seen by the other and the snapshot never writes to the db
+     */
+    public AccountsPersistenceUnit<K, S> snapshot() throws IOException {
+        lock.writeLock().lock();
+        try {
+            writePending();
+            return new AccountsPersistenceUnit<>(((TrieImpl) trie).snapshot());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the proof of the account's committed state, against the state root of the last commit
+     */
+    public TrieProof getProof(AccountAddress address) {
+        lock.readLock().lock();
+        try {
+            return ((TrieImpl) trie).getSyncedProof(address.getBytes());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param from the first address, null to start with the smallest one
+     * @param to the address to stop before, null to go to the last one
+     * @return the latest account states between the addresses in address order, each read and decoded
+     * when reached; the trie root is taken now, later writes are not seen
+     */
+    public Iterator<AccountState> getAccountStates(AccountAddress from, AccountAddress to) {
+        lock.writeLock().lock();
+        try {
+            writePending();
+            TrieIterator entries = ((TrieImpl) trie).getIterator(
+                    (from == null) ? null : from.getBytes(),
+                    (to == null) ? null : to.getBytes());
+
+            return new Iterator<AccountState>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public AccountState next() {
+                    Map.Entry<byte[], byte[]> entry = entries.next();
+                    return AccountStateCodec.decode(entry.getValue(), AccountAddress.fromBytes(entry.getKey()));
+                }
+            };
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the encodings of the trie nodes found under the hashes, for a peer syncing the state
+     */
+    public List<byte[]> getTrieNodes(List<byte[]> hashes) {
+        return ((TrieImpl) trie).getEncodedNodes(hashes);
+    }
+
+    /**
+     * Replaces the account states with the ones under the state root, downloading the trie nodes not stored;
+     * the states not committed are dropped
+     *
+     * @return the number of trie nodes downloaded
+     */
+    public int syncState(byte[] rootHash, TrieSync.NodeSource source) {
+        lock.writeLock().lock();
+        try {
+            logger.traceEntry("params: {}", rootHash);
+            rollBack();
+            getCache().clear();
+
+            TrieSync sync = new TrieSync((TrieImpl) trie, source, ThreadUtil.executor);
+            sync.sync(rootHash);
+            return logger.traceExit(sync.getSyncedNodes());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the account states to the ones under a state root committed before, as on restart;
+     * the states not committed are dropped
+     *
+     * @return false if the trie nodes of the root are not all kept in the db
+     */
+    public boolean restoreState(byte[] rootHash) {
+        lock.writeLock().lock();
+        try {
+            logger.traceEntry("params: {}", rootHash);
+            rollBack();
+            getCache().clear();
+            return logger.traceExit(((TrieImpl) trie).restoreRoot(rootHash));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     public TrieImpl copyTrie() {
-        return ((TrieImpl) trie).copy();
+        lock.writeLock().lock();
+        try {
+            writePending();
+            return ((TrieImpl) trie).copy();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public byte[] getRootHash() {
-        return trie.getRootHash();
+        lock.writeLock().lock();
+        try {
+            writePending();
+            return trie.getRootHash();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 }
\ No newline at end of file
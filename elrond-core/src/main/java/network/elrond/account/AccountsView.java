@@ -0,0 +1,18 @@
+package network.elrond.account;
+
+import network.elrond.sharding.Shard;
+
+import java.io.IOException;
+
+/**
+ * Account states a transfer reads and writes: the {@link Accounts} themselves, or an {@link AccountsWriteSet}
+ * keeping the writes of one execution group
+ */
+public interface AccountsView {
+
+    Shard getShard();
+
+    AccountState getOrCreateAccountState(AccountAddress address) throws IOException, ClassNotFoundException;
+
+    void setAccountState(AccountAddress address, AccountState state) throws IOException;
+}
@@ -0,0 +1,81 @@
+package network.elrond.account;
+
+import network.elrond.core.Util;
+import network.elrond.service.AppServiceProvider;
+import network.elrond.sharding.Shard;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Private view over {@link Accounts} used by a single execution group.
+ * Reads fall through to the accounts trie, writes are kept locally until {@link #flush()}
+ * pushes them, in first-touch order, into the accounts persistence unit.
+ */
+public class AccountsWriteSet implements AccountsView {
+
+    private static final Logger logger = LogManager.getLogger(AccountsWriteSet.class);
+
+    private final Accounts accounts;
+
+    private final Map<AccountAddress, AccountState> states = new LinkedHashMap<>();
+
+    public AccountsWriteSet(Accounts accounts) {
+        Util.check(accounts != null, "accounts!=null");
+        this.accounts = accounts;
+    }
+
+    public Accounts getAccounts() {
+        return accounts;
+    }
+
+    @Override
+    public Shard getShard() {
+        return accounts.getShard();
+    }
+
+    @Override
+    public AccountState getOrCreateAccountState(AccountAddress address) throws IOException, ClassNotFoundException {
+        logger.traceEntry("params: {}", address);
+        Util.check(address != null, "address!=null");
+
+        AccountState state = states.get(address);
+        if (state == null) {
+            state = AppServiceProvider.getAccountStateService().getAccountState(address, accounts);
+            if (state == null) {
+                logger.trace("Create account state...");
+                state = new AccountState(address);
+            }
+            states.put(address, state);
+        }
+
+        return logger.traceExit(new AccountState(state));
+    }
+
+    @Override
+    public void setAccountState(AccountAddress address, AccountState state) {
+        logger.traceEntry("params: {} {}", address, state);
+        Util.check(address != null, "address!=null");
+        Util.check(state != null, "state!=null");
+
+        states.put(address, state);
+        logger.traceExit();
+    }
+
+    public Map<AccountAddress, AccountState> getStates() {
+        return states;
+    }
+
+    public void flush() throws IOException {
+        logger.traceEntry();
+        AccountStateService accountStateService = AppServiceProvider.getAccountStateService();
+        for (Map.Entry<AccountAddress, AccountState> entry : states.entrySet()) {
+            accountStateService.setAccountState(entry.getKey(), entry.getValue(), accounts);
+        }
+        states.clear();
+        logger.traceExit();
+    }
+}
@@ -44,7 +44,22 @@ public class MockDB implements org.iq80.leveldb.DB {
 
     @Override
     public WriteBatch createWriteBatch() {
-        return null;
+        return new WriteBatch() {
+            @Override
+            public WriteBatch put(byte[] key, byte[] value) {
+                return this;
+            }
+
+            @Override
+            public WriteBatch delete(byte[] key) {
+                return this;
+            }
+
+            @Override
+            public void close() throws IOException {
+
+            }
+        };
     }
 
     @Override
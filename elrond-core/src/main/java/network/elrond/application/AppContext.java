@@ -11,6 +11,8 @@ import java.util.List;
 
 public class AppContext implements Serializable {
 
+    public static final int DEFAULT_STATE_SYNC_MIN_BLOCKS = 1000;
+
     private String nodeName;
     private Integer port;
     private String masterPeerIpAddress;
@@ -20,6 +22,10 @@ public class AppContext implements Serializable {
 
     private String strAddressMint = "000000000000000000000000000000000000000000000000000000000000000000";
     private BootstrapType bootstrapType = BootstrapType.REBUILD_FROM_DISK;//BootstrapType.START_FROM_SCRATCH;
+    // blocks to catch up from which the account state is synced instead of replayed, 0 to always replay
+    private int stateSyncMinBlocks = DEFAULT_STATE_SYNC_MIN_BLOCKS;
+    // pending transactions queued per sender and handed to block assembly in nonce order
+    private boolean nonceOrderedPool = false;
     
 
     private List<String> listNTPServers = Arrays.asList("time.google.com", "pool.ntp.org", "time.windows.com");
@@ -78,6 +84,23 @@ public class AppContext implements Serializable {
     }
 
 
+    public int getStateSyncMinBlocks() {
+        return stateSyncMinBlocks;
+    }
+
+    public void setStateSyncMinBlocks(int stateSyncMinBlocks) {
+        Util.check(stateSyncMinBlocks >= 0, "stateSyncMinBlocks>=0");
+        this.stateSyncMinBlocks = stateSyncMinBlocks;
+    }
+
+    public boolean isNonceOrderedPool() {
+        return nonceOrderedPool;
+    }
+
+    public void setNonceOrderedPool(boolean nonceOrderedPool) {
+        this.nonceOrderedPool = nonceOrderedPool;
+    }
+
     public String getStrAddressMint() {
         return strAddressMint;
     }
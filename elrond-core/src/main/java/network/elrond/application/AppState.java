@@ -156,7 +156,7 @@ public class AppState implements Serializable {
     }
 
     public StatisticsManager getStatisticsManager() {
-        logger.warn("Transactions in Pool: {}", getPool().getTransactions().size());
+        logger.warn("Transactions in Pool: {}", getPool());
         if (statisticsManagers == null) {
             statisticsManagers = new StatisticsManager(new ElrondSystemTimerImpl(), getShard().getIndex());
         }
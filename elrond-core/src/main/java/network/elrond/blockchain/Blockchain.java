@@ -12,6 +12,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,6 +31,7 @@ public class Blockchain implements Serializable, PersistenceUnitContainer {
 
 
     protected final Map<BlockchainUnitType, BlockchainPersistenceUnit<?, ?>> blockchain = new HashMap<>();
+    protected BlockchainStore store;
 
     private BigInteger networkBlockHeight = Util.BIG_INT_MIN_ONE;
 
@@ -40,20 +42,45 @@ public class Blockchain implements Serializable, PersistenceUnitContainer {
         generatePersistenceUnitMap(context);
     }
 
+    /**
+     * Opens the store of the blockchain, the units are namespaces of it
+     */
     public void generatePersistenceUnitMap(BlockchainContext context) throws IOException {
+        store = new BlockchainStore(context);
         for (BlockchainUnitType type : BlockchainUnitType.values()) {
-            String path = context.getDatabasePath(type);
             Class<?> valueType = type.getValueType();
-            BlockchainPersistenceUnit<String, ?> unit = new BlockchainPersistenceUnit<>(path, valueType);
+            BlockchainPersistenceUnit<String, ?> unit = new BlockchainPersistenceUnit<>(store, type, valueType,
+                    context.getCacheSize(type), context.getCacheTimeToLive(type));
             blockchain.put(type, unit);
         }
     }
 
+    /**
+     * @return the store all the units write to, null if the units have databases of their own
+     */
+    public BlockchainStore getStore() {
+        return store;
+    }
+
     @SuppressWarnings("unchecked")
 	public <H extends Object, B> BlockchainPersistenceUnit<H, B> getUnit(BlockchainUnitType type) {
         return (BlockchainPersistenceUnit<H, B>) blockchain.get(type);
     }
 
+    /**
+     * @return the hit ratio of the object cache of each unit
+     */
+    public Map<BlockchainUnitType, Double> getCacheHitRatios() {
+        Map<BlockchainUnitType, Double> ratios = new EnumMap<>(BlockchainUnitType.class);
+        for (BlockchainUnitType type : BlockchainUnitType.values()) {
+            BlockchainPersistenceUnit<?, ?> unit = blockchain.get(type);
+            if (unit != null && unit.getCache() != null) {
+                ratios.put(type, unit.getCache().getHitRatio());
+            }
+        }
+        return ratios;
+    }
+
     public <H extends Object, B> Class<B> getClazz(BlockchainUnitType type) {
         BlockchainPersistenceUnit<H, B> unit = getUnit(type);
         return unit.clazz;
@@ -120,6 +147,13 @@ public class Blockchain implements Serializable, PersistenceUnitContainer {
                 logger.catching(e);
             }
         }
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                logger.catching(e);
+            }
+        }
         logger.traceExit();
     }
 
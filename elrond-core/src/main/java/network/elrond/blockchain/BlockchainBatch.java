@@ -0,0 +1,50 @@
+package network.elrond.blockchain;
+
+import network.elrond.core.Util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records of several units to be stored together, like a block and its index or a receipt and the link from its
+ * transaction; see {@link BlockchainService#putLocal(BlockchainBatch, Blockchain)}
+ */
+public class BlockchainBatch {
+
+    static class Record {
+        final Object hash;
+        final Serializable object;
+        final BlockchainUnitType type;
+
+        Record(Object hash, Serializable object, BlockchainUnitType type) {
+            this.hash = hash;
+            this.object = object;
+            this.type = type;
+        }
+    }
+
+    private final List<Record> records = new ArrayList<>();
+
+    public <H extends Object, B extends Serializable> BlockchainBatch put(H hash, B object, BlockchainUnitType type) {
+        Util.check(hash != null, "hash!=null");
+        Util.check(object != null, "object!=null");
+        Util.check(type != null, "type!=null");
+
+        records.add(new Record(hash, object, type));
+        return this;
+    }
+
+    List<Record> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+}
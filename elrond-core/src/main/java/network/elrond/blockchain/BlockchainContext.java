@@ -5,14 +5,40 @@ import network.elrond.p2p.model.P2PConnection;
 import network.elrond.sharding.Shard;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.EnumMap;
 
 public class BlockchainContext implements Serializable {
 
     private P2PConnection connection;
     private Shard shard;
-    private Map<BlockchainUnitType, String> databasePaths = new HashMap<>();
+    // one database for all the units, null to keep nothing
+    private String databasePath;
+    // shared by all the units: LevelDB block cache and memtable size (bytes)
+    private long blockCacheSize = 32L * 1024 * 1024;
+    private int writeBufferSize = 8 * 1024 * 1024;
+
+    // decoded objects kept in memory per unit: budget of their encoded size (bytes) and time to live (ms, 0 for ever)
+    private final EnumMap<BlockchainUnitType, Long> cacheSizes = new EnumMap<>(BlockchainUnitType.class);
+    private final EnumMap<BlockchainUnitType, Long> cacheTimesToLive = new EnumMap<>(BlockchainUnitType.class);
+
+    {
+        cacheSizes.put(BlockchainUnitType.BLOCK, 32L * 1024 * 1024);
+        cacheSizes.put(BlockchainUnitType.BLOCK_INDEX, 2L * 1024 * 1024);
+        cacheSizes.put(BlockchainUnitType.TRANSACTION, 64L * 1024 * 1024);
+        cacheSizes.put(BlockchainUnitType.SETTINGS, 1024L * 1024);
+        cacheSizes.put(BlockchainUnitType.RECEIPT, 16L * 1024 * 1024);
+        cacheSizes.put(BlockchainUnitType.TRANSACTION_RECEIPT, 8L * 1024 * 1024);
+        cacheSizes.put(BlockchainUnitType.BLOCK_TRANSACTIONS, 8L * 1024 * 1024);
+        cacheSizes.put(BlockchainUnitType.CHAIN_METADATA, 64L * 1024);
+    }
+
+    // pool queues transactions per sender and block assembly only takes the ones with the next expected nonce
+    private boolean nonceOrderedPool = false;
+
+    // block assembly budgets: encoded transactions size (bytes), transactions count and execution time (ms)
+    private long maxBlockSize = 1024 * 1024;
+    private int maxBlockTransactions = 20000;
+    private long maxBlockExecutionTime = 2000;
 
     public Shard getShard() {
         return shard;
@@ -31,12 +57,85 @@ public class BlockchainContext implements Serializable {
         this.connection = connection;
     }
 
-    public String getDatabasePath(BlockchainUnitType type) {
-        return databasePaths.get(type);
+    public String getDatabasePath() {
+        return databasePath;
     }
 
-    public void setDatabasePath(BlockchainUnitType type, String path) {
+    public void setDatabasePath(String path) {
         Util.check(!(path==null || path.isEmpty()), "path!=null");
-        databasePaths.put(type, path);
+        this.databasePath = path;
+    }
+
+    public long getBlockCacheSize() {
+        return blockCacheSize;
+    }
+
+    public void setBlockCacheSize(long blockCacheSize) {
+        Util.check(blockCacheSize > 0, "blockCacheSize>0");
+        this.blockCacheSize = blockCacheSize;
+    }
+
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(int writeBufferSize) {
+        Util.check(writeBufferSize > 0, "writeBufferSize>0");
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public long getCacheSize(BlockchainUnitType type) {
+        return cacheSizes.get(type);
+    }
+
+    public void setCacheSize(BlockchainUnitType type, long cacheSize) {
+        Util.check(type != null, "type!=null");
+        Util.check(cacheSize > 0, "cacheSize>0");
+        cacheSizes.put(type, cacheSize);
+    }
+
+    public long getCacheTimeToLive(BlockchainUnitType type) {
+        return cacheTimesToLive.getOrDefault(type, 0L);
+    }
+
+    public void setCacheTimeToLive(BlockchainUnitType type, long cacheTimeToLive) {
+        Util.check(type != null, "type!=null");
+        Util.check(cacheTimeToLive >= 0, "cacheTimeToLive>=0");
+        cacheTimesToLive.put(type, cacheTimeToLive);
+    }
+
+    public boolean isNonceOrderedPool() {
+        return nonceOrderedPool;
+    }
+
+    public void setNonceOrderedPool(boolean nonceOrderedPool) {
+        this.nonceOrderedPool = nonceOrderedPool;
+    }
+
+    public long getMaxBlockSize() {
+        return maxBlockSize;
+    }
+
+    public void setMaxBlockSize(long maxBlockSize) {
+        Util.check(maxBlockSize > 0, "maxBlockSize>0");
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    public int getMaxBlockTransactions() {
+        return maxBlockTransactions;
+    }
+
+    public void setMaxBlockTransactions(int maxBlockTransactions) {
+        Util.check(maxBlockTransactions > 0, "maxBlockTransactions>0");
+        this.maxBlockTransactions = maxBlockTransactions;
+    }
+
+    public long getMaxBlockExecutionTime() {
+        return maxBlockExecutionTime;
+    }
+
+    public void setMaxBlockExecutionTime(long maxBlockExecutionTime) {
+        Util.check(maxBlockExecutionTime > 0, "maxBlockExecutionTime>0");
+        this.maxBlockExecutionTime = maxBlockExecutionTime;
     }
 }
@@ -2,27 +2,151 @@ package network.elrond.blockchain;
 
 import network.elrond.account.AbstractPersistenceUnit;
 import network.elrond.core.Util;
+import network.elrond.data.service.SerializationService;
+import network.elrond.db.WeightedCache;
+import network.elrond.service.AppServiceProvider;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+import org.iq80.leveldb.WriteBatch;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.iq80.leveldb.impl.Iq80DBFactory.bytes;
 
 public class BlockchainPersistenceUnit<K, V> extends AbstractPersistenceUnit<K, V> {
 
+    // the cache entry, the key and the object headers (bytes), added to the encoded size
+    private static final int ENTRY_OVERHEAD = 96;
+    // cache budget of a unit with a database of its own (bytes)
+    private static final long DEFAULT_CACHE_SIZE = 16L * 1024 * 1024;
+
     final Class<V> clazz;
 
+    // the store the unit is a namespace of, null for a database of its own
+    private final BlockchainStore store;
+    private final BlockchainUnitType type;
+
     BlockchainPersistenceUnit(String databasePath, Class<V> clazz) throws IOException {
-        super(databasePath);
+        super(databasePath, new WeightedCache<>(DEFAULT_CACHE_SIZE, 0, TimeUnit.MILLISECONDS, BlockchainPersistenceUnit::weigh));
         this.clazz = clazz;
+        this.store = null;
+        this.type = null;
+    }
+
+    BlockchainPersistenceUnit(BlockchainStore store, BlockchainUnitType type, Class<V> clazz, long cacheSize, long cacheTimeToLive) {
+        super(store.getDatabase(), new WeightedCache<>(cacheSize, cacheTimeToLive, TimeUnit.MILLISECONDS, BlockchainPersistenceUnit::weigh));
+        this.clazz = clazz;
+        this.store = store;
+        this.type = type;
+    }
+
+    /**
+     * @return the key of the object in the database: a height is 8 bytes big-endian, so heights are
+     * in numeric order, anything else its string
+     */
+    public byte[] key(Object hash) {
+        Util.check(hash!=null, "hash!=null");
+        if (hash instanceof BigInteger) {
+            return heightKey((BigInteger) hash);
+        }
+        return bytes(hash.toString());
+    }
+
+    public static byte[] heightKey(BigInteger height) {
+        Util.check(height.signum() >= 0 && height.bitLength() < Long.SIZE, "height in [0, Long.MAX_VALUE]");
+        return ByteBuffer.allocate(Long.BYTES).putLong(height.longValue()).array();
+    }
+
+    /**
+     * @return the weight in the cache of an object whose encoding has the given length
+     */
+    public static int weigh(byte[] encoded) {
+        return ENTRY_OVERHEAD + encoded.length;
+    }
+
+    // the weight of an object put in the cache without its encoding at hand
+    private static int weigh(Object key, Object value) {
+        SerializationService serializationService = AppServiceProvider.getSerializationService();
+        int length = serializationService.hasBinaryEncoding(value.getClass())
+                ? serializationService.encodeBinary(value).length
+                : serializationService.encodeJSON(value).length();
+        return ENTRY_OVERHEAD + length;
     }
 
     @Override
     public void put(byte[] key, byte[] val) {
         Util.check(key!=null, "key!=null");
         Util.check(val!=null, "val!=null");
-        database.put(key, val);
+        database.put(storeKey(key), val);
+    }
+
+    /**
+     * Adds the record to a batch of the store
+     */
+    public void put(WriteBatch batch, byte[] key, byte[] val) {
+        Util.check(batch!=null, "batch!=null");
+        Util.check(key!=null, "key!=null");
+        Util.check(val!=null, "val!=null");
+        batch.put(storeKey(key), val);
     }
 
     @Override
     public byte[] get(byte[] key) {
-        return database.get(key);
+        return database.get(storeKey(key));
+    }
+
+    /**
+     * Reads the values of the keys from one snapshot of the database
+     *
+     * @return the values in the order of the keys, null for the keys not found
+     */
+    public List<byte[]> getAll(List<byte[]> keys) throws IOException {
+        Util.check(keys!=null, "keys!=null");
+        Snapshot snapshot = database.getSnapshot();
+        try {
+            ReadOptions options = new ReadOptions().snapshot(snapshot);
+            List<byte[]> values = new ArrayList<>(keys.size());
+            for (byte[] key : keys) {
+                values.add(database.get(storeKey(key), options));
+            }
+            return values;
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // a shared store is closed by the blockchain
+        if (store == null) {
+            super.close();
+        }
+    }
+
+    @Override
+    public void recreate() throws IOException {
+        Util.check(store == null, "unit of a shared store");
+        super.recreate();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        Util.check(store == null, "unit of a shared store");
+        super.destroy();
+    }
+
+    public BlockchainStore getStore() {
+        return store;
+    }
+
+    private byte[] storeKey(byte[] key) {
+        return (store == null) ? key : BlockchainStore.key(type, key);
     }
-}
\ No newline at end of file
+}
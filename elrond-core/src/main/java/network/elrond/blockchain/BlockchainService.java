@@ -3,6 +3,7 @@ package network.elrond.blockchain;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 public interface BlockchainService {
 
@@ -14,9 +15,23 @@ public interface BlockchainService {
 
     <H extends Object, B extends Serializable> void putLocal(H hash, B object, Blockchain blockchain, BlockchainUnitType type);
 
+    /** Stores the records of the batch locally in one atomic write */
+    void putLocal(BlockchainBatch batch, Blockchain blockchain);
+
     <H extends Object, B extends Serializable> B get(H hash, Blockchain blockchain, BlockchainUnitType type) throws IOException, ClassNotFoundException;
 
     <H extends Object, B extends Serializable> B getLocal(H hash, Blockchain blockchain, BlockchainUnitType type);
 
+    /**
+     * Gets many objects at once: the ones not in memory are read in one pass over the database and the ones
+     * not stored are asked from the peers in one batch
+     *
+     * @return the objects found, in the order of the hashes
+     */
     <H extends Object, B extends Serializable> List<B> getAll(List<H> hashes, Blockchain blockchain, BlockchainUnitType type) throws IOException, ClassNotFoundException;
+
+    /**
+     * @return the objects found in memory or in the database, by hash
+     */
+    <H extends Object, B extends Serializable> Map<H, B> getAllLocal(List<H> hashes, Blockchain blockchain, BlockchainUnitType type) throws IOException;
 }
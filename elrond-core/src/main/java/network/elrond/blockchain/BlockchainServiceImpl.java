@@ -1,6 +1,9 @@
 package network.elrond.blockchain;
 
 import network.elrond.core.Util;
+import network.elrond.data.service.SerializationService;
+import network.elrond.db.WeightedCache;
+import network.elrond.p2p.model.P2PBatchRequest;
 import network.elrond.p2p.model.P2PConnection;
 import network.elrond.p2p.model.P2PRequestChannel;
 import network.elrond.p2p.model.P2PRequestChannelName;
@@ -8,20 +11,66 @@ import network.elrond.service.AppServiceProvider;
 import network.elrond.sharding.Shard;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.iq80.leveldb.WriteBatch;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
 
 import static org.iq80.leveldb.impl.Iq80DBFactory.asString;
 import static org.iq80.leveldb.impl.Iq80DBFactory.bytes;
 
+/**
+ * Reads take no lock: they go through the unit caches and LevelDB, both safe for concurrent use, and a read
+ * missing locally waits only for its own remote request. Concurrent misses of the same record share one request.
+ * Writes are serialized among themselves.
+ */
 public class BlockchainServiceImpl implements BlockchainService {
 
     private static final Logger logger = LogManager.getLogger(BlockchainServiceImpl.class);
 
+    // remote requests in flight, the readers missing the same record wait for the same one
+    private final ConcurrentMap<RemoteRequest, CompletableFuture<Object>> remoteRequests = new ConcurrentHashMap<>();
+
+    private static class RemoteRequest {
+        final P2PConnection connection;
+        final BlockchainUnitType type;
+        final String hash;
+
+        RemoteRequest(P2PConnection connection, BlockchainUnitType type, String hash) {
+            this.connection = connection;
+            this.type = type;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RemoteRequest)) {
+                return false;
+            }
+            RemoteRequest other = (RemoteRequest) o;
+            return connection == other.connection && type == other.type && hash.equals(other.hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(connection), type, hash);
+        }
+    }
+
     /**
      * Check if block is in blockchain (memory->database->network)
      *
@@ -29,7 +78,7 @@ public class BlockchainServiceImpl implements BlockchainService {
      * @return
      */
     @Override
-    public synchronized <H extends Object, B extends Serializable> boolean contains(H hash, Blockchain blockchain, BlockchainUnitType type) throws IOException, ClassNotFoundException {
+    public <H extends Object, B extends Serializable> boolean contains(H hash, Blockchain blockchain, BlockchainUnitType type) throws IOException, ClassNotFoundException {
         logger.traceEntry("params: {} {} {}", hash, blockchain, type);
         Util.check(hash != null, "hash!=null");
         Util.check(blockchain != null, "blockchain!=null");
@@ -82,14 +131,65 @@ public class BlockchainServiceImpl implements BlockchainService {
 
         BlockchainPersistenceUnit<H, B> unit = blockchain.getUnit(type);
 
-        unit.getCache().put(hash, object);
-        String strJSONData = AppServiceProvider.getSerializationService().encodeJSON(object);
-        unit.put(bytes(hash.toString()), bytes(strJSONData));
+        byte[] encoded = encodeObject(object);
+        unit.getCache().put(hash, object, BlockchainPersistenceUnit.weigh(encoded));
+        unit.put(unit.key(hash), encoded);
 
         logger.trace("Locally stored!");
         logger.traceExit();
     }
 
+    @Override
+    public synchronized void putLocal(BlockchainBatch batch, Blockchain blockchain) {
+        logger.traceEntry("params: {} {}", batch, blockchain);
+
+        Util.check(batch != null, "batch!=null");
+        Util.check(blockchain != null, "blockchain!=null");
+
+        List<BlockchainBatch.Record> records = batch.getRecords();
+        List<byte[]> encodings = new ArrayList<>(records.size());
+        for (BlockchainBatch.Record record : records) {
+            encodings.add(encodeObject(record.object));
+        }
+
+        BlockchainStore store = blockchain.getStore();
+        if (store == null) {
+            // units with databases of their own
+            for (int i = 0; i < records.size(); i++) {
+                BlockchainPersistenceUnit<Object, Serializable> unit = blockchain.getUnit(records.get(i).type);
+                unit.put(unit.key(records.get(i).hash), encodings.get(i));
+            }
+        } else {
+            WriteBatch writeBatch = store.createWriteBatch();
+            try {
+                for (int i = 0; i < records.size(); i++) {
+                    BlockchainPersistenceUnit<Object, Serializable> unit = blockchain.getUnit(records.get(i).type);
+                    unit.put(writeBatch, unit.key(records.get(i).hash), encodings.get(i));
+                }
+                store.write(writeBatch);
+            } finally {
+                close(writeBatch);
+            }
+        }
+
+        // cached once stored
+        for (int i = 0; i < records.size(); i++) {
+            BlockchainBatch.Record record = records.get(i);
+            BlockchainPersistenceUnit<Object, Serializable> unit = blockchain.getUnit(record.type);
+            unit.getCache().put(record.hash, record.object, BlockchainPersistenceUnit.weigh(encodings.get(i)));
+        }
+
+        logger.trace("Locally stored {} records", batch.size());
+        logger.traceExit();
+    }
+
+    private void close(WriteBatch batch) {
+        try {
+            batch.close();
+        } catch (IOException ex) {
+            logger.catching(ex);
+        }
+    }
 
     private <H extends Object, B extends Serializable> void put(H hash, B object, Blockchain blockchain, BlockchainUnitType type, boolean await) throws IOException {
         logger.traceEntry("params: {} {} {} {}", hash, object, blockchain, type);
@@ -100,9 +200,9 @@ public class BlockchainServiceImpl implements BlockchainService {
 
         BlockchainPersistenceUnit<H, B> unit = blockchain.getUnit(type);
 
-        unit.getCache().put(hash, object);
-        String strJSONData = AppServiceProvider.getSerializationService().encodeJSON(object);
-        unit.put(bytes(hash.toString()), bytes(strJSONData));
+        byte[] encoded = encodeObject(object);
+        unit.getCache().put(hash, object, BlockchainPersistenceUnit.weigh(encoded));
+        unit.put(unit.key(hash), encoded);
 
         logger.trace("Locally stored!");
 
@@ -110,25 +210,82 @@ public class BlockchainServiceImpl implements BlockchainService {
     }
 
     @Override
-    public synchronized <H extends Object, B extends Serializable> List<B> getAll(List<H> hashes, Blockchain blockchain, BlockchainUnitType type) throws IOException, ClassNotFoundException {
+    public <H extends Object, B extends Serializable> List<B> getAll(List<H> hashes, Blockchain blockchain, BlockchainUnitType type) throws IOException, ClassNotFoundException {
         logger.traceEntry("params: {} {} {}", hashes, blockchain, type);
 
         Util.check(hashes != null, "hashes!=null");
         Util.check(blockchain != null, "blockchain!=null");
 
-        List<B> list = new ArrayList<>();
+        Map<H, B> found = getAllLocal(hashes, blockchain, type);
 
+        List<H> missing = new ArrayList<>();
         for (H hash : hashes) {
+            if (!found.containsKey(hash)) {
+                missing.add(hash);
+            }
+        }
 
-            B val = getLocal(hash, blockchain, type);
-            if (val != null) {
-                list.add(val);
+        P2PConnection connection = blockchain.getConnection();
+        if (!missing.isEmpty() && !isOffline(connection)) {
+            Map<String, B> received = requestAllData(missing, type, connection);
+            for (H hash : missing) {
+                B object = received.get(hash.toString());
+                if (object != null) {
+                    found.put(hash, object);
+                }
+            }
+        }
+
+        List<B> list = new ArrayList<>(hashes.size());
+        for (H hash : hashes) {
+            B object = found.get(hash);
+            if (object != null) {
+                list.add(object);
             }
         }
 
+        logger.trace("Got {} of {}, {} asked from peers", list.size(), hashes.size(), missing.size());
         return logger.traceExit(list);
     }
 
+    @Override
+    public <H extends Object, B extends Serializable> Map<H, B> getAllLocal(List<H> hashes, Blockchain blockchain, BlockchainUnitType type) throws IOException {
+        logger.traceEntry("params: {} {} {}", hashes, blockchain, type);
+
+        Util.check(hashes != null, "hashes!=null");
+        Util.check(blockchain != null, "blockchain!=null");
+
+        BlockchainPersistenceUnit<H, B> unit = blockchain.getUnit(type);
+        WeightedCache<H, B> cache = unit.getCache();
+
+        Map<H, B> found = new HashMap<>();
+        List<H> notCached = new ArrayList<>();
+        List<byte[]> keys = new ArrayList<>();
+        for (H hash : hashes) {
+            B object = cache.get(hash);
+            if (object != null) {
+                found.put(hash, object);
+            } else if (!found.containsKey(hash)) {
+                notCached.add(hash);
+                keys.add(unit.key(hash));
+            }
+        }
+
+        if (!keys.isEmpty()) {
+            List<byte[]> values = unit.getAll(keys);
+            for (int i = 0; i < notCached.size(); i++) {
+                B object = decode(values.get(i), unit);
+                if (object != null) {
+                    // a value written meanwhile is newer than the one read
+                    B written = cache.putIfAbsent(notCached.get(i), object, BlockchainPersistenceUnit.weigh(values.get(i)));
+                    found.put(notCached.get(i), (written != null) ? written : object);
+                }
+            }
+        }
+
+        return logger.traceExit(found);
+    }
+
     /**
      * Get block form blockchain (memory->database->network)
      *
@@ -138,7 +295,7 @@ public class BlockchainServiceImpl implements BlockchainService {
      * @throws ClassNotFoundException
      */
     @Override
-    public synchronized <H extends Object, B extends Serializable> B get(H hash, Blockchain blockchain, BlockchainUnitType type) throws IOException, ClassNotFoundException {
+    public <H extends Object, B extends Serializable> B get(H hash, Blockchain blockchain, BlockchainUnitType type) throws IOException, ClassNotFoundException {
         logger.traceEntry("params: {} {} {}", hash, blockchain, type);
 
         Util.check(hash != null, "hash!=null");
@@ -149,56 +306,83 @@ public class BlockchainServiceImpl implements BlockchainService {
 
         Map<H, B> cache = unit.getCache();
 
-        boolean exists = cache.get(hash) != null;
-        if (!exists) {
-            B object = getDataFromDatabase(hash, unit);
-            if (object == null) {
-                object = requestData(hash, type, connection);
+        B result = cache.get(hash);
+        if (result == null) {
+            result = getDataFromDatabase(hash, unit);
+            if (result == null) {
+                result = requestDataOnce(hash, type, connection);
             }
-
-            return object;
         }
 
-        B result = cache.get(hash);
         return logger.traceExit(result);
-
     }
 
     @Override
-	public synchronized <H extends Object, B extends Serializable> B getLocal(H hash, Blockchain blockchain, BlockchainUnitType type) {
+	public <H extends Object, B extends Serializable> B getLocal(H hash, Blockchain blockchain, BlockchainUnitType type) {
         logger.traceEntry("params: {} {} {}", hash, blockchain, type);
 
         Util.check(hash != null, "hash!=null");
         Util.check(blockchain != null, "blockchain!=null");
 
         BlockchainPersistenceUnit<H, B> unit = blockchain.getUnit(type);
-        Map<H, B> cache = unit.getCache();
-
-        boolean exists = cache.get(hash) != null;
-        if (!exists) {
-            B object = getDataFromDatabase(hash, unit);
+        WeightedCache<H, B> cache = unit.getCache();
 
-            if (object != null) {
-                cache.put(hash, object);
+        B result = cache.get(hash);
+        if (result == null) {
+            byte[] data = unit.get(unit.key(hash));
+            result = decode(data, unit);
+
+            if (result != null) {
+                // a value written meanwhile is newer than the one read
+                B written = cache.putIfAbsent(hash, result, BlockchainPersistenceUnit.weigh(data));
+                if (written != null) {
+                    result = written;
+                }
                 logger.trace("Got from local storace");
             }
         }
 
-        B result = cache.get(hash);
         return logger.traceExit(result);
     }
 
     private <B extends Serializable, H extends Object> B getDataFromDatabase(H hash, BlockchainPersistenceUnit<H, B> unit) {
         logger.traceEntry("params: {} {}", hash, unit);
-        byte[] data = unit.get(bytes(hash.toString()));
+        byte[] data = unit.get(unit.key(hash));
         if (data == null) {
             logger.trace("data do not exists!");
             logger.traceExit();
             return null;
         }
 
+        return logger.traceExit(decode(data, unit));
+    }
+
+    private <B extends Serializable> B decode(byte[] data, BlockchainPersistenceUnit<?, B> unit) {
+        if (data == null) {
+            return null;
+        }
+
+        SerializationService serializationService = AppServiceProvider.getSerializationService();
+        if (serializationService.hasBinaryEncoding(unit.clazz) && isBinary(data)) {
+            return serializationService.decodeBinary(data, unit.clazz);
+        }
+
+        // records written before the binary encoding are still JSON
         String strJSONData = asString(data);
-        return logger.traceExit(decodeObject(unit.clazz, strJSONData));
+        return decodeObject(unit.clazz, strJSONData);
+    }
+
+    private <B extends Serializable> byte[] encodeObject(B object) {
+        SerializationService serializationService = AppServiceProvider.getSerializationService();
+        if (serializationService.hasBinaryEncoding(object.getClass())) {
+            return serializationService.encodeBinary(object);
+        }
+        return bytes(serializationService.encodeJSON(object));
+    }
+
+    private static boolean isBinary(byte[] data) {
+        // an RLP encoded object starts with a list prefix, never with an ASCII character like JSON
+        return data.length > 0 && (data[0] & 0xFF) >= 0xc0;
     }
 
     private <B extends Serializable> B decodeObject(Class<B> clazz, String strJSONData) {
@@ -216,6 +400,78 @@ public class BlockchainServiceImpl implements BlockchainService {
     }
 
 
+    /**
+     * Requests the record from peers, or waits for the request already made by another reader
+     */
+    @SuppressWarnings("unchecked")
+    private <H extends Object, B extends Serializable> B requestDataOnce(H hash, BlockchainUnitType unitType, P2PConnection connection) {
+        RemoteRequest request = new RemoteRequest(connection, unitType, hash.toString());
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = remoteRequests.putIfAbsent(request, future);
+
+        if (inFlight != null) {
+            logger.trace("Joining the request of {} with hash {}", unitType, hash);
+            try {
+                return (B) inFlight.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+
+        try {
+            B response = requestData(hash, unitType, connection);
+            future.complete(response);
+            return response;
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            remoteRequests.remove(request, future);
+        }
+    }
+
+    /**
+     * Asks the peers for the objects in one batch split across them; an object whose hash is its key
+     * is taken only if it hashes to the key
+     *
+     * @return the objects received, by hash
+     */
+    @SuppressWarnings("unchecked")
+    private <H extends Object, B extends Serializable> Map<String, B> requestAllData(List<H> hashes, BlockchainUnitType unitType, P2PConnection connection) {
+        logger.traceEntry("params: {} {} {}", hashes.size(), unitType, connection);
+
+        Map<String, B> received = new HashMap<>();
+        P2PRequestChannel channel = connection.getRequestChannel(P2PRequestChannelName.UNIT_BATCH.getName());
+        if (channel == null) {
+            return logger.traceExit(received);
+        }
+
+        List<String> keys = new ArrayList<>(new LinkedHashSet<>(hashes.stream().map(Object::toString).collect(Collectors.toList())));
+        List<HashMap<String, Serializable>> responses = AppServiceProvider.getP2PRequestService().getSplit(
+                channel, connection.getShard(), channel.getName(), keys, part -> new P2PBatchRequest(unitType, part));
+
+        SerializationService serializationService = AppServiceProvider.getSerializationService();
+        for (HashMap<String, Serializable> response : responses) {
+            for (Map.Entry<String, Serializable> entry : response.entrySet()) {
+                Serializable object = entry.getValue();
+                if (object == null || !unitType.getValueType().isInstance(object)) {
+                    continue;
+                }
+                if (unitType.isContentAddressed() && !entry.getKey().equals(serializationService.getHashString(object))) {
+                    logger.warn("Dropped {} with hash {} not matching its content", unitType, entry.getKey());
+                    continue;
+                }
+                received.put(entry.getKey(), (B) object);
+            }
+        }
+
+        logger.warn("Requested {} {} objects. Received: {} in {} responses", keys.size(), unitType, received.size(), responses.size());
+        return logger.traceExit(received);
+    }
+
     private <H extends Object, B extends Serializable> B requestData(H hash, BlockchainUnitType unitType, P2PConnection connection) {
         logger.traceEntry("params: {} {} {}", hash, unitType, connection);
 
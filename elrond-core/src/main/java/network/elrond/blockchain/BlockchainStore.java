@@ -0,0 +1,130 @@
+package network.elrond.blockchain;
+
+import network.elrond.account.MockDB;
+import network.elrond.core.Util;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The one database of a blockchain. Every {@link BlockchainUnitType} is a namespace in it, its keys prefixed with
+ * the namespace byte of the type, so all units share one memtable, log, block cache and set of compaction threads,
+ * and a write batch can hold records of several units, written all or none.
+ */
+public class BlockchainStore {
+
+    private static final Logger logger = LogManager.getLogger(BlockchainStore.class);
+
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
+    private final String databasePath;
+    private final DB database;
+
+    /**
+     * @param context the database path, the block cache and write buffer sizes; without a path the store
+     *                is a mock that keeps nothing
+     */
+    public BlockchainStore(BlockchainContext context) throws IOException {
+        logger.traceEntry("params: {}", context);
+        Util.check(context != null, "context!=null");
+
+        this.databasePath = context.getDatabasePath();
+        if (databasePath == null || databasePath.isEmpty()) {
+            this.database = new MockDB();
+            logger.trace("MockDB selected!");
+        } else {
+            Options options = new Options();
+            options.createIfMissing(true);
+            options.cacheSize(context.getBlockCacheSize());
+            options.writeBufferSize(context.getWriteBufferSize());
+            this.database = new Iq80DBFactory().open(new File(databasePath), options);
+        }
+        logger.traceExit();
+    }
+
+    /**
+     * @return the key of the record in the store: the namespace byte of the type followed by the key
+     */
+    public static byte[] key(BlockchainUnitType type, byte[] key) {
+        byte[] storeKey = new byte[key.length + 1];
+        storeKey[0] = type.getNamespace();
+        System.arraycopy(key, 0, storeKey, 1, key.length);
+        return storeKey;
+    }
+
+    public byte[] get(BlockchainUnitType type, byte[] key) {
+        return database.get(key(type, key));
+    }
+
+    public void put(BlockchainUnitType type, byte[] key, byte[] value) {
+        database.put(key(type, key), value);
+    }
+
+    public WriteBatch createWriteBatch() {
+        return database.createWriteBatch();
+    }
+
+    /**
+     * Writes the records of the batch, all or none
+     */
+    public void write(WriteBatch batch) {
+        database.write(batch);
+    }
+
+    /**
+     * Copies the records of a database of one unit, as units were stored before sharing a store, into the
+     * namespace of the type; the old database stays as it is
+     *
+     * @return the number of records copied
+     */
+    public int importDatabase(BlockchainUnitType type, String unitDatabasePath) throws IOException {
+        logger.traceEntry("params: {} {}", type, unitDatabasePath);
+        Util.check(type != null, "type!=null");
+        Util.check(!(unitDatabasePath == null || unitDatabasePath.isEmpty()), "unitDatabasePath!=null");
+
+        int count = 0;
+        Options options = new Options();
+        options.createIfMissing(false);
+        try (DB unitDatabase = new Iq80DBFactory().open(new File(unitDatabasePath), options);
+             DBIterator iterator = unitDatabase.iterator()) {
+
+            WriteBatch batch = createWriteBatch();
+            for (iterator.seekToFirst(); iterator.hasNext(); ) {
+                Map.Entry<byte[], byte[]> entry = iterator.next();
+                batch.put(key(type, entry.getKey()), entry.getValue());
+                if (++count % IMPORT_BATCH_SIZE == 0) {
+                    write(batch);
+                    batch.close();
+                    batch = createWriteBatch();
+                }
+            }
+            write(batch);
+            batch.close();
+        }
+
+        logger.info("Imported {} records of {} from {}", count, type, unitDatabasePath);
+        return logger.traceExit(count);
+    }
+
+    public String getDatabasePath() {
+        return databasePath;
+    }
+
+    public DB getDatabase() {
+        return database;
+    }
+
+    public void close() throws IOException {
+        logger.traceEntry();
+        database.close();
+        logger.traceExit();
+    }
+}
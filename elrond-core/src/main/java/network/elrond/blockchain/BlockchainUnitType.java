@@ -7,20 +7,27 @@ import network.elrond.data.model.Transaction;
 import java.math.BigInteger;
 
 public enum BlockchainUnitType {
-    BLOCK(String.class, Block.class),
-    BLOCK_INDEX(BigInteger.class, String.class),
-    TRANSACTION(String.class, Transaction.class),
-    SETTINGS(String.class, String.class),
-    RECEIPT(String.class, Receipt.class),
-    TRANSACTION_RECEIPT(String.class, String.class),
-    BLOCK_TRANSACTIONS(String.class, String.class),;
+    BLOCK(String.class, Block.class, 1, true),
+    BLOCK_INDEX(BigInteger.class, String.class, 2, false),
+    TRANSACTION(String.class, Transaction.class, 3, true),
+    SETTINGS(String.class, String.class, 4, false),
+    RECEIPT(String.class, Receipt.class, 5, true),
+    TRANSACTION_RECEIPT(String.class, String.class, 6, false),
+    BLOCK_TRANSACTIONS(String.class, String.class, 7, false),
+    CHAIN_METADATA(String.class, ChainMetadata.class, 8, false),;
 
     private Class<?> keyType;
     private Class<?> valueType;
+    // prefix of the keys of the unit in the blockchain store, stored on disk so never reused
+    private byte namespace;
+    // whether the key of a value is its hash, so a value received from a peer can be checked
+    private boolean contentAddressed;
 
-    BlockchainUnitType(Class<?> keyType, Class<?> valueType) {
+    BlockchainUnitType(Class<?> keyType, Class<?> valueType, int namespace, boolean contentAddressed) {
         this.keyType = keyType;
         this.valueType = valueType;
+        this.namespace = (byte) namespace;
+        this.contentAddressed = contentAddressed;
     }
 
     public Class<?> getKeyType() {
@@ -30,4 +37,12 @@ public enum BlockchainUnitType {
     public Class<?> getValueType() {
         return valueType;
     }
+
+    public byte getNamespace() {
+        return namespace;
+    }
+
+    public boolean isContentAddressed() {
+        return contentAddressed;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package network.elrond.blockchain;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+
+/**
+ * The tip of the stored chain, written with every block committed so a restart finds it in one read
+ */
+public class ChainMetadata implements Serializable {
+
+    // the key of the one record of the CHAIN_METADATA unit
+    public static final String KEY = "CHAIN";
+
+    private BigInteger height;
+    private String blockHash;
+    // account state root after the block
+    private byte[] stateRootHash;
+
+    public ChainMetadata() {
+    }
+
+    public ChainMetadata(BigInteger height, String blockHash, byte[] stateRootHash) {
+        this.height = height;
+        this.blockHash = blockHash;
+        this.stateRootHash = stateRootHash;
+    }
+
+    public BigInteger getHeight() {
+        return height;
+    }
+
+    public void setHeight(BigInteger height) {
+        this.height = height;
+    }
+
+    public String getBlockHash() {
+        return blockHash;
+    }
+
+    public void setBlockHash(String blockHash) {
+        this.blockHash = blockHash;
+    }
+
+    public byte[] getStateRootHash() {
+        return stateRootHash;
+    }
+
+    public void setStateRootHash(byte[] stateRootHash) {
+        this.stateRootHash = stateRootHash;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ChainMetadata{height=%s, blockHash=%s}", height, blockHash);
+    }
+}
@@ -8,67 +8,205 @@ import org.apache.commons.collections4.map.LRUMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
+/**
+ * Pending transaction hashes, kept in arrival order.
+ * Membership and removal go through a concurrent hash index, the order through a lock-free queue whose
+ * stale entries are skipped when the pool is read; once they outnumber the pending ones they are unlinked
+ * in one sweep, so the queue stays within twice the pool. Already processed hashes are kept in a
+ * lock-striped LRU, so the interceptor thread and the block assembler never wait on a single monitor.
+ * <p>
+ * Transactions added together with their sender and nonce are also queued per sender, ordered by nonce,
+ * so {@link #getReadyTransactions(Function)} can hand block assembly only what is executable right now.
+ */
 public class TransactionsPool {
 
     private static final Logger logger = LogManager.getLogger(TransactionsPool.class);
 
-    private Object locker = new Object();
+    private static final int PROCESSED_CAPACITY = 100000;
+    private static final int PROCESSED_STRIPES = 16;
+    // stale queue entries tolerated in a small pool before a sweep
+    private static final int MIN_STALE_ENTRIES = 1024;
 
-    protected final Map<String, Object> lastTransactions = new LRUMap<>(100000);
-    protected final List<String> transactions = new ArrayList<>();
+    protected final ProcessedTransactions lastTransactions = new ProcessedTransactions(PROCESSED_CAPACITY, PROCESSED_STRIPES);
 
-    public List<String> getTransactions() {
-        List<String> newList = null;
+    private final Map<String, PendingTransaction> index = new ConcurrentHashMap<>();
+    protected final Queue<PendingTransaction> transactions = new ConcurrentLinkedQueue<>();
+    private final Map<String, ConcurrentSkipListMap<BigInteger, PendingTransaction>> senders = new ConcurrentHashMap<>();
+    // queue entries removed from the index and not unlinked yet, an estimate under concurrent sweeps
+    private final AtomicInteger staleEntries = new AtomicInteger();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final LongAdder addedCount = new LongAdder();
+    private final LongAdder duplicateCount = new LongAdder();
+    private final LongAdder removedCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
 
-        synchronized (locker) {
+    public List<String> getTransactions() {
+        List<String> newList = new ArrayList<>(index.size());
 
-            newList = new ArrayList<>(transactions);
+        Iterator<PendingTransaction> iterator = transactions.iterator();
+        while (iterator.hasNext()) {
+            PendingTransaction transaction = iterator.next();
+            if (index.get(transaction.hash) == transaction) {
+                newList.add(transaction.hash);
+            } else {
+                iterator.remove();
+                staleEntries.decrementAndGet();
+            }
         }
 
         return (newList);
     }
 
-    public boolean addTransaction(String transactionHash) {
-        Util.check(transactionHash != null, "transaction != null");
+    /**
+     * Pending transactions that can be executed on top of the current account state: for each sender, its
+     * transactions in nonce order starting at the account nonce and stopping at the first gap. Transactions
+     * whose nonce was already passed are evicted, transactions added without a sender are always ready.
+     * A sender's run is placed at the arrival position of its first pending transaction not evicted.
+     *
+     * @param accountNonce current nonce of a sender address
+     */
+    public List<String> getReadyTransactions(Function<String, BigInteger> accountNonce) {
+        Util.check(accountNonce != null, "accountNonce != null");
 
-        synchronized (locker) {
-            if (!checkExistsNoLock(transactionHash)) {
-                transactions.add(transactionHash);
+        Map<String, List<String>> readyBySender = new HashMap<>();
+        for (Map.Entry<String, ConcurrentSkipListMap<BigInteger, PendingTransaction>> entry : senders.entrySet()) {
+            String sender = entry.getKey();
+            BigInteger expectedNonce = accountNonce.apply(sender);
 
-                logger.trace("Added {}", transactionHash);
+            for (PendingTransaction stale : entry.getValue().headMap(expectedNonce).values()) {
+                logger.debug("Transaction {} evicted, sender nonce {} already passed", stale.hash, stale.nonce);
+                remove(stale);
+                evictedCount.increment();
+            }
 
-                return (true);
-            } else {
-                logger.debug("Transaction {} already in pool/processed!", transactionHash);
-                return (false);
+            List<String> ready = new ArrayList<>();
+            for (PendingTransaction transaction : entry.getValue().tailMap(expectedNonce).values()) {
+                if (!transaction.nonce.equals(expectedNonce)) {
+                    logger.trace("Sender {} holds back from nonce {}", sender, expectedNonce);
+                    break;
+                }
+                ready.add(transaction.hash);
+                expectedNonce = expectedNonce.add(BigInteger.ONE);
             }
 
+            if (!ready.isEmpty()) {
+                readyBySender.put(sender, ready);
+            }
         }
+
+        List<String> newList = new ArrayList<>();
+        for (PendingTransaction transaction : transactions) {
+            if (index.get(transaction.hash) != transaction) {
+                continue;
+            }
+
+            if (transaction.sender == null) {
+                newList.add(transaction.hash);
+                continue;
+            }
+
+            List<String> ready = readyBySender.remove(transaction.sender);
+            if (ready != null) {
+                newList.addAll(ready);
+            }
+        }
+
+        return (newList);
     }
 
-    public boolean checkExists(String transactionHash) {
-        Util.check(transactionHash != null, "transaction != null");
+    /**
+     * Nonce of a new transaction of the sender: the one after its pending run starting at the account nonce
+     *
+     * @param accountNonce current nonce of the sender address
+     */
+    public BigInteger getNextNonce(String sender, BigInteger accountNonce) {
+        Util.check(sender != null, "sender != null");
+        Util.check(accountNonce != null, "accountNonce != null");
 
-        synchronized (locker) {
-            return (checkExistsNoLock(transactionHash));
+        BigInteger nextNonce = accountNonce;
+        ConcurrentSkipListMap<BigInteger, PendingTransaction> queue = senders.get(sender);
+        if (queue != null) {
+            for (BigInteger nonce : queue.tailMap(accountNonce).keySet()) {
+                if (!nonce.equals(nextNonce)) {
+                    break;
+                }
+                nextNonce = nextNonce.add(BigInteger.ONE);
+            }
         }
+
+        return (nextNonce);
     }
 
-    protected boolean checkExistsNoLock(String transactionHash) {
-        if (transactions.contains(transactionHash)) {
-            return true;
+    public boolean addTransaction(String transactionHash) {
+        return addTransaction(transactionHash, null, null);
+    }
+
+    /**
+     * Adds a transaction that also gets queued under its sender, ordered by nonce.
+     * A second transaction with the same sender and nonce is refused.
+     */
+    public boolean addTransaction(String transactionHash, String sender, BigInteger nonce) {
+        Util.check(transactionHash != null, "transaction != null");
+        Util.check(sender == null || nonce != null, "nonce != null");
+
+        if (lastTransactions.contains(transactionHash)) {
+            logger.debug("Transaction {} already processed!", transactionHash);
+            duplicateCount.increment();
+            return (false);
         }
 
-        if (lastTransactions.containsKey(transactionHash)) {
-            return true;
+        PendingTransaction transaction = new PendingTransaction(transactionHash, sender, nonce);
+        if (index.putIfAbsent(transactionHash, transaction) != null) {
+            logger.debug("Transaction {} already in pool!", transactionHash);
+            duplicateCount.increment();
+            return (false);
         }
 
-        return (false);
+        if (sender != null && !enqueueBySender(transaction)) {
+            logger.debug("Transaction {} refused, sender {} already has nonce {} pending", transactionHash, sender, nonce);
+            index.remove(transactionHash, transaction);
+            duplicateCount.increment();
+            return (false);
+        }
+        transactions.add(transaction);
+
+        // a block holding this hash may have been committed meanwhile
+        if (lastTransactions.contains(transactionHash)) {
+            remove(transaction);
+            duplicateCount.increment();
+            return (false);
+        }
+
+        addedCount.increment();
+        logger.trace("Added {}", transactionHash);
+        return (true);
+    }
+
+    public boolean checkExists(String transactionHash) {
+        Util.check(transactionHash != null, "transaction != null");
+
+        return index.containsKey(transactionHash) || lastTransactions.contains(transactionHash);
     }
 
     public void addBlock(Block block) {
@@ -78,16 +216,176 @@ public class TransactionsPool {
             return;
         }
 
-        Object dummyObject = new Object();
+        long now = System.nanoTime();
+        Collection<String> hashes = BlockUtil.getTransactionsHashesAsString(block);
+
+        for (String hash : hashes) {
+            lastTransactions.add(hash);
+
+            PendingTransaction transaction = index.get(hash);
+            if (transaction != null && remove(transaction)) {
+                removedCount.increment();
+                long latency = now - transaction.addedNanos;
+                totalLatencyNanos.add(latency);
+                maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            }
+        }
+    }
+
+    private boolean enqueueBySender(PendingTransaction transaction) {
+        boolean[] queued = new boolean[1];
+        senders.compute(transaction.sender, (sender, queue) -> {
+            if (queue == null) {
+                queue = new ConcurrentSkipListMap<>();
+            }
+            queued[0] = queue.putIfAbsent(transaction.nonce, transaction) == null;
+            return queue;
+        });
+        return queued[0];
+    }
+
+    private boolean remove(PendingTransaction transaction) {
+        if (!index.remove(transaction.hash, transaction)) {
+            return false;
+        }
+
+        if (transaction.sender != null) {
+            senders.computeIfPresent(transaction.sender, (sender, queue) -> {
+                queue.remove(transaction.nonce, transaction);
+                return queue.isEmpty() ? null : queue;
+            });
+        }
+
+        if (staleEntries.incrementAndGet() > Math.max(MIN_STALE_ENTRIES, index.size())) {
+            unlinkStaleEntries();
+        }
+        return true;
+    }
+
+    /**
+     * Unlinks the queue entries no longer in the index, in one pass; skipped if a sweep is already running
+     */
+    private void unlinkStaleEntries() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            int unlinked = 0;
+            Iterator<PendingTransaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                PendingTransaction transaction = iterator.next();
+                if (index.get(transaction.hash) != transaction) {
+                    iterator.remove();
+                    unlinked++;
+                }
+            }
+            staleEntries.addAndGet(-unlinked);
+            logger.trace("Unlinked {} stale pool entries", unlinked);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * @return number of pending transactions
+     */
+    public int size() {
+        return index.size();
+    }
+
+    public long getAddedCount() {
+        return addedCount.sum();
+    }
 
-        synchronized (locker) {
-            Collection<String> hashes = BlockUtil.getTransactionsHashesAsString(block);
+    public long getDuplicateCount() {
+        return duplicateCount.sum();
+    }
+
+    public long getRemovedCount() {
+        return removedCount.sum();
+    }
+
+    /**
+     * @return number of transactions dropped because their sender nonce was already passed
+     */
+    public long getEvictedCount() {
+        return evictedCount.sum();
+    }
 
-            for (String hash : hashes) {
-                lastTransactions.put(hash, dummyObject);
+    /**
+     * @return average time (ms) between a transaction entering the pool and its block being committed
+     */
+    public long getAverageLatencyMillis() {
+        long removed = removedCount.sum();
+        return (removed == 0) ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.sum() / removed);
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransactionsPool{size=%d, added=%d, duplicates=%d, removed=%d, evicted=%d, avgLatency=%dms, maxLatency=%dms}",
+                size(), getAddedCount(), getDuplicateCount(), getRemovedCount(), getEvictedCount(), getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+
+    private static class PendingTransaction {
+        private final String hash;
+        private final String sender;
+        private final BigInteger nonce;
+        private final long addedNanos = System.nanoTime();
+
+        private PendingTransaction(String hash, String sender, BigInteger nonce) {
+            this.hash = hash;
+            this.sender = sender;
+            this.nonce = nonce;
+        }
+    }
+
+    /**
+     * Bounded set of already processed hashes, split in independently locked LRU stripes
+     */
+    protected static class ProcessedTransactions {
+        private static final Object PRESENT = new Object();
+
+        private final LRUMap<String, Object>[] stripes;
+
+        @SuppressWarnings("unchecked")
+        ProcessedTransactions(int capacity, int stripeCount) {
+            stripes = new LRUMap[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new LRUMap<>(Math.max(1, capacity / stripeCount));
             }
+        }
+
+        private LRUMap<String, Object> stripe(String hash) {
+            return stripes[(hash.hashCode() & 0x7fffffff) % stripes.length];
+        }
 
-            transactions.removeAll(hashes);
+        boolean contains(String hash) {
+            LRUMap<String, Object> stripe = stripe(hash);
+            synchronized (stripe) {
+                return stripe.containsKey(hash);
+            }
+        }
+
+        void add(String hash) {
+            LRUMap<String, Object> stripe = stripe(hash);
+            synchronized (stripe) {
+                stripe.put(hash, PRESENT);
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (LRUMap<String, Object> stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.size();
+                }
+            }
+            return size;
         }
     }
 }
@@ -1,5 +1,6 @@
 package network.elrond.consensus.handlers;
 
+import network.elrond.account.AccountsManager;
 import network.elrond.application.AppState;
 import network.elrond.benchmark.Statistic;
 import network.elrond.blockchain.TransactionsPool;
@@ -18,6 +19,8 @@ import org.apache.logging.log4j.Logger;
 
 import com.google.common.base.Stopwatch;
 
+import java.io.IOException;
+import java.math.BigInteger;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -62,7 +65,9 @@ public class AssemblyBlockHandler implements EventHandler<SubRound> {
         logger.traceEntry("params: {}", state);
 
         TransactionsPool pool = state.getPool();
-        List<String> hashes = pool.getTransactions();
+        List<String> hashes = state.getBlockchain().getContext().isNonceOrderedPool()
+                ? pool.getReadyTransactions(sender -> getNonce(state, sender))
+                : pool.getTransactions();
         if (hashes.isEmpty()) {
             logger.info("Round: {}, subRound: {}> Can't execute, no transactions!",
                     data.getRound().getIndex(), data.getRoundState().name());
@@ -88,6 +93,15 @@ public class AssemblyBlockHandler implements EventHandler<SubRound> {
         logger.traceExit();
     }
 
+    private BigInteger getNonce(AppState state, String sender) {
+        try {
+            return AccountsManager.instance().getNonce(state.getAccounts(), sender);
+        } catch (IOException | ClassNotFoundException ex) {
+            logger.catching(ex);
+            return BigInteger.ZERO;
+        }
+    }
+
     private boolean isLeader(AppState state){
         ConsensusData consensusData = state.getConsensusData();
         String currentNodePeerID = AppShardingManager.instance().getCurrentPeerID(state);
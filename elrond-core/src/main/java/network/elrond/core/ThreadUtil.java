@@ -3,6 +3,7 @@ package network.elrond.core;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 
@@ -12,6 +13,14 @@ public class ThreadUtil {
 
     public static ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(50);
 
+    // CPU bound work (block execution, signature checks), one daemon worker per core
+    public static final ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+        Thread thread = new Thread(runnable);
+        thread.setName("elrond-worker-" + thread.getId());
+        thread.setDaemon(true);
+        return thread;
+    });
+
 
     public static void sleep(int time) {
         try {
@@ -4,6 +4,7 @@ import network.elrond.core.Util;
 import network.elrond.service.AppServiceProvider;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.spongycastle.math.ec.ECAlgorithms;
 import org.spongycastle.math.ec.ECPoint;
 
 import java.math.BigInteger;
@@ -162,12 +163,13 @@ public class SignatureServiceSchnorrImpl implements SignatureService {
         Util.check(publicKey.length != 0, "publicKey.length != 0");
 
         // Compute R = s*G + c*publicKey
+        // both products are evaluated in a single pass (Shamir's trick) instead of two full multiplications
         //TODO: Do not recreate PublicKey!!!
         ECPoint publicKeyPoint = (new PublicKey(publicKey)).getQ();
         basePointG = ecCryptoService.getG();
-        challengeInt = new BigInteger(challenge);
-        commitPointR = basePointG.multiply(new BigInteger(signature))
-                .add(publicKeyPoint.multiply(challengeInt));
+        challengeInt = new BigInteger(challenge).mod(ecCryptoService.getN());
+        commitPointR = ECAlgorithms.sumOfTwoMultiplies(basePointG, new BigInteger(signature).mod(ecCryptoService.getN()),
+                publicKeyPoint, challengeInt);
 
         if (commitPointR.isInfinity()) {
             logger.trace("commitPointR is infinity");
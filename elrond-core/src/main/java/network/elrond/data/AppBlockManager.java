@@ -5,6 +5,8 @@ import network.elrond.account.Accounts;
 import network.elrond.application.AppState;
 import network.elrond.benchmark.Statistic;
 import network.elrond.blockchain.Blockchain;
+import network.elrond.blockchain.BlockchainBatch;
+import network.elrond.blockchain.BlockchainContext;
 import network.elrond.blockchain.BlockchainUnitType;
 import network.elrond.chronology.ChronologyService;
 import network.elrond.chronology.NTPClient;
@@ -36,6 +38,8 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -53,6 +57,8 @@ public class AppBlockManager {
     
     private AsciiPrinter asciiPrinter = AsciiPrinter.instance();
 
+    private final BlockBuilder blockBuilder = new BlockBuilder();
+
     public Block generateAndBroadcastBlock(List<String> queue, PrivateKey privateKey, AppState state) {
         logger.traceEntry("params: {} {} {}", queue, privateKey, state);
         Accounts accounts = state.getAccounts();
@@ -103,6 +109,9 @@ public class AppBlockManager {
             logger.debug("executed block with hash: {}", hashBlock);
 
             if (result.isOk()) {
+                // the block was stored before its execution, it is the tip now
+                AppServiceProvider.getBootstrapService().storeExecutedBlock(block, hashBlock, blockchain);
+
                 //removeAlreadyProcessedTransactionsFromPool(state, block);
 
                 //logger.debug("removed {} transaction from pool", BlockUtil.getTransactionsCount(block));
@@ -174,15 +183,8 @@ public class AppBlockManager {
             TransferDataBlock<Receipt> receiptTransferDataBlock = new TransferDataBlock<>(hashBlock);
             List<Receipt> receiptsDataList = receiptTransferDataBlock.getDataList();
 
-            receipts.stream().parallel().forEach(receipt -> {
-                receipt.setBlockHash(hashBlock);
-
-                try {
-                    storeReceipt(block, receipt, state);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
+            receipts.forEach(receipt -> receipt.setBlockHash(hashBlock));
+            storeReceipts(block, receipts, state);
 
             receiptsDataList.addAll(receipts);
             // Broadcast
@@ -219,8 +221,17 @@ public class AppBlockManager {
         logger.trace("done computing round and round start millis = calculated round start millis, round index = {}, time stamp = {}",
                 block.getRoundIndex(), block.getTimestamp());
 
-        receipts = addTransactions(transactions, block, state);
-        logger.trace("done added {} transactions to block", transactions.size());
+        // the proposal runs on a snapshot, the node's account states stay as they are
+        Accounts proposal = accounts.snapshot();
+        try {
+            receipts = addTransactions(transactions, block, proposal, state);
+            logger.trace("done added {} transactions to block", transactions.size());
+
+            block.setAppStateHash(proposal.getAccountsPersistenceUnit().getRootHash());
+            logger.trace("done added state root hash to block as {}", block.getAppStateHash());
+        } finally {
+            proposal.stopPersistenceUnit();
+        }
 
         P2PBroadcastChannel channel = state.getChannel(P2PBroadcastChannelName.BLOCK);
         HashSet<PeerAddress> totalPeers = AppServiceProvider.getP2PBroadcastService().getPeersOnChannel(channel);
@@ -247,34 +258,44 @@ public class AppBlockManager {
 
         logger.debug("done added {} peers to block", block.getPeers());
 
-        block.setAppStateHash(accounts.getAccountsPersistenceUnit().getRootHash());
-        logger.trace("done added state root hash to block as {}", block.getAppStateHash());
-
-        AppServiceProvider.getAccountStateService().rollbackAccountStates(accounts);
-        logger.trace("reverted app state to original form");
-
         return logger.traceExit(new BlockReceipts(block, receipts));
     }
 
-    private List<Receipt> addTransactions(List<Transaction> transactions, Block block, AppState state) throws
+    private List<Receipt> addTransactions(List<Transaction> transactions, Block block, Accounts accounts, AppState state) throws
             IOException {
-        logger.traceEntry("params: {} {} {}", transactions, block, state);
+        logger.traceEntry("params: {} {} {} {}", transactions, block, accounts, state);
         Util.check(transactions != null, "transactions != null");
         Util.check(block != null, "block != null");
+        Util.check(accounts != null, "accounts != null");
         Util.check(state != null, "state != null");
 
         List<Receipt> receipts = new ArrayList<>();
 
-        Accounts accounts = state.getAccounts();
-        for (Transaction transaction : transactions) {
-            boolean valid = AppServiceProvider.getTransactionService().verifyTransaction(transaction);
-            if (!valid) {
+        BlockchainContext context = state.getBlockchain().getContext();
+
+        // pick by gas price what fits the block budgets, the rest stays in the pool
+        List<Transaction> candidates = blockBuilder.selectTransactions(transactions, context);
+        long start = System.nanoTime();
+
+        // verify the signatures of the whole batch on all cores, the loop below only does state transitions
+        BitSet verified = AppServiceProvider.getTransactionService().verifyTransactions(candidates);
+
+        for (int index = 0; index < candidates.size(); index++) {
+            if (!blockBuilder.hasTimeFor(System.nanoTime() - start, context)) {
+                logger.debug("Execution time budget used. Transactions added: {}", BlockUtil.getTransactionsCount(block));
+                break;
+            }
+
+            Transaction transaction = candidates.get(index);
+            if (!verified.get(index)) {
                 receipts.add(rejectTransaction(block, transaction, state));
                 logger.info("Invalid transaction discarded [verify] {}", transaction);
                 continue;
             }
 
-            ExecutionReport executionReport = AppServiceProvider.getExecutionService().processTransaction(transaction, accounts);
+            long executionStart = System.nanoTime();
+            ExecutionReport executionReport = AppServiceProvider.getExecutionService().processVerifiedTransaction(transaction, accounts);
+            blockBuilder.recordExecution(System.nanoTime() - executionStart);
             if (!executionReport.isOk()) {
                 receipts.add(rejectTransaction(block, transaction, state));
                 logger.info("Invalid transaction discarded [exec] {}", transaction);
@@ -328,19 +349,24 @@ public class AppBlockManager {
     }
 
 
-    private void storeReceipt(Block block, Receipt receipt, AppState state) throws IOException {
-        logger.traceEntry("params: {} {} {}", block, receipt, state);
+    private void storeReceipts(Block block, List<Receipt> receipts, AppState state) {
+        logger.traceEntry("params: {} {} {}", block, receipts, state);
         Util.check(block != null, "block != null");
-        Util.check(receipt != null, "receipt != null");
+        Util.check(receipts != null, "receipts != null");
         Util.check(state != null, "state != null");
 
-        String transactionHash = receipt.getTransactionHash();
-        String receiptHash = AppServiceProvider.getSerializationService().getHashString(receipt);
+        // The receipts and their transaction links are written together
+        BlockchainBatch batch = new BlockchainBatch();
+        for (Receipt receipt : receipts) {
+            String transactionHash = receipt.getTransactionHash();
+            String receiptHash = AppServiceProvider.getSerializationService().getHashString(receipt);
+            batch.put(receiptHash, receipt, BlockchainUnitType.RECEIPT);
+            batch.put(transactionHash, receiptHash, BlockchainUnitType.TRANSACTION_RECEIPT);
+        }
 
         // Store on blockchain
         Blockchain blockchain = state.getBlockchain();
-        AppServiceProvider.getBlockchainService().putLocal(receiptHash, receipt, blockchain, BlockchainUnitType.RECEIPT);
-        AppServiceProvider.getBlockchainService().putLocal(transactionHash, receiptHash, blockchain, BlockchainUnitType.TRANSACTION_RECEIPT);
+        AppServiceProvider.getBlockchainService().putLocal(batch, blockchain);
         logger.trace("placed on blockchain (RECEIPT, TRANSACTION_RECEIPT)");
         logger.traceExit();
     }
@@ -367,11 +393,7 @@ public class AppBlockManager {
 
         //AppContext context = application.getContext();
 
-        block.getListPublicKeys().clear();
-        block.getListPublicKeys().add(Util.byteArrayToHexString(new PublicKey(privateKey).getValue()));
-        block.setCommitment(null);
-        block.setSignature(null);
-        logger.trace("set block's signature data to null!");
+        block.setListPubKeys(Collections.singletonList(Util.byteArrayToHexString(new PublicKey(privateKey).getValue())));
 
         ArrayList<byte[]> signersPublicKeys = new ArrayList<>();
         ArrayList<byte[]> commitmentSecrets = new ArrayList<>();
@@ -391,7 +413,7 @@ public class AppBlockManager {
             commitments.add(multiSignatureService.computeCommitment(commitmentSecrets.get(i)));
         }
 
-        byte[] blockHashNoSig = AppServiceProvider.getSerializationService().getHash(block);
+        byte[] blockHashNoSig = AppServiceProvider.getSerializationService().getSigningHash(block);
         logger.trace("done hashing block {}", blockHashNoSig);
 
         aggregatedCommitment = multiSignatureService.aggregateCommitments(commitments, 1);
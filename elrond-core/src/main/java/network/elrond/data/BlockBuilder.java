@@ -0,0 +1,117 @@
+package network.elrond.data;
+
+import network.elrond.blockchain.BlockchainContext;
+import network.elrond.core.Util;
+import network.elrond.data.model.Transaction;
+import network.elrond.service.AppServiceProvider;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Chooses which pooled transactions go in the next block.
+ * Transactions are taken by descending gas price while each sender's transactions keep their relative order,
+ * until the transaction count, byte or predicted execution time budget of the block is used.
+ * The execution time prediction uses the measured average execution cost of a transaction.
+ */
+public class BlockBuilder {
+
+    private static final Logger logger = LogManager.getLogger(BlockBuilder.class);
+
+    // weight of the last measurement in the average execution cost
+    private static final double COST_SMOOTHING = 0.2;
+
+    private volatile double averageExecutionNanos = 0;
+
+    public List<Transaction> selectTransactions(List<Transaction> transactions, BlockchainContext context) {
+        logger.traceEntry("params: {} {}", transactions, context);
+        Util.check(transactions != null, "transactions != null");
+        Util.check(context != null, "context != null");
+
+        // one queue per sender, in the order received
+        Map<String, LinkedList<Integer>> senders = new LinkedHashMap<>();
+        for (int index = 0; index < transactions.size(); index++) {
+            senders.computeIfAbsent(transactions.get(index).getSenderAddress(), sender -> new LinkedList<>()).add(index);
+        }
+
+        Comparator<LinkedList<Integer>> byHeadPriority = Comparator
+                .comparing((LinkedList<Integer> queue) -> getGasPrice(transactions.get(queue.peek())))
+                .reversed()
+                .thenComparing(LinkedList::peek);
+        PriorityQueue<LinkedList<Integer>> heads = new PriorityQueue<>(Math.max(1, senders.size()), byHeadPriority);
+        heads.addAll(senders.values());
+
+        int maxTransactions = getMaxTransactions(context);
+        long maxBytes = context.getMaxBlockSize();
+        long blockBytes = 0;
+
+        List<Transaction> selected = new ArrayList<>();
+        Set<String> skippedSenders = new HashSet<>();
+        while (!heads.isEmpty() && selected.size() < maxTransactions) {
+            LinkedList<Integer> queue = heads.poll();
+            Transaction transaction = transactions.get(queue.poll());
+
+            long size = getSize(transaction);
+            if (blockBytes + size > maxBytes) {
+                // the sender's next transactions can not be taken without this one
+                skippedSenders.add(transaction.getSenderAddress());
+                continue;
+            }
+
+            blockBytes += size;
+            selected.add(transaction);
+
+            if (!queue.isEmpty()) {
+                heads.add(queue);
+            }
+        }
+
+        logger.debug("Selected {} of {} transactions, {} bytes, {} senders over the size budget",
+                selected.size(), transactions.size(), blockBytes, skippedSenders.size());
+        return logger.traceExit(selected);
+    }
+
+    /**
+     * @return true if one more transaction is predicted to finish inside the execution time budget
+     */
+    public boolean hasTimeFor(long elapsedNanos, BlockchainContext context) {
+        long budgetNanos = context.getMaxBlockExecutionTime() * 1000000L;
+        return elapsedNanos + (long) averageExecutionNanos <= budgetNanos;
+    }
+
+    public void recordExecution(long nanos) {
+        double average = averageExecutionNanos;
+        averageExecutionNanos = (average == 0) ? nanos : average + COST_SMOOTHING * (nanos - average);
+    }
+
+    public long getAverageExecutionNanos() {
+        return (long) averageExecutionNanos;
+    }
+
+    private int getMaxTransactions(BlockchainContext context) {
+        int maxTransactions = context.getMaxBlockTransactions();
+        if (averageExecutionNanos > 0) {
+            long predicted = (long) (context.getMaxBlockExecutionTime() * 1000000L / averageExecutionNanos);
+            maxTransactions = (int) Math.min(maxTransactions, Math.max(1, predicted));
+        }
+        return maxTransactions;
+    }
+
+    private long getSize(Transaction transaction) {
+        return AppServiceProvider.getSerializationService().encodeBinary(transaction).length;
+    }
+
+    private BigInteger getGasPrice(Transaction transaction) {
+        return (transaction.getGasPrice() == null) ? BigInteger.ZERO : transaction.getGasPrice();
+    }
+}
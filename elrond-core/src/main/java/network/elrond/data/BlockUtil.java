@@ -35,11 +35,11 @@ public class BlockUtil {
     }
 
     public static void addTransactionInBlock(Block block, byte[] transactionHash) {
-        block.getListTXHashes().add(transactionHash);
+        block.addTXHash(transactionHash);
     }
 
     public static void addTransactionInBlock(Block block, Transaction transaction) {
-        block.getListTXHashes().add(AppServiceProvider.getSerializationService().getHash(transaction));
+        block.addTXHash(AppServiceProvider.getSerializationService().getHash(transaction));
     }
 
 
@@ -0,0 +1,74 @@
+package network.elrond.data;
+
+import network.elrond.account.AccountAddress;
+import network.elrond.core.Util;
+import network.elrond.data.model.Transaction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the transactions of a block into groups that do not share any account.
+ * Two transactions end up in the same group if they touch (directly or through other
+ * transactions) the same sender or receiver address. Inside a group the block order is kept,
+ * groups are ordered by the position of their first transaction in the block.
+ */
+public class ExecutionScheduler {
+
+    private static final Logger logger = LogManager.getLogger(ExecutionScheduler.class);
+
+    public static List<List<Transaction>> groupByAccounts(List<Transaction> transactions) {
+        logger.traceEntry("params: {}", transactions);
+        Util.check(transactions != null, "transactions!=null");
+
+        int size = transactions.size();
+        int[] parents = new int[size];
+        Map<AccountAddress, Integer> owners = new HashMap<>();
+
+        for (int index = 0; index < size; index++) {
+            parents[index] = index;
+            Transaction transaction = transactions.get(index);
+            link(owners, parents, transaction.getSenderAddress(), index);
+            link(owners, parents, transaction.getReceiverAddress(), index);
+        }
+
+        Map<Integer, List<Transaction>> groups = new LinkedHashMap<>();
+        for (int index = 0; index < size; index++) {
+            groups.computeIfAbsent(find(parents, index), root -> new ArrayList<>()).add(transactions.get(index));
+        }
+
+        logger.trace("{} transactions split in {} groups", size, groups.size());
+        return logger.traceExit(new ArrayList<>(groups.values()));
+    }
+
+    private static void link(Map<AccountAddress, Integer> owners, int[] parents, String address, int index) {
+        if (address == null || address.isEmpty()) {
+            return;
+        }
+
+        Integer owner = owners.putIfAbsent(AccountAddress.fromHexString(address), index);
+        if (owner == null) {
+            return;
+        }
+
+        int left = find(parents, owner);
+        int right = find(parents, index);
+        if (left != right) {
+            // keep the smallest index as root so the group order follows the block order
+            parents[Math.max(left, right)] = Math.min(left, right);
+        }
+    }
+
+    private static int find(int[] parents, int index) {
+        while (parents[index] != index) {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+}
@@ -0,0 +1,261 @@
+package network.elrond.data;
+
+import network.elrond.core.RLP;
+import network.elrond.core.RLPElement;
+import network.elrond.core.RLPList;
+import network.elrond.core.Util;
+import network.elrond.data.model.Block;
+import network.elrond.data.model.Receipt;
+import network.elrond.data.model.ReceiptStatus;
+import network.elrond.data.model.Transaction;
+import network.elrond.sharding.Shard;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canonical binary (RLP) encoding of transactions, blocks and receipts.
+ * Every object is encoded as a list of its fields in a fixed order; numbers are two's complement big-endian,
+ * strings UTF-8. Null and empty values share the empty RLP item.
+ * <p>
+ * The model classes hand {@link Encoded} to java serialization, so P2P transfer carries the same bytes.
+ */
+public class RLPCodec {
+
+    public static boolean isSupported(Class<?> clazz) {
+        return clazz == Transaction.class || clazz == Block.class || clazz == Receipt.class;
+    }
+
+    public static byte[] encode(Object object) {
+        Util.check(object != null, "object!=null");
+
+        if (object instanceof Transaction) {
+            return encodeTransaction((Transaction) object);
+        }
+        if (object instanceof Block) {
+            return encodeBlock((Block) object);
+        }
+        if (object instanceof Receipt) {
+            return encodeReceipt((Receipt) object);
+        }
+        throw new IllegalArgumentException("No binary encoding for " + object.getClass().getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T decode(byte[] data, Class<T> clazz) {
+        Util.check(data != null, "data!=null");
+
+        RLPList fields = (RLPList) RLP.decode2(data).get(0);
+        if (clazz == Transaction.class) {
+            return (T) decodeTransaction(fields);
+        }
+        if (clazz == Block.class) {
+            return (T) decodeBlock(fields);
+        }
+        if (clazz == Receipt.class) {
+            return (T) decodeReceipt(fields);
+        }
+        throw new IllegalArgumentException("No binary encoding for " + clazz.getName());
+    }
+
+    public static byte[] encodeTransaction(Transaction transaction) {
+        return encodeTransaction(transaction, true);
+    }
+
+    /**
+     * @param withSignature false to leave out signature and challenge, as when the transaction gets signed
+     */
+    public static byte[] encodeTransaction(Transaction transaction, boolean withSignature) {
+        return RLP.encodeList(
+                encodeBigInteger(transaction.getNonce()),
+                encodeBigInteger(transaction.getValue()),
+                encodeString(transaction.getReceiverAddress()),
+                encodeString(transaction.getSenderAddress()),
+                encodeBigInteger(transaction.getGasPrice()),
+                encodeBigInteger(transaction.getGasLimit()),
+                RLP.encodeElement(transaction.getData()),
+                encodeString(transaction.getPubKey()),
+                encodeShard(transaction.getSenderShard()),
+                encodeShard(transaction.getReceiverShard()),
+                RLP.encodeElement(withSignature ? transaction.getSignature() : null),
+                RLP.encodeElement(withSignature ? transaction.getChallenge() : null));
+    }
+
+    private static Transaction decodeTransaction(RLPList fields) {
+        Transaction transaction = new Transaction();
+        transaction.setNonce(decodeBigInteger(fields.get(0)));
+        transaction.setValue(decodeBigInteger(fields.get(1)));
+        transaction.setReceiverAddress(decodeString(fields.get(2)));
+        transaction.setSenderAddress(decodeString(fields.get(3)));
+        transaction.setGasPrice(decodeBigInteger(fields.get(4)));
+        transaction.setGasLimit(decodeBigInteger(fields.get(5)));
+        transaction.setData(fields.get(6).getRLPData());
+        String pubKey = decodeString(fields.get(7));
+        transaction.setPubKey(pubKey == null ? "" : pubKey);
+        transaction.setSenderShard(decodeShard(fields.get(8)));
+        transaction.setReceiverShard(decodeShard(fields.get(9)));
+        transaction.setSignature(fields.get(10).getRLPData());
+        transaction.setChallenge(fields.get(11).getRLPData());
+        return transaction;
+    }
+
+    public static byte[] encodeBlock(Block block) {
+        return encodeBlock(block, true);
+    }
+
+    /**
+     * @param withSignature false to leave out signature and commitment, as when the block gets signed
+     */
+    public static byte[] encodeBlock(Block block, boolean withSignature) {
+        return RLP.encodeList(
+                encodeBigInteger(block.getNonce()),
+                RLP.encodeElement(withSignature ? block.getSignature() : null),
+                RLP.encodeElement(withSignature ? block.getCommitment() : null),
+                encodeStrings(block.getListPublicKeys()),
+                RLP.encodeElement(block.getPrevBlockHash()),
+                encodeByteArrays(block.getListTXHashes()),
+                encodeStrings(block.getPeers()),
+                encodeShard(block.getShard()),
+                RLP.encodeElement(block.getAppStateHash()),
+                encodeLong(block.getTimestamp()),
+                encodeLong(block.getRoundIndex()));
+    }
+
+    private static Block decodeBlock(RLPList fields) {
+        Block block = new Block();
+        block.setNonce(decodeBigInteger(fields.get(0)));
+        block.setSignature(decodeBytes(fields.get(1)));
+        block.setCommitment(decodeBytes(fields.get(2)));
+        block.setListPubKeys(decodeStrings(fields.get(3)));
+        block.setPrevBlockHash(decodeBytes(fields.get(4)));
+        block.setListTXHashes(decodeByteArrays(fields.get(5)));
+        block.setPeers(decodeStrings(fields.get(6)));
+        block.setShard(decodeShard(fields.get(7)));
+        block.setAppStateHash(decodeBytes(fields.get(8)));
+        block.setTimestamp(decodeLong(fields.get(9)));
+        block.setRoundIndex(decodeLong(fields.get(10)));
+        return block;
+    }
+
+    public static byte[] encodeReceipt(Receipt receipt) {
+        return RLP.encodeList(
+                encodeString(receipt.getBlockHash()),
+                encodeString(receipt.getTransactionHash()),
+                encodeString(receipt.getStatus() == null ? null : receipt.getStatus().name()),
+                encodeStrings(receipt.getLogs()));
+    }
+
+    private static Receipt decodeReceipt(RLPList fields) {
+        String status = decodeString(fields.get(2));
+        List<String> logs = decodeStrings(fields.get(3));
+        return new Receipt(
+                decodeString(fields.get(0)),
+                decodeString(fields.get(1)),
+                status == null ? null : ReceiptStatus.valueOf(status),
+                logs.toArray(new String[logs.size()]));
+    }
+
+    private static byte[] encodeBigInteger(BigInteger value) {
+        return RLP.encodeElement(value == null ? null : value.toByteArray());
+    }
+
+    private static BigInteger decodeBigInteger(RLPElement element) {
+        byte[] data = element.getRLPData();
+        return (data == null) ? null : new BigInteger(data);
+    }
+
+    private static byte[] encodeLong(long value) {
+        return RLP.encodeElement(BigInteger.valueOf(value).toByteArray());
+    }
+
+    private static long decodeLong(RLPElement element) {
+        BigInteger value = decodeBigInteger(element);
+        return (value == null) ? 0 : value.longValue();
+    }
+
+    private static byte[] encodeString(String value) {
+        return RLP.encodeElement(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeString(RLPElement element) {
+        byte[] data = element.getRLPData();
+        return (data == null) ? null : new String(data, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] decodeBytes(RLPElement element) {
+        byte[] data = element.getRLPData();
+        return (data == null) ? new byte[0] : data;
+    }
+
+    private static byte[] encodeShard(Shard shard) {
+        return RLP.encodeElement(shard == null || shard.getIndex() == null ? null : BigInteger.valueOf(shard.getIndex()).toByteArray());
+    }
+
+    private static Shard decodeShard(RLPElement element) {
+        BigInteger index = decodeBigInteger(element);
+        return (index == null) ? null : new Shard(index.intValue());
+    }
+
+    private static byte[] encodeStrings(List<String> values) {
+        if (values == null) {
+            return RLP.encodeList();
+        }
+
+        byte[][] elements = new byte[values.size()][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = encodeString(values.get(i));
+        }
+        return RLP.encodeList(elements);
+    }
+
+    private static List<String> decodeStrings(RLPElement element) {
+        List<String> values = new ArrayList<>();
+        for (RLPElement item : (RLPList) element) {
+            values.add(decodeString(item));
+        }
+        return values;
+    }
+
+    private static byte[] encodeByteArrays(List<byte[]> values) {
+        if (values == null) {
+            return RLP.encodeList();
+        }
+
+        byte[][] elements = new byte[values.size()][];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = RLP.encodeElement(values.get(i));
+        }
+        return RLP.encodeList(elements);
+    }
+
+    private static List<byte[]> decodeByteArrays(RLPElement element) {
+        List<byte[]> values = new ArrayList<>();
+        for (RLPElement item : (RLPList) element) {
+            values.add(decodeBytes(item));
+        }
+        return values;
+    }
+
+    /**
+     * Serialized form of an object that has a binary encoding
+     */
+    public static class Encoded implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Class<?> clazz;
+        private final byte[] data;
+
+        public Encoded(Object object) {
+            this.clazz = object.getClass();
+            this.data = encode(object);
+        }
+
+        protected Object readResolve() throws ObjectStreamException {
+            return decode(data, clazz);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package network.elrond.data.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import network.elrond.core.Util;
+import network.elrond.data.RLPCodec;
 import network.elrond.sharding.Shard;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -14,7 +18,7 @@ import java.util.List;
  * @version 1.0
  * @since 2018-05-14
  */
-public class Block implements Serializable {
+public class Block implements Serializable, HashedObject {
     //block counter
     private BigInteger nonce;
     //blob of data containing first part of sig
@@ -39,6 +43,8 @@ public class Block implements Serializable {
 
     protected long roundIndex = 0;
 
+    private transient volatile byte[] cachedHash;
+
     public Block() {
         nonce = BigInteger.ZERO;
         listPubKeys = new ArrayList<String>();
@@ -66,6 +72,7 @@ public class Block implements Serializable {
      */
     public void setNonce(BigInteger nonce) {
         this.nonce = nonce;
+        cachedHash = null;
     }
 
     /**
@@ -74,19 +81,31 @@ public class Block implements Serializable {
      * @return listToTable of tx hashes
      */
     public List<byte[]> getListTXHashes() {
-        return (listTXHashes);
+        return (Collections.unmodifiableList(listTXHashes));
     }
 
     public void setListTXHashes(List<byte[]> listTXHashes) {
-        this.listTXHashes = listTXHashes;
+        this.listTXHashes = new ArrayList<>(listTXHashes);
+        cachedHash = null;
+    }
+
+    /**
+     * Adds a transaction hash at the end of the listToTable
+     *
+     * @param transactionHash to be added
+     */
+    public void addTXHash(byte[] transactionHash) {
+        listTXHashes.add(transactionHash);
+        cachedHash = null;
     }
 
     public List<String> getPeers() {
-        return peers;
+        return (Collections.unmodifiableList(peers));
     }
 
     public void setPeers(List<String> peers) {
-        this.peers = peers;
+        this.peers = new ArrayList<>(peers);
+        cachedHash = null;
     }
 
     /**
@@ -95,11 +114,24 @@ public class Block implements Serializable {
      * @return the listToTable of public keys
      */
     public List<String> getListPublicKeys() {
-        return (listPubKeys);
+        return (Collections.unmodifiableList(listPubKeys));
     }
 
+    // the getter's list is read-only, JSON sets the keys through here
+    @JsonProperty("listPublicKeys")
     public void setListPubKeys(List<String> listPubKeys) {
-        this.listPubKeys = listPubKeys;
+        this.listPubKeys = new ArrayList<>(listPubKeys);
+        cachedHash = null;
+    }
+
+    /**
+     * Adds a public key used in signing at the end of the listToTable
+     *
+     * @param publicKey to be added
+     */
+    public void addPublicKey(String publicKey) {
+        listPubKeys.add(publicKey);
+        cachedHash = null;
     }
 
     /**
@@ -118,6 +150,7 @@ public class Block implements Serializable {
      */
     public void setSignature(byte[] signature) {
         this.signature = signature;
+        cachedHash = null;
     }
 
     /**
@@ -136,6 +169,7 @@ public class Block implements Serializable {
      */
     public void setCommitment(byte[] commitment) {
         this.commitment = commitment;
+        cachedHash = null;
     }
 
     /**
@@ -150,6 +184,7 @@ public class Block implements Serializable {
      */
     public void setShard(Shard shard) {
         this.shard = shard;
+        cachedHash = null;
     }
 
     /**
@@ -168,6 +203,7 @@ public class Block implements Serializable {
      */
     public void setPrevBlockHash(byte[] prevBlockHash) {
         this.prevBlockHash = prevBlockHash;
+        cachedHash = null;
     }
 
     /**
@@ -186,6 +222,7 @@ public class Block implements Serializable {
      */
     public void setAppStateHash(byte[] appStateHash) {
         this.appStateHash = appStateHash;
+        cachedHash = null;
     }
 
     public long getTimestamp() {
@@ -194,6 +231,7 @@ public class Block implements Serializable {
 
     public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
+        cachedHash = null;
     }
 
     public long getRoundIndex() {
@@ -202,6 +240,7 @@ public class Block implements Serializable {
 
     public void setRoundIndex(long roundIndex) {
         this.roundIndex = roundIndex;
+        cachedHash = null;
     }
 
     @Override
@@ -209,4 +248,18 @@ public class Block implements Serializable {
         return (String.format("Block{shard=%s, nonce=%d, signature='%s', commitment='%s', appStateHash='%s', listTXHashes.size=%d, roundIndex=%d, timestamp=%d}",
                 shard, nonce, Util.byteArrayToHexString(signature), Util.byteArrayToHexString(commitment), Util.byteArrayToHexString(appStateHash), listTXHashes.size(), roundIndex, timestamp));
     }
+
+    @Override
+    public byte[] cachedHash() {
+        return cachedHash;
+    }
+
+    @Override
+    public void cacheHash(byte[] hash) {
+        this.cachedHash = hash;
+    }
+
+    protected Object writeReplace() throws ObjectStreamException {
+        return new RLPCodec.Encoded(this);
+    }
 }
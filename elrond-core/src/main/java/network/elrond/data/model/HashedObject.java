@@ -0,0 +1,16 @@
+package network.elrond.data.model;
+
+/**
+ * Object that keeps its hash once computed, so it is serialized and hashed only once per node.
+ * Implementations drop the kept hash on every mutation and keep it in a volatile field,
+ * as it is read and set by the threads hashing the object.
+ */
+public interface HashedObject {
+
+    /**
+     * @return the kept hash or null if the object changed since it was last hashed
+     */
+    byte[] cachedHash();
+
+    void cacheHash(byte[] hash);
+}
@@ -1,16 +1,21 @@
 package network.elrond.data.model;
 
+import network.elrond.data.RLPCodec;
+
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
 
-public class Receipt implements Serializable {
+public class Receipt implements Serializable, HashedObject {
 
     private String blockHash;
     private final String transactionHash;
     private final ReceiptStatus status;
     private final List<String> logs;
 
+    private transient volatile byte[] cachedHash;
+
     public Receipt(
             String transactionHash,
             ReceiptStatus status,
@@ -49,6 +54,7 @@ public class Receipt implements Serializable {
 
     public void setBlockHash(String blockHash) {
         this.blockHash = blockHash;
+        cachedHash = null;
     }
 
     @Override
@@ -56,4 +62,18 @@ public class Receipt implements Serializable {
         return String.format("Receipt{blockHash='%s', transactionHash='%s', status=%s, logs='%s'}",
             blockHash, transactionHash, status, logs);
     }
+
+    @Override
+    public byte[] cachedHash() {
+        return cachedHash;
+    }
+
+    @Override
+    public void cacheHash(byte[] hash) {
+        this.cachedHash = hash;
+    }
+
+    protected Object writeReplace() throws ObjectStreamException {
+        return new RLPCodec.Encoded(this);
+    }
 }
@@ -2,10 +2,12 @@ package network.elrond.data.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import network.elrond.data.RLPCodec;
 import network.elrond.sharding.Shard;
 import network.elrond.util.console.AsciiTable;
 
 import java.beans.Transient;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.math.BigInteger;
 
@@ -16,7 +18,7 @@ import java.math.BigInteger;
  * @version 1.0
  * @since 2018-05-11
  */
-public class Transaction implements Serializable {
+public class Transaction implements Serializable, HashedObject {
     //tx counter
     private BigInteger nonce;
     //value used in transaction in sERDs see core.Util
@@ -42,6 +44,8 @@ public class Transaction implements Serializable {
 
     private Shard receiverShard;
 
+    private transient volatile byte[] cachedHash;
+
     //Implicit constructor for serializing-deserializing
     public Transaction(){
 
@@ -115,6 +119,7 @@ public class Transaction implements Serializable {
      */
     public void setNonce(BigInteger nonce) {
         this.nonce = nonce;
+        cachedHash = null;
     }
 
     /**
@@ -133,6 +138,7 @@ public class Transaction implements Serializable {
      */
     public void setValue(BigInteger value) {
         this.value = value;
+        cachedHash = null;
     }
 
     /**
@@ -151,6 +157,7 @@ public class Transaction implements Serializable {
      */
     public void setReceiverAddress(String receiverAddress) {
         this.receiverAddress = receiverAddress;
+        cachedHash = null;
     }
 
     /**
@@ -169,6 +176,7 @@ public class Transaction implements Serializable {
      */
     public void setSenderAddress(String senderAddress) {
         this.senderAddress = senderAddress;
+        cachedHash = null;
     }
 
     /**
@@ -187,6 +195,7 @@ public class Transaction implements Serializable {
      */
     public void setGasPrice(BigInteger gasPrice) {
         this.gasPrice = gasPrice;
+        cachedHash = null;
     }
 
     /**
@@ -205,6 +214,7 @@ public class Transaction implements Serializable {
      */
     public void setGasLimit(BigInteger gasLimit) {
         this.gasLimit = gasLimit;
+        cachedHash = null;
     }
 
     /**
@@ -223,6 +233,7 @@ public class Transaction implements Serializable {
      */
     public void setData(byte[] data) {
         this.data = data;
+        cachedHash = null;
     }
 
     /**
@@ -242,6 +253,7 @@ public class Transaction implements Serializable {
      */
     public void setSignature(byte[] signature) {
         this.signature = signature;
+        cachedHash = null;
     }
 
     /**
@@ -261,6 +273,7 @@ public class Transaction implements Serializable {
      */
     public void setChallenge(byte[] challenge) {
         this.challenge = challenge;
+        cachedHash = null;
     }
 
     /**
@@ -279,6 +292,7 @@ public class Transaction implements Serializable {
      */
     public void setPubKey(String pubKey) {
         this.pubKey = pubKey;
+        cachedHash = null;
     }
 
     public Shard getSenderShard() {
@@ -287,6 +301,7 @@ public class Transaction implements Serializable {
 
     public void setSenderShard(Shard senderShard) {
         this.senderShard = senderShard;
+        cachedHash = null;
     }
 
     public Shard getReceiverShard() {
@@ -295,6 +310,7 @@ public class Transaction implements Serializable {
 
     public void setReceiverShard(Shard receiverShard) {
         this.receiverShard = receiverShard;
+        cachedHash = null;
     }
 
     @JsonIgnore
@@ -308,4 +324,18 @@ public class Transaction implements Serializable {
         return (String.format("Transaction{nonce=%d, value=%d, sender='%s', receiver='%s', senderShard='%s' ,receiverShard='%s' }",
                 nonce, value, senderAddress, receiverAddress, senderShard, receiverShard));
     }
+
+    @Override
+    public byte[] cachedHash() {
+        return cachedHash;
+    }
+
+    @Override
+    public void cacheHash(byte[] hash) {
+        this.cachedHash = hash;
+    }
+
+    protected Object writeReplace() throws ObjectStreamException {
+        return new RLPCodec.Encoded(this);
+    }
 }
@@ -3,6 +3,7 @@ package network.elrond.data.service;
 import network.elrond.application.AppContext;
 import network.elrond.application.AppState;
 import network.elrond.blockchain.Blockchain;
+import network.elrond.blockchain.ChainMetadata;
 import network.elrond.data.model.Block;
 import network.elrond.data.model.ExecutionReport;
 import network.elrond.data.model.LocationType;
@@ -25,10 +26,25 @@ public interface BootstrapService {
     /** Sets the hash for a block height in location */
     void setBlockHashWithIndex(BigInteger blockIndex, String blockHash, Blockchain blockchain) throws Exception;
 
+    /** Gets the tip of the chain stored locally, null if none */
+    ChainMetadata getChainMetadata(Blockchain blockchain) throws Exception;
+
+    /** Stores the block with its index in one write */
+    void storeBlock(Block block, String blockHash, Blockchain blockchain);
+
+    /** Stores an executed block with its index, and as the tip of the chain unless a higher block is stored, in one write */
+    void storeExecutedBlock(Block block, String blockHash, Blockchain blockchain);
+
     ExecutionReport startFromGenesis(AppState state, AppContext context);
 
     ExecutionReport synchronize(BigInteger localBlockIndex, BigInteger remoteBlockIndex, AppState state);
 
+    /** Downloads the account state of the block at the height, once its headers are checked back to the genesis, and continues from that block; the headers are stored, not replayed */
+    ExecutionReport syncState(BigInteger blockIndex, AppState state);
+
+    /** Returns true if the context syncs the state, instead of replaying the blocks, for that many blocks to catch up */
+    boolean isStateSyncFaster(BigInteger localBlockIndex, BigInteger remoteBlockIndex, AppContext context);
+
     ExecutionReport restoreFromDisk(BigInteger currentBlockIndex, AppState state, AppContext context);
 
     ExecutionReport commitBlock(Block blk, String blockHash, Blockchain blockchain);
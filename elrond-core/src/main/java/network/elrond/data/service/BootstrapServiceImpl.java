@@ -4,7 +4,10 @@ import network.elrond.account.Accounts;
 import network.elrond.application.AppContext;
 import network.elrond.application.AppState;
 import network.elrond.blockchain.Blockchain;
+import network.elrond.blockchain.BlockchainBatch;
+import network.elrond.blockchain.BlockchainService;
 import network.elrond.blockchain.BlockchainUnitType;
+import network.elrond.blockchain.ChainMetadata;
 import network.elrond.blockchain.SettingsType;
 import network.elrond.chronology.NTPClient;
 import network.elrond.core.Util;
@@ -15,6 +18,7 @@ import network.elrond.data.model.ExecutionReport;
 import network.elrond.data.model.LocationType;
 import network.elrond.data.model.SyncState;
 import network.elrond.data.model.Transaction;
+import network.elrond.p2p.model.P2PRequestChannel;
 import network.elrond.p2p.model.P2PRequestChannelName;
 import network.elrond.service.AppServiceProvider;
 import network.elrond.util.console.AsciiPrinter;
@@ -25,11 +29,16 @@ import org.mapdb.Fun;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class BootstrapServiceImpl implements BootstrapService {
     private static final Logger logger = LogManager.getLogger(BootstrapServiceImpl.class);
     
+    // index entries written per batch, when a chain is indexed again or its headers are synced
+    private static final int INDEX_BATCH = 1024;
+
     private AsciiPrinter asciiPrinter = AsciiPrinter.instance();
 
     @Override
@@ -98,11 +107,10 @@ public class BootstrapServiceImpl implements BootstrapService {
     @Override
     public String getBlockHashFromIndex(BigInteger blockIndex, Blockchain blockchain) throws Exception {
         logger.traceEntry("params: {} {}", blockIndex, blockchain);
-        String identifier = getBlockIndexIdentifier(blockIndex);
-        String blockHash = AppServiceProvider.getBlockchainService().get(identifier, blockchain, BlockchainUnitType.BLOCK_INDEX);
+        String blockHash = AppServiceProvider.getBlockchainService().get(blockIndex, blockchain, BlockchainUnitType.BLOCK_INDEX);
 
         if (blockHash != null) {
-            AppServiceProvider.getBlockchainService().putLocal(identifier, blockHash, blockchain, BlockchainUnitType.BLOCK_INDEX);
+            AppServiceProvider.getBlockchainService().putLocal(blockIndex, blockHash, blockchain, BlockchainUnitType.BLOCK_INDEX);
         }
 
         return logger.traceExit(blockHash);
@@ -112,14 +120,96 @@ public class BootstrapServiceImpl implements BootstrapService {
     @Override
     public void setBlockHashWithIndex(BigInteger blockIndex, String blockHash, Blockchain blockchain) throws Exception {
         logger.traceEntry("params: {} {} {}", blockIndex, blockHash, blockchain);
-        String identifier = getBlockIndexIdentifier(blockIndex);
-        AppServiceProvider.getBlockchainService().put(identifier, blockHash, blockchain, BlockchainUnitType.BLOCK_INDEX);
+        AppServiceProvider.getBlockchainService().put(blockIndex, blockHash, blockchain, BlockchainUnitType.BLOCK_INDEX);
+        logger.traceExit();
+    }
+
+    @Override
+    public ChainMetadata getChainMetadata(Blockchain blockchain) throws Exception {
+        logger.traceEntry("params: {}", blockchain);
+        ChainMetadata metadata = AppServiceProvider.getBlockchainService().getLocal(ChainMetadata.KEY, blockchain, BlockchainUnitType.CHAIN_METADATA);
+        return logger.traceExit(metadata);
+    }
+
+    /**
+     * Blocks used to be indexed by "HEIGHT_BLOCK_n" strings, those of a chain stored so are indexed again by height
+     *
+     * @return the metadata of the chain found, null if none
+     */
+    private ChainMetadata migrateLegacyBlockIndex(Blockchain blockchain) throws Exception {
+        logger.traceEntry("params: {}", blockchain);
+        BlockchainService blockchainService = AppServiceProvider.getBlockchainService();
+
+        BigInteger height = BigInteger.valueOf(-1);
+        String blockHash = null;
+        BlockchainBatch batch = new BlockchainBatch();
+        while (true) {
+            BigInteger next = height.add(BigInteger.ONE);
+            String nextHash = blockchainService.getLocal(getLegacyBlockIndexIdentifier(next), blockchain, BlockchainUnitType.BLOCK_INDEX);
+            if (nextHash == null) {
+                break;
+            }
+            height = next;
+            blockHash = nextHash;
+            batch.put(height, blockHash, BlockchainUnitType.BLOCK_INDEX);
+            if (batch.size() >= INDEX_BATCH) {
+                blockchainService.putLocal(batch, blockchain);
+                batch = new BlockchainBatch();
+            }
+        }
+
+        if (blockHash == null) {
+            return logger.traceExit((ChainMetadata) null);
+        }
+
+        // the state root is not known without the block, replay checks it
+        Block block = blockchainService.getLocal(blockHash, blockchain, BlockchainUnitType.BLOCK);
+        ChainMetadata metadata = new ChainMetadata(height, blockHash, (block == null) ? null : block.getAppStateHash());
+        batch.put(ChainMetadata.KEY, metadata, BlockchainUnitType.CHAIN_METADATA);
+        blockchainService.putLocal(batch, blockchain);
+        logger.info("Indexed again {} blocks stored with the legacy index", height.add(BigInteger.ONE));
+        return logger.traceExit(metadata);
+    }
+
+    private String getLegacyBlockIndexIdentifier(BigInteger blockHeight) {
+        return SettingsType.HEIGHT_BLOCK.toString() + "_" + blockHeight.toString(10);
+    }
+
+    @Override
+    public void storeBlock(Block block, String blockHash, Blockchain blockchain) {
+        logger.traceEntry("params: {} {} {}", block, blockHash, blockchain);
+        Util.check(block != null, "block != null");
+        Util.check(blockHash != null, "blockHash != null");
+
+        BlockchainBatch batch = new BlockchainBatch()
+                .put(blockHash, block, BlockchainUnitType.BLOCK)
+                .put(block.getNonce(), blockHash, BlockchainUnitType.BLOCK_INDEX);
+        AppServiceProvider.getBlockchainService().putLocal(batch, blockchain);
+
         logger.traceExit();
     }
 
-    private String getBlockIndexIdentifier(BigInteger blockHeight) {
-        logger.traceEntry("params: {}", blockHeight);
-        return logger.traceExit(SettingsType.HEIGHT_BLOCK.toString() + "_" + blockHeight.toString(10));
+    @Override
+    public synchronized void storeExecutedBlock(Block block, String blockHash, Blockchain blockchain) {
+        logger.traceEntry("params: {} {} {}", block, blockHash, blockchain);
+        Util.check(block != null, "block != null");
+        Util.check(blockHash != null, "blockHash != null");
+
+        BlockchainService blockchainService = AppServiceProvider.getBlockchainService();
+
+        // The block, its index and the new tip are written together, a replayed or late block keeps the tip;
+        // the accounts are at the state of the block, a restart resumes from it
+        BlockchainBatch batch = new BlockchainBatch()
+                .put(blockHash, block, BlockchainUnitType.BLOCK)
+                .put(block.getNonce(), blockHash, BlockchainUnitType.BLOCK_INDEX);
+        ChainMetadata tip = blockchainService.getLocal(ChainMetadata.KEY, blockchain, BlockchainUnitType.CHAIN_METADATA);
+        if (tip == null || block.getNonce().compareTo(tip.getHeight()) >= 0) {
+            ChainMetadata metadata = new ChainMetadata(block.getNonce(), blockHash, block.getAppStateHash());
+            batch.put(ChainMetadata.KEY, metadata, BlockchainUnitType.CHAIN_METADATA);
+        }
+        blockchainService.putLocal(batch, blockchain);
+
+        logger.traceExit();
     }
 
     @Override
@@ -138,8 +228,7 @@ public class BootstrapServiceImpl implements BootstrapService {
 
             logger.trace("stored block index {}", block.getNonce());
 
-            AppServiceProvider.getBlockchainService().putLocal(blockHash, block, blockchain, BlockchainUnitType.BLOCK);
-            setBlockHashWithIndex(block.getNonce(), blockHash, blockchain);
+            storeBlock(block, blockHash, blockchain);
             logger.trace("stored block {}", blockHash);
 
             // Update max index
@@ -212,6 +301,7 @@ public class BootstrapServiceImpl implements BootstrapService {
 
             if (result.isOk()) {
                 logger.trace("Execution of genesis block was successful!");
+                storeExecutedBlock(genesisBlock, genesisBlockHash, blockchain);
                 setCurrentBlockIndex(LocationType.BOTH, genesisBlock.getNonce(), blockchain);
 
                 logger.info("\n" +  asciiPrinter.appStateAsciiTable(state).render());
@@ -238,30 +328,57 @@ public class BootstrapServiceImpl implements BootstrapService {
         Blockchain blockchain = state.getBlockchain();
 
         ExecutionReport result = new ExecutionReport().ok("Start bootstrapping by loading from disk...");
-        BigInteger idx = BigInteger.valueOf(-1);
+        ChainMetadata metadata;
 
         try {
-            // get the last index from disk
-            while (getBlockHashFromIndex(idx.add(BigInteger.ONE), blockchain) != null) {
-                idx = idx.add(BigInteger.ONE);
+            // the tip is one read, a chain stored before it was kept is indexed again once
+            metadata = getChainMetadata(blockchain);
+            if (metadata == null) {
+                metadata = migrateLegacyBlockIndex(blockchain);
             }
         } catch (Exception ex) {
             result.ko(ex);
             return (result);
         }
 
-        if (idx.equals(BigInteger.valueOf(-1))) {
+        if (metadata == null) {
             logger.trace("no index stored on disk so need to create genesis");
             return startFromGenesis(state, context);
         }
+        BigInteger idx = metadata.getHeight();
+
+        ExecutionReport restoreReport = restoreTip(metadata, state);
+        if (restoreReport.isOk()) {
+            return logger.traceExit(result.combine(restoreReport));
+        }
+        logger.debug("Could not restore the state of the tip, replaying the blocks: {}", restoreReport);
 
+        if (isStateSyncFaster(BigInteger.valueOf(-1), idx, context)) {
+            // nodes of the kept state roots are on disk, the others come from the peers
+            ExecutionReport syncReport = syncState(idx, state);
+            if (syncReport.isOk()) {
+                return logger.traceExit(result.combine(syncReport));
+            }
+            logger.warn("State sync failed, replaying the blocks: {}", syncReport);
+        }
+
+        BlockchainService blockchainService = AppServiceProvider.getBlockchainService();
         BigInteger genesisBlockIndex = BigInteger.valueOf(0);
         for (BigInteger index = genesisBlockIndex; index.compareTo(idx) <= 0; index = index.add(BigInteger.ONE)) {
             try {
-                result.combine(new ExecutionReport().ok("Put block with height: " + index.toString(10) + "..."));
+                // only the blocks stored here are replayed, the ones after a gap come from the sync
+                String blockHash = blockchainService.getLocal(index, blockchain, BlockchainUnitType.BLOCK_INDEX);
+                Block block = (blockHash == null) ? null : blockchainService.getLocal(blockHash, blockchain, BlockchainUnitType.BLOCK);
+                if (block == null) {
+                    if (index.equals(genesisBlockIndex)) {
+                        result.ko("Can not rebuild! Could not find the genesis block on LOCAL!");
+                        return logger.traceExit(result);
+                    }
+                    logger.warn("Block with height {} is not stored, replayed up to height {}", index, index.subtract(BigInteger.ONE));
+                    break;
+                }
 
-                String blockHash = getBlockHashFromIndex(index, blockchain);
-                Block block = AppServiceProvider.getBlockchainService().getLocal(blockHash, blockchain, BlockchainUnitType.BLOCK);
+                result.combine(new ExecutionReport().ok("Put block with height: " + index.toString(10) + "..."));
 
                 logger.trace("re-running block to update internal state...");
                 ExecutionReport executionReport = AppServiceProvider.getExecutionService().processBlock(block, accounts, blockchain, state.getStatisticsManager());
@@ -272,9 +389,11 @@ public class BootstrapServiceImpl implements BootstrapService {
                     return logger.traceExit(result);
                 }
 
-                commitBlock(block, blockHash, blockchain);
+                storeExecutedBlock(block, blockHash, blockchain);
                 commitBlockTransactions(block, blockchain);
+                blockchain.getPool().addBlock(block);
                 // Update current block
+                blockchain.setCurrentBlockIndex(index);
                 blockchain.setCurrentBlock(block);
                 logger.trace("done updating current block");
 
@@ -289,6 +408,45 @@ public class BootstrapServiceImpl implements BootstrapService {
         return logger.traceExit(result);
     }
 
+    /**
+     * Reuses the account state of the tip if its root is still in the accounts database, so no block is replayed
+     */
+    private ExecutionReport restoreTip(ChainMetadata metadata, AppState state) {
+        logger.traceEntry("params: {} {}", metadata, state);
+
+        Accounts accounts = state.getAccounts();
+        Blockchain blockchain = state.getBlockchain();
+        BlockchainService blockchainService = AppServiceProvider.getBlockchainService();
+
+        ExecutionReport result = new ExecutionReport();
+        try {
+            String genesisBlockHash = getBlockHashFromIndex(BigInteger.ZERO, blockchain);
+            Block genesisBlock = (genesisBlockHash == null) ? null : blockchainService.getLocal(genesisBlockHash, blockchain, BlockchainUnitType.BLOCK);
+            Block block = blockchainService.getLocal(metadata.getBlockHash(), blockchain, BlockchainUnitType.BLOCK);
+            if (genesisBlock == null || block == null) {
+                return logger.traceExit(result.ko("Could not find the genesis block or the block " + metadata.getBlockHash()));
+            }
+
+            // the accounts are committed apart from the blocks, their root may be behind the tip
+            byte[] stateRootHash = metadata.getStateRootHash();
+            if (stateRootHash == null || !accounts.getAccountsPersistenceUnit().restoreState(stateRootHash)) {
+                return logger.traceExit(result.ko("State root of block " + metadata.getBlockHash() + " is not stored"));
+            }
+
+            blockchain.setGenesisBlock(genesisBlock);
+            blockchain.getPool().addBlock(block);
+            blockchain.setCurrentBlockIndex(metadata.getHeight());
+            blockchain.setCurrentBlock(block);
+
+            result.ok("Restored the account state of block " + metadata.getBlockHash() + " with height: " + metadata.getHeight().toString(10));
+            logger.info("Restored the chain from disk at height {}", metadata.getHeight());
+        } catch (Exception ex) {
+            result.ko(ex);
+        }
+
+        return logger.traceExit(result);
+    }
+
     private void commitBlockTransactions(Block block, Blockchain blockchain) throws IOException, ClassNotFoundException {
         logger.traceEntry("params: {} {}", block, blockchain);
 
@@ -305,6 +463,120 @@ public class BootstrapServiceImpl implements BootstrapService {
     }
 
 
+    @Override
+    public ExecutionReport syncState(BigInteger blockIndex, AppState state) {
+        logger.traceEntry("params: {} {}", blockIndex, state);
+
+        Accounts accounts = state.getAccounts();
+        Blockchain blockchain = state.getBlockchain();
+        BlockchainService blockchainService = AppServiceProvider.getBlockchainService();
+
+        ExecutionReport result = new ExecutionReport().ok("Syncing account state of block with height: " + blockIndex.toString(10) + "...");
+
+        try {
+            // the state root of the block is trusted only once its headers are checked back to the genesis
+            String blockHash = blockchainService.get(blockIndex, blockchain, BlockchainUnitType.BLOCK_INDEX);
+            List<Block> headers = (blockHash == null) ? null : getVerifiedHeaders(blockHash, blockIndex, blockchain);
+            if (headers == null) {
+                result.ko("Can not sync state! Could not verify the headers of the block with nonce = " + blockIndex.toString(10));
+                return logger.traceExit(result);
+            }
+            Block genesisBlock = headers.get(0);
+            Block block = headers.get(headers.size() - 1);
+
+            // every node is checked against its parent, the root against the block
+            P2PRequestChannel channel = state.getChannel(P2PRequestChannelName.TRIE_NODES);
+            // nodes are checked by hash, so each peer is asked for a part of the batch
+            int nodes = accounts.getAccountsPersistenceUnit().syncState(block.getAppStateHash(), hashes -> {
+                List<ArrayList<byte[]>> responses = AppServiceProvider.getP2PRequestService().getSplit(channel, blockchain.getShard(),
+                        P2PRequestChannelName.TRIE_NODES, hashes, part -> part);
+                List<byte[]> received = new ArrayList<>();
+                for (ArrayList<byte[]> response : responses) {
+                    if (response != null) {
+                        received.addAll(response);
+                    }
+                }
+                return received;
+            });
+
+            // the blocks before are indexed, not executed
+            BlockchainBatch batch = new BlockchainBatch();
+            for (Block header : headers.subList(0, headers.size() - 1)) {
+                String headerHash = AppServiceProvider.getSerializationService().getHashString(header);
+                batch.put(headerHash, header, BlockchainUnitType.BLOCK)
+                        .put(header.getNonce(), headerHash, BlockchainUnitType.BLOCK_INDEX);
+                if (batch.size() >= INDEX_BATCH) {
+                    blockchainService.putLocal(batch, blockchain);
+                    batch = new BlockchainBatch();
+                }
+            }
+            blockchainService.putLocal(batch, blockchain);
+            storeExecutedBlock(block, blockHash, blockchain);
+            blockchain.setGenesisBlock(genesisBlock);
+            blockchain.getPool().addBlock(block);
+
+            // blocks after this one are processed as usual
+            blockchain.setCurrentBlockIndex(blockIndex);
+            blockchain.setCurrentBlock(block);
+
+            result.ok("Synced account state of block " + blockHash + ": " + nodes + " trie nodes downloaded");
+            logger.info("Synced account state at height {}, {} trie nodes downloaded", blockIndex, nodes);
+            logger.info("\r\n" + asciiPrinter.appStateAsciiTable(state).render());
+        } catch (Exception ex) {
+            result.ko(ex);
+            logger.trace("State sync FAILED at index {}!", blockIndex);
+        }
+
+        return logger.traceExit(result);
+    }
+
+    /**
+     * Gets the headers from the genesis to the block, checking that each one has the hash its successor points to,
+     * its height as nonce and a valid signature, and that the genesis is the one stored here if any
+     *
+     * @return the headers, genesis first; null if one is missing or not valid
+     */
+    private List<Block> getVerifiedHeaders(String blockHash, BigInteger blockIndex, Blockchain blockchain) throws Exception {
+        logger.traceEntry("params: {} {} {}", blockHash, blockIndex, blockchain);
+        BlockchainService blockchainService = AppServiceProvider.getBlockchainService();
+        ExecutionService executionService = AppServiceProvider.getExecutionService();
+
+        List<Block> headers = new ArrayList<>();
+        String hash = blockHash;
+        for (BigInteger height = blockIndex; height.signum() >= 0; height = height.subtract(BigInteger.ONE)) {
+            Block header = blockchainService.get(hash, blockchain, BlockchainUnitType.BLOCK);
+            if (header == null || !hash.equals(AppServiceProvider.getSerializationService().getHashString(header))
+                    || !height.equals(header.getNonce()) || !executionService.isBlockSignatureValid(header)) {
+                logger.warn("Header {} with height {} is missing or not valid", hash, height);
+                return logger.traceExit((List<Block>) null);
+            }
+            headers.add(header);
+
+            if (height.signum() > 0) {
+                if (header.getPrevBlockHash() == null) {
+                    logger.warn("Header {} with height {} has no previous block", hash, height);
+                    return logger.traceExit((List<Block>) null);
+                }
+                hash = Util.getDataEncoded64(header.getPrevBlockHash());
+            }
+        }
+
+        String genesisBlockHash = blockchainService.getLocal(BigInteger.ZERO, blockchain, BlockchainUnitType.BLOCK_INDEX);
+        if (genesisBlockHash != null && !genesisBlockHash.equals(hash)) {
+            logger.warn("Headers lead to the genesis {}, not to the one stored {}", hash, genesisBlockHash);
+            return logger.traceExit((List<Block>) null);
+        }
+
+        Collections.reverse(headers);
+        return logger.traceExit(headers);
+    }
+
+    @Override
+    public boolean isStateSyncFaster(BigInteger localBlockIndex, BigInteger remoteBlockIndex, AppContext context) {
+        int stateSyncMinBlocks = context.getStateSyncMinBlocks();
+        return stateSyncMinBlocks > 0 && remoteBlockIndex.subtract(localBlockIndex).compareTo(BigInteger.valueOf(stateSyncMinBlocks)) >= 0;
+    }
+
     @Override
     public ExecutionReport synchronize(BigInteger localBlockIndex, BigInteger remoteBlockIndex, AppState state) {
         logger.traceEntry("params: {} {} {} {}", localBlockIndex, remoteBlockIndex, state);
@@ -343,7 +615,7 @@ public class BootstrapServiceImpl implements BootstrapService {
                     return logger.traceExit(result);
                 }
 
-                AppServiceProvider.getBlockchainService().putLocal(blockHash, block, blockchain, BlockchainUnitType.BLOCK);
+                storeExecutedBlock(block, blockHash, blockchain);
 
                 //AppBlockManager.instance().removeAlreadyProcessedTransactionsFromPool(state, block);
 
@@ -15,8 +15,19 @@ public interface ExecutionService {
      */
     ExecutionReport processBlock(Block block, Accounts accounts, Blockchain blockchain, StatisticsManager statisticsManager);
 
+    /**
+     * Checks the signature of the block by its signers, as processing it does
+     */
+    boolean isBlockSignatureValid(Block block);
+
     /**
      * Process transaction and update accounts state
      */
     ExecutionReport processTransaction(Transaction transaction, Accounts accounts);
+
+    /**
+     * Process a transaction whose signature was already checked (see TransactionService.verifyTransactions)
+     * and update accounts state
+     */
+    ExecutionReport processVerifiedTransaction(Transaction transaction, Accounts accounts);
 }
@@ -2,6 +2,8 @@ package network.elrond.data.service;
 
 import network.elrond.account.Accounts;
 import network.elrond.account.AccountsManager;
+import network.elrond.account.AccountsView;
+import network.elrond.account.AccountsWriteSet;
 import network.elrond.benchmark.Statistic;
 import network.elrond.benchmark.StatisticsManager;
 import network.elrond.blockchain.Blockchain;
@@ -9,9 +11,11 @@ import network.elrond.blockchain.BlockchainService;
 import network.elrond.blockchain.BlockchainUnitType;
 import network.elrond.chronology.ChronologyService;
 import network.elrond.chronology.Round;
+import network.elrond.core.ThreadUtil;
 import network.elrond.core.Util;
 import network.elrond.crypto.MultiSignatureService;
 import network.elrond.data.BlockUtil;
+import network.elrond.data.ExecutionScheduler;
 import network.elrond.data.model.Block;
 import network.elrond.data.model.ExecutionReport;
 import network.elrond.data.model.Transaction;
@@ -26,7 +30,10 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 public class ExecutionServiceImpl implements ExecutionService {
     private static final Logger logger = LogManager.getLogger(ExecutionServiceImpl.class);
@@ -48,6 +55,14 @@ public class ExecutionServiceImpl implements ExecutionService {
         }
     }
 
+    @Override
+    public boolean isBlockSignatureValid(Block block) {
+        Util.check(block != null, "block != null");
+
+        List<String> signers = block.getListPublicKeys();
+        return signers != null && !signers.isEmpty() && validateBlockSignature(signers, block);
+    }
+
     private boolean validateBlockSigners(Accounts accounts, Blockchain blockchain, Block block) {
         logger.traceEntry("params: {} {} {}", accounts, blockchain, block);
         // TODO: need to check that signers are the right ones for that specific epoch & round
@@ -56,21 +71,16 @@ public class ExecutionServiceImpl implements ExecutionService {
         return logger.traceExit(true);
     }
 
-    private boolean validateBlockSignature(ArrayList<String> signers, Block block) {
+    private boolean validateBlockSignature(List<String> signers, Block block) {
         logger.traceEntry("params: {} {}", signers, block);
         // TODO: validate the multi-signature for the participating signers
         MultiSignatureService signatureService = AppServiceProvider.getMultiSignatureService();
         ArrayList<byte[]> signersPublicKeys = new ArrayList<>();
         byte[] signature = block.getSignature();
         byte[] commitment = block.getCommitment();
-        block.setSignature(null);
-        block.setCommitment(null);
-        byte[] message = AppServiceProvider.getSerializationService().getHash(block);
+        byte[] message = AppServiceProvider.getSerializationService().getSigningHash(block);
         long bitmap = (1 << signers.size()) - 1;
 
-        block.setSignature(signature);
-        block.setCommitment(commitment);
-
         for (String signer : signers) {
             signersPublicKeys.add(Util.hexStringToByteArray(signer));
         }
@@ -104,7 +114,7 @@ public class ExecutionServiceImpl implements ExecutionService {
         try {
             ExecutionReport blockExecutionReport = ExecutionReport.create();
             BlockchainService blockchainService = AppServiceProvider.getBlockchainService();
-            ArrayList<String> signers;
+            List<String> signers;
 
             // check if previous block hash is in blockchain, otherwise can't add it yet
             // do the check only if nonce is not 0
@@ -145,7 +155,7 @@ public class ExecutionServiceImpl implements ExecutionService {
             }
 
             // get signature parts from block
-            signers = (ArrayList<String>) block.getListPublicKeys();
+            signers = block.getListPublicKeys();
 
             // check multi-signature is valid
             if (!validateBlockSignature(signers, block)) {
@@ -161,13 +171,24 @@ public class ExecutionServiceImpl implements ExecutionService {
 
             logger.trace("Processing transactions...");
             List<Transaction> transactions = AppServiceProvider.getTransactionService().getTransactions(blockchain, block);
-            for (Transaction transaction : transactions) {
-                ExecutionReport transactionExecutionReport = processTransaction(transaction, accounts);
-                if (!transactionExecutionReport.isOk()) {
-                    blockExecutionReport.combine(transactionExecutionReport);
-                    logger.trace("Block process FAILED!");
-                    break;
-                }
+
+            // all signatures are checked on all cores before any state transition
+            BitSet verified = AppServiceProvider.getTransactionService().verifyTransactions(transactions);
+            int rejectedIndex = verified.nextClearBit(0);
+
+            ExecutionReport transactionsExecutionReport;
+            if (rejectedIndex < transactions.size()) {
+                transactionsExecutionReport = ExecutionReport.create().ko("Invalid transaction! tx hash: " +
+                        serializationService.getHashString(transactions.get(rejectedIndex)));
+            } else if (accounts.isParallelExecution()) {
+                transactionsExecutionReport = processTransactionsParallel(transactions, accounts);
+            } else {
+                transactionsExecutionReport = processTransactionsSerial(transactions, accounts);
+            }
+
+            if (!transactionsExecutionReport.isOk()) {
+                blockExecutionReport.combine(transactionsExecutionReport);
+                logger.trace("Block process FAILED!");
             }
 
             if (blockExecutionReport.isOk()) {
@@ -199,6 +220,77 @@ public class ExecutionServiceImpl implements ExecutionService {
         }
     }
 
+    private ExecutionReport processTransactionsSerial(List<Transaction> transactions, Accounts accounts) {
+        logger.traceEntry("params: {} {}", transactions, accounts);
+        for (Transaction transaction : transactions) {
+            ExecutionReport transactionExecutionReport = processVerifiedTransaction(transaction, accounts);
+            if (!transactionExecutionReport.isOk()) {
+                return logger.traceExit(transactionExecutionReport);
+            }
+        }
+        return logger.traceExit(ExecutionReport.create().ok());
+    }
+
+    private ExecutionReport processTransactionsParallel(List<Transaction> transactions, Accounts accounts) {
+        logger.traceEntry("params: {} {}", transactions, accounts);
+
+        List<List<Transaction>> groups = ExecutionScheduler.groupByAccounts(transactions);
+        if (groups.size() < 2) {
+            logger.trace("Nothing to run in parallel, falling back to serial execution");
+            return logger.traceExit(processTransactionsSerial(transactions, accounts));
+        }
+
+        List<AccountsWriteSet> writeSets = new ArrayList<>();
+        List<Future<ExecutionReport>> futures = new ArrayList<>();
+        for (List<Transaction> group : groups) {
+            AccountsWriteSet writeSet = new AccountsWriteSet(accounts);
+            writeSets.add(writeSet);
+            futures.add(ThreadUtil.workers.submit(() -> processTransactionGroup(group, writeSet)));
+        }
+
+        ExecutionReport executionReport = ExecutionReport.create();
+        for (Future<ExecutionReport> future : futures) {
+            try {
+                executionReport.combine(future.get());
+            } catch (InterruptedException | ExecutionException ex) {
+                executionReport.ko(ex);
+            }
+        }
+
+        if (!executionReport.isOk()) {
+            return logger.traceExit(executionReport);
+        }
+
+        // groups do not share accounts, merging them in block order leaves the trie as the serial execution does
+        try {
+            for (AccountsWriteSet writeSet : writeSets) {
+                writeSet.flush();
+            }
+        } catch (IOException ex) {
+            executionReport.ko(ex);
+        }
+
+        return logger.traceExit(executionReport);
+    }
+
+    private ExecutionReport processTransactionGroup(List<Transaction> group, AccountsWriteSet writeSet) {
+        logger.traceEntry("params: {} {}", group, writeSet);
+        for (Transaction transaction : group) {
+            ExecutionReport transactionExecutionReport;
+            try {
+                transactionExecutionReport = _processTransaction(writeSet, transaction);
+            } catch (Exception e) {
+                logger.catching(e);
+                transactionExecutionReport = ExecutionReport.create().ko(e);
+            }
+
+            if (!transactionExecutionReport.isOk()) {
+                return logger.traceExit(transactionExecutionReport);
+            }
+        }
+        return logger.traceExit(ExecutionReport.create().ok());
+    }
+
     @Override
     public ExecutionReport processTransaction(Transaction transaction, Accounts accounts) {
         logger.traceEntry("params: {} {}", transaction, accounts);
@@ -206,6 +298,9 @@ public class ExecutionServiceImpl implements ExecutionService {
         Util.check(accounts != null, "accounts != null");
 
         try {
+            if (!AppServiceProvider.getTransactionService().verifyTransaction(transaction)) {
+                return logger.traceExit(ExecutionReport.create().ko("Invalid transaction! tx hash: " + serializationService.getHashString(transaction)));
+            }
             return logger.traceExit(_processTransaction(accounts, transaction));
         } catch (Exception e) {
             logger.catching(e);
@@ -213,17 +308,26 @@ public class ExecutionServiceImpl implements ExecutionService {
         }
     }
 
-    private ExecutionReport _processTransaction(Accounts accounts, Transaction transaction) throws IOException, ClassNotFoundException {
+    @Override
+    public ExecutionReport processVerifiedTransaction(Transaction transaction, Accounts accounts) {
         logger.traceEntry("params: {} {}", transaction, accounts);
+        Util.check(transaction != null, "transaction != null");
+        Util.check(accounts != null, "accounts != null");
 
-        Util.check(transaction != null, "Null transaction");
+        try {
+            return logger.traceExit(_processTransaction(accounts, transaction));
+        } catch (Exception e) {
+            logger.catching(e);
+            return logger.traceExit(ExecutionReport.create().ko(e));
+        }
+    }
 
-        String strHash = new String(Base64.encode(serializationService.getHash(transaction)));
+    private ExecutionReport _processTransaction(AccountsView accounts, Transaction transaction) throws IOException, ClassNotFoundException {
+        logger.traceEntry("params: {} {}", transaction, accounts);
 
-        if (!AppServiceProvider.getTransactionService().verifyTransaction(transaction)) {
-            return logger.traceExit(ExecutionReport.create().ko("Invalid transaction! tx hash: " + strHash));
-        }
+        Util.check(transaction != null, "Null transaction");
 
+        String strHash = new String(Base64.encode(serializationService.getHash(transaction)));
 
         Shard shard = accounts.getShard();
         ShardOperation operation = AppServiceProvider.getShardingService().getShardOperation(shard, transaction);
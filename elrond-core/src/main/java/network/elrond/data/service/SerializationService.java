@@ -6,7 +6,22 @@ public interface SerializationService {
 
     <T> T decodeJSON(String strJSONData, Class<T> clazz);
 
+    /**
+     * @return true if objects of the class have a canonical binary encoding
+     */
+    boolean hasBinaryEncoding(Class<?> clazz);
+
+    byte[] encodeBinary(Object object);
+
+    <T> T decodeBinary(byte[] data, Class<T> clazz);
+
     byte[] getHash(Object object);
 
+    /**
+     * Hash of a transaction or block left without its signature data: the message that gets signed.
+     * The object is only read, so it can be called concurrently on the same object.
+     */
+    byte[] getSigningHash(Object object);
+
     String getHashString(Object object);
 }
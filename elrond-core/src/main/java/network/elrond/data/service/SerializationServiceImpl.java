@@ -5,6 +5,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import network.elrond.core.Util;
+import network.elrond.data.RLPCodec;
+import network.elrond.data.model.Block;
+import network.elrond.data.model.HashedObject;
+import network.elrond.data.model.Transaction;
 import network.elrond.service.AppServiceProvider;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -15,16 +19,22 @@ import java.io.IOException;
 public class SerializationServiceImpl implements SerializationService {
     private static final Logger logger = LogManager.getLogger(SerializationServiceImpl.class);
 
-    @Override
-    public <T> String encodeJSON(T object) {
-        logger.traceEntry("params {}", object);
+    // ObjectMapper is thread safe once configured
+    private static final ObjectMapper mapper = createMapper();
+
+    private static ObjectMapper createMapper() {
         ObjectMapper mapper = new ObjectMapper();
         SimpleFilterProvider filter = new SimpleFilterProvider();
 
         filter.setDefaultFilter(SimpleBeanPropertyFilter.serializeAll());
 
         mapper.setFilterProvider(filter);
+        return mapper;
+    }
 
+    @Override
+    public <T> String encodeJSON(T object) {
+        logger.traceEntry("params {}", object);
         try {
             return logger.traceExit(mapper.writeValueAsString(object));
         } catch (JsonProcessingException e) {
@@ -36,7 +46,6 @@ public class SerializationServiceImpl implements SerializationService {
     @Override
     public <T> T decodeJSON(String strJSONData, Class<T> clazz) {
         logger.traceEntry("params {} {}", strJSONData, clazz);
-        ObjectMapper mapper = new ObjectMapper();
         try {
             return logger.traceExit(mapper.readValue(strJSONData, clazz));
         } catch (IOException e) {
@@ -45,11 +54,43 @@ public class SerializationServiceImpl implements SerializationService {
         }
     }
 
+    @Override
+    public boolean hasBinaryEncoding(Class<?> clazz) {
+        return RLPCodec.isSupported(clazz);
+    }
+
+    @Override
+    public byte[] encodeBinary(Object object) {
+        logger.traceEntry("params {}", object);
+        return logger.traceExit(RLPCodec.encode(object));
+    }
+
+    @Override
+    public <T> T decodeBinary(byte[] data, Class<T> clazz) {
+        logger.traceEntry("params {} {}", data, clazz);
+        return logger.traceExit(RLPCodec.decode(data, clazz));
+    }
+
     @Override
 	public byte[] getHash(Object object) {
         logger.traceEntry("params {}", object);
         Util.check(object != null, "object is null");
 
+        if (object instanceof HashedObject) {
+            HashedObject hashedObject = (HashedObject) object;
+            byte[] hash = hashedObject.cachedHash();
+            if (hash == null) {
+                hash = Util.SHA3.get().digest(encodeBinary(object));
+                hashedObject.cacheHash(hash);
+            }
+            // callers may keep or change the returned array
+            return logger.traceExit(hash.clone());
+        }
+
+        if (hasBinaryEncoding(object.getClass())) {
+            return logger.traceExit(Util.SHA3.get().digest(encodeBinary(object)));
+        }
+
         String json = AppServiceProvider.getSerializationService().encodeJSON(object);
         Util.check(json != null, "json is null");
 
@@ -63,6 +104,22 @@ public class SerializationServiceImpl implements SerializationService {
         return logger.traceExit((Util.SHA3.get().digest(json.getBytes())));
     }
 
+    @Override
+    public byte[] getSigningHash(Object object) {
+        logger.traceEntry("params {}", object);
+        Util.check(object != null, "object is null");
+
+        byte[] payload;
+        if (object instanceof Transaction) {
+            payload = RLPCodec.encodeTransaction((Transaction) object, false);
+        } else if (object instanceof Block) {
+            payload = RLPCodec.encodeBlock((Block) object, false);
+        } else {
+            throw new IllegalArgumentException("No signing payload for " + object.getClass().getName());
+        }
+        return logger.traceExit(Util.SHA3.get().digest(payload));
+    }
+
     @Override
     public String getHashString(Object object) {
         return new String(Base64.encode(getHash(object)));
@@ -7,6 +7,7 @@ import network.elrond.data.model.Transaction;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.BitSet;
 import java.util.List;
 
 public interface TransactionService {
@@ -15,6 +16,13 @@ public interface TransactionService {
 
     boolean verifyTransaction(Transaction tx);
 
+    /**
+     * Verifies a batch of transactions on all cores
+     *
+     * @return bitmap with bit i set if the i-th transaction is valid
+     */
+    BitSet verifyTransactions(List<Transaction> transactions);
+
     List<Transaction> getTransactions(Blockchain blockchain, Block block) throws IOException, ClassNotFoundException;
 
     Transaction generateTransaction(PublicKey sender, PublicKey receiver, long value, long nonce);
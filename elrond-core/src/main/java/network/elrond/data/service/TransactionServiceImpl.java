@@ -1,7 +1,9 @@
 package network.elrond.data.service;
 
 import network.elrond.blockchain.Blockchain;
+import network.elrond.blockchain.BlockchainBatch;
 import network.elrond.blockchain.BlockchainUnitType;
+import network.elrond.core.ThreadUtil;
 import network.elrond.core.Util;
 import network.elrond.crypto.PublicKey;
 import network.elrond.crypto.Signature;
@@ -19,7 +21,10 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * The TransactionServiceImpl class implements TransactionService and is used to maintain Transaction objects
@@ -34,6 +39,10 @@ public class TransactionServiceImpl implements TransactionService {
 
     private AsciiPrinter asciiPrinter = AsciiPrinter.instance();
 
+    // batch verification work split, a few chunks per core so a slow chunk does not stall the whole batch
+    private static final int VERIFY_CHUNKS = Runtime.getRuntime().availableProcessors() * 4;
+    private static final int MIN_VERIFY_CHUNK = 16;
+
     /**
      * Computes the hash of the complete tx info
      * Used as a mean of tx identification
@@ -60,11 +69,7 @@ public class TransactionServiceImpl implements TransactionService {
         Util.check(transaction != null, "transaction is null");
         Util.check(privateKeysBytes != null, "privateKeysBytes is null");
 
-        logger.trace("Setting signature data to null...");
-        transaction.setSignature(null);
-        transaction.setChallenge(null);
-
-        byte[] hashNoSigLocal = serializationService.getHash(transaction);
+        byte[] hashNoSigLocal = serializationService.getSigningHash(transaction);
 
 //        tx.setSignature(signature);
 //        tx.setChallenge(challenge);
@@ -119,16 +124,7 @@ public class TransactionServiceImpl implements TransactionService {
         }
 
         //test 3. verify the signature
-        byte[] signature = transaction.getSignature();
-        byte[] challenge = transaction.getChallenge();
-
-        transaction.setSignature(null);
-        transaction.setChallenge(null);
-
-        byte[] message = serializationService.getHash(transaction);
-
-        transaction.setSignature(signature);
-        transaction.setChallenge(challenge);
+        byte[] message = serializationService.getSigningHash(transaction);
 
         SignatureService schnorr = AppServiceProvider.getSignatureService();
 
@@ -142,6 +138,45 @@ public class TransactionServiceImpl implements TransactionService {
         return logger.traceExit(isSignatureVerified);
     }
 
+    @Override
+    public BitSet verifyTransactions(List<Transaction> transactions) {
+        logger.traceEntry("params: {}", transactions);
+        Util.check(transactions != null, "transactions is null");
+
+        int size = transactions.size();
+        int chunkSize = Math.max(MIN_VERIFY_CHUNK, (size + VERIFY_CHUNKS - 1) / VERIFY_CHUNKS);
+
+        List<Future<BitSet>> futures = new ArrayList<>();
+        for (int start = 0; start < size; start += chunkSize) {
+            int from = start;
+            int to = Math.min(size, start + chunkSize);
+            futures.add(ThreadUtil.workers.submit(() -> {
+                BitSet chunk = new BitSet(size);
+                for (int index = from; index < to; index++) {
+                    try {
+                        chunk.set(index, verifyTransaction(transactions.get(index)));
+                    } catch (Exception ex) {
+                        logger.catching(ex);
+                    }
+                }
+                return chunk;
+            }));
+        }
+
+        BitSet verified = new BitSet(size);
+        for (Future<BitSet> future : futures) {
+            try {
+                verified.or(future.get());
+            } catch (InterruptedException | ExecutionException ex) {
+                // the bits of the failed chunk stay cleared, those transactions count as rejected
+                logger.catching(ex);
+            }
+        }
+
+        logger.debug("Verified {} transactions, {} rejected", size, size - verified.cardinality());
+        return logger.traceExit(verified);
+    }
+
     @Override
     public List<Transaction> getTransactions(Blockchain blockchain, Block block) throws IOException, ClassNotFoundException {
         logger.traceEntry("params: {} {}", blockchain, block);
@@ -157,17 +192,21 @@ public class TransactionServiceImpl implements TransactionService {
 
         List<String> hashes = BlockUtil.getTransactionsHashesAsString(block);
 
+        // the ones not stored are asked from the peers in one batch
         transactions = AppServiceProvider.getBlockchainService().getAll(hashes, blockchain, BlockchainUnitType.TRANSACTION);
 
         logger.info("Getting transactions... transactions size: {} hashes size: {}", transactions.size(), hashes.size());
         if (transactions.size() != hashes.size()) {
+            // peers without batch requests serve the transactions of a block
             transactions = AppServiceProvider.getBlockchainService().get(blockHash, blockchain, BlockchainUnitType.BLOCK_TRANSACTIONS);
         }
         if (transactions != null) {
+            BlockchainBatch batch = new BlockchainBatch();
             for (Transaction transaction : transactions) {
                 String transactionHash = AppServiceProvider.getSerializationService().getHashString(transaction);
-                AppServiceProvider.getBlockchainService().putLocal(transactionHash, transaction, blockchain, BlockchainUnitType.TRANSACTION);
+                batch.put(transactionHash, transaction, BlockchainUnitType.TRANSACTION);
             }
+            AppServiceProvider.getBlockchainService().putLocal(batch, blockchain);
         } else {
             transactions = new ArrayList<>();
         }
@@ -0,0 +1,464 @@
+package network.elrond.db;
+
+import network.elrond.core.Util;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent cache bound by the total weight of its values, like their size in bytes.
+ * <p>
+ * Reads take no lock: a hit only marks the entry as referenced. New entries go to a small window, about one
+ * percent of the budget, where they stay whatever their frequency, so an object just written is cached while it
+ * is likely to be read. Leaving the window an entry moves to the main space, which is a CLOCK over the entries in
+ * the order they came in: a referenced entry gets a second chance. When the main space is full the entry leaving
+ * the window is admitted only if its key was used at least as often as the key of the entry it would evict, as
+ * counted by a small frequency sketch of reads and writes (W-TinyLFU), so a scan of cold keys does not flush the
+ * hot ones. Eviction runs under a lock only when a write goes over the budget.
+ * Entries may also expire a fixed time after being written.
+ */
+public class WeightedCache<K, V> extends AbstractMap<K, V> {
+
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+        final int weight;
+        final long writeTime;
+        // cleared once, by whoever moves the entry out of the window or takes it out of the map first
+        final AtomicBoolean inWindow = new AtomicBoolean(true);
+        volatile boolean referenced;
+        volatile boolean removed;
+        // waiting among the candidates of an eviction; guarded by the eviction lock
+        boolean candidate;
+
+        Entry(K key, V value, int weight, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+        }
+    }
+
+    // share of the budget taken by the window
+    private static final int WINDOW_PERCENT = 1;
+
+    private final long maximumWeight;
+    private final long windowMaximumWeight;
+    private final long timeToLive;
+    private final Weigher<? super K, ? super V> weigher;
+
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    // oldest entry first in both; removed entries stay in them until they are passed over or purged
+    private final ConcurrentLinkedQueue<Entry<K, V>> window = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Entry<K, V>> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger staleEntries = new AtomicInteger();
+    private final AtomicLong weightedSize = new AtomicLong();
+    private final AtomicLong windowWeightedSize = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param maximumWeight the budget of the values
+     * @param timeToLive    how long an entry stays after being written, 0 for ever
+     * @param weigher       the weight of an entry put without one
+     */
+    public WeightedCache(long maximumWeight, long timeToLive, TimeUnit unit, Weigher<? super K, ? super V> weigher) {
+        Util.check(maximumWeight > 0, "maximumWeight>0");
+        Util.check(timeToLive >= 0, "timeToLive>=0");
+        Util.check(unit != null, "unit!=null");
+        Util.check(weigher != null, "weigher!=null");
+        this.maximumWeight = maximumWeight;
+        this.windowMaximumWeight = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+        this.timeToLive = unit.toNanos(timeToLive);
+        this.weigher = weigher;
+    }
+
+    /**
+     * Cache of at most the given number of entries
+     */
+    public WeightedCache(int maximumEntries) {
+        this(maximumEntries, 0, TimeUnit.MILLISECONDS, (key, value) -> 1);
+    }
+
+    @Override
+    public V get(Object key) {
+        Entry<K, V> entry = getEntry(key);
+        sketch.increment(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        entry.referenced = true;
+        hits.increment();
+        return entry.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return getEntry(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Util.check(value != null, "value!=null");
+        return put(key, value, weigher.weigh(key, value));
+    }
+
+    /**
+     * Puts the value with a weight known by the caller, like the length of its encoding
+     */
+    public V put(K key, V value, int weight) {
+        Util.check(key != null, "key!=null");
+        Util.check(value != null, "value!=null");
+        Util.check(weight >= 0, "weight>=0");
+
+        if (weight > maximumWeight) {
+            remove(key);
+            rejections.increment();
+            return null;
+        }
+
+        sketch.increment(key);
+        Entry<K, V> created = new Entry<>(key, value, weight, System.nanoTime());
+        Entry<K, V> previous = entries.put(key, created);
+        if (previous != null) {
+            unlinked(previous);
+        }
+        added(created);
+        return (previous == null || isExpired(previous)) ? null : previous.value;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Util.check(value != null, "value!=null");
+        return putIfAbsent(key, value, weigher.weigh(key, value));
+    }
+
+    /**
+     * @see #put(Object, Object, int)
+     */
+    public V putIfAbsent(K key, V value, int weight) {
+        Util.check(key != null, "key!=null");
+        Util.check(value != null, "value!=null");
+        Util.check(weight >= 0, "weight>=0");
+
+        while (true) {
+            Entry<K, V> existing = entries.get(key);
+            if (existing != null && !isExpired(existing)) {
+                return existing.value;
+            }
+            if (weight > maximumWeight) {
+                rejections.increment();
+                return null;
+            }
+
+            Entry<K, V> created = new Entry<>(key, value, weight, System.nanoTime());
+            boolean replaced = (existing == null) ? entries.putIfAbsent(key, created) == null : entries.replace(key, existing, created);
+            if (replaced) {
+                sketch.increment(key);
+                if (existing != null) {
+                    unlinked(existing);
+                }
+                added(created);
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        Entry<K, V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        unlinked(entry);
+        return isExpired(entry) ? null : entry.value;
+    }
+
+    @Override
+    public void clear() {
+        for (Entry<K, V> entry : entries.values()) {
+            if (entries.remove(entry.key, entry)) {
+                unlinked(entry);
+            }
+        }
+        purge();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return a copy of the entries not expired
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> set = new HashSet<>();
+        for (Entry<K, V> entry : entries.values()) {
+            if (!isExpired(entry)) {
+                set.add(new SimpleImmutableEntry<>(entry.key, entry.value));
+            }
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getWeightedSize() {
+        return weightedSize.get();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return entries evicted to keep the cache within its budget
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return entries not admitted, being too heavy or asked for less often than the ones they would evict
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * @return hits per read, 1 before any read
+     */
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long readCount = hitCount + misses.sum();
+        return (readCount == 0) ? 1.0 : (double) hitCount / readCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WeightedCache{size=%d, weight=%d/%d, hitRatio=%.3f}", size(), getWeightedSize(), maximumWeight, getHitRatio());
+    }
+
+    private Entry<K, V> getEntry(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Entry<K, V> entry = entries.get(key);
+        if (entry != null && isExpired(entry)) {
+            if (entries.remove(entry.key, entry)) {
+                unlinked(entry);
+            }
+            return null;
+        }
+        return entry;
+    }
+
+    private boolean isExpired(Entry<K, V> entry) {
+        return timeToLive > 0 && System.nanoTime() - entry.writeTime > timeToLive;
+    }
+
+    private void added(Entry<K, V> entry) {
+        window.add(entry);
+        windowWeightedSize.addAndGet(entry.weight);
+        weightedSize.addAndGet(entry.weight);
+        if (windowWeightedSize.get() > windowMaximumWeight || weightedSize.get() > maximumWeight) {
+            evict();
+        }
+        if (staleEntries.get() > Math.max(64, entries.size())) {
+            purge();
+        }
+    }
+
+    // called once per entry, by the thread that took it out of the map
+    private void unlinked(Entry<K, V> entry) {
+        entry.removed = true;
+        if (entry.inWindow.compareAndSet(true, false)) {
+            windowWeightedSize.addAndGet(-entry.weight);
+        }
+        weightedSize.addAndGet(-entry.weight);
+        staleEntries.incrementAndGet();
+    }
+
+    /**
+     * Moves the oldest entries of the window to the main space, then runs the clock until the cache is within
+     * its budget; an entry from the window is dropped instead of a victim used more often
+     */
+    private void evict() {
+        Deque<Entry<K, V>> candidates = new ArrayDeque<>();
+        evictionLock.lock();
+        try {
+            while (windowWeightedSize.get() > windowMaximumWeight) {
+                Entry<K, V> entry = window.poll();
+                if (entry == null) {
+                    break;
+                }
+                if (!entry.inWindow.compareAndSet(true, false)) {
+                    // removed, its weight already taken out
+                    staleEntries.decrementAndGet();
+                    continue;
+                }
+                windowWeightedSize.addAndGet(-entry.weight);
+                clock.add(entry);
+                entry.candidate = true;
+                candidates.add(entry);
+            }
+
+            while (weightedSize.get() > maximumWeight) {
+                Entry<K, V> victim = clock.poll();
+                if (victim == null) {
+                    // all of it in the window
+                    victim = window.poll();
+                    if (victim == null) {
+                        break;
+                    }
+                    if (victim.inWindow.compareAndSet(true, false)) {
+                        windowWeightedSize.addAndGet(-victim.weight);
+                    } else {
+                        staleEntries.decrementAndGet();
+                        continue;
+                    }
+                }
+                if (victim.removed) {
+                    staleEntries.decrementAndGet();
+                    continue;
+                }
+                if (victim.referenced && !victim.candidate) {
+                    victim.referenced = false;
+                    clock.add(victim);
+                    continue;
+                }
+
+                Entry<K, V> candidate = pollCandidate(candidates);
+                while (candidate != null && (candidate == victim || candidate.removed)) {
+                    candidate = pollCandidate(candidates);
+                }
+                if (candidate != null && sketch.frequency(candidate.key) < sketch.frequency(victim.key)) {
+                    clock.add(victim);
+                    victim = candidate;
+                    rejections.increment();
+                } else {
+                    evictions.increment();
+                }
+
+                if (entries.remove(victim.key, victim)) {
+                    unlinked(victim);
+                }
+            }
+        } finally {
+            for (Entry<K, V> candidate : candidates) {
+                candidate.candidate = false;
+            }
+            evictionLock.unlock();
+        }
+    }
+
+    private Entry<K, V> pollCandidate(Deque<Entry<K, V>> candidates) {
+        Entry<K, V> candidate = candidates.pollFirst();
+        if (candidate != null) {
+            candidate.candidate = false;
+        }
+        return candidate;
+    }
+
+    private void purge() {
+        evictionLock.lock();
+        try {
+            window.removeIf(entry -> entry.removed);
+            clock.removeIf(entry -> entry.removed);
+            staleEntries.set(0);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Count-min sketch of how often keys were asked for, 4 bit counters halved every so many increments
+     * so old popularity fades. Updates race, counts are estimates anyway.
+     */
+    private static final class FrequencySketch {
+        private static final int WIDTH = 1 << 14;
+        private static final int[] SEEDS = {0x97cb3127, 0xc3a5c85c, 0x9ae16a3b, 0x2d358dcc};
+        private static final int MAX_COUNT = 15;
+        private static final int RESET_SAMPLE = 10 * WIDTH;
+
+        private final byte[][] counters = new byte[SEEDS.length][WIDTH];
+        private final AtomicInteger samples = new AtomicInteger();
+
+        void increment(Object key) {
+            if (key == null) {
+                return;
+            }
+            int hash = spread(key.hashCode());
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(hash, i);
+                if (counters[i][index] < MAX_COUNT) {
+                    counters[i][index]++;
+                }
+            }
+            if (samples.incrementAndGet() >= RESET_SAMPLE) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, counters[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            samples.set(0);
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+        }
+
+        private static int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 17)) & (WIDTH - 1);
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x9e3779b9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
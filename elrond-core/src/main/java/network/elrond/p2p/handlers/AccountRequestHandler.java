@@ -1,7 +1,7 @@
 package network.elrond.p2p.handlers;
 
 import network.elrond.account.AccountAddress;
-import network.elrond.account.AccountState;
+import network.elrond.account.AccountStateProof;
 import network.elrond.application.AppState;
 import network.elrond.p2p.RequestHandler;
 import network.elrond.p2p.model.P2PRequestMessage;
@@ -9,22 +9,15 @@ import network.elrond.service.AppServiceProvider;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.IOException;
-
-public class AccountRequestHandler implements RequestHandler<AccountState, P2PRequestMessage> {
+public class AccountRequestHandler implements RequestHandler<AccountStateProof, P2PRequestMessage> {
     private static final Logger logger = LogManager.getLogger(AccountRequestHandler.class);
 
     @Override
-    public AccountState onRequest(AppState state, P2PRequestMessage data) {
+    public AccountStateProof onRequest(AppState state, P2PRequestMessage data) {
 
         logger.traceEntry("params: {} {}", state, data);
         AccountAddress address = (AccountAddress) data.getKey();
-        try {
-            AccountState accountState = AppServiceProvider.getAccountStateService().getAccountState(address, state.getAccounts());
-            return logger.traceExit(accountState);
-        } catch (IOException | ClassNotFoundException e) {
-            logger.throwing(e);
-            throw new RuntimeException(e);
-        }
+        AccountStateProof proof = AppServiceProvider.getAccountStateService().getAccountStateProof(address, state.getAccounts());
+        return logger.traceExit(proof);
     }
 }
@@ -9,21 +9,48 @@ import network.elrond.service.AppServiceProvider;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.math.BigInteger;
+
 public class BlockIndexRequestHandler implements RequestHandler<String, P2PRequestMessage> {
     private static final Logger logger = LogManager.getLogger(BlockIndexRequestHandler.class);
 
     @Override
     public String onRequest(AppState state, P2PRequestMessage data) {
         logger.traceEntry("params: {} {}", state, data);
-        data.getKey();
-        String blockHash = (String) data.getKey();
+        BigInteger height = getHeight(data.getKey());
+        if (height == null) {
+            logger.info("Replying to request: BLOCK_INDEX with key {} not a height", data.getKey());
+            return logger.traceExit((String) null);
+        }
+
         Blockchain blockchain = state.getBlockchain();
-        String blockIndex = AppServiceProvider.getBlockchainService().getLocal(blockHash, blockchain, BlockchainUnitType.BLOCK_INDEX);
-        if (blockIndex == null) {
-            logger.info("Replying to request: BLOCK_INDEX with hash {} not found", blockHash);
+        String blockHash = AppServiceProvider.getBlockchainService().getLocal(height, blockchain, BlockchainUnitType.BLOCK_INDEX);
+        if (blockHash == null) {
+            logger.info("Replying to request: BLOCK_INDEX with height {} not found", height);
         } else {
-            logger.info("Replying to request: BLOCK_INDEX with hash {} : {}", blockHash, blockIndex);
+            logger.info("Replying to request: BLOCK_INDEX with height {} : {}", height, blockHash);
+        }
+        return logger.traceExit(blockHash);
+    }
+
+    /**
+     * @return the height asked for, in decimal or as a legacy "HEIGHT_BLOCK_n" key
+     */
+    private BigInteger getHeight(Object key) {
+        if (key instanceof BigInteger) {
+            return (BigInteger) key;
+        }
+        if (key == null) {
+            return null;
+        }
+
+        String value = key.toString();
+        value = value.substring(value.lastIndexOf('_') + 1);
+        try {
+            BigInteger height = new BigInteger(value, 10);
+            return (height.signum() < 0 || height.bitLength() >= Long.SIZE) ? null : height;
+        } catch (NumberFormatException ex) {
+            return null;
         }
-        return logger.traceExit(blockIndex);
     }
 }
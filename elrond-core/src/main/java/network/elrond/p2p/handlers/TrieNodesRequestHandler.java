@@ -0,0 +1,30 @@
+package network.elrond.p2p.handlers;
+
+import network.elrond.application.AppState;
+import network.elrond.p2p.RequestHandler;
+import network.elrond.p2p.model.P2PRequestMessage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TrieNodesRequestHandler implements RequestHandler<ArrayList<byte[]>, P2PRequestMessage> {
+    private static final Logger logger = LogManager.getLogger(TrieNodesRequestHandler.class);
+
+    // nodes served for one request at most
+    public static final int MAX_NODES = 1024;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ArrayList<byte[]> onRequest(AppState state, P2PRequestMessage data) {
+        logger.traceEntry("params: {} {}", state, data);
+        List<byte[]> hashes = (List<byte[]>) data.getKey();
+        if (hashes.size() > MAX_NODES) {
+            hashes = hashes.subList(0, MAX_NODES);
+        }
+
+        List<byte[]> nodes = state.getAccounts().getAccountsPersistenceUnit().getTrieNodes(hashes);
+        return logger.traceExit(new ArrayList<>(nodes));
+    }
+}
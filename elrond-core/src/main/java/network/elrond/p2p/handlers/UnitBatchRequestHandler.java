@@ -0,0 +1,40 @@
+package network.elrond.p2p.handlers;
+
+import network.elrond.application.AppState;
+import network.elrond.p2p.RequestHandler;
+import network.elrond.p2p.model.P2PBatchRequest;
+import network.elrond.p2p.model.P2PRequestMessage;
+import network.elrond.service.AppServiceProvider;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+
+public class UnitBatchRequestHandler implements RequestHandler<HashMap<String, Serializable>, P2PRequestMessage> {
+    private static final Logger logger = LogManager.getLogger(UnitBatchRequestHandler.class);
+
+    // objects served for one request at most
+    public static final int MAX_OBJECTS = 4096;
+
+    @Override
+    public HashMap<String, Serializable> onRequest(AppState state, P2PRequestMessage data) {
+        logger.traceEntry("params: {} {}", state, data);
+        P2PBatchRequest request = (P2PBatchRequest) data.getKey();
+        List<String> hashes = request.getHashes();
+        if (hashes.size() > MAX_OBJECTS) {
+            hashes = hashes.subList(0, MAX_OBJECTS);
+        }
+
+        HashMap<String, Serializable> objects = new HashMap<>();
+        try {
+            objects.putAll(AppServiceProvider.getBlockchainService().getAllLocal(hashes, state.getBlockchain(), request.getType()));
+        } catch (Exception ex) {
+            logger.catching(ex);
+        }
+
+        logger.info("Replying to request: {} with {} of {} objects", request.getType(), objects.size(), hashes.size());
+        return logger.traceExit(objects);
+    }
+}
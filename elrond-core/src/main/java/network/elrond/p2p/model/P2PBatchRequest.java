@@ -0,0 +1,33 @@
+package network.elrond.p2p.model;
+
+import network.elrond.blockchain.BlockchainUnitType;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Key of a {@link P2PRequestChannelName#UNIT_BATCH} request: the hashes of many objects of one unit
+ */
+public class P2PBatchRequest implements Serializable {
+
+    private final BlockchainUnitType type;
+    private final ArrayList<String> hashes;
+
+    public P2PBatchRequest(BlockchainUnitType type, ArrayList<String> hashes) {
+        this.type = type;
+        this.hashes = hashes;
+    }
+
+    public BlockchainUnitType getType() {
+        return type;
+    }
+
+    public ArrayList<String> getHashes() {
+        return hashes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("P2PBatchRequest{type=%s, hashes=%d}", type, hashes.size());
+    }
+}
@@ -11,7 +11,9 @@ public enum P2PRequestChannelName {
     BLOCK_HEIGHT("BLOCK_HEIGHT", new BlockHeightRequestHandler()),
     TRANSACTION(BlockchainUnitType.TRANSACTION.name(), new TransactionRequestHandler()),
     BLOCK_TRANSACTIONS(BlockchainUnitType.BLOCK_TRANSACTIONS.name(), new BlockTransactionsHandler()),
-    STATISTICS("STATISTICS", new StatisticsRequestHandler()),;
+    STATISTICS("STATISTICS", new StatisticsRequestHandler()),
+    TRIE_NODES("TRIE_NODES", new TrieNodesRequestHandler()),
+    UNIT_BATCH("UNIT_BATCH", new UnitBatchRequestHandler()),;
 
     private final String name;
     private final RequestHandler<?, P2PRequestMessage> handler;
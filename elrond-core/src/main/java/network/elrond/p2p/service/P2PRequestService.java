@@ -6,10 +6,22 @@ import network.elrond.p2p.model.P2PRequestChannelName;
 import network.elrond.sharding.Shard;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
 
 public interface P2PRequestService {
 
     P2PRequestChannel createChannel(P2PConnection connection, Shard shard, P2PRequestChannelName channelName);
 
     <K extends Serializable, R extends Serializable> R get(P2PRequestChannel channel, Shard shard, P2PRequestChannelName channelName, K key);
+
+    /**
+     * Splits the keys across the peers of the shard, each peer asked for its part in one request
+     *
+     * @param request makes the key of the request for a part of the keys
+     * @return the responses received, one per peer at most
+     */
+    <K extends Serializable, R extends Serializable> List<R> getSplit(P2PRequestChannel channel, Shard shard, P2PRequestChannelName channelName,
+                                                                      List<K> keys, Function<ArrayList<K>, ? extends Serializable> request);
 }
@@ -19,6 +19,7 @@ import org.apache.logging.log4j.Logger;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class P2PRequestServiceImpl implements P2PRequestService {
@@ -62,74 +63,109 @@ public class P2PRequestServiceImpl implements P2PRequestService {
 
     private <K extends Serializable, R extends Serializable> List<R> sendRequestMessage(P2PRequestChannel channel, Shard shard, P2PRequestMessage message) {
         P2PConnection connection = channel.getConnection();
-        PeerDHT dht = connection.getDht();
 
         //get all peers on channel
         HashSet<PeerAddress> peersOnChannel = getPeersOnChannel(channel, shard);
 
         if (peersOnChannel.size() > 0) {
-            List<R> responses = new ArrayList<>();
             // remove self from channel peer list
             PeerAddress self = connection.getPeer().peerAddress();
             peersOnChannel.remove(self);
-            Peer peer = dht.peer();
 
-            List<DirectBaseFutureListener> listOfFutureGets = new ArrayList<>();
+            Map<PeerAddress, P2PRequestMessage> messages = new HashMap<>();
+            for (PeerAddress peerAddress : peersOnChannel) {
+                messages.put(peerAddress, message);
+            }
+            return sendRequestMessages(channel, messages);
+        }
 
-            peersOnChannel.stream().parallel().forEach(peerAddress -> {
-                FutureDirect futureDirect = peer
-                        .sendDirect(peerAddress)
-                        .object(message).start();
+        return null;
+    }
 
-                DirectBaseFutureListener directBaseFutureListener = new DirectBaseFutureListener();
+    private <R extends Serializable> List<R> sendRequestMessages(P2PRequestChannel channel, Map<PeerAddress, P2PRequestMessage> messages) {
+        P2PConnection connection = channel.getConnection();
+        PeerDHT dht = connection.getDht();
 
-                futureDirect.addListener(directBaseFutureListener);
+        List<R> responses = new ArrayList<>();
+        Peer peer = dht.peer();
 
-                synchronized (listOfFutureGets) {
-                    listOfFutureGets.add(directBaseFutureListener);
-                }
-            });
+        List<DirectBaseFutureListener> listOfFutureGets = new ArrayList<>();
 
-            long maxWaitTimeToMonitorResponses = 1000;
-            long startTimeStamp = System.currentTimeMillis();
+        messages.entrySet().stream().parallel().forEach(entry -> {
+            FutureDirect futureDirect = peer
+                    .sendDirect(entry.getKey())
+                    .object(entry.getValue()).start();
 
-            while (startTimeStamp + maxWaitTimeToMonitorResponses > System.currentTimeMillis()) {
-                ThreadUtil.sleep(1);
+            DirectBaseFutureListener directBaseFutureListener = new DirectBaseFutureListener();
 
-                synchronized (listOfFutureGets) {
-                    //not sent to all
-                    if (listOfFutureGets.size() != peersOnChannel.size()) {
-                        continue;
-                    }
-                    //got all responses, not waiting
-                    boolean isDone = true;
-                    for (DirectBaseFutureListener directBaseFutureListener : listOfFutureGets) {
-                        if (directBaseFutureListener.getObject() == null) {
-                            isDone = false;
-                            break;
-                        }
-                    }
+            futureDirect.addListener(directBaseFutureListener);
 
-                    if (isDone) {
-                        break;
-                    }
-                }
+            synchronized (listOfFutureGets) {
+                listOfFutureGets.add(directBaseFutureListener);
             }
+        });
+
+        long maxWaitTimeToMonitorResponses = 1000;
+        long startTimeStamp = System.currentTimeMillis();
+
+        while (startTimeStamp + maxWaitTimeToMonitorResponses > System.currentTimeMillis()) {
+            ThreadUtil.sleep(1);
 
             synchronized (listOfFutureGets) {
+                //not sent to all
+                if (listOfFutureGets.size() != messages.size()) {
+                    continue;
+                }
+                //got all responses, not waiting
+                boolean isDone = true;
                 for (DirectBaseFutureListener directBaseFutureListener : listOfFutureGets) {
-                    if (directBaseFutureListener.getObject() != null) {
-                        responses.add((R) directBaseFutureListener.getObject());
+                    if (directBaseFutureListener.getObject() == null) {
+                        isDone = false;
+                        break;
                     }
                 }
+
+                if (isDone) {
+                    break;
+                }
+            }
+        }
+
+        synchronized (listOfFutureGets) {
+            for (DirectBaseFutureListener directBaseFutureListener : listOfFutureGets) {
+                if (directBaseFutureListener.getObject() != null) {
+                    responses.add((R) directBaseFutureListener.getObject());
+                }
             }
+        }
 
-            logger.trace("sendRequestMessage: {}", responses.size());
+        logger.trace("sendRequestMessage: {}", responses.size());
 
-            return responses;
+        return responses;
+    }
+
+    @Override
+    public <K extends Serializable, R extends Serializable> List<R> getSplit(P2PRequestChannel channel, Shard shard, P2PRequestChannelName channelName,
+                                                                             List<K> keys, Function<ArrayList<K>, ? extends Serializable> request) {
+        logger.traceEntry("params: {} {} {} {}", channel, shard, channelName, keys.size());
+
+        HashSet<PeerAddress> peersOnChannel = getPeersOnChannel(channel, shard);
+        peersOnChannel.remove(channel.getConnection().getPeer().peerAddress());
+        if (peersOnChannel.isEmpty() || keys.isEmpty()) {
+            return logger.traceExit(new ArrayList<>());
         }
 
-        return null;
+        // consecutive parts of about the same size, one per peer
+        List<PeerAddress> peers = new ArrayList<>(peersOnChannel);
+        int parts = Math.min(peers.size(), keys.size());
+        Map<PeerAddress, P2PRequestMessage> messages = new HashMap<>();
+        for (int i = 0; i < parts; i++) {
+            ArrayList<K> part = new ArrayList<>(keys.subList(i * keys.size() / parts, (i + 1) * keys.size() / parts));
+            messages.put(peers.get(i), new P2PRequestMessage(request.apply(part), channelName, shard));
+        }
+
+        List<R> responses = sendRequestMessages(channel, messages);
+        return logger.traceExit(responses);
     }
 
     @Override
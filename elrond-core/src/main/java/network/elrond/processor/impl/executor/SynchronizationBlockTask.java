@@ -5,6 +5,7 @@ import network.elrond.application.AppState;
 import network.elrond.blockchain.Blockchain;
 import network.elrond.data.model.ExecutionReport;
 import network.elrond.data.model.SyncState;
+import network.elrond.data.service.BootstrapService;
 import network.elrond.processor.impl.AbstractBlockTask;
 import network.elrond.service.AppServiceProvider;
 import org.apache.logging.log4j.LogManager;
@@ -37,7 +38,17 @@ public class SynchronizationBlockTask extends AbstractBlockTask {
                     application.getContext().getNodeName(), localBlockIndex,
                     remoteBlockIndex);
 
-            ExecutionReport report = AppServiceProvider.getBootstrapService().synchronize(localBlockIndex, remoteBlockIndex, state);
+            BootstrapService bootstrapService = AppServiceProvider.getBootstrapService();
+            if (bootstrapService.isStateSyncFaster(localBlockIndex, remoteBlockIndex, application.getContext())) {
+                // far behind: take the state of the latest block instead of replaying the ones in between
+                ExecutionReport report = bootstrapService.syncState(remoteBlockIndex, state);
+                logger.debug("State sync result: {}", report);
+                if (report.isOk()) {
+                    return;
+                }
+            }
+
+            ExecutionReport report = bootstrapService.synchronize(localBlockIndex, remoteBlockIndex, state);
 
             logger.debug("Sync result: {}", report);
         } catch (Exception ex) {
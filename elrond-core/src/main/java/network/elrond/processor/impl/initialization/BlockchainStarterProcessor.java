@@ -5,12 +5,14 @@ import network.elrond.application.AppContext;
 import network.elrond.application.AppState;
 import network.elrond.blockchain.Blockchain;
 import network.elrond.blockchain.BlockchainContext;
+import network.elrond.blockchain.BlockchainStore;
 import network.elrond.blockchain.BlockchainUnitType;
 import network.elrond.p2p.model.P2PConnection;
 import network.elrond.processor.AppTask;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -34,13 +36,13 @@ public class BlockchainStarterProcessor implements AppTask {
         blockContext.setConnection(connection);
 
         blockContext.setShard(state.getShard());
+        blockContext.setNonceOrderedPool(context.isNonceOrderedPool());
 
-        for (BlockchainUnitType type : BlockchainUnitType.values()) {
-            Path path = Paths.get(workingDirectory, blockchainBasePath, type.name().toLowerCase());
-            blockContext.setDatabasePath(type, path.toString());
-        }
+        Path path = Paths.get(workingDirectory, blockchainBasePath, "blockchain");
+        blockContext.setDatabasePath(path.toString());
 
         Blockchain blockchain = new Blockchain(blockContext);
+        importUnitDatabases(blockchain.getStore(), Paths.get(workingDirectory, blockchainBasePath));
         state.setBlockchain(blockchain);
 
         state.getConnection().getBroadcastHandler().setBlockchain(blockchain);
@@ -49,4 +51,22 @@ public class BlockchainStarterProcessor implements AppTask {
         logger.traceExit();
     }
 
+    /**
+     * Moves the records of the databases each unit had before sharing the store into it; an imported
+     * database is renamed so it is not imported again
+     */
+    private void importUnitDatabases(BlockchainStore store, Path basePath) throws IOException {
+        for (BlockchainUnitType type : BlockchainUnitType.values()) {
+            File unitDirectory = basePath.resolve(type.name().toLowerCase()).toFile();
+            if (!unitDirectory.isDirectory()) {
+                continue;
+            }
+
+            store.importDatabase(type, unitDirectory.getPath());
+            File imported = new File(unitDirectory.getPath() + ".imported");
+            if (!unitDirectory.renameTo(imported)) {
+                logger.warn("Could not rename {} to {}", unitDirectory, imported);
+            }
+        }
+    }
 }
@@ -4,10 +4,10 @@ import network.elrond.Application;
 import network.elrond.account.Accounts;
 import network.elrond.application.AppState;
 import network.elrond.blockchain.Blockchain;
-import network.elrond.blockchain.BlockchainService;
-import network.elrond.blockchain.BlockchainUnitType;
 import network.elrond.core.Util;
 import network.elrond.data.model.Block;
+import network.elrond.data.model.ExecutionReport;
+import network.elrond.data.service.BootstrapService;
 import network.elrond.p2p.model.P2PBroadcastChannelName;
 import network.elrond.processor.impl.AbstractChannelTask;
 import network.elrond.service.AppServiceProvider;
@@ -33,12 +33,13 @@ public class P2PBlocksInterceptorProcessor extends AbstractChannelTask<Block> {
         Blockchain blockchain = state.getBlockchain();
         Accounts accounts = state.getAccounts();
 
-        BlockchainService blockchainService = AppServiceProvider.getBlockchainService();
+        BootstrapService bootstrapService = AppServiceProvider.getBootstrapService();
+        bootstrapService.storeBlock(block, hash, blockchain);
 
-        blockchainService.putLocal(hash, block, blockchain, BlockchainUnitType.BLOCK);
-        blockchainService.putLocal(block.getNonce(), hash, blockchain, BlockchainUnitType.BLOCK_INDEX);
-
-        AppServiceProvider.getExecutionService().processBlock(block, accounts, blockchain, state.getStatisticsManager());
+        ExecutionReport report = AppServiceProvider.getExecutionService().processBlock(block, accounts, blockchain, state.getStatisticsManager());
+        if (report.isOk()) {
+            bootstrapService.storeExecutedBlock(block, hash, blockchain);
+        }
         logger.info("Got new block with hash {}", hash);
     }
 }
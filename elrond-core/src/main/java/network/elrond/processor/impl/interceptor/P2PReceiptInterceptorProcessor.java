@@ -3,6 +3,7 @@ package network.elrond.processor.impl.interceptor;
 import network.elrond.Application;
 import network.elrond.application.AppState;
 import network.elrond.blockchain.Blockchain;
+import network.elrond.blockchain.BlockchainBatch;
 import network.elrond.blockchain.BlockchainUnitType;
 import network.elrond.data.model.Receipt;
 import network.elrond.data.model.TransferDataBlock;
@@ -30,16 +31,18 @@ public class P2PReceiptInterceptorProcessor extends AbstractChannelTask<Transfer
         Blockchain blockchain = state.getBlockchain();
         List<Receipt> receiptList = receiptBlock.getDataList();
 
-        receiptList.stream().parallel().forEach(receipt -> {
+        BlockchainBatch batch = new BlockchainBatch();
+        receiptList.forEach(receipt -> {
             if (receipt == null) {
                 logger.warn("Null receiptreceived!");
             } else {
                 String receiptHash = AppServiceProvider.getSerializationService().getHashString(receipt);
                 String transactionHash = receipt.getTransactionHash();
-                AppServiceProvider.getBlockchainService().putLocal(receiptHash, receipt, blockchain, BlockchainUnitType.RECEIPT);
-                AppServiceProvider.getBlockchainService().putLocal(transactionHash, receiptHash, blockchain, BlockchainUnitType.TRANSACTION_RECEIPT);
+                batch.put(receiptHash, receipt, BlockchainUnitType.RECEIPT);
+                batch.put(transactionHash, receiptHash, BlockchainUnitType.TRANSACTION_RECEIPT);
             }
         });
+        AppServiceProvider.getBlockchainService().putLocal(batch, blockchain);
         logger.traceExit();
     }
 }
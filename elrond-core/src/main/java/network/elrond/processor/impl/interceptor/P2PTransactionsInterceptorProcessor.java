@@ -40,7 +40,13 @@ public class P2PTransactionsInterceptorProcessor extends AbstractChannelTask<Tra
             // This will retrieve transaction from network if required
             blockchainService.putLocal(hash, transaction, blockchain, BlockchainUnitType.TRANSACTION);
 
-            pool.addTransaction(hash);
+            // inbound cross shard transactions have their sender nonce checked in the source shard
+            boolean checkSource = AppServiceProvider.getShardingService().getShardOperation(state.getShard(), transaction).isCheckSource();
+            if (blockchain.getContext().isNonceOrderedPool() && checkSource) {
+                pool.addTransaction(hash, transaction.getSenderAddress(), transaction.getNonce());
+            } else {
+                pool.addTransaction(hash);
+            }
             logger.trace("Got new transaction with hash {}", hash);
         } catch (Exception ex) {
             logger.catching(ex);
@@ -0,0 +1,32 @@
+package network.elrond.trie;
+
+/**
+ * A [v0 ... v15, vt] node: a child for each next nibble and the value of the key ending here
+ */
+final class BranchNode extends TrieNode {
+
+    private final Object[] items;
+
+    BranchNode(Object[] items) {
+        this.items = items;
+    }
+
+    /**
+     * @param nibble the next nibble of the key, the terminator for the value
+     */
+    Object getChild(int nibble) {
+        return unwrap(items[nibble]);
+    }
+
+    /**
+     * @return a new item list with the same children, empty ones as the empty string
+     */
+    Object[] copyItems() {
+        Object[] copy = new Object[BRANCH_SIZE];
+        for (int i = 0; i < BRANCH_SIZE; i++) {
+            Object item = unwrap(items[i]);
+            copy[i] = (item == null) ? "" : item;
+        }
+        return copy;
+    }
+}
@@ -1,27 +1,87 @@
 package network.elrond.trie;
 
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import network.elrond.crypto.HashUtil;
 import network.elrond.db.ByteArrayWrapper;
 import network.elrond.core.Value;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.iq80.leveldb.DB;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
 
 /**
+ * Trie nodes by hash, read through from the db. The cache is bounded by a memory budget: over it, clean nodes
+ * are evicted in least recently used order, except the ones read on the upper levels of the trie during
+ * the last two commits, which are pinned. Dirty nodes stay until they are committed.
+ *
  * www.ethereumJ.com
  * @author: Nick Savers
  * Created on: 20/05/2014 10:44
  */
 public class Cache {
 
+    private static final Logger logger = LogManager.getLogger(Cache.class);
+
+    public static final long DEFAULT_MEMORY_BUDGET = 128L * 1024 * 1024;
+
+    // estimated heap bytes of a cached node besides its encoding: key, node, value and decoded items
+    private static final int NODE_OVERHEAD = 160;
+
     private Map<ByteArrayWrapper, Node> nodes = new ConcurrentHashMap<>();
+    // keys of the nodes not written to the db yet
+    private Set<ByteArrayWrapper> dirtyKeys = ConcurrentHashMap.newKeySet();
     private DB db;
-    private boolean isDirty;
+    // read through for snapshots, never written; null for a cache over the db
+    private final Cache parent;
+    private volatile boolean isDirty;
+
+    private boolean syncWrites;
+    private int lastCommitNodes;
+    private long lastCommitBytes;
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    // clean nodes, least recently used first; guarded by itself
+    private final LinkedHashMap<ByteArrayWrapper, Node> cleanNodes = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong usedBytes = new AtomicLong();
+    private volatile long memoryBudget = DEFAULT_MEMORY_BUDGET;
+    // advanced by every commit, pins expire after two
+    private volatile long epoch;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
 
     public Cache(DB db) {
         this.db = db;
+        this.parent = null;
+    }
+
+    /**
+     * A cache for a snapshot: reads fall through to the parent, new nodes stay in this cache
+     * and commit keeps them in memory instead of writing them. The dirty nodes of the parent are
+     * copied, as its undo or a commit without them drops them.
+     */
+    public Cache(Cache parent) {
+        this.db = parent.getDb();
+        this.parent = parent;
+        for (ByteArrayWrapper key : parent.dirtyKeys) {
+            Node node = parent.nodes.get(key);
+            if (node != null && node.isDirty()) {
+                Node copy = node.copy();
+                // part of the state the snapshot starts from, its undo keeps it
+                copy.setDirty(false);
+                this.add(key, copy);
+            }
+        }
     }
 
     /**
@@ -35,69 +95,258 @@ public class Cache {
         byte[] enc = value.encode();
         if (enc.length >= 32) {
             byte[] sha = HashUtil.sha3(enc);
-            this.nodes.put(new ByteArrayWrapper(sha), new Node(value, true));
+            ByteArrayWrapper key = new ByteArrayWrapper(sha);
+            this.dirtyKeys.add(key);
             this.isDirty = true;
+            this.add(key, new Node(value, true, enc.length + NODE_OVERHEAD));
             return sha;
         }
         return value;
     }
 
     public Value get(byte[] key) {
+        return get(key, false);
+    }
+
+    /**
+     * @param pin true if the node is read on an upper level of the trie
+     */
+    public Value get(byte[] key, boolean pin) {
+        return getEntry(key, pin).getValue();
+    }
+
+    /**
+     * @return the typed node, null if there is none under the key
+     */
+    TrieNode getTrieNode(byte[] key, boolean pin) {
+        return getEntry(key, pin).getTrieNode();
+    }
+
+    private Node getEntry(byte[] key, boolean pin) {
         ByteArrayWrapper keyObj = new ByteArrayWrapper(key);
         // First check if the key is the cache
-        if (this.nodes.get(keyObj) != null) {
-            return this.nodes.get(keyObj).getValue();
+        Node node = this.nodes.get(keyObj);
+        if (node != null) {
+            hits.incrementAndGet();
+            if (pin) {
+                node.setPinEpoch(epoch);
+            }
+            if (!node.isDirty()) {
+                synchronized (cleanNodes) {
+                    cleanNodes.get(keyObj);
+                }
+            }
+            return node;
         }
+        if (parent != null) {
+            return parent.getEntry(key, pin);
+        }
+        misses.incrementAndGet();
 
         // Get the key of the database instead and cache it
         byte[] data = this.db.get(key);
         Value value = Value.fromRlpEncoded(data);
         // Create caching node
-        this.nodes.put(keyObj, new Node(value, false));
+        node = new Node(value, false, (data == null ? 0 : data.length) + NODE_OVERHEAD);
+        if (pin) {
+            node.setPinEpoch(epoch);
+        }
+        this.add(keyObj, node);
 
-        return value;
+        return node;
     }
 
     public void delete(byte[] key) {
         ByteArrayWrapper keyObj = new ByteArrayWrapper(key);
-        this.nodes.remove(keyObj);
+        this.dirtyKeys.remove(keyObj);
+        this.remove(keyObj);
 
         if (db == null) return;
         this.db.delete(key);
     }
 
+    /**
+     * Writes the dirty nodes to the db in one batch, so either all of them or none are stored
+     */
     public void commit() {
+        commit(null, null);
+    }
+
+    /**
+     * @param keys the dirty nodes to write, null for all of them; the others are dropped
+     * @param updates more writes for the same batch, null for none
+     */
+    public void commit(Set<ByteArrayWrapper> keys, Consumer<WriteBatch> updates) {
 
         if (db == null) return;
 
         // Don't try to commit if it isn't dirty
-        if (!this.isDirty) {
+        if (!this.isDirty && updates == null) {
             return;
         }
 
-        for (ByteArrayWrapper key : this.nodes.keySet()) {
-            Node node = this.nodes.get(key);
-            if (node.isDirty()) {
-                this.db.put(key.getData(), node.getValue().encode());
-                node.setDirty(false);
+        if (parent != null) {
+            // snapshot nodes are never stored, they only stop being undone
+            for (ByteArrayWrapper key : this.dirtyKeys) {
+                Node node = this.nodes.get(key);
+                if (node != null) {
+                    node.setDirty(false);
+                }
             }
+            this.dirtyKeys.clear();
+            this.isDirty = false;
+            return;
         }
+
+        int count = 0;
+        long bytes = 0;
+        WriteBatch batch = this.db.createWriteBatch();
+        try {
+            for (ByteArrayWrapper key : this.dirtyKeys) {
+                Node node = this.nodes.get(key);
+                if (node != null && node.isDirty() && (keys == null || keys.contains(key))) {
+                    byte[] encoded = node.getValue().encode();
+                    batch.put(key.getData(), encoded);
+                    count++;
+                    bytes += key.getData().length + encoded.length;
+                }
+            }
+            if (updates != null) {
+                updates.accept(batch);
+            }
+            this.db.write(batch, new WriteOptions().sync(syncWrites));
+        } finally {
+            close(batch);
+        }
+
+        synchronized (cleanNodes) {
+            for (ByteArrayWrapper key : this.dirtyKeys) {
+                Node node = this.nodes.get(key);
+                if (keys != null && !keys.contains(key)) {
+                    this.remove(key);
+                } else if (node != null) {
+                    node.setDirty(false);
+                    cleanNodes.put(key, node);
+                }
+            }
+        }
+        this.dirtyKeys.clear();
         this.isDirty = false;
+        this.epoch++;
+
+        this.lastCommitNodes = count;
+        this.lastCommitBytes = bytes;
+        this.bytesWritten.addAndGet(bytes);
+        logger.debug("Committed {} trie nodes, {} bytes", count, bytes);
+
+        evictIfNeeded();
+    }
 
-        // TODO come up with a way to clean up this.nodes
-        // from memory without breaking consensus
+    /**
+     * Removes the node from memory only
+     */
+    public void discard(byte[] key) {
+        ByteArrayWrapper keyObj = new ByteArrayWrapper(key);
+        this.dirtyKeys.remove(keyObj);
+        this.remove(keyObj);
     }
 
     public void undo() {
-        Iterator<Map.Entry<ByteArrayWrapper, Node>> iter = this.nodes.entrySet().iterator();
-        while (iter.hasNext()) {
-            if(iter.next().getValue().isDirty()) {
-                iter.remove();
+        for (ByteArrayWrapper key : this.dirtyKeys) {
+            Node node = this.nodes.get(key);
+            if (node != null && node.isDirty()) {
+                this.remove(key);
             }
         }
+        this.dirtyKeys.clear();
         this.isDirty = false;
     }
 
+    /**
+     * @return a cache over the same db with copies of the nodes
+     */
+    public Cache copy() {
+        Cache cache = new Cache(this.db);
+        cache.memoryBudget = this.memoryBudget;
+        cache.epoch = this.epoch;
+        cache.syncWrites = this.syncWrites;
+        cache.dirtyKeys.addAll(this.dirtyKeys);
+        cache.isDirty = this.isDirty;
+        for (Map.Entry<ByteArrayWrapper, Node> entry : this.nodes.entrySet()) {
+            cache.add(entry.getKey(), entry.getValue().copy());
+        }
+        return cache;
+    }
+
+    private void add(ByteArrayWrapper key, Node node) {
+        Node old = this.nodes.put(key, node);
+        usedBytes.addAndGet(node.getSize() - (old == null ? 0 : old.getSize()));
+
+        if (!node.isDirty() || (old != null && !old.isDirty())) {
+            synchronized (cleanNodes) {
+                if (node.isDirty()) {
+                    cleanNodes.remove(key);
+                } else {
+                    cleanNodes.put(key, node);
+                }
+            }
+        }
+        evictIfNeeded();
+    }
+
+    private void remove(ByteArrayWrapper key) {
+        Node node = this.nodes.remove(key);
+        if (node == null) {
+            return;
+        }
+        usedBytes.addAndGet(-node.getSize());
+        if (!node.isDirty()) {
+            synchronized (cleanNodes) {
+                cleanNodes.remove(key);
+            }
+        }
+    }
+
+    private void evictIfNeeded() {
+        // without a db evicted nodes could not be read again, nor the ones of a snapshot
+        if (db == null || parent != null || usedBytes.get() <= memoryBudget) {
+            return;
+        }
+
+        synchronized (cleanNodes) {
+            Iterator<Map.Entry<ByteArrayWrapper, Node>> iterator = cleanNodes.entrySet().iterator();
+            while (usedBytes.get() > memoryBudget && iterator.hasNext()) {
+                Map.Entry<ByteArrayWrapper, Node> entry = iterator.next();
+                Node node = entry.getValue();
+                if (node.isDirty() || this.nodes.get(entry.getKey()) != node) {
+                    iterator.remove();
+                    continue;
+                }
+                if (isPinned(node)) {
+                    continue;
+                }
+
+                iterator.remove();
+                if (this.nodes.remove(entry.getKey(), node)) {
+                    usedBytes.addAndGet(-node.getSize());
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private boolean isPinned(Node node) {
+        return node.getPinEpoch() >= 0 && node.getPinEpoch() >= epoch - 1;
+    }
+
+    private void close(WriteBatch batch) {
+        try {
+            batch.close();
+        } catch (IOException ex) {
+            logger.catching(ex);
+        }
+    }
+
     public boolean isDirty() {
         return isDirty;
     }
@@ -106,10 +355,68 @@ public class Cache {
         this.isDirty = isDirty;
     }
 
+    public boolean isSyncWrites() {
+        return syncWrites;
+    }
+
+    /**
+     * @param syncWrites true to have commit return only after the db flushed the batch to disk
+     */
+    public void setSyncWrites(boolean syncWrites) {
+        this.syncWrites = syncWrites;
+    }
+
+    public int getLastCommitNodes() {
+        return lastCommitNodes;
+    }
+
+    public long getLastCommitBytes() {
+        return lastCommitBytes;
+    }
+
+    /**
+     * @return the bytes of keys and nodes written by all commits
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @param memoryBudget estimated heap bytes the cached nodes may use
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evictIfNeeded();
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
     public Map<ByteArrayWrapper, Node> getNodes() {
         return nodes;
     }
 
+    public Cache getParent() {
+        return parent;
+    }
+
     public DB getDb() {
         return db;
     }
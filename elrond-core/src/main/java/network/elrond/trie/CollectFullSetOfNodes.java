@@ -1,6 +1,7 @@
 package network.elrond.trie;
 
 import network.elrond.core.Value;
+import network.elrond.db.ByteArrayWrapper;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -13,14 +14,14 @@ import java.util.Set;
  */
 
 public class CollectFullSetOfNodes implements TrieImpl.ScanAction {
-    Set<byte[]> nodes = new HashSet<>();
+    Set<ByteArrayWrapper> nodes = new HashSet<>();
 
     @Override
     public void doOnNode(byte[] hash, Value node) {
-        nodes.add(hash);
+        nodes.add(new ByteArrayWrapper(hash));
     }
 
-    public Set<byte[]> getCollectedHashes(){
+    public Set<ByteArrayWrapper> getCollectedHashes(){
         return nodes;
     }
 }
\ No newline at end of file
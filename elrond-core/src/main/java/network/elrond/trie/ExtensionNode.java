@@ -0,0 +1,20 @@
+package network.elrond.trie;
+
+/**
+ * A [path, child] node: a path shared by all keys below, the child is a hash or an inline node
+ */
+final class ExtensionNode extends ShortNode {
+
+    ExtensionNode(byte[] packedPath, Object child) {
+        super(packedPath, child);
+    }
+
+    @Override
+    boolean isLeaf() {
+        return false;
+    }
+
+    Object getChild() {
+        return getItem();
+    }
+}
@@ -0,0 +1,20 @@
+package network.elrond.trie;
+
+/**
+ * A [path, value] node: the rest of one key, ending in the terminator, and its value
+ */
+final class LeafNode extends ShortNode {
+
+    LeafNode(byte[] packedPath, Object value) {
+        super(packedPath, value);
+    }
+
+    @Override
+    boolean isLeaf() {
+        return true;
+    }
+
+    byte[] getValue() {
+        return toBytes(getItem());
+    }
+}
@@ -48,18 +48,32 @@ public class Node {
     /* RLP encoded value of the Trie-node */
     private Value value;
     private boolean dirty;
+    /* estimated heap bytes of the cached node */
+    private final int size;
+    /* last cache epoch the node was read on an upper level of the trie */
+    private volatile long pinEpoch = -1;
+    /* typed view of the value, decoded on first use */
+    private volatile TrieNode trieNode;
 
     public Node(Value val) {
         this(val, false);
     }
 
     public Node(Value val, boolean dirty) {
+        this(val, dirty, 0);
+    }
+
+    public Node(Value val, boolean dirty, int size) {
         this.value = val;
         this.dirty = dirty;
+        this.size = size;
     }
 
     public Node copy() {
-        return new Node(this.value, this.dirty);
+        Node node = new Node(this.value, this.dirty, this.size);
+        node.pinEpoch = this.pinEpoch;
+        node.trieNode = this.trieNode;
+        return node;
     }
 
     public boolean isDirty() {
@@ -73,4 +87,26 @@ public class Node {
     public Value getValue() {
         return value;
     }
-}
\ No newline at end of file
+
+    TrieNode getTrieNode() {
+        TrieNode node = trieNode;
+        if (node == null && value != null) {
+            // nodes are immutable, decoding twice on a race gives an equal view
+            node = TrieNode.decode(value);
+            trieNode = node;
+        }
+        return node;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getPinEpoch() {
+        return pinEpoch;
+    }
+
+    public void setPinEpoch(long pinEpoch) {
+        this.pinEpoch = pinEpoch;
+    }
+}
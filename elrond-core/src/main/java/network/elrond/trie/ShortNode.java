@@ -0,0 +1,84 @@
+package network.elrond.trie;
+
+/**
+ * A [path, item] node: the packed path as stored and the nibble offsets into it
+ */
+abstract class ShortNode extends TrieNode {
+
+    private final byte[] packedPath;
+    private final Object item;
+    // nibble of the packed path the path starts at, after the flags
+    private final int start;
+    // nibbles of the path, the terminator not included
+    private final int length;
+
+    ShortNode(byte[] packedPath, Object item) {
+        this.packedPath = packedPath;
+        this.item = item;
+        this.start = ((packedPath[0] >> 4) & 1) == 1 ? 1 : 2;
+        this.length = packedPath.length * 2 - start;
+    }
+
+    static boolean isLeafPath(byte[] packedPath) {
+        return ((packedPath[0] >> 4) & 0x0F) >= 2;
+    }
+
+    abstract boolean isLeaf();
+
+    /**
+     * @return the number of nibbles of the path, a leaf's terminator included
+     */
+    int getPathLength() {
+        return isLeaf() ? length + 1 : length;
+    }
+
+    int getPathNibble(int index) {
+        if (index == length) {
+            return TERMINATOR;
+        }
+        return nibble(packedPath, start + index);
+    }
+
+    /**
+     * @return the number of nibbles the path has in common with the key from position on
+     */
+    int matchingLength(byte[] key, int position) {
+        int max = Math.min(getPathLength(), keyLength(key) - position);
+        int matching = 0;
+        while (matching < max && getPathNibble(matching) == keyNibble(key, position + matching)) {
+            matching++;
+        }
+        return matching;
+    }
+
+    /**
+     * @return the compact encoding of the path from nibble from on
+     */
+    byte[] packPath(int from) {
+        return pack(this::getPathNibble, from, getPathLength());
+    }
+
+    /**
+     * @return the compact encoding of nibble first followed by this path
+     */
+    byte[] packPathAfter(int first) {
+        return pack(index -> (index == 0) ? first : getPathNibble(index - 1), 0, getPathLength() + 1);
+    }
+
+    /**
+     * @return the compact encoding of the path of prefix followed by this path
+     */
+    byte[] packPathAfter(ShortNode prefix) {
+        int prefixLength = prefix.getPathLength();
+        return pack(index -> (index < prefixLength) ? prefix.getPathNibble(index) : getPathNibble(index - prefixLength),
+                0, prefixLength + getPathLength());
+    }
+
+    byte[] getPackedPath() {
+        return packedPath;
+    }
+
+    Object getItem() {
+        return item;
+    }
+}
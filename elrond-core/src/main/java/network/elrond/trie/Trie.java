@@ -1,5 +1,9 @@
 package network.elrond.trie;
 
+import network.elrond.db.ByteArrayWrapper;
+
+import java.util.Map;
+
 public interface Trie {
 
         /**
@@ -18,6 +22,13 @@ public interface Trie {
          */
         public void update(byte[] key, byte[] value);
 
+        /**
+         * Insert, update or delete the values of many keys at once
+         *
+         * @param changes - new values by key, an empty value deletes the key
+         */
+        public void updateAll(Map<ByteArrayWrapper, byte[]> changes);
+
         /**
          * Deletes a key/value from the trie for a given key
          *
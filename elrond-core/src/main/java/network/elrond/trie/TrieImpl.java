@@ -1,6 +1,8 @@
 package network.elrond.trie;
 
 import network.elrond.core.ByteUtil;
+import network.elrond.core.ThreadUtil;
+import network.elrond.core.Util;
 import network.elrond.core.Value;
 import network.elrond.crypto.HashUtil;
 import network.elrond.db.ByteArrayWrapper;
@@ -10,11 +12,12 @@ import org.spongycastle.util.encoders.Hex;
 import org.iq80.leveldb.DB;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static java.util.Arrays.copyOfRange;
-import static network.elrond.core.ByteUtil.matchingNibbleLength;
-import static network.elrond.core.CompactEncoder.*;
-import static org.spongycastle.util.Arrays.concatenate;
+import static network.elrond.trie.TrieNode.*;
 
 public class TrieImpl implements Trie {
     private static final Logger logger = LogManager.getLogger(TrieImpl.class);
@@ -22,10 +25,22 @@ public class TrieImpl implements Trie {
     private static byte PAIR_SIZE = 2;
     private static byte LIST_SIZE = 17;
 
+    // root and three levels of branches: at most 4369 nodes
+    public static final int DEFAULT_PINNED_LEVELS = 4;
+
     private Object prevRoot;
     private Object root;
     private Cache  cache;
 
+    // changed nodes stay unhashed in memory until the root hash is needed
+    private boolean deferredHashing;
+
+    // nodes read on the levels above stay pinned in the cache
+    private int pinnedLevels = DEFAULT_PINNED_LEVELS;
+
+    // removes the nodes of old state roots, null to keep them all
+    private TriePruner pruner;
+
     public TrieImpl(DB db) {
         this(db, "");
     }
@@ -36,8 +51,28 @@ public class TrieImpl implements Trie {
         this.prevRoot = root;
     }
 
+    /**
+     * @return the keys and values of the current root in key order
+     */
     public TrieIterator getIterator() {
-        return new TrieIterator(this);
+        return getIterator(null, null);
+    }
+
+    /**
+     * @param from the first key, null to start with the smallest one
+     * @param to the key to stop before, null to go to the last one
+     * @return the keys and values of the current root from one key to another, in key order
+     */
+    public TrieIterator getIterator(byte[] from, byte[] to) {
+        hashChangedNodes();
+        return new TrieIterator(this.cache, this.root, from, to);
+    }
+
+    /**
+     * @return the keys starting with the prefix and their values, in key order
+     */
+    public TrieIterator getPrefixIterator(byte[] prefix) {
+        return getIterator(prefix, TrieIterator.prefixEnd(prefix));
     }
 
     public void setCache(Cache cache) {
@@ -53,6 +88,7 @@ public class TrieImpl implements Trie {
     }
 
     public Object getRoot() {
+        hashChangedNodes();
         return root;
     }
 
@@ -61,6 +97,69 @@ public class TrieImpl implements Trie {
         this.root = root;
     }
 
+    /**
+     * Goes back to a root synced before, like the last one when the node restarts; with pruning
+     * only a kept root is whole in the db
+     *
+     * @return false if the root can not be restored, the trie is left as it was
+     */
+    public boolean restoreRoot(byte[] rootHash) {
+        Util.check(rootHash != null, "rootHash!=null");
+
+        if (cache.isDirty()) {
+            return false;
+        }
+        if (rootHash.length > 0) {
+            if (pruner != null && pruner.getKeptRoots().stream().noneMatch(kept -> Arrays.equals(kept, rootHash))) {
+                return false;
+            }
+            if (cache.getTrieNode(rootHash, true) == null) {
+                return false;
+            }
+        }
+
+        this.root = (rootHash.length == 0) ? "" : rootHash;
+        this.prevRoot = this.root;
+        return true;
+    }
+
+    public int getPinnedLevels() {
+        return pinnedLevels;
+    }
+
+    public void setPinnedLevels(int pinnedLevels) {
+        this.pinnedLevels = pinnedLevels;
+    }
+
+    public TriePruner getPruner() {
+        return pruner;
+    }
+
+    /**
+     * Keeps the nodes of the last keptRoots committed roots and prunes older ones in the background
+     */
+    public void enablePruning(int keptRoots) {
+        enablePruning(keptRoots, ThreadUtil.executor);
+    }
+
+    public void enablePruning(int keptRoots, Executor executor) {
+        this.pruner = new TriePruner(this.cache, keptRoots, executor);
+    }
+
+    public boolean isDeferredHashing() {
+        return deferredHashing;
+    }
+
+    /**
+     * In deferred mode insert and delete keep the nodes they create as plain lists, without encoding or hashing them.
+     * getRootHash and sync hash the changed nodes bottom-up in one pass, the subtries under a root branch
+     * in parallel, so nodes replaced again before that are never hashed. Root hashes are the same in both modes.
+     */
+    public void setDeferredHashing(boolean deferredHashing) {
+        hashChangedNodes();
+        this.deferredHashing = deferredHashing;
+    }
+
     /**************************************
      * Public (query) interface functions *
      **************************************/
@@ -75,13 +174,37 @@ public class TrieImpl implements Trie {
         return this.get(key.getBytes());
     }
 
+    /**
+     * Walks the key by nibble offset over typed nodes, decoded once per cached node
+     */
     @Override
     public byte[] get(byte[] key) {
-        logger.trace("Retrieving key {}", Hex.toHexString(key));
-        byte[] k = binToNibbles(key);
-        Value c = new Value(this.get(this.root, k));
+        Object node = this.root;
+        int length = keyLength(key);
+        int position = 0;
+
+        for (int depth = 0; position < length; depth++) {
+            if (isEmpty(node)) {
+                return ByteUtil.EMPTY_BYTE_ARRAY;
+            }
 
-        return (c == null)? null : c.asBytes();
+            TrieNode currentNode = this.getNode(node, depth);
+            if (currentNode instanceof BranchNode) {
+                node = ((BranchNode) currentNode).getChild(keyNibble(key, position));
+                position++;
+            } else if (currentNode instanceof ShortNode) {
+                ShortNode shortNode = (ShortNode) currentNode;
+                int pathLength = shortNode.getPathLength();
+                if (shortNode.matchingLength(key, position) != pathLength) {
+                    return ByteUtil.EMPTY_BYTE_ARRAY;
+                }
+                node = shortNode.getItem();
+                position += pathLength;
+            } else {
+                return ByteUtil.EMPTY_BYTE_ARRAY;
+            }
+        }
+        return toBytes(node);
     }
 
     /**
@@ -98,11 +221,53 @@ public class TrieImpl implements Trie {
     public void update(byte[] key, byte[] value) {
         if (key == null)
             throw new NullPointerException("Key should not be blank");
-        byte[] k = binToNibbles(key);
 
-        this.root = this.insertOrDelete(this.root, k, value);
+        this.root = this.insertOrDelete(this.root, key, 0, value, 0);
         logger.trace("Added key {} and value {}", Hex.toHexString(key), Hex.toHexString(value));
-        logger.trace("New root-hash: {}", Hex.toHexString(this.getRootHash()));
+    }
+
+    /**
+     * Inserts, updates and deletes many keys at once, an empty value deletes its key. Branches and extensions
+     * above several changed keys are rewritten once instead of once per key; the root hash is the same as
+     * after updating the keys one by one.
+     *
+     * @param changes new values by key, in any order
+     */
+    @Override
+    public void updateAll(Map<ByteArrayWrapper, byte[]> changes) {
+        Util.check(changes != null, "changes!=null");
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<ByteArrayWrapper, byte[]>> entries = new ArrayList<>(changes.entrySet());
+        entries.sort((first, second) -> compareInTrieOrder(first.getKey().getData(), second.getKey().getData()));
+
+        byte[][] keys = new byte[entries.size()][];
+        byte[][] values = new byte[entries.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = entries.get(i).getKey().getData();
+            values[i] = entries.get(i).getValue();
+            Util.check(values[i] != null, "value!=null");
+        }
+
+        this.root = this.updateAll(this.root, keys, values, 0, keys.length, 0, 0);
+        logger.trace("Updated {} keys", keys.length);
+    }
+
+    /**
+     * Orders keys as their nibbles, a key after the longer ones it is a prefix of: the terminator
+     * is the last nibble
+     */
+    private static int compareInTrieOrder(byte[] first, byte[] second) {
+        int length = Math.min(first.length, second.length);
+        for (int i = 0; i < length; i++) {
+            int result = (first[i] & 0xFF) - (second[i] & 0xFF);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return second.length - first.length;
     }
 
     /**
@@ -116,112 +281,183 @@ public class TrieImpl implements Trie {
 
     @Override
     public void delete(byte[] key) {
-        delete(new String(key));
+        this.update(key, ByteUtil.EMPTY_BYTE_ARRAY);
         logger.trace("Deleted value for key {}", Hex.toHexString(key));
-        logger.trace("New root-hash: {}", Hex.toHexString(this.getRootHash()));
     }
 
     @Override
     public byte[] getRootHash() {
+        hashChangedNodes();
+        return rootHash(this.root);
+    }
+
+    /**
+     * @return a proof of the value under the key, or of its absence, against the current root hash
+     */
+    public TrieProof getProof(byte[] key) {
+        hashChangedNodes();
+        return getProof(this.root, key);
+    }
+
+    /**
+     * @return a proof of the value under the key, or of its absence, against the root of the last sync:
+     * the state a committed block refers to, without the changes made since
+     */
+    public TrieProof getSyncedProof(byte[] key) {
+        if (this.prevRoot instanceof Object[]) {
+            this.prevRoot = hashNode(this.prevRoot);
+        }
+        return getProof(this.prevRoot, key);
+    }
+
+    /**
+     * Reads nodes by hash for a peer syncing the trie, see {@link TrieSync}; the nodes read are not cached
+     *
+     * @return the encodings of the nodes found, the ones not found are left out
+     */
+    public List<byte[]> getEncodedNodes(List<byte[]> hashes) {
+        Util.check(hashes != null, "hashes!=null");
+
+        List<byte[]> nodes = new ArrayList<>();
+        for (byte[] hash : hashes) {
+            if (hash == null || hash.length == 0) {
+                continue;
+            }
+
+            Node node = this.cache.getNodes().get(new ByteArrayWrapper(hash));
+            byte[] encoded = (node != null && node.getValue() != null) ? node.getValue().encode() : this.cache.getDb().get(hash);
+            if (encoded != null && encoded.length > 0) {
+                nodes.add(encoded);
+            }
+        }
+        return nodes;
+    }
+
+    /****************************************
+     * 			Private functions			*
+     ****************************************/
+
+    private static byte[] rootHash(Object root) {
         if (root == null
                 || (root instanceof byte[] && ((byte[]) root).length == 0)
                 || (root instanceof String && "".equals((String) root))) {
             return ByteUtil.EMPTY_BYTE_ARRAY;
         } else if (root instanceof byte[]) {
-            return (byte[]) this.getRoot();
+            return (byte[]) root;
         } else {
-            Value rootValue = new Value(this.getRoot());
+            Value rootValue = new Value(root);
             byte[] val = rootValue.encode();
             return HashUtil.sha3(val);
         }
     }
 
-    /****************************************
-     * 			Private functions			*
-     ****************************************/
-
-    private Object get(Object node, byte[] key) {
-
-        // Return the node if key is empty (= found)
-        if (key.length == 0 || isEmptyNode(node)) {
-            return node;
-        }
-
-        Value currentNode = this.getNode(node);
-        if (currentNode == null) return null;
-
-        if (currentNode.length() == PAIR_SIZE) {
-            // Decode the key
-            byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
-            Object v = currentNode.get(1).asObj();
+    /**
+     * Walks the key as get does, keeping the encoding of every node reached by its hash
+     */
+    private TrieProof getProof(Object root, byte[] key) {
+        Util.check(key != null, "key!=null");
+
+        List<byte[]> nodes = new ArrayList<>();
+        Object node = root;
+        int length = keyLength(key);
+        int position = 0;
+
+        for (int depth = 0; position < length && !isEmpty(node); depth++) {
+            TrieNode currentNode;
+            Object value = unwrap(node);
+            if (value instanceof Object[]) {
+                if (depth == 0) {
+                    // a root shorter than a hash is hashed all the same
+                    nodes.add(new Value(value).encode());
+                }
+                currentNode = TrieNode.decode(value);
+            } else {
+                Value encoded = this.cache.get(toBytes(value), depth < pinnedLevels);
+                if (encoded == null) {
+                    throw new IllegalStateException("Missing trie node " + Hex.toHexString(toBytes(value)));
+                }
+                nodes.add(encoded.encode());
+                currentNode = TrieNode.decode(encoded);
+            }
 
-            if (key.length >= k.length && Arrays.equals(k, copyOfRange(key, 0, k.length))) {
-                return this.get(v, copyOfRange(key, k.length, key.length));
+            if (currentNode instanceof BranchNode) {
+                node = ((BranchNode) currentNode).getChild(keyNibble(key, position));
+                position++;
+            } else if (currentNode instanceof ShortNode) {
+                ShortNode shortNode = (ShortNode) currentNode;
+                int pathLength = shortNode.getPathLength();
+                if (shortNode.matchingLength(key, position) != pathLength) {
+                    break;
+                }
+                node = shortNode.getItem();
+                position += pathLength;
             } else {
-                return "";
+                break;
             }
-        } else {
-            return this.get(currentNode.get(key[0]).asObj(), copyOfRange(key, 1, key.length));
         }
+        return new TrieProof(rootHash(root), key, nodes);
     }
 
-    private Object insertOrDelete(Object node, byte[] key, byte[] value) {
+    private Object insertOrDelete(Object node, byte[] key, int position, byte[] value, int depth) {
         if (value.length != 0) {
-            return this.insert(node, key, value);
+            return this.insert(node, key, position, value, depth);
         } else {
-            return this.delete(node, key);
+            return this.delete(node, key, position, depth);
         }
     }
 
     /**
      * Update or add the item inside a node
      * return the updated node with rlp encoded
+     *
+     * @param position - nibble of the key the node is reached at
      */
-    private Object insert(Object node, byte[] key, Object value) {
+    private Object insert(Object node, byte[] key, int position, Object value, int depth) {
 
-        if (key.length == 0) {
+        int length = keyLength(key);
+        if (position == length) {
             return value;
         }
 
-        if (isEmptyNode(node)) {
-            Object[] newNode = new Object[] { packNibbles(key), value };
+        if (isEmpty(node)) {
+            Object[] newNode = new Object[] { pack(key, position, length), value };
             return this.putToCache(newNode);
         }
 
-        Value currentNode = this.getNode(node);
+        TrieNode currentNode = this.getExistingNode(node, depth);
 
         // Check for "special" 2 slice type node
-        if (currentNode.length() == PAIR_SIZE) {
-            // Decode the key
-            byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
-            Object v = currentNode.get(1).asObj();
+        if (currentNode instanceof ShortNode) {
+            ShortNode shortNode = (ShortNode) currentNode;
+            int pathLength = shortNode.getPathLength();
+            int matchingLength = shortNode.matchingLength(key, position);
 
             // Matching key pair (ie. there's already an object with this key)
-            if (Arrays.equals(k, key)) {
-                Object[] newNode = new Object[] {packNibbles(key), value};
+            if (matchingLength == pathLength && position + matchingLength == length) {
+                Object[] newNode = new Object[] { shortNode.getPackedPath(), value };
                 return this.putToCache(newNode);
             }
 
             Object newHash;
-            int matchingLength = matchingNibbleLength(key, k);
-            if (matchingLength == k.length) {
+            if (matchingLength == pathLength) {
                 // Insert the hash, creating a new node
-                byte[] remainingKeypart = copyOfRange(key, matchingLength, key.length);
-                newHash = this.insert(v, remainingKeypart, value);
+                newHash = this.insert(shortNode.getItem(), key, position + matchingLength, value, depth + 1);
 
             } else {
 
                 // Expand the 2 length slice to a 17 length slice
                 // Create two nodes to putToCache into the new 17 length node
-                Object oldNode = this.insert("", copyOfRange(k, matchingLength+1, k.length), v);
-                Object newNode = this.insert("", copyOfRange(key, matchingLength+1, key.length), value);
+                Object oldNode = (matchingLength + 1 == pathLength)
+                        ? shortNode.getItem()
+                        : this.putToCache(new Object[] { shortNode.packPath(matchingLength + 1), shortNode.getItem() });
+                Object newNode = this.insert("", key, position + matchingLength + 1, value, depth + 1);
 
                 // Create an expanded slice
-                Object[] scaledSlice = emptyStringSlice(17);
+                Object[] scaledSlice = emptyStringSlice(LIST_SIZE);
 
                 // Set the copied and new node
-                scaledSlice[k[matchingLength]] = oldNode;
-                scaledSlice[key[matchingLength]] = newNode;
+                scaledSlice[shortNode.getPathNibble(matchingLength)] = oldNode;
+                scaledSlice[keyNibble(key, position + matchingLength)] = newNode;
                 newHash = this.putToCache(scaledSlice);
             }
 
@@ -229,132 +465,295 @@ public class TrieImpl implements Trie {
                 // End of the chain, return
                 return newHash;
             } else {
-                Object[] newNode = new Object[] { packNibbles(copyOfRange(key, 0, matchingLength)), newHash};
+                Object[] newNode = new Object[] { pack(key, position, position + matchingLength), newHash };
                 return this.putToCache(newNode);
             }
         } else {
 
             // Copy the current node over to the new node
-            Object[] newNode = copyNode(currentNode);
+            Object[] newNode = ((BranchNode) currentNode).copyItems();
 
             // Replace the first nibble in the key
-            newNode[key[0]] = this.insert(currentNode.get(key[0]).asObj(), copyOfRange(key, 1, key.length), value);
+            int nibble = keyNibble(key, position);
+            newNode[nibble] = this.insert(newNode[nibble], key, position + 1, value, depth + 1);
             return this.putToCache(newNode);
         }
     }
 
-    private Object delete(Object node, byte[] key) {
+    private Object delete(Object node, byte[] key, int position, int depth) {
 
-        if (key.length == 0 || isEmptyNode(node)) {
+        int length = keyLength(key);
+        if (position == length || isEmpty(node)) {
             return "";
         }
 
         // New node
-        Value currentNode = this.getNode(node);
+        TrieNode currentNode = this.getExistingNode(node, depth);
         // Check for "special" 2 slice type node
-        if (currentNode.length() == PAIR_SIZE) {
-            // Decode the key
-            byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
-            Object v = currentNode.get(1).asObj();
+        if (currentNode instanceof ShortNode) {
+            ShortNode shortNode = (ShortNode) currentNode;
+            int pathLength = shortNode.getPathLength();
+            int matchingLength = shortNode.matchingLength(key, position);
 
             // Matching key pair (ie. there's already an object with this key)
-            if (Arrays.equals(k, key)) {
+            if (matchingLength == pathLength && position + matchingLength == length) {
                 return "";
-            } else if (Arrays.equals(copyOfRange(key, 0, k.length), k)) {
-                Object hash = this.delete(v, copyOfRange(key, k.length, key.length));
-                Value child = this.getNode(hash);
-
-                Object newNode;
-                if (child.length() == PAIR_SIZE) {
-                    byte[] newKey = concatenate(k, unpackToNibbles(child.get(0).asBytes()));
-                    newNode = new Object[] {packNibbles(newKey), child.get(1).asObj()};
-                } else {
-                    newNode = new Object[] {currentNode.get(0).asString(), hash};
-                }
-                return this.putToCache(newNode);
+            } else if (matchingLength == pathLength) {
+                Object hash = this.delete(shortNode.getItem(), key, position + pathLength, depth + 1);
+                return this.extend(shortNode, hash, depth);
             } else {
                 return node;
             }
         } else {
             // Copy the current node over to a new node
-            Object[] itemList = copyNode(currentNode);
+            Object[] itemList = ((BranchNode) currentNode).copyItems();
 
             // Replace the first nibble in the key
-            itemList[key[0]] = this.delete(itemList[key[0]], copyOfRange(key, 1, key.length));
-
-            byte amount = -1;
-            for (byte i = 0; i < LIST_SIZE; i++) {
-                if (itemList[i] != "") {
-                    if (amount == -1) {
-                        amount = i;
-                    } else {
-                        amount = -2;
-                    }
-                }
+            int nibble = keyNibble(key, position);
+            itemList[nibble] = this.delete(itemList[nibble], key, position + 1, depth + 1);
+
+            return this.collapse(itemList, depth);
+        }
+    }
+
+    /**
+     * Applies the changes of keys [from, to) to the subtrie under node, the keys sharing their nibbles
+     * before position; every node on the way is rewritten once for all of them
+     */
+    private Object updateAll(Object node, byte[][] keys, byte[][] values, int from, int to, int position, int depth) {
+
+        if (to - from == 1) {
+            return this.insertOrDelete(node, keys[from], position, values[from], depth);
+        }
+
+        Object[] items;
+        if (isEmpty(node)) {
+            items = emptyStringSlice(LIST_SIZE);
+        } else {
+            TrieNode currentNode = this.getExistingNode(node, depth);
+            if (currentNode instanceof BranchNode) {
+                items = ((BranchNode) currentNode).copyItems();
+            } else if (currentNode instanceof ExtensionNode && isPrefixOfAll((ShortNode) currentNode, keys, from, to, position)) {
+                ShortNode extension = (ShortNode) currentNode;
+                Object child = this.updateAll(extension.getItem(), keys, values, from, to, position + extension.getPathLength(), depth + 1);
+                return this.extend(extension, child, depth);
+            } else {
+                items = this.expand((ShortNode) currentNode);
+            }
+        }
+
+        // keys in trie order: the ones under the same child are next to each other
+        int start = from;
+        while (start < to) {
+            int nibble = keyNibble(keys[start], position);
+            int end = start + 1;
+            while (end < to && keyNibble(keys[end], position) == nibble) {
+                end++;
             }
+            items[nibble] = this.updateAll(items[nibble], keys, values, start, end, position + 1, depth + 1);
+            start = end;
+        }
+        return this.collapse(items, depth);
+    }
+
+    private boolean isPrefixOfAll(ShortNode shortNode, byte[][] keys, int from, int to, int position) {
+        // in trie order the keys between two with the same prefix have it too
+        int pathLength = shortNode.getPathLength();
+        return shortNode.matchingLength(keys[from], position) == pathLength
+                && shortNode.matchingLength(keys[to - 1], position) == pathLength;
+    }
+
+    /**
+     * @return the items of a branch with the same content as the [path, item] node
+     */
+    private Object[] expand(ShortNode shortNode) {
+        Object[] items = emptyStringSlice(LIST_SIZE);
+        Object rest = (shortNode.getPathLength() == 1)
+                ? shortNode.getItem()
+                : this.putToCache(new Object[] { shortNode.packPath(1), shortNode.getItem() });
+        items[shortNode.getPathNibble(0)] = rest;
+        return items;
+    }
+
+    /**
+     * @return the node for the path of the extension followed by the changed child
+     */
+    private Object extend(ShortNode extension, Object child, int depth) {
+        if (isEmpty(child)) {
+            return "";
+        }
+
+        TrieNode childNode = this.getNode(child, depth + 1);
+        Object[] newNode;
+        if (childNode instanceof ShortNode) {
+            ShortNode shortChild = (ShortNode) childNode;
+            newNode = new Object[] { shortChild.packPathAfter(extension), shortChild.getItem() };
+        } else {
+            newNode = new Object[] { extension.getPackedPath(), child };
+        }
+        return this.putToCache(newNode);
+    }
 
-            Object[] newNode = null;
-            if (amount == 16) {
-                newNode = new Object[] { packNibbles(new byte[] {16} ), itemList[amount]};
-            } else if (amount >= 0) {
-                Value child = this.getNode(itemList[amount]);
-                if (child.length() == PAIR_SIZE) {
-                    key = concatenate(new byte[]{amount}, unpackToNibbles(child.get(0).asBytes()));
-                    newNode = new Object[] {packNibbles(key), child.get(1).asObj()};
-                } else if (child.length() == LIST_SIZE) {
-                    newNode = new Object[] { packNibbles(new byte[]{amount}), itemList[amount]};
+    /**
+     * @return the node for the changed items of a branch: the branch while two or more items are left,
+     * else the one item under its nibble, the empty node without any
+     */
+    private Object collapse(Object[] itemList, int depth) {
+        byte amount = -1;
+        for (byte i = 0; i < LIST_SIZE; i++) {
+            if (!isEmpty(itemList[i])) {
+                if (amount == -1) {
+                    amount = i;
+                } else {
+                    amount = -2;
                 }
+            }
+        }
+
+        Object[] newNode;
+        if (amount == -1) {
+            return "";
+        } else if (amount == TERMINATOR) {
+            newNode = new Object[] { pack(index -> TERMINATOR, 0, 1), itemList[amount] };
+        } else if (amount >= 0) {
+            TrieNode child = this.getNode(itemList[amount], depth + 1);
+            if (child instanceof ShortNode) {
+                ShortNode shortChild = (ShortNode) child;
+                newNode = new Object[] { shortChild.packPathAfter(amount), shortChild.getItem() };
             } else {
-                newNode = itemList;
+                int onlyNibble = amount;
+                newNode = new Object[] { pack(index -> onlyNibble, 0, 1), itemList[amount] };
             }
-            return this.putToCache(newNode);
+        } else {
+            newNode = itemList;
         }
+        return this.putToCache(newNode);
     }
 
     /**
      * Helper method to retrieve the actual node
      * If the node is not a listToTable and length is > 32
-     * bytes getAccountState the actual node from the db
+     * bytes getAccountState the actual node from the cache
      *
      * @param node -
-     * @return
+     * @param depth - level of the node in the trie, the root is 0
+     * @return the typed node, null if there is none
      */
-    private Value getNode(Object node) {
+    private TrieNode getNode(Object node, int depth) {
 
-        Value val = new Value(node);
+        Object value = unwrap(node);
 
         // in that case we got a node
-        // so no need to encode it
-        if (!val.isBytes()) {
-            return val;
+        // so no need to read it
+        if (value instanceof Object[]) {
+            return TrieNode.decode(value);
+        }
+
+        byte[] keyBytes = toBytes(value);
+        if (keyBytes.length < 32) {
+            return null;
         }
+        return this.cache.getTrieNode(keyBytes, depth < pinnedLevels);
+    }
 
-        byte[] keyBytes = val.asBytes();
-        if (keyBytes.length == 0) {
-            return val;
-        } else if (keyBytes.length < 32) {
-            return new Value(keyBytes);
+    private TrieNode getExistingNode(Object node, int depth) {
+        TrieNode trieNode = this.getNode(node, depth);
+        if (trieNode == null) {
+            throw new IllegalStateException("Missing trie node " + Hex.toHexString(toBytes(node)));
         }
-        return this.cache.get(keyBytes);
+        return trieNode;
     }
 
     private Object putToCache(Object node) {
+        if (deferredHashing) {
+            return node;
+        }
         return this.cache.put(node);
     }
 
-    private boolean isEmptyNode(Object node) {
-        Value n = new Value(node);
-        return (node == null || (n.isString() && (n.asString() == "" || n.get(0).isNull())) || n.length() == 0);
+    /**
+     * Replaces the unhashed nodes under the root by their cache references
+     */
+    private void hashChangedNodes() {
+        if (!deferredHashing || !(root instanceof Object[])) {
+            return;
+        }
+
+        Object[] items = (Object[]) root;
+        if (items.length == LIST_SIZE && countLists(items) > 1) {
+            root = this.cache.put(hashInParallel(items));
+        } else {
+            root = hashNode(root);
+        }
     }
 
-    private Object[] copyNode(Value currentNode) {
-        Object[] itemList = emptyStringSlice(LIST_SIZE);
-        for (int i = 0; i < LIST_SIZE; i++) {
-            Object cpy = currentNode.get(i).asObj();
-            if (cpy != null)
-                itemList[i] = cpy;
+    /**
+     * @return the reference of the node as the eager mode builds it: the hash if the encoding
+     * has at least 32 bytes, the node itself otherwise
+     */
+    private Object hashNode(Object node) {
+        Object value = (node instanceof Value) ? ((Value) node).asObj() : node;
+        if (!(value instanceof Object[])) {
+            // hash, value or empty node
+            return node;
+        }
+
+        Object[] items = (Object[]) value;
+        Object[] hashed = new Object[items.length];
+        for (int i = 0; i < items.length; i++) {
+            hashed[i] = hashNode(items[i]);
         }
-        return itemList;
+        return this.cache.put(hashed);
+    }
+
+    /**
+     * Hashes the subtries of a branch node on the workers; the calling thread takes subtries too,
+     * so this does not wait on workers busy with the caller's own work
+     */
+    private Object[] hashInParallel(Object[] items) {
+        Object[] hashed = new Object[items.length];
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(items.length);
+
+        Runnable hashing = () -> {
+            for (int i = next.getAndIncrement(); i < items.length; i = next.getAndIncrement()) {
+                try {
+                    hashed[i] = hashNode(items[i]);
+                } catch (RuntimeException ex) {
+                    failure.compareAndSet(null, ex);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        int helpers = Math.min(countLists(items), Runtime.getRuntime().availableProcessors()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            ThreadUtil.workers.submit(hashing);
+        }
+        hashing.run();
+
+        try {
+            done.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing trie nodes", ex);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return hashed;
+    }
+
+    private int countLists(Object[] items) {
+        int count = 0;
+        for (Object item : items) {
+            if (item instanceof Object[]) {
+                count++;
+            }
+        }
+        return count;
     }
 
     // Simple compare function which compares two tries based on their stateRoot
@@ -368,7 +767,12 @@ public class TrieImpl implements Trie {
 
     @Override
     public void sync() {
-        this.cache.commit();
+        hashChangedNodes();
+        if (pruner != null) {
+            pruner.commit(this.getRootHash());
+        } else {
+            this.cache.commit();
+        }
         this.prevRoot = this.root;
     }
 
@@ -378,13 +782,27 @@ public class TrieImpl implements Trie {
         this.root = this.prevRoot;
     }
 
+    /**
+     * Returns a trie over the current root that shares the nodes of this one instead of copying them.
+     * Nodes are never changed once created, so neither trie sees the other's later updates. The snapshot
+     * keeps its own changes in memory: sync only marks a point undo returns to, nothing reaches the db.
+     * Reads of committed nodes stay valid while the root is kept by the pruner; the nodes not committed yet
+     * are copied, so an undo or commit here does not take them from the snapshot.
+     */
+    public TrieImpl snapshot() {
+        TrieImpl trie = new TrieImpl(this.cache.getDb(), this.root);
+        trie.deferredHashing = true;
+        trie.pinnedLevels = this.pinnedLevels;
+        trie.cache = new Cache(this.cache);
+        return trie;
+    }
+
     // Returns a copy of this trie
     public TrieImpl copy() {
         TrieImpl trie = new TrieImpl(this.cache.getDb(), this.root);
-        for (ByteArrayWrapper key : this.cache.getNodes().keySet()) {
-            Node node = this.cache.getNodes().get(key);
-            trie.cache.getNodes().put(key, node.copy());
-        }
+        trie.deferredHashing = this.deferredHashing;
+        trie.pinnedLevels = this.pinnedLevels;
+        trie.cache = this.cache.copy();
         return trie;
     }
 
@@ -404,7 +822,8 @@ public class TrieImpl implements Trie {
     /**
      * Insert/delete operations on a Trie structure
      * leaves the old nodes in cache, this method scans the
-     * cache and removes them. The method is not thread
+     * cache and removes them from memory; the db keeps them,
+     * see {@link #enablePruning(int)}. The method is not thread
      * safe, the tree should not be modified during the
      * cleaning process.
      */
@@ -415,19 +834,19 @@ public class TrieImpl implements Trie {
 
         this.scanTree(this.getRootHash(), collectAction);
 
-        Set<byte[]> hashSet = collectAction.getCollectedHashes();
+        Set<ByteArrayWrapper> hashSet = collectAction.getCollectedHashes();
         Map<ByteArrayWrapper, Node> nodes =  this.getCache().getNodes();
         Set<ByteArrayWrapper> toRemoveSet = new HashSet<>();
 
         for (ByteArrayWrapper key : nodes.keySet()) {
-            if (!hashSet.contains(key.getData())) {
+            if (!hashSet.contains(key)) {
                 toRemoveSet.add(key);
             }
         }
 
         for (ByteArrayWrapper key : toRemoveSet) {
 
-            this.getCache().delete(key.getData());
+            this.getCache().discard(key.getData());
 
             logger.trace("Garbage collected node: [{}]", Hex.toHexString(key.getData()));
         }
@@ -1,90 +1,220 @@
 package network.elrond.trie;
 
-import java.util.List;
+import network.elrond.core.Util;
+import org.spongycastle.util.encoders.Hex;
 
-import network.elrond.core.Value;
-import static network.elrond.core.CompactEncoder.unpackToNibbles;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
-/*
- * www.ethereumJ.com
- * @author: Nick Savers
- * Created on: 20/05/2014 10:44
+import static network.elrond.trie.TrieNode.*;
+
+/**
+ * Keys and values of a trie in key order, unsigned byte by byte, between optional bounds.
+ * <p>
+ * The walk is depth first and reads a node only when it gets to it, so memory is bound by the depth of the trie,
+ * not its size; subtries wholly out of the bounds are not read. The iterator walks the root it was created with,
+ * later changes of the trie are not seen. Nodes of a root the pruner let go may disappear from the db while
+ * the walk is on; see {@link TrieImpl#snapshot()}.
  */
-public class TrieIterator {
+public class TrieIterator implements Iterator<Map.Entry<byte[], byte[]>> {
+
+    private final Cache cache;
+    // inclusive, null for none
+    private final byte[] from;
+    // exclusive, null for none
+    private final byte[] to;
 
-    private TrieImpl trie;
-    private String key;
-    private String value;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    // nibbles of the path to the node on top of the stack
+    private byte[] path = new byte[64];
+    private Map.Entry<byte[], byte[]> next;
 
-    private List<byte[]> shas;
-    private List<String> values;
+    private static class Frame {
+        final TrieNode node;
+        // nibbles of the path before the node
+        final int position;
+        // next branch slot to walk, the value slot first; for a short node, whether it was walked
+        int slot = -1;
 
-    public TrieIterator(TrieImpl t) {
-        this.trie = t;
+        Frame(TrieNode node, int position) {
+            this.node = node;
+            this.position = position;
+        }
     }
 
-    // Some time in the near future this will need refactoring :-)
-    // XXX Note to self, IsSlice == inline node. Str == sha3 to node
-    private void workNode(Value currentNode) {
-        if (currentNode.length() == 2) {
-            byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
+    /**
+     * @param root the root node, a hash or an item list
+     * @param from the first key, null to start with the smallest one
+     * @param to the key to stop before, null to go to the last one
+     */
+    TrieIterator(Cache cache, Object root, byte[] from, byte[] to) {
+        Util.check(cache != null, "cache!=null");
+        this.cache = cache;
+        this.from = from;
+        this.to = to;
 
-            if (currentNode.get(1).asString() == "") {
-                this.workNode(currentNode.get(1));
-            } else {
-                if (k[k.length-1] == 16) {
-                    this.values.add(currentNode.get(1).asString());
-                } else {
-                    this.shas.add(currentNode.get(1).asBytes());
-                    this.getNode(currentNode.get(1).asBytes());
-                }
+        if (!isEmpty(root)) {
+            stack.push(new Frame(resolve(root), 0));
+        }
+        this.next = advance();
+    }
+
+    /**
+     * @return the first key after all the keys starting with the prefix, null if there is none
+     */
+    public static byte[] prefixEnd(byte[] prefix) {
+        Util.check(prefix != null, "prefix!=null");
+        byte[] end = Arrays.copyOf(prefix, prefix.length);
+        for (int i = end.length - 1; i >= 0; i--) {
+            if (end[i] != (byte) 0xFF) {
+                end[i]++;
+                return Arrays.copyOf(end, i + 1);
             }
-        } else {
-            for (int i = 0; i < currentNode.length(); i++) {
-                if (i == 16 && currentNode.get(i).length() != 0) {
-                    this.values.add(currentNode.get(i).asString());
-                } else {
-                    if (currentNode.get(i).asString() == "") {
-                        this.workNode(currentNode.get(i));
-                    } else {
-                        String val = currentNode.get(i).asString();
-                        if (val != "") {
-                            this.shas.add(currentNode.get(1).asBytes());
-                            this.getNode(val.getBytes());
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        Map.Entry<byte[], byte[]> entry = next;
+        next = advance();
+        return entry;
+    }
+
+    private Map.Entry<byte[], byte[]> advance() {
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+
+            if (frame.node instanceof BranchNode) {
+                BranchNode branch = (BranchNode) frame.node;
+                int slot = frame.slot++;
+                if (slot == -1) {
+                    // the key ending at the branch comes before the longer ones
+                    Object value = branch.getChild(TERMINATOR);
+                    if (!isEmpty(value)) {
+                        Map.Entry<byte[], byte[]> entry = entry(frame.position, value);
+                        if (entry != null || stack.isEmpty()) {
+                            return entry;
                         }
                     }
+                } else if (slot < TERMINATOR) {
+                    Object child = branch.getChild(slot);
+                    if (!isEmpty(child)) {
+                        setNibble(frame.position, slot);
+                        descend(child, frame.position + 1);
+                    }
+                } else {
+                    stack.pop();
+                }
+                continue;
+            }
+
+            ShortNode shortNode = (ShortNode) frame.node;
+            if (frame.slot++ >= 0) {
+                stack.pop();
+                continue;
+            }
+
+            int length = shortNode.isLeaf() ? shortNode.getPathLength() - 1 : shortNode.getPathLength();
+            for (int i = 0; i < length; i++) {
+                setNibble(frame.position + i, shortNode.getPathNibble(i));
+            }
+            if (shortNode.isLeaf()) {
+                Map.Entry<byte[], byte[]> entry = entry(frame.position + length, shortNode.getItem());
+                if (entry != null || stack.isEmpty()) {
+                    return entry;
                 }
+            } else {
+                descend(shortNode.getItem(), frame.position + length);
             }
         }
+        return null;
     }
 
-    private void getNode(byte[] node) {
-        Value currentNode = this.trie.getCache().get(node);
-        this.workNode(currentNode);
+    /**
+     * Pushes the child unless the keys under the path are all out of the bounds; past the upper one
+     * the walk ends
+     */
+    private void descend(Object child, int length) {
+        if (to != null && compare(length, to) > 0) {
+            stack.clear();
+        } else if (from == null || compare(length, from) >= 0) {
+            stack.push(new Frame(resolve(child), length));
+        }
     }
 
-    private List<byte[]> collect() {
-        if (this.trie.getRoot() == "") {
+    /**
+     * @return the entry of the key on the path if it is within the bounds, null otherwise; past the upper bound
+     * the walk ends
+     */
+    private Map.Entry<byte[], byte[]> entry(int length, Object value) {
+        byte[] key = new byte[length / 2];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) ((path[2 * i] << 4) | path[2 * i + 1]);
+        }
+
+        if (to != null && compareKeys(key, to) >= 0) {
+            stack.clear();
+            return null;
+        }
+        if (from != null && compareKeys(key, from) < 0) {
             return null;
         }
-        this.getNode(new Value(this.trie.getRoot()).asBytes());
-        return this.shas;
+        return new AbstractMap.SimpleImmutableEntry<>(key, toBytes(value));
     }
 
-    public int purge() {
-        List<byte[]> shas = this.collect();
+    /**
+     * @return the order of the first length nibbles of the path against the nibbles of the bound they cover;
+     * 0 if the path is a prefix of the bound or the bound a prefix of the path
+     */
+    private int compare(int length, byte[] bound) {
+        int common = Math.min(length, bound.length * 2);
+        for (int i = 0; i < common; i++) {
+            int difference = path[i] - nibble(bound, i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
 
-        for (byte[] sha : shas) {
-            this.trie.getCache().delete(sha);
+    private static int compareKeys(byte[] key, byte[] other) {
+        int common = Math.min(key.length, other.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (key[i] & 0xFF) - (other[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
         }
-        return this.values.size();
+        return key.length - other.length;
     }
 
-    private String getKey() {
-        return "";
+    private void setNibble(int index, int nibble) {
+        if (index >= path.length) {
+            path = Arrays.copyOf(path, path.length * 2);
+        }
+        path[index] = (byte) nibble;
     }
 
-    private String getValue() {
-        return "";
+    private TrieNode resolve(Object node) {
+        Object value = unwrap(node);
+        TrieNode trieNode = (value instanceof Object[]) ? TrieNode.decode(value) : cache.getTrieNode(toBytes(value), false);
+        if (trieNode == null) {
+            throw new IllegalStateException("Missing trie node " + Hex.toHexString(toBytes(node)));
+        }
+        return trieNode;
     }
-}
\ No newline at end of file
+}
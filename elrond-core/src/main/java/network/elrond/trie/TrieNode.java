@@ -0,0 +1,118 @@
+package network.elrond.trie;
+
+import network.elrond.core.ByteUtil;
+import network.elrond.core.Value;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Typed view of a decoded trie node: a {@link BranchNode}, an {@link ExtensionNode} or a {@link LeafNode}.
+ * <p>
+ * The trie walks a key by its nibble offset instead of converting it to nibbles: nibble 2i is the upper half
+ * of key byte i, nibble 2i+1 the lower half and the last one is the terminator. The item lists of {@link Node}
+ * stay the stored form, so encodings and hashes are the same.
+ */
+abstract class TrieNode {
+
+    static final int TERMINATOR = 16;
+    static final int BRANCH_SIZE = 17;
+
+    /**
+     * @param node the item list of a node, also wrapped in a {@link Value}
+     * @return the typed node, null if node is not an item list
+     */
+    static TrieNode decode(Object node) {
+        Object value = unwrap(node);
+        if (!(value instanceof Object[])) {
+            return null;
+        }
+
+        Object[] items = (Object[]) value;
+        if (items.length == BRANCH_SIZE) {
+            return new BranchNode(items);
+        }
+        if (items.length != 2) {
+            return null;
+        }
+
+        byte[] packedPath = toBytes(items[0]);
+        if (packedPath.length == 0) {
+            return null;
+        }
+        return ShortNode.isLeafPath(packedPath)
+                ? new LeafNode(packedPath, unwrap(items[1]))
+                : new ExtensionNode(packedPath, unwrap(items[1]));
+    }
+
+    /**
+     * @return the number of nibbles of the key, the terminator included
+     */
+    static int keyLength(byte[] key) {
+        return key.length * 2 + 1;
+    }
+
+    static int keyNibble(byte[] key, int index) {
+        if (index == key.length * 2) {
+            return TERMINATOR;
+        }
+        return nibble(key, index);
+    }
+
+    static int nibble(byte[] bytes, int index) {
+        int value = bytes[index >> 1];
+        return ((index & 1) == 0) ? (value >> 4) & 0x0F : value & 0x0F;
+    }
+
+    /**
+     * Compact encoding of nibbles [from, to) of a key, a terminator as last nibble marks a leaf path;
+     * the same bytes as {@link network.elrond.core.CompactEncoder#packNibbles(byte[])}
+     */
+    static byte[] pack(byte[] key, int from, int to) {
+        return pack(index -> keyNibble(key, index), from, to);
+    }
+
+    static byte[] pack(IntUnaryOperator nibbles, int from, int to) {
+        boolean terminator = to > from && nibbles.applyAsInt(to - 1) == TERMINATOR;
+        int length = terminator ? to - from - 1 : to - from;
+        int odd = length & 1;
+        int flag = (terminator ? 2 : 0) + odd;
+
+        byte[] packed = new byte[length / 2 + 1];
+        int position = from;
+        if (odd == 1) {
+            packed[0] = (byte) ((flag << 4) | nibbles.applyAsInt(position++));
+        } else {
+            packed[0] = (byte) (flag << 4);
+        }
+        for (int i = 1; i < packed.length; i++, position += 2) {
+            packed[i] = (byte) ((nibbles.applyAsInt(position) << 4) | nibbles.applyAsInt(position + 1));
+        }
+        return packed;
+    }
+
+    /**
+     * @return true for the empty node: null, a string or an item without bytes
+     */
+    static boolean isEmpty(Object item) {
+        Object value = unwrap(item);
+        return value == null
+                || value instanceof String
+                || (value instanceof byte[] && ((byte[]) value).length == 0)
+                || (value instanceof Object[] && ((Object[]) value).length == 0);
+    }
+
+    static Object unwrap(Object item) {
+        return (item instanceof Value) ? ((Value) item).asObj() : item;
+    }
+
+    static byte[] toBytes(Object item) {
+        Object value = unwrap(item);
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof String) {
+            return ((String) value).getBytes();
+        }
+        return ByteUtil.EMPTY_BYTE_ARRAY;
+    }
+}
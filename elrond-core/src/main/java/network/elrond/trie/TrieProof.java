@@ -0,0 +1,126 @@
+package network.elrond.trie;
+
+import network.elrond.core.ByteUtil;
+import network.elrond.core.Util;
+import network.elrond.core.Value;
+import network.elrond.crypto.HashUtil;
+import network.elrond.db.ByteArrayWrapper;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static network.elrond.trie.TrieNode.*;
+
+/**
+ * Merkle proof of the value under a key: the encodings of the nodes referenced by hash on the path
+ * of the key, the root first. Nodes short enough to be inlined come with their parent.
+ * <p>
+ * Checked against a trusted root hash, the proof gives the value, or proves there is none when the path
+ * ends in an empty node or leaves the key.
+ */
+public class TrieProof implements Serializable {
+
+    private final byte[] rootHash;
+    private final byte[] key;
+    private final List<byte[]> nodes;
+
+    public TrieProof(byte[] rootHash, byte[] key, List<byte[]> nodes) {
+        Util.check(rootHash != null, "rootHash!=null");
+        Util.check(key != null, "key!=null");
+        Util.check(nodes != null, "nodes!=null");
+
+        this.rootHash = rootHash;
+        this.key = key;
+        this.nodes = new ArrayList<>(nodes);
+    }
+
+    /**
+     * @param trustedRootHash the root hash to check against, like the state root of a block header
+     * @return the value under the key, empty if the key is proven absent, null if the proof does not hold
+     * for the root hash
+     */
+    public byte[] verify(byte[] trustedRootHash) {
+        if (trustedRootHash == null) {
+            return null;
+        }
+        if (trustedRootHash.length == 0) {
+            // nothing is under the empty root
+            return nodes.isEmpty() ? ByteUtil.EMPTY_BYTE_ARRAY : null;
+        }
+
+        Map<ByteArrayWrapper, byte[]> nodesByHash = new HashMap<>();
+        for (byte[] node : nodes) {
+            nodesByHash.put(new ByteArrayWrapper(HashUtil.sha3(node)), node);
+        }
+
+        Object node = trustedRootHash;
+        int length = keyLength(key);
+        int position = 0;
+        while (position < length) {
+            if (isEmpty(node)) {
+                return ByteUtil.EMPTY_BYTE_ARRAY;
+            }
+
+            TrieNode currentNode;
+            Object value = unwrap(node);
+            if (value instanceof Object[]) {
+                currentNode = TrieNode.decode(value);
+            } else {
+                byte[] encoded = nodesByHash.get(new ByteArrayWrapper(toBytes(value)));
+                if (encoded == null) {
+                    return null;
+                }
+                try {
+                    currentNode = TrieNode.decode(Value.fromRlpEncoded(encoded));
+                } catch (RuntimeException ex) {
+                    return null;
+                }
+            }
+
+            if (currentNode instanceof BranchNode) {
+                node = ((BranchNode) currentNode).getChild(keyNibble(key, position));
+                position++;
+            } else if (currentNode instanceof ShortNode) {
+                ShortNode shortNode = (ShortNode) currentNode;
+                int pathLength = shortNode.getPathLength();
+                if (shortNode.matchingLength(key, position) != pathLength) {
+                    return ByteUtil.EMPTY_BYTE_ARRAY;
+                }
+                node = shortNode.getItem();
+                position += pathLength;
+            } else {
+                return null;
+            }
+        }
+        return toBytes(node);
+    }
+
+    /**
+     * @return the root hash the proof was built for, to be matched against a trusted one
+     */
+    public byte[] getRootHash() {
+        return rootHash;
+    }
+
+    public byte[] getKey() {
+        return key;
+    }
+
+    public List<byte[]> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the encoded bytes of the proof nodes
+     */
+    public int getSize() {
+        int size = 0;
+        for (byte[] node : nodes) {
+            size += node.length;
+        }
+        return size;
+    }
+}
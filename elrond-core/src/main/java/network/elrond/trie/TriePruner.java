@@ -0,0 +1,453 @@
+package network.elrond.trie;
+
+import network.elrond.core.ByteUtil;
+import network.elrond.core.RLP;
+import network.elrond.core.RLPElement;
+import network.elrond.core.RLPList;
+import network.elrond.core.Util;
+import network.elrond.core.Value;
+import network.elrond.db.ByteArrayWrapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.WriteBatch;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static network.elrond.core.CompactEncoder.unpackToNibbles;
+
+/**
+ * Removes the trie nodes no longer reachable from the last kept state roots, from the db and the cache.
+ * <p>
+ * Every node stored while pruning is on has a reference count next to it: the stored nodes that point to it
+ * plus the kept roots equal to it. Counts, new nodes and kept roots are written in the commit batch.
+ * When a root falls out of the kept ones and a count gets to zero, the node is queued; the queue is worked off
+ * in small steps on the executor, each step deleting nodes and lowering the counts of their children.
+ * The queue is written with the counts, in chunks of the nodes each commit or step adds to it, so nodes
+ * released before a restart are pruned after it; a chunk is deleted once all its nodes were taken.
+ * Nodes stored before pruning was turned on have no count and are never removed.
+ * Nothing is pruned while a trie sync is on, as its subtries wait unreferenced until their parents arrive.
+ */
+public class TriePruner {
+
+    private static final Logger logger = LogManager.getLogger(TriePruner.class);
+
+    // neither key can be a node hash, those have 32 bytes
+    static final byte[] ROOTS_KEY = "trie-kept-roots".getBytes();
+    static final byte[] PENDING_RANGE_KEY = "trie-pending-range".getBytes();
+    private static final byte[] PENDING_CHUNK_PREFIX = "trie-pending-".getBytes();
+    private static final byte COUNT_PREFIX = 'c';
+
+    private static final int HASH_LENGTH = 32;
+    private static final int STEP_NODES = 256;
+
+    private final Cache cache;
+    private final DB db;
+    private final int keptRoots;
+    private final Executor executor;
+
+    // oldest first
+    private final ArrayDeque<byte[]> roots = new ArrayDeque<>();
+    private final Queue<ByteArrayWrapper> unreferenced = new ArrayDeque<>();
+    // sizes of the stored chunks of the queue, oldest first, the oldest one has sequence pendingHead
+    private final ArrayDeque<Integer> pendingChunks = new ArrayDeque<>();
+    private long pendingHead;
+    // nodes of the oldest chunk already taken from the queue
+    private int pendingTaken;
+    // trie syncs on, pruning waits for them
+    private int syncs;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong prunedNodes = new AtomicLong();
+
+    public TriePruner(Cache cache, int keptRoots, Executor executor) {
+        Util.check(cache != null && cache.getDb() != null, "cache with db");
+        Util.check(keptRoots > 0, "keptRoots>0");
+        Util.check(executor != null, "executor!=null");
+
+        this.cache = cache;
+        this.db = cache.getDb();
+        this.keptRoots = keptRoots;
+        this.executor = executor;
+
+        byte[] data = db.get(ROOTS_KEY);
+        if (data != null && data.length > 0) {
+            for (RLPElement root : (RLPList) RLP.decode2(data).get(0)) {
+                byte[] hash = root.getRLPData();
+                roots.addLast(hash == null ? ByteUtil.EMPTY_BYTE_ARRAY : hash);
+            }
+        }
+
+        byte[] range = db.get(PENDING_RANGE_KEY);
+        if (range != null && range.length == 2 * Long.BYTES) {
+            ByteBuffer buffer = ByteBuffer.wrap(range);
+            pendingHead = buffer.getLong();
+            long pendingTail = buffer.getLong();
+            for (long sequence = pendingHead; sequence < pendingTail; sequence++) {
+                byte[] chunk = db.get(pendingChunkKey(sequence));
+                int size = 0;
+                if (chunk != null && chunk.length > 0) {
+                    for (RLPElement node : (RLPList) RLP.decode2(chunk).get(0)) {
+                        unreferenced.add(new ByteArrayWrapper(node.getRLPData()));
+                        size++;
+                    }
+                }
+                pendingChunks.addLast(size);
+            }
+            if (!unreferenced.isEmpty()) {
+                logger.debug("{} trie nodes left to prune from before the restart", unreferenced.size());
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Commits the dirty nodes reachable from the root, keeps the root and releases the one falling out
+     */
+    public synchronized void commit(byte[] rootHash) {
+        Util.check(rootHash != null, "rootHash!=null");
+
+        Map<ByteArrayWrapper, Integer> counts = new HashMap<>();
+        Set<ByteArrayWrapper> written = new LinkedHashSet<>();
+
+        ByteArrayWrapper root = new ByteArrayWrapper(rootHash);
+        if (reference(root, counts, written)) {
+            counts.merge(root, 1, Integer::sum);
+        }
+        roots.addLast(rootHash);
+
+        List<ByteArrayWrapper> released = new ArrayList<>();
+        while (roots.size() > keptRoots) {
+            release(new ByteArrayWrapper(roots.removeFirst()), counts, released);
+        }
+
+        byte[][] kept = new byte[roots.size()][];
+        int index = 0;
+        for (byte[] hash : roots) {
+            kept[index++] = RLP.encodeElement(hash);
+        }
+
+        cache.commit(written, batch -> {
+            for (Map.Entry<ByteArrayWrapper, Integer> entry : counts.entrySet()) {
+                batch.put(countKey(entry.getKey()), encodeCount(entry.getValue()));
+            }
+            batch.put(ROOTS_KEY, RLP.encodeList(kept));
+            enqueue(released, batch);
+        });
+
+        logger.debug("Committed {} new trie nodes, {} nodes to prune", written.size(), released.size());
+        schedule();
+    }
+
+    /**
+     * Commits dirty nodes whose subtries are all stored, without keeping a root; a node nothing points to yet
+     * is counted with no reference and queued, so it is pruned unless a later commit points to it
+     */
+    public synchronized void commitNodes(Collection<ByteArrayWrapper> keys) {
+        Util.check(keys != null, "keys!=null");
+
+        Map<ByteArrayWrapper, Integer> counts = new HashMap<>();
+        Set<ByteArrayWrapper> written = new LinkedHashSet<>();
+        for (ByteArrayWrapper key : keys) {
+            reference(key, counts, written);
+        }
+
+        List<ByteArrayWrapper> unreachable = new ArrayList<>();
+        for (ByteArrayWrapper key : written) {
+            if (counts.get(key) == 0) {
+                unreachable.add(key);
+            }
+        }
+
+        cache.commit(written, batch -> {
+            for (Map.Entry<ByteArrayWrapper, Integer> entry : counts.entrySet()) {
+                batch.put(countKey(entry.getKey()), encodeCount(entry.getValue()));
+            }
+            enqueue(unreachable, batch);
+        });
+        logger.trace("Committed {} trie nodes without a root, {} not referenced yet", written.size(), unreachable.size());
+    }
+
+    /**
+     * Holds the pruning until {@link #endSync()}, for the nodes a sync commits before their parents
+     */
+    public synchronized void beginSync() {
+        syncs++;
+    }
+
+    /**
+     * Ends a sync; the nodes it left unreferenced are pruned from the next commit on, a sync
+     * of the same root started before that still finds them stored
+     */
+    public synchronized void endSync() {
+        Util.check(syncs > 0, "syncs>0");
+        syncs--;
+    }
+
+    /**
+     * Deletes up to max unreferenced nodes
+     *
+     * @return the number of nodes deleted
+     */
+    public synchronized int prune(int max) {
+        if (syncs > 0) {
+            return 0;
+        }
+
+        Map<ByteArrayWrapper, Integer> counts = new HashMap<>();
+        Set<ByteArrayWrapper> deleted = new LinkedHashSet<>();
+        List<ByteArrayWrapper> queued = new ArrayList<>();
+        List<Long> takenChunks = new ArrayList<>();
+
+        ByteArrayWrapper key;
+        while (deleted.size() < max && (key = dequeue(takenChunks)) != null) {
+            Integer count = count(key, counts);
+            if (count == null || count > 0 || deleted.contains(key)) {
+                // referenced again since it was queued
+                continue;
+            }
+
+            Node cached = cache.getNodes().get(key);
+            Value node = (cached != null && !cached.isDirty()) ? cached.getValue() : Value.fromRlpEncoded(db.get(key.getData()));
+            for (ByteArrayWrapper child : childHashes(node)) {
+                Integer childCount = count(child, counts);
+                if (childCount != null) {
+                    counts.put(child, Math.max(0, childCount - 1));
+                    if (childCount <= 1) {
+                        queued.add(child);
+                    }
+                }
+            }
+            deleted.add(key);
+        }
+
+        if (deleted.isEmpty() && takenChunks.isEmpty()) {
+            return 0;
+        }
+
+        WriteBatch batch = db.createWriteBatch();
+        try {
+            for (ByteArrayWrapper node : deleted) {
+                batch.delete(node.getData());
+                batch.delete(countKey(node));
+                counts.remove(node);
+            }
+            for (Map.Entry<ByteArrayWrapper, Integer> entry : counts.entrySet()) {
+                batch.put(countKey(entry.getKey()), encodeCount(entry.getValue()));
+            }
+            for (long sequence : takenChunks) {
+                batch.delete(pendingChunkKey(sequence));
+            }
+            batch.put(PENDING_RANGE_KEY, encodePendingRange());
+            enqueue(queued, batch);
+            db.write(batch);
+        } finally {
+            try {
+                batch.close();
+            } catch (IOException ex) {
+                logger.catching(ex);
+            }
+        }
+
+        for (ByteArrayWrapper node : deleted) {
+            Node cached = cache.getNodes().get(node);
+            if (cached != null && !cached.isDirty()) {
+                cache.discard(node.getData());
+            }
+        }
+
+        prunedNodes.addAndGet(deleted.size());
+        logger.trace("Pruned {} trie nodes", deleted.size());
+        return deleted.size();
+    }
+
+    public synchronized int getPendingNodes() {
+        return unreferenced.size();
+    }
+
+    public long getPrunedNodes() {
+        return prunedNodes.get();
+    }
+
+    public synchronized List<byte[]> getKeptRoots() {
+        return new ArrayList<>(roots);
+    }
+
+    private void schedule() {
+        if (syncs > 0 || unreferenced.isEmpty() || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                while (prune(STEP_NODES) > 0) {
+                    // one step at a time, commits can run in between
+                }
+            } catch (RuntimeException ex) {
+                logger.catching(ex);
+            } finally {
+                scheduled.set(false);
+            }
+
+            synchronized (this) {
+                schedule();
+            }
+        });
+    }
+
+    /**
+     * @return true if the node is reference counted; a new node is counted from now on and
+     * its children get one more reference
+     */
+    private boolean reference(ByteArrayWrapper key, Map<ByteArrayWrapper, Integer> counts, Set<ByteArrayWrapper> written) {
+        if (key.getData().length != HASH_LENGTH) {
+            return false;
+        }
+        Integer count = count(key, counts);
+        if (count != null) {
+            counts.put(key, count);
+            return true;
+        }
+
+        Node node = cache.getNodes().get(key);
+        if (node == null || !node.isDirty() || isStored(key)) {
+            // not a node or stored before pruning was on
+            return false;
+        }
+
+        counts.put(key, 0);
+        written.add(key);
+        for (ByteArrayWrapper child : childHashes(node.getValue())) {
+            if (reference(child, counts, written)) {
+                counts.merge(child, 1, Integer::sum);
+            }
+        }
+        return true;
+    }
+
+    private void release(ByteArrayWrapper root, Map<ByteArrayWrapper, Integer> counts, List<ByteArrayWrapper> released) {
+        Integer count = count(root, counts);
+        if (count == null) {
+            return;
+        }
+
+        counts.put(root, Math.max(0, count - 1));
+        if (count <= 1) {
+            released.add(root);
+        }
+    }
+
+    private Integer count(ByteArrayWrapper key, Map<ByteArrayWrapper, Integer> counts) {
+        if (counts.containsKey(key)) {
+            return counts.get(key);
+        }
+
+        byte[] data = db.get(countKey(key));
+        return (data == null || data.length == 0) ? null : ByteUtil.byteArrayToInt(data);
+    }
+
+    private boolean isStored(ByteArrayWrapper key) {
+        byte[] data = db.get(key.getData());
+        return data != null && data.length > 0;
+    }
+
+    /**
+     * @return the hashes a node points to; leaf values are not followed even when they have 32 bytes
+     */
+    static Set<ByteArrayWrapper> childHashes(Value node) {
+        Set<ByteArrayWrapper> children = new HashSet<>();
+        if (node == null || !node.isList()) {
+            return children;
+        }
+
+        if (node.length() == 2) {
+            byte[] key = unpackToNibbles(node.get(0).asBytes());
+            boolean leaf = key.length > 0 && key[key.length - 1] == 16;
+            if (!leaf) {
+                addHash(node.get(1), children);
+            }
+        } else {
+            for (int i = 0; i < 16; i++) {
+                addHash(node.get(i), children);
+            }
+        }
+        return children;
+    }
+
+    private static void addHash(Value item, Set<ByteArrayWrapper> children) {
+        if ((item.isBytes() || item.isString()) && item.isHashCode()) {
+            children.add(new ByteArrayWrapper(item.asBytes()));
+        }
+    }
+
+    /**
+     * Queues the nodes and writes them as a new chunk of the queue
+     */
+    private void enqueue(Collection<ByteArrayWrapper> nodes, WriteBatch batch) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        byte[][] encoded = new byte[nodes.size()][];
+        int index = 0;
+        for (ByteArrayWrapper node : nodes) {
+            encoded[index++] = RLP.encodeElement(node.getData());
+        }
+        unreferenced.addAll(nodes);
+        batch.put(pendingChunkKey(pendingHead + pendingChunks.size()), RLP.encodeList(encoded));
+        pendingChunks.addLast(nodes.size());
+        batch.put(PENDING_RANGE_KEY, encodePendingRange());
+    }
+
+    /**
+     * Takes the oldest node of the queue, the sequences of the chunks all taken by now are added to takenChunks
+     */
+    private ByteArrayWrapper dequeue(List<Long> takenChunks) {
+        ByteArrayWrapper node = unreferenced.poll();
+        if (node == null) {
+            return null;
+        }
+
+        pendingTaken++;
+        while (!pendingChunks.isEmpty() && pendingTaken >= pendingChunks.peekFirst()) {
+            pendingTaken -= pendingChunks.removeFirst();
+            takenChunks.add(pendingHead++);
+        }
+        return node;
+    }
+
+    private byte[] encodePendingRange() {
+        return ByteBuffer.allocate(2 * Long.BYTES).putLong(pendingHead).putLong(pendingHead + pendingChunks.size()).array();
+    }
+
+    static byte[] pendingChunkKey(long sequence) {
+        return ByteBuffer.allocate(PENDING_CHUNK_PREFIX.length + Long.BYTES).put(PENDING_CHUNK_PREFIX).putLong(sequence).array();
+    }
+
+    private static byte[] countKey(ByteArrayWrapper key) {
+        byte[] data = key.getData();
+        byte[] countKey = new byte[data.length + 1];
+        countKey[0] = COUNT_PREFIX;
+        System.arraycopy(data, 0, countKey, 1, data.length);
+        return countKey;
+    }
+
+    private static byte[] encodeCount(int count) {
+        return BigInteger.valueOf(count).toByteArray();
+    }
+}
@@ -0,0 +1,334 @@
+package network.elrond.trie;
+
+import network.elrond.core.ByteUtil;
+import network.elrond.core.Util;
+import network.elrond.core.Value;
+import network.elrond.crypto.HashUtil;
+import network.elrond.db.ByteArrayWrapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Downloads the trie under a root hash node by node instead of rebuilding it from the transactions.
+ * <p>
+ * Starting from the root, the nodes missing locally are requested by hash in batches, several batches at once.
+ * Nodes are content addressed: one is taken only if the hash of its encoding is one that was asked for, and
+ * only the hashes found in nodes already taken are asked for, so every node is checked against its parent and
+ * the root against the trusted root hash. Subtries already stored are not downloaded again.
+ * <p>
+ * A node is written once its whole subtrie is stored, after each round of requests, so a node found stored
+ * always has all its subtrie and memory holds only the nodes still waiting for some child. The deepest nodes
+ * missing are asked for first, which keeps those few. The pruner counts the references of the nodes written
+ * like any other and holds the pruning while the sync is on; the trie moves to the root when all are stored.
+ * A trie whose root encodes to less than a hash is not stored by hash and cannot be downloaded this way.
+ */
+public class TrieSync {
+
+    private static final Logger logger = LogManager.getLogger(TrieSync.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final int DEFAULT_PARALLEL_REQUESTS = 4;
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    /**
+     * Where the nodes come from, like the peers of the shard
+     */
+    public interface NodeSource {
+
+        /**
+         * @param hashes the hashes of the nodes wanted
+         * @return the encodings of the nodes found, in any order; the ones not found are left out
+         */
+        List<byte[]> getNodes(List<byte[]> hashes) throws Exception;
+    }
+
+    /**
+     * A node downloaded whose subtrie is not all stored yet
+     */
+    private static final class PendingNode {
+        final Value node;
+        int missingChildren;
+
+        PendingNode(Value node) {
+            this.node = node;
+        }
+    }
+
+    private final TrieImpl trie;
+    private final NodeSource source;
+    private final Executor executor;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int parallelRequests = DEFAULT_PARALLEL_REQUESTS;
+    // rounds in a row without a new node before giving up
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private int syncedNodes;
+    private long syncedBytes;
+    private int requests;
+
+    public TrieSync(TrieImpl trie, NodeSource source, Executor executor) {
+        Util.check(trie != null, "trie!=null");
+        Util.check(source != null, "source!=null");
+        Util.check(executor != null, "executor!=null");
+
+        this.trie = trie;
+        this.source = source;
+        this.executor = executor;
+    }
+
+    /**
+     * Downloads the missing nodes under the root hash and commits the trie at that root; its uncommitted changes
+     * are dropped. If some node can not be had the trie is left at its last committed root, the complete subtries
+     * downloaded stay stored for a sync started before the trie commits again and are pruned after that.
+     *
+     * @throws IllegalStateException if the source stops giving nodes still missing
+     */
+    public void sync(byte[] rootHash) {
+        Util.check(rootHash != null, "rootHash!=null");
+        logger.traceEntry("params: {}", rootHash);
+
+        syncedNodes = 0;
+        syncedBytes = 0;
+        requests = 0;
+        trie.undo();
+
+        TriePruner pruner = trie.getPruner();
+        if (pruner != null) {
+            // nodes found stored are not downloaded, none of them may be deleted before the commit
+            pruner.beginSync();
+        }
+        try {
+            download(rootHash);
+        } finally {
+            if (pruner != null) {
+                pruner.endSync();
+            }
+        }
+
+        trie.setRoot(rootHash.length > 0 ? rootHash : ByteUtil.EMPTY_BYTE_ARRAY);
+        trie.sync();
+
+        logger.debug("Synced trie: {} nodes, {} bytes in {} requests", syncedNodes, syncedBytes, requests);
+        logger.traceExit();
+    }
+
+    private void download(byte[] rootHash) {
+
+        // nodes missing or waiting for children, with the waiting nodes pointing to them
+        Map<ByteArrayWrapper, List<ByteArrayWrapper>> parents = new HashMap<>();
+        Map<ByteArrayWrapper, PendingNode> pending = new HashMap<>();
+        // deepest last
+        Deque<ByteArrayWrapper> missing = new ArrayDeque<>();
+        ByteArrayWrapper root = new ByteArrayWrapper(rootHash);
+        if (rootHash.length > 0 && !isStored(root)) {
+            parents.put(root, new ArrayList<>());
+            missing.add(root);
+        }
+
+        int failedAttempts = 0;
+        while (!missing.isEmpty()) {
+            List<Set<ByteArrayWrapper>> batches = new ArrayList<>();
+            List<CompletableFuture<List<byte[]>>> responses = new ArrayList<>();
+            while (batches.size() < parallelRequests && !missing.isEmpty()) {
+                Set<ByteArrayWrapper> batch = new LinkedHashSet<>();
+                while (batch.size() < batchSize && !missing.isEmpty()) {
+                    batch.add(missing.pollLast());
+                }
+                batches.add(batch);
+                responses.add(CompletableFuture.supplyAsync(() -> fetch(batch), executor));
+            }
+            requests += batches.size();
+
+            int received = 0;
+            List<ByteArrayWrapper> complete = new ArrayList<>();
+            for (int i = 0; i < batches.size(); i++) {
+                Set<ByteArrayWrapper> requested = batches.get(i);
+                for (byte[] encoded : responses.get(i).join()) {
+                    ByteArrayWrapper key = accept(encoded, requested, pending);
+                    if (key == null) {
+                        continue;
+                    }
+
+                    received++;
+                    PendingNode node = pending.get(key);
+                    for (ByteArrayWrapper child : TriePruner.childHashes(node.node)) {
+                        List<ByteArrayWrapper> waiting = parents.get(child);
+                        if (waiting == null && isStored(child)) {
+                            continue;
+                        }
+                        if (waiting == null) {
+                            waiting = new ArrayList<>();
+                            parents.put(child, waiting);
+                            missing.addLast(child);
+                        }
+                        waiting.add(key);
+                        node.missingChildren++;
+                    }
+                    if (node.missingChildren == 0) {
+                        complete(key, parents, pending, complete);
+                    }
+                }
+                // not given, asked again
+                missing.addAll(requested);
+            }
+            store(complete);
+
+            if (received > 0) {
+                failedAttempts = 0;
+            } else if (++failedAttempts >= maxAttempts) {
+                trie.undo();
+                throw new IllegalStateException("Trie sync failed, " + missing.size() + " nodes not available");
+            }
+        }
+    }
+
+    private List<byte[]> fetch(Set<ByteArrayWrapper> batch) {
+        List<byte[]> hashes = new ArrayList<>(batch.size());
+        for (ByteArrayWrapper key : batch) {
+            hashes.add(key.getData());
+        }
+
+        try {
+            List<byte[]> nodes = source.getNodes(hashes);
+            return (nodes == null) ? Collections.emptyList() : nodes;
+        } catch (Exception ex) {
+            logger.warn("Trie node request failed: {}", ex.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Marks the node complete, and with it the waiting nodes left with no child missing
+     *
+     * @param complete the complete nodes, children before their parents
+     */
+    private void complete(ByteArrayWrapper key, Map<ByteArrayWrapper, List<ByteArrayWrapper>> parents,
+                          Map<ByteArrayWrapper, PendingNode> pending, List<ByteArrayWrapper> complete) {
+        Deque<ByteArrayWrapper> done = new ArrayDeque<>();
+        done.push(key);
+        while (!done.isEmpty()) {
+            ByteArrayWrapper node = done.pop();
+            trie.getCache().put(pending.remove(node).node.asObj());
+            complete.add(node);
+
+            for (ByteArrayWrapper parent : parents.remove(node)) {
+                if (--pending.get(parent).missingChildren == 0) {
+                    done.push(parent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the complete nodes in one batch
+     */
+    private void store(List<ByteArrayWrapper> complete) {
+        if (complete.isEmpty()) {
+            return;
+        }
+
+        TriePruner pruner = trie.getPruner();
+        if (pruner != null) {
+            pruner.commitNodes(complete);
+        } else {
+            trie.getCache().commit(new HashSet<>(complete), null);
+        }
+    }
+
+    /**
+     * @return the hash of the node if it is a trie node with one of the requested hashes, taken out of them
+     * and waiting in the pending nodes; null otherwise
+     */
+    private ByteArrayWrapper accept(byte[] encoded, Set<ByteArrayWrapper> requested, Map<ByteArrayWrapper, PendingNode> pending) {
+        if (encoded == null || encoded.length == 0) {
+            return null;
+        }
+
+        Value node;
+        try {
+            node = Value.fromRlpEncoded(encoded);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+        if (node == null || TrieNode.decode(node) == null) {
+            return null;
+        }
+
+        // the node is stored as the cache encodes it, the hash must hold for that encoding
+        byte[] canonical = node.encode();
+        ByteArrayWrapper key = new ByteArrayWrapper(HashUtil.sha3(canonical));
+        if (!requested.remove(key)) {
+            return null;
+        }
+
+        pending.put(key, new PendingNode(node));
+        syncedNodes++;
+        syncedBytes += canonical.length;
+        return key;
+    }
+
+    private boolean isStored(ByteArrayWrapper key) {
+        Node node = trie.getCache().getNodes().get(key);
+        if (node != null && node.getValue() != null) {
+            return true;
+        }
+        byte[] data = trie.getCache().getDb().get(key.getData());
+        return data != null && data.length > 0;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        Util.check(batchSize > 0, "batchSize>0");
+        this.batchSize = batchSize;
+    }
+
+    public int getParallelRequests() {
+        return parallelRequests;
+    }
+
+    public void setParallelRequests(int parallelRequests) {
+        Util.check(parallelRequests > 0, "parallelRequests>0");
+        this.parallelRequests = parallelRequests;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        Util.check(maxAttempts > 0, "maxAttempts>0");
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * @return the nodes downloaded by the last sync
+     */
+    public int getSyncedNodes() {
+        return syncedNodes;
+    }
+
+    public long getSyncedBytes() {
+        return syncedBytes;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+}
@@ -1,9 +1,6 @@
 package network.elrond.util.console;
 
-import java.io.IOException;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Iterator;
 
 import network.elrond.account.AccountState;
 import network.elrond.account.Accounts;
@@ -59,7 +56,7 @@ public class AsciiPrinter {
 
 		AsciiTable.Row row1 = new AsciiTable.Row();
 		row1.getValues().add("Pool");
-		row1.getValues().add(String.valueOf(appState.getPool().getTransactions().size()));
+		row1.getValues().add(String.valueOf(appState.getPool().size()));
 		table.getData().add(row1);
 
 		table.calculateColumnWidth();
@@ -214,22 +211,11 @@ public class AsciiPrinter {
     }
     
     public String printAccounts(Accounts accounts) {
-    	List<AccountState> accountStates = accounts.getAddresses()
-                .stream()
-                .map(accountAddress -> {
-                    try {
-                        return AppServiceProvider.getAccountStateService().getAccountState(accountAddress, accounts);
-                    } catch (IOException | ClassNotFoundException e) {
-                        e.printStackTrace();
-                    }
-                    return null;
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-    	
+    	Iterator<AccountState> accountStates = AppServiceProvider.getAccountStateService().getAccountStates(null, null, accounts);
+
     	StringBuilder builder = new StringBuilder();
-        for (AccountState accountState : accountStates) {
-            builder.append(accountStateAsciiTable(accountState).render());
+        while (accountStates.hasNext()) {
+            builder.append(accountStateAsciiTable(accountStates.next()).render());
         }
         return builder.toString();
     }
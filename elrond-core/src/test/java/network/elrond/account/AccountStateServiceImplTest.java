@@ -2,6 +2,7 @@ package network.elrond.account;
 
 import network.elrond.application.AppContext;
 import network.elrond.application.AppState;
+import network.elrond.core.RLP;
 import network.elrond.core.Util;
 import network.elrond.crypto.PrivateKey;
 import network.elrond.crypto.PublicKey;
@@ -14,6 +15,13 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class AccountStateServiceImplTest {
 
@@ -121,6 +129,148 @@ public class AccountStateServiceImplTest {
         Assert.assertEquals(BigInteger.ZERO, back.getBalance());
     }
 
+    @Test
+    public void convertAccountStateToRLPKeepsLegacyEncoding() {
+        BigInteger[] values = {BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(127), BigInteger.valueOf(128),
+                BigInteger.valueOf(255), BigInteger.valueOf(256), BigInteger.valueOf(Long.MAX_VALUE),
+                BigInteger.ONE.shiftLeft(64), Util.VALUE_MINTING, BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE)};
+        AccountAddress[] addresses = {address, AccountAddress.EMPTY_ADDRESS, AccountAddress.fromBytes(new byte[]{5}),
+                AccountAddress.fromBytes(new byte[60])};
+
+        for (AccountAddress accountAddress : addresses) {
+            for (BigInteger nonce : values) {
+                if (nonce.bitLength() >= Long.SIZE) {
+                    continue;
+                }
+                for (BigInteger balance : values) {
+                    AccountState state = new AccountState(nonce, balance, accountAddress);
+                    byte[] legacy = RLP.encodeList(RLP.encodeBigInteger(nonce), RLP.encodeBigInteger(balance),
+                            RLP.encodeElement(accountAddress.getBytes()));
+
+                    byte[] rlp = accountStateService.convertAccountStateToRLP(state);
+                    Assert.assertArrayEquals(legacy, rlp);
+
+                    AccountState back = accountStateService.convertToAccountStateFromRLP(rlp);
+                    Assert.assertEquals(nonce, back.getNonce());
+                    Assert.assertEquals(balance, back.getBalance());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAccountStatesAreWrittenBackPerBlock() throws IOException, ClassNotFoundException {
+        AccountsPersistenceUnit<AccountAddress, AccountState> unit = accounts.getAccountsPersistenceUnit();
+        byte[] committedRoot = unit.getRootHash();
+
+        for (int i = 1; i <= 5; i++) {
+            accountStateService.setAccountState(address, new AccountState(BigInteger.valueOf(i), BigInteger.TEN, address), accounts);
+        }
+
+        AccountState state = accountStateService.getAccountState(address, accounts);
+        Assert.assertEquals(BigInteger.valueOf(5), state.getNonce());
+        // the returned state is a copy
+        state.incrementNonce();
+        Assert.assertEquals(BigInteger.valueOf(5), accountStateService.getAccountState(address, accounts).getNonce());
+
+        Assert.assertFalse(Arrays.equals(committedRoot, unit.getRootHash()));
+
+        accountStateService.rollbackAccountStates(accounts);
+        Assert.assertNull(accountStateService.getAccountState(address, accounts));
+        Assert.assertArrayEquals(committedRoot, unit.getRootHash());
+
+        accountStateService.setAccountState(address, new AccountState(BigInteger.ONE, BigInteger.ONE, address), accounts);
+        accountStateService.commitAccountStates(accounts);
+        accountStateService.rollbackAccountStates(accounts);
+        Assert.assertEquals(BigInteger.ONE, accountStateService.getAccountState(address, accounts).getBalance());
+    }
+
+    @Test
+    public void testAccountStatesAreReadFromManyThreads() throws Exception {
+        List<AccountAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            AccountAddress account = AccountAddress.fromHexString(String.format("%04x", i));
+            addresses.add(account);
+            accountStateService.setAccountState(account, new AccountState(BigInteger.ZERO, BigInteger.valueOf(i), account), accounts);
+        }
+        accountStateService.commitAccountStates(accounts);
+        accounts.getAccountsPersistenceUnit().getCache().clear();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> reads = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                reads.add(executor.submit(() -> {
+                    for (int i = 0; i < addresses.size(); i++) {
+                        AccountState state = accountStateService.getAccountState(addresses.get(i), accounts);
+                        if (state == null || state.getBalance().intValue() != i) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> read : reads) {
+                Assert.assertTrue(read.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // an existing state is kept by getOrCreate
+        Assert.assertEquals(BigInteger.valueOf(3), accountStateService.getOrCreateAccountState(addresses.get(3), accounts).getBalance());
+    }
+
+    @Test
+    public void testAccountStateProofOfCommittedState() throws IOException, ClassNotFoundException {
+        AccountAddress other = AccountAddress.fromHexString("0102030405");
+        accountStateService.setAccountState(other, new AccountState(BigInteger.ONE, BigInteger.TEN, other), accounts);
+
+        AccountStateProof absent = accountStateService.getAccountStateProof(address, accounts);
+        Assert.assertNull(absent.getState());
+
+        accountStateService.setAccountState(address, new AccountState(BigInteger.ONE, BigInteger.TEN, address), accounts);
+        accountStateService.commitAccountStates(accounts);
+        byte[] appStateHash = accounts.getAccountsPersistenceUnit().getRootHash();
+
+        // changes after the commit are not in the proof
+        accountStateService.setAccountState(address, new AccountState(BigInteger.TEN, BigInteger.ONE, address), accounts);
+        AccountStateProof proof = accountStateService.getAccountStateProof(address, accounts);
+
+        Assert.assertArrayEquals(appStateHash, proof.getRootHash());
+        Assert.assertEquals(BigInteger.TEN, proof.getState().getBalance());
+        Assert.assertTrue(proof.verify(appStateHash));
+        Assert.assertFalse(absent.verify(appStateHash));
+
+        AccountState forged = new AccountState(BigInteger.ONE, BigInteger.valueOf(1000), address);
+        Assert.assertFalse(new AccountStateProof(address, forged, proof.getProof()).verify(appStateHash));
+        Assert.assertFalse(new AccountStateProof(other, proof.getState(), proof.getProof()).verify(appStateHash));
+    }
+
+    @Test
+    public void testGetAccountStatesInAddressOrder() throws IOException {
+        AccountAddress first = AccountAddress.fromHexString("0a");
+        AccountAddress second = AccountAddress.fromHexString("0a01");
+        AccountAddress third = AccountAddress.fromHexString("f0");
+        for (AccountAddress account : Arrays.asList(third, first, second)) {
+            accountStateService.setAccountState(account, new AccountState(BigInteger.ONE, BigInteger.TEN, account), accounts);
+        }
+        accountStateService.commitAccountStates(accounts);
+        accountStateService.setAccountState(second, new AccountState(BigInteger.TEN, BigInteger.ONE, second), accounts);
+
+        Iterator<AccountState> states = accountStateService.getAccountStates(first, third, accounts);
+        Assert.assertEquals(first, states.next().getAddress());
+        AccountState pending = states.next();
+        Assert.assertEquals(second, pending.getAddress());
+        Assert.assertEquals(BigInteger.ONE, pending.getBalance());
+        Assert.assertFalse(states.hasNext());
+
+        states = accountStateService.getAccountStates(second, null, accounts);
+        Assert.assertEquals(second, states.next().getAddress());
+        Assert.assertEquals(third, states.next().getAddress());
+        Assert.assertFalse(states.hasNext());
+    }
+
     @Test
     public void testInitialMintingToKnownAddress() throws IOException, ClassNotFoundException {
         accountStateService.initialMintingToKnownAddress(accounts);
@@ -81,4 +81,38 @@ public class AccountStateTest {
         AccountState accountState = new AccountState(AccountAddress.EMPTY_ADDRESS);
         accountState.addToBalance(null);
     }
+
+    @Test
+    public void testCreditAndDebitCarryAcrossWords() {
+        AccountState accountState = new AccountState(AccountAddress.EMPTY_ADDRESS);
+        BigInteger maxLong = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+        accountState.credit(maxLong);
+        accountState.credit(BigInteger.ONE);
+        Assert.assertEquals(BigInteger.ONE.shiftLeft(64), accountState.getBalance());
+
+        accountState.debit(BigInteger.ONE);
+        Assert.assertEquals(maxLong, accountState.getBalance());
+        Assert.assertTrue(accountState.hasBalance(maxLong));
+        Assert.assertFalse(accountState.hasBalance(maxLong.add(BigInteger.ONE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAccountStateDebitOverBalanceShouldThrowException() {
+        AccountState accountState = new AccountState(BigInteger.ZERO, BigInteger.TEN, AccountAddress.EMPTY_ADDRESS);
+        accountState.debit(BigInteger.valueOf(11));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAccountStateCreditOver128BitsShouldThrowException() {
+        AccountState accountState = new AccountState(BigInteger.ZERO, BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE), AccountAddress.EMPTY_ADDRESS);
+        accountState.credit(BigInteger.ONE);
+    }
+
+    @Test
+    public void testAccountStateIncrementNonce() {
+        AccountState accountState = new AccountState(BigInteger.valueOf(41), BigInteger.ZERO, AccountAddress.EMPTY_ADDRESS);
+        accountState.incrementNonce();
+        Assert.assertEquals(BigInteger.valueOf(42), accountState.getNonce());
+    }
 }
@@ -11,6 +11,7 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Arrays;
 
 public class AccountsManagerTest extends ExpectedExceptionTest {
     AccountsManager accountsManager = null;
@@ -117,4 +118,38 @@ public class AccountsManagerTest extends ExpectedExceptionTest {
         Assert.assertTrue(receiverAccountState.getBalance().longValue() == 1);
         Assert.assertTrue(senderAccountState.getNonce().longValue() == 1);
     }
+
+    @Test
+    public void testTransferFundsInWriteSetGivesSameRootHash() throws IOException, ClassNotFoundException {
+        AccountsContext accountsContext = new AccountsContext();
+        accountsContext.setShard(accounts.getShard());
+        Accounts parallelAccounts = new Accounts(accountsContext, new AccountsPersistenceUnit<>(""));
+
+        for (Accounts target : new Accounts[]{accounts, parallelAccounts}) {
+            AccountAddress senderAddress = AccountAddress.fromHexString("Sender");
+            AccountState senderAccountState = AppServiceProvider.getAccountStateService().getOrCreateAccountState(senderAddress, target);
+            senderAccountState.setBalance(BigInteger.TEN);
+            AppServiceProvider.getAccountStateService().setAccountState(senderAddress, senderAccountState, target);
+        }
+
+        accountsManager.transferFunds(accounts, "Sender", "Receiver", BigInteger.ONE, BigInteger.ZERO, operation);
+        accountsManager.transferFunds(accounts, "Sender", "AB", BigInteger.ONE, BigInteger.ONE, operation);
+        accountsManager.transferFunds(accounts, "CD", "EF", BigInteger.ZERO, BigInteger.ZERO, operation);
+
+        AccountsWriteSet first = new AccountsWriteSet(parallelAccounts);
+        accountsManager.transferFunds(first, "Sender", "Receiver", BigInteger.ONE, BigInteger.ZERO, operation);
+        accountsManager.transferFunds(first, "Sender", "AB", BigInteger.ONE, BigInteger.ONE, operation);
+        AccountsWriteSet second = new AccountsWriteSet(parallelAccounts);
+        accountsManager.transferFunds(second, "CD", "EF", BigInteger.ZERO, BigInteger.ZERO, operation);
+
+        Assert.assertFalse(Arrays.equals(accounts.getAccountsPersistenceUnit().getRootHash(), parallelAccounts.getAccountsPersistenceUnit().getRootHash()));
+
+        second.flush();
+        first.flush();
+
+        Assert.assertArrayEquals(accounts.getAccountsPersistenceUnit().getRootHash(), parallelAccounts.getAccountsPersistenceUnit().getRootHash());
+        AccountState senderAccountState = AppServiceProvider.getAccountStateService().getAccountState(AccountAddress.fromHexString("Sender"), parallelAccounts);
+        Assert.assertEquals(8, senderAccountState.getBalance().longValue());
+        Assert.assertEquals(2, senderAccountState.getNonce().longValue());
+    }
 }
@@ -42,4 +42,23 @@ public class AccountsTest {
         Assert.assertTrue(accounts.getAddresses()!=null );
         Assert.assertEquals(1, accounts.getAddresses().size());
     }
+
+    @Test
+    public void testSnapshotAddressesAreCopiedOnWrite() throws IOException {
+        AccountsContext accountsContext = new AccountsContext();
+        PublicKey publicKeyMinting = AppServiceProvider.getShardingService().getPublicKeyForMinting(new Shard(0));
+        accountsContext.setShard(AppServiceProvider.getShardingService().getShard(publicKeyMinting.getValue()));
+        Accounts accounts = new Accounts(accountsContext, new AccountsPersistenceUnit<>(""));
+        Accounts snapshot = accounts.snapshot();
+
+        AccountAddress address = AccountAddress.fromHexString("1000000000000000000000000000000000000000000000000000000000000001");
+        snapshot.addAddress(address);
+        Assert.assertTrue(snapshot.getAddresses().contains(address));
+        Assert.assertFalse(accounts.getAddresses().contains(address));
+
+        AccountAddress other = AccountAddress.fromHexString("1000000000000000000000000000000000000000000000000000000000000002");
+        accounts.addAddress(other);
+        Assert.assertFalse(snapshot.getAddresses().contains(other));
+        Assert.assertEquals(2, snapshot.getAddresses().size());
+    }
 }
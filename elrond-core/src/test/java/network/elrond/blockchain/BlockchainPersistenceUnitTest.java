@@ -1,15 +1,19 @@
 package network.elrond.blockchain;
 
 import network.elrond.data.BaseBlockchainTest;
+import com.google.common.primitives.UnsignedBytes;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.util.Date;
 import java.util.Random;
 
+import static org.iq80.leveldb.impl.Iq80DBFactory.bytes;
+
 public class BlockchainPersistenceUnitTest {
     Random r;
     BlockchainPersistenceUnit<String, String> blockchainPersistenceUnit;
@@ -70,6 +74,26 @@ public class BlockchainPersistenceUnitTest {
         blockchainPersistenceUnit.close();
     }
 
+    @Test
+    public void testHeightKeysAreFixedWidthAndInOrder() {
+        byte[] previous = null;
+        for (long height : new long[]{0, 1, 9, 10, 255, 256, 65536, Long.MAX_VALUE}) {
+            byte[] key = blockchainPersistenceUnit.key(BigInteger.valueOf(height));
+            Assert.assertEquals(8, key.length);
+            if (previous != null) {
+                Assert.assertTrue("Expected keys in order at " + height, UnsignedBytes.lexicographicalComparator().compare(previous, key) < 0);
+            }
+            previous = key;
+        }
+
+        Assert.assertArrayEquals(bytes("HEIGHT_BLOCK_1"), blockchainPersistenceUnit.key("HEIGHT_BLOCK_1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeHeightKeyShouldThrowException() {
+        BlockchainPersistenceUnit.heightKey(BigInteger.valueOf(-1));
+    }
+
     @Test
     public void testDestroy() throws IOException {
 
@@ -1,15 +1,33 @@
 package network.elrond.blockchain;
 
+import network.elrond.core.ThreadUtil;
+import network.elrond.data.model.Transaction;
+import network.elrond.p2p.model.P2PConnection;
+import network.elrond.p2p.model.P2PRequestChannel;
+import network.elrond.p2p.model.P2PRequestChannelName;
+import network.elrond.p2p.service.P2PRequestService;
+import network.elrond.service.AppServiceProvider;
+import network.elrond.sharding.Shard;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.math.BigInteger;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import static org.iq80.leveldb.impl.Iq80DBFactory.bytes;
 import static org.mockito.Mockito.mock;
 
 public class BlockchainServiceImplTest {
@@ -106,4 +124,150 @@ public class BlockchainServiceImplTest {
         Assert.assertEquals(testObject2, objList.get(1));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testGetReadsBinaryAndLegacyJSONRecords() throws IOException, ClassNotFoundException {
+        BlockchainContext context = new BlockchainContext();
+        context.setDatabasePath(Files.createTempDirectory("blockchain").toString());
+        Blockchain blockchain = new Blockchain(context);
+        BlockchainPersistenceUnit<String, Transaction> unit = blockchain.getUnit(BlockchainUnitType.TRANSACTION);
+        Transaction transaction = new Transaction("0xa1", "0xb2", BigInteger.TEN, BigInteger.ONE, new Shard(0), new Shard(0));
+
+        blockchainService.put("binary", transaction, blockchain, BlockchainUnitType.TRANSACTION);
+        Assert.assertArrayEquals(AppServiceProvider.getSerializationService().encodeBinary(transaction), unit.get(bytes("binary")));
+
+        unit.put(bytes("json"), bytes(AppServiceProvider.getSerializationService().encodeJSON(transaction)));
+
+        unit.getCache().clear();
+        Transaction fromBinary = blockchainService.get("binary", blockchain, BlockchainUnitType.TRANSACTION);
+        Transaction fromJSON = blockchainService.get("json", blockchain, BlockchainUnitType.TRANSACTION);
+
+        Assert.assertEquals(transaction.toString(), fromBinary.toString());
+        Assert.assertEquals(transaction.toString(), fromJSON.toString());
+    }
+
+    @Test
+    public void testPutLocalBatchKeepsNamespacesApart() throws IOException, ClassNotFoundException {
+        BlockchainContext context = new BlockchainContext();
+        context.setDatabasePath(Files.createTempDirectory("blockchain").toString());
+        Blockchain blockchain = new Blockchain(context);
+
+        BlockchainBatch batch = new BlockchainBatch()
+                .put("key", "settings", BlockchainUnitType.SETTINGS)
+                .put("key", "receipt", BlockchainUnitType.TRANSACTION_RECEIPT);
+        blockchainService.putLocal(batch, blockchain);
+
+        Assert.assertEquals("settings", blockchainService.getLocal("key", blockchain, BlockchainUnitType.SETTINGS));
+        Assert.assertEquals("receipt", blockchainService.getLocal("key", blockchain, BlockchainUnitType.TRANSACTION_RECEIPT));
+
+        blockchain.getUnit(BlockchainUnitType.SETTINGS).getCache().clear();
+        blockchain.getUnit(BlockchainUnitType.TRANSACTION_RECEIPT).getCache().clear();
+        Assert.assertEquals("settings", blockchainService.getLocal("key", blockchain, BlockchainUnitType.SETTINGS));
+        Assert.assertEquals("receipt", blockchainService.getLocal("key", blockchain, BlockchainUnitType.TRANSACTION_RECEIPT));
+        Assert.assertNull(blockchainService.getLocal("key", blockchain, BlockchainUnitType.BLOCK_TRANSACTIONS));
+
+        blockchain.stopPersistenceUnit();
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneRemoteRequest() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        AppServiceProvider.putService(P2PRequestService.class, new P2PRequestService() {
+            @Override
+            public P2PRequestChannel createChannel(P2PConnection connection, Shard shard, P2PRequestChannelName channelName) {
+                return null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K extends Serializable, R extends Serializable> R get(P2PRequestChannel channel, Shard shard, P2PRequestChannelName channelName, K key) {
+                requests.incrementAndGet();
+                ThreadUtil.sleep(500);
+                return (R) "remoteHash";
+            }
+
+            @Override
+            public <K extends Serializable, R extends Serializable> List<R> getSplit(P2PRequestChannel channel, Shard shard, P2PRequestChannelName channelName,
+                                                                                     List<K> keys, Function<ArrayList<K>, ? extends Serializable> request) {
+                return new ArrayList<>();
+            }
+        });
+
+        try {
+            P2PConnection connection = new P2PConnection("", null, null);
+            connection.registerChannel(new P2PRequestChannel(P2PRequestChannelName.BLOCK_INDEX, connection));
+            BlockchainContext context = new BlockchainContext();
+            context.setConnection(connection);
+            context.setDatabasePath(Files.createTempDirectory("blockchain").toString());
+            Blockchain blockchain = new Blockchain(context);
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> blockchainService.get("missing", blockchain, BlockchainUnitType.BLOCK_INDEX)));
+            }
+            for (Future<String> result : results) {
+                Assert.assertEquals("remoteHash", result.get());
+            }
+            executor.shutdown();
+
+            Assert.assertEquals(1, requests.get());
+            blockchain.stopPersistenceUnit();
+        } finally {
+            AppServiceProvider.InjectDefaultServices();
+        }
+    }
+
+    @Test
+    public void testGetAllAsksPeersOnlyForMissingOnesInOneBatch() throws Exception {
+        Transaction local = new Transaction("0xa1", "0xb2", BigInteger.ONE, BigInteger.ONE, new Shard(0), new Shard(0));
+        Transaction remote = new Transaction("0xa1", "0xb2", BigInteger.TEN, BigInteger.ONE, new Shard(0), new Shard(0));
+        String localHash = AppServiceProvider.getSerializationService().getHashString(local);
+        String remoteHash = AppServiceProvider.getSerializationService().getHashString(remote);
+
+        List<Object> requested = new ArrayList<>();
+        AppServiceProvider.putService(P2PRequestService.class, new P2PRequestService() {
+            @Override
+            public P2PRequestChannel createChannel(P2PConnection connection, Shard shard, P2PRequestChannelName channelName) {
+                return null;
+            }
+
+            @Override
+            public <K extends Serializable, R extends Serializable> R get(P2PRequestChannel channel, Shard shard, P2PRequestChannelName channelName, K key) {
+                throw new AssertionError("one request per hash");
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K extends Serializable, R extends Serializable> List<R> getSplit(P2PRequestChannel channel, Shard shard, P2PRequestChannelName channelName,
+                                                                                     List<K> keys, Function<ArrayList<K>, ? extends Serializable> request) {
+                requested.addAll(keys);
+                HashMap<String, Serializable> response = new HashMap<>();
+                response.put(remoteHash, remote);
+                // not the object hashed to the key
+                response.put("unknown", local);
+                return (List<R>) Collections.singletonList(response);
+            }
+        });
+
+        try {
+            P2PConnection connection = new P2PConnection("", null, null);
+            connection.registerChannel(new P2PRequestChannel(P2PRequestChannelName.UNIT_BATCH, connection));
+            BlockchainContext context = new BlockchainContext();
+            context.setConnection(connection);
+            context.setDatabasePath(Files.createTempDirectory("blockchain").toString());
+            Blockchain blockchain = new Blockchain(context);
+            blockchainService.putLocal(localHash, local, blockchain, BlockchainUnitType.TRANSACTION);
+            blockchain.getUnit(BlockchainUnitType.TRANSACTION).getCache().clear();
+
+            List<Transaction> transactions = blockchainService.getAll(Arrays.asList(remoteHash, "unknown", localHash), blockchain, BlockchainUnitType.TRANSACTION);
+
+            Assert.assertEquals(Arrays.asList(remoteHash, "unknown"), requested);
+            Assert.assertEquals(2, transactions.size());
+            Assert.assertEquals(remote.toString(), transactions.get(0).toString());
+            Assert.assertEquals(local.toString(), transactions.get(1).toString());
+            blockchain.stopPersistenceUnit();
+        } finally {
+            AppServiceProvider.InjectDefaultServices();
+        }
+    }
+}
@@ -12,7 +12,6 @@ public class CustomTestBlockchain extends Blockchain {
     @Override
     public void generatePersistenceUnitMap(BlockchainContext context) throws IOException {
         for (BlockchainUnitType type : BlockchainUnitType.values()) {
-            String path = context.getDatabasePath(type);
             Class<?> ketType = type.getKeyType();
             Class<?> valueType = type.getValueType();
             BlockchainPersistenceUnit<?, ?> unit = mock(BlockchainPersistenceUnit.class);
@@ -13,7 +13,10 @@ import org.junit.Test;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TransactionsPoolTest {
     private static Logger logger = LogManager.getLogger(TransactionsPoolTest.class);
@@ -102,7 +105,7 @@ public class TransactionsPoolTest {
             Transaction transaction = new Transaction("a","b", BigInteger.valueOf(i),BigInteger.ZERO, new Shard(0), new Shard(0));
             String hash = AppServiceProvider.getSerializationService().getHashString(transaction);
             byte[] buff = AppServiceProvider.getSerializationService().getHash(transaction);
-            block.getListTXHashes().add(buff);
+            block.addTXHash(buff);
 
             if (i % 10 == 0){
                 transactionsPool.addBlock(block);
@@ -137,4 +140,101 @@ public class TransactionsPoolTest {
         TestCase.assertFalse(transactionPool.checkExists("bbb"));
     }
 
+    @Test
+    public void testAddBlockRemovesPendingAndKeepsOrder(){
+        TransactionsPool transactionsPool = new TransactionsPool();
+        Block block = new Block();
+
+        for (int i = 0; i < 10; i++) {
+            transactionsPool.addTransaction(Util.getDataEncoded64(new byte[]{(byte) i}));
+            if (i % 2 == 0) {
+                BlockUtil.addTransactionInBlock(block, new byte[]{(byte) i});
+            }
+        }
+        TestCase.assertEquals(10, transactionsPool.size());
+
+        transactionsPool.addBlock(block);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 1; i < 10; i += 2) {
+            expected.add(Util.getDataEncoded64(new byte[]{(byte) i}));
+        }
+        TestCase.assertEquals(expected, transactionsPool.getTransactions());
+        TestCase.assertEquals(5, transactionsPool.size());
+        TestCase.assertEquals(10, transactionsPool.getAddedCount());
+        TestCase.assertEquals(5, transactionsPool.getRemovedCount());
+
+        // already processed, must not come back in the pool
+        TestCase.assertFalse(transactionsPool.addTransaction(Util.getDataEncoded64(new byte[]{(byte) 0})));
+        TestCase.assertEquals(5, transactionsPool.getTransactions().size());
+    }
+
+    @Test
+    public void testReadyTransactionsFollowSenderNonces(){
+        TransactionsPool transactionsPool = new TransactionsPool();
+
+        transactionsPool.addTransaction("a2", "A", BigInteger.valueOf(2));
+        transactionsPool.addTransaction("free", null, null);
+        transactionsPool.addTransaction("b5", "B", BigInteger.valueOf(5));
+        transactionsPool.addTransaction("a1", "A", BigInteger.valueOf(1));
+        transactionsPool.addTransaction("a0", "A", BigInteger.ZERO);
+        transactionsPool.addTransaction("a4", "A", BigInteger.valueOf(4));
+        transactionsPool.addTransaction("b6", "B", BigInteger.valueOf(6));
+        // same sender and nonce as a pending one
+        TestCase.assertFalse(transactionsPool.addTransaction("a1bis", "A", BigInteger.ONE));
+
+        Map<String, BigInteger> nonces = new HashMap<>();
+        nonces.put("A", BigInteger.ONE);
+        nonces.put("B", BigInteger.valueOf(4));
+
+        // a0 already passed, a4 and B wait for their gaps
+        TestCase.assertEquals(Arrays.asList("a1", "a2", "free"), transactionsPool.getReadyTransactions(nonces::get));
+        TestCase.assertEquals(1, transactionsPool.getEvictedCount());
+        TestCase.assertFalse(transactionsPool.checkExists("a0"));
+
+        nonces.put("B", BigInteger.valueOf(5));
+        TestCase.assertEquals(Arrays.asList("a1", "a2", "free", "b5", "b6"), transactionsPool.getReadyTransactions(nonces::get));
+
+        transactionsPool.addTransaction("a3", "A", BigInteger.valueOf(3));
+        nonces.put("A", BigInteger.valueOf(3));
+        TestCase.assertEquals(Arrays.asList("free", "b5", "b6", "a3", "a4"), transactionsPool.getReadyTransactions(nonces::get));
+    }
+
+    @Test
+    public void testNextNonceFollowsPendingTransactions(){
+        TransactionsPool transactionsPool = new TransactionsPool();
+
+        TestCase.assertEquals(BigInteger.valueOf(3), transactionsPool.getNextNonce("A", BigInteger.valueOf(3)));
+
+        transactionsPool.addTransaction("a3", "A", BigInteger.valueOf(3));
+        transactionsPool.addTransaction("a4", "A", BigInteger.valueOf(4));
+        transactionsPool.addTransaction("a6", "A", BigInteger.valueOf(6));
+        TestCase.assertEquals(BigInteger.valueOf(5), transactionsPool.getNextNonce("A", BigInteger.valueOf(3)));
+        TestCase.assertEquals(BigInteger.ZERO, transactionsPool.getNextNonce("B", BigInteger.ZERO));
+
+        // the run only counts from the account nonce
+        TestCase.assertEquals(BigInteger.valueOf(7), transactionsPool.getNextNonce("A", BigInteger.valueOf(6)));
+        TestCase.assertTrue(transactionsPool.addTransaction("a5", "A", transactionsPool.getNextNonce("A", BigInteger.valueOf(3))));
+        TestCase.assertEquals(BigInteger.valueOf(7), transactionsPool.getNextNonce("A", BigInteger.valueOf(3)));
+    }
+
+    @Test
+    public void testCommittedTransactionsAreUnlinked(){
+        TransactionsPool transactionsPool = new TransactionsPool();
+        Block block = new Block();
+        for (int i = 0; i < 5000; i++) {
+            byte[] hash = BigInteger.valueOf(i).toByteArray();
+            transactionsPool.addTransaction(Util.getDataEncoded64(hash));
+            BlockUtil.addTransactionInBlock(block, hash);
+        }
+        transactionsPool.addTransaction("pending");
+
+        // no read of the pool in between
+        transactionsPool.addBlock(block);
+
+        TestCase.assertEquals(1, transactionsPool.size());
+        TestCase.assertTrue(transactionsPool.transactions.size() <= 1025);
+        TestCase.assertEquals(Arrays.asList("pending"), transactionsPool.getTransactions());
+        TestCase.assertEquals(1, transactionsPool.transactions.size());
+    }
 }
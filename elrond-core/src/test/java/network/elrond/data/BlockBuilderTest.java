@@ -0,0 +1,82 @@
+package network.elrond.data;
+
+import network.elrond.blockchain.BlockchainContext;
+import network.elrond.data.model.Transaction;
+import network.elrond.service.AppServiceProvider;
+import network.elrond.sharding.Shard;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+public class BlockBuilderTest {
+
+    private BlockBuilder blockBuilder;
+    private BlockchainContext context;
+
+    @Before
+    public void setUp() {
+        blockBuilder = new BlockBuilder();
+        context = new BlockchainContext();
+    }
+
+    private Transaction transaction(String sender, long nonce, long gasPrice) {
+        Transaction transaction = new Transaction(sender, "receiver", BigInteger.ONE, BigInteger.valueOf(nonce), new Shard(0), new Shard(0));
+        transaction.setGasPrice(BigInteger.valueOf(gasPrice));
+        return transaction;
+    }
+
+    @Test
+    public void testSelectByGasPriceKeepingSenderOrder() {
+        Transaction a0 = transaction("a", 0, 1);
+        Transaction a1 = transaction("a", 1, 50);
+        Transaction b0 = transaction("b", 0, 10);
+        Transaction c0 = transaction("c", 0, 10);
+        Transaction d0 = transaction("d", 0, 20);
+
+        List<Transaction> selected = blockBuilder.selectTransactions(Arrays.asList(a0, a1, b0, c0, d0), context);
+
+        // a1 pays the most but can only follow a0, equal prices keep the arrival order
+        Assert.assertEquals(Arrays.asList(d0, b0, c0, a0, a1), selected);
+    }
+
+    @Test
+    public void testSelectRespectsTransactionCountBudget() {
+        context.setMaxBlockTransactions(2);
+
+        List<Transaction> selected = blockBuilder.selectTransactions(Arrays.asList(
+                transaction("a", 0, 1), transaction("b", 0, 3), transaction("c", 0, 2)), context);
+
+        Assert.assertEquals(2, selected.size());
+        Assert.assertEquals("b", selected.get(0).getSenderAddress());
+        Assert.assertEquals("c", selected.get(1).getSenderAddress());
+    }
+
+    @Test
+    public void testSelectRespectsSizeBudget() {
+        Transaction a0 = transaction("a", 0, 1);
+        long size = AppServiceProvider.getSerializationService().encodeBinary(a0).length;
+        context.setMaxBlockSize(size * 2);
+
+        List<Transaction> selected = blockBuilder.selectTransactions(Arrays.asList(
+                a0, transaction("a", 1, 1), transaction("b", 0, 1)), context);
+
+        Assert.assertEquals(2, selected.size());
+    }
+
+    @Test
+    public void testMeasuredCostLimitsSelection() {
+        context.setMaxBlockExecutionTime(1);
+        blockBuilder.recordExecution(400000);
+
+        List<Transaction> selected = blockBuilder.selectTransactions(Arrays.asList(
+                transaction("a", 0, 1), transaction("b", 0, 1), transaction("c", 0, 1), transaction("d", 0, 1)), context);
+
+        Assert.assertEquals(2, selected.size());
+        Assert.assertTrue(blockBuilder.hasTimeFor(600000, context));
+        Assert.assertFalse(blockBuilder.hasTimeFor(700000, context));
+    }
+}
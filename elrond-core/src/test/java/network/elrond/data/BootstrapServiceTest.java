@@ -0,0 +1,272 @@
+package network.elrond.data;
+
+import junit.framework.TestCase;
+import network.elrond.account.AccountAddress;
+import network.elrond.account.AccountState;
+import network.elrond.account.Accounts;
+import network.elrond.account.AccountsContext;
+import network.elrond.account.AccountsPersistenceUnit;
+import network.elrond.application.AppContext;
+import network.elrond.application.AppState;
+import network.elrond.blockchain.Blockchain;
+import network.elrond.blockchain.BlockchainService;
+import network.elrond.blockchain.BlockchainUnitType;
+import network.elrond.blockchain.ChainMetadata;
+import network.elrond.blockchain.SettingsType;
+import network.elrond.crypto.PrivateKey;
+import network.elrond.data.model.Block;
+import network.elrond.data.model.ExecutionReport;
+import network.elrond.data.service.BootstrapService;
+import network.elrond.service.AppServiceProvider;
+import network.elrond.sharding.Shard;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+public class BootstrapServiceTest extends BaseBlockchainTest {
+    private BootstrapService bootstrapService = AppServiceProvider.getBootstrapService();
+    private BlockchainService blockchainService = AppServiceProvider.getBlockchainService();
+
+    private PrivateKey privateKey = new PrivateKey("Bootstrap");
+    private long genesisTimestamp = System.currentTimeMillis();
+
+    private AppState state;
+    private AppContext context;
+    private Blockchain blockchain;
+    private Accounts accounts;
+    private byte[] genesisRoot;
+
+    @Before
+    public void setUp() throws IOException {
+        AccountsContext accountsContext = new AccountsContext();
+        accountsContext.setShard(new Shard(0));
+
+        blockchain = new Blockchain(getDefaultTestBlockchainContext());
+        accounts = new Accounts(accountsContext, new AccountsPersistenceUnit<>(accountsContext.getDatabasePath()));
+        // the minted account is the state of a genesis block without transactions
+        genesisRoot = accounts.getAccountsPersistenceUnit().getRootHash();
+
+        state = new AppState();
+        state.setShard(new Shard(0));
+        state.setBlockchain(blockchain);
+        state.setAccounts(accounts);
+        state.setPrivateKey(privateKey);
+
+        context = new AppContext();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        accounts.getAccountsPersistenceUnit().close();
+        blockchain.flush();
+    }
+
+    private Block createBlock(Block prevBlock, byte[] appStateHash) {
+        Block block = new Block();
+        block.setShard(new Shard(0));
+        block.setAppStateHash(appStateHash);
+        if (prevBlock == null) {
+            block.setTimestamp(genesisTimestamp);
+        } else {
+            long roundIndex = prevBlock.getRoundIndex() + 1;
+            block.setNonce(prevBlock.getNonce().add(BigInteger.ONE));
+            block.setPrevBlockHash(AppServiceProvider.getSerializationService().getHash(prevBlock));
+            block.setRoundIndex(roundIndex);
+            block.setTimestamp(genesisTimestamp + roundIndex * AppServiceProvider.getChronologyService().getRoundTimeDuration());
+        }
+        AppBlockManager.instance().signBlock(block, privateKey);
+        return block;
+    }
+
+    private String hash(Block block) {
+        return AppServiceProvider.getSerializationService().getHashString(block);
+    }
+
+    private byte[] commitAccountState(String address, long balance) throws IOException {
+        AccountState accountState = new AccountState(AccountAddress.fromHexString(address));
+        accountState.setBalance(BigInteger.valueOf(balance));
+        accounts.setAccountState(accountState.getAddress(), accountState);
+        AppServiceProvider.getAccountStateService().commitAccountStates(accounts);
+        return accounts.getAccountsPersistenceUnit().getRootHash();
+    }
+
+    @Test
+    public void testStoreBlockKeepsTheTip() throws Exception {
+        Block genesis = createBlock(null, genesisRoot);
+        Block block = createBlock(genesis, genesisRoot);
+
+        bootstrapService.storeExecutedBlock(genesis, hash(genesis), blockchain);
+        bootstrapService.storeBlock(block, hash(block), blockchain);
+
+        // a block not executed yet is indexed, the tip stays
+        ChainMetadata metadata = bootstrapService.getChainMetadata(blockchain);
+        TestCase.assertEquals(BigInteger.ZERO, metadata.getHeight());
+        TestCase.assertEquals(hash(genesis), metadata.getBlockHash());
+        TestCase.assertEquals(hash(block), blockchainService.getLocal(BigInteger.ONE, blockchain, BlockchainUnitType.BLOCK_INDEX));
+        TestCase.assertNotNull(blockchainService.getLocal(hash(block), blockchain, BlockchainUnitType.BLOCK));
+    }
+
+    @Test
+    public void testStoreExecutedBlockWritesTheTip() throws Exception {
+        Block genesis = createBlock(null, genesisRoot);
+        Block block = createBlock(genesis, genesisRoot);
+
+        bootstrapService.storeExecutedBlock(genesis, hash(genesis), blockchain);
+        bootstrapService.storeExecutedBlock(block, hash(block), blockchain);
+
+        ChainMetadata metadata = bootstrapService.getChainMetadata(blockchain);
+        TestCase.assertEquals(BigInteger.ONE, metadata.getHeight());
+        TestCase.assertEquals(hash(block), metadata.getBlockHash());
+        TestCase.assertEquals(hash(block), blockchainService.getLocal(BigInteger.ONE, blockchain, BlockchainUnitType.BLOCK_INDEX));
+
+        // a block stored late is indexed, the tip stays
+        bootstrapService.storeExecutedBlock(genesis, hash(genesis), blockchain);
+        metadata = bootstrapService.getChainMetadata(blockchain);
+        TestCase.assertEquals(BigInteger.ONE, metadata.getHeight());
+        TestCase.assertEquals(hash(genesis), blockchainService.getLocal(BigInteger.ZERO, blockchain, BlockchainUnitType.BLOCK_INDEX));
+    }
+
+    @Test
+    public void testStateSyncIsUsedFromTheConfiguredGap() {
+        int gap = AppContext.DEFAULT_STATE_SYNC_MIN_BLOCKS;
+        TestCase.assertTrue(bootstrapService.isStateSyncFaster(BigInteger.ZERO, BigInteger.valueOf(gap), context));
+        TestCase.assertFalse(bootstrapService.isStateSyncFaster(BigInteger.ONE, BigInteger.valueOf(gap), context));
+
+        context.setStateSyncMinBlocks(0);
+        TestCase.assertFalse(bootstrapService.isStateSyncFaster(BigInteger.ZERO, BigInteger.valueOf(gap), context));
+    }
+
+    @Test
+    public void testSyncStateStoresTheVerifiedHeaders() throws Exception {
+        Block genesis = createBlock(null, genesisRoot);
+        Block block = createBlock(genesis, genesisRoot);
+        Block last = createBlock(block, genesisRoot);
+        for (Block stored : Arrays.asList(genesis, block, last)) {
+            blockchainService.putLocal(hash(stored), stored, blockchain, BlockchainUnitType.BLOCK);
+        }
+        blockchainService.putLocal(BigInteger.valueOf(2), hash(last), blockchain, BlockchainUnitType.BLOCK_INDEX);
+
+        // the state of the block is stored, no trie node is requested
+        ExecutionReport report = bootstrapService.syncState(BigInteger.valueOf(2), state);
+
+        TestCase.assertTrue(report.toString(), report.isOk());
+        TestCase.assertEquals(hash(genesis), blockchainService.getLocal(BigInteger.ZERO, blockchain, BlockchainUnitType.BLOCK_INDEX));
+        TestCase.assertEquals(hash(block), blockchainService.getLocal(BigInteger.ONE, blockchain, BlockchainUnitType.BLOCK_INDEX));
+        TestCase.assertEquals(BigInteger.valueOf(2), bootstrapService.getChainMetadata(blockchain).getHeight());
+        TestCase.assertEquals(BigInteger.valueOf(2), blockchain.getCurrentBlockIndex());
+    }
+
+    @Test
+    public void testSyncStateRejectsHeadersNotLeadingToTheGenesis() throws Exception {
+        Block genesis = createBlock(null, genesisRoot);
+        bootstrapService.storeExecutedBlock(genesis, hash(genesis), blockchain);
+
+        // a chain of another genesis
+        genesisTimestamp++;
+        Block otherGenesis = createBlock(null, genesisRoot);
+        Block block = createBlock(otherGenesis, genesisRoot);
+        bootstrapService.storeBlock(otherGenesis, hash(otherGenesis), blockchain);
+        bootstrapService.storeBlock(block, hash(block), blockchain);
+        // storing the other genesis indexed it, the one kept before is the local genesis
+        blockchainService.putLocal(BigInteger.ZERO, hash(genesis), blockchain, BlockchainUnitType.BLOCK_INDEX);
+
+        TestCase.assertFalse(bootstrapService.syncState(BigInteger.ONE, state).isOk());
+        TestCase.assertEquals(BigInteger.ZERO, bootstrapService.getChainMetadata(blockchain).getHeight());
+    }
+
+    @Test
+    public void testSyncStateRejectsAHeaderNotSigned() throws Exception {
+        Block genesis = createBlock(null, genesisRoot);
+        Block block = createBlock(genesis, genesisRoot);
+        // changed after it was signed
+        block.setAppStateHash(new byte[]{1, 2, 3});
+        bootstrapService.storeBlock(genesis, hash(genesis), blockchain);
+        bootstrapService.storeBlock(block, hash(block), blockchain);
+
+        TestCase.assertFalse(bootstrapService.syncState(BigInteger.ONE, state).isOk());
+        TestCase.assertNull(bootstrapService.getChainMetadata(blockchain));
+    }
+
+    @Test
+    public void testRestoreFromDiskResumesAtTheTip() throws Exception {
+        byte[] tipRoot = commitAccountState("0102", 10);
+        // the accounts went on past the tip before the restart
+        commitAccountState("0304", 20);
+
+        Block genesis = createBlock(null, genesisRoot);
+        Block block = createBlock(genesis, tipRoot);
+        bootstrapService.storeExecutedBlock(genesis, hash(genesis), blockchain);
+        bootstrapService.storeExecutedBlock(block, hash(block), blockchain);
+
+        ExecutionReport report = bootstrapService.restoreFromDisk(BigInteger.ONE, state, context);
+
+        TestCase.assertTrue(report.toString(), report.isOk());
+        TestCase.assertTrue(Arrays.equals(tipRoot, accounts.getAccountsPersistenceUnit().getRootHash()));
+        TestCase.assertEquals(BigInteger.ONE, blockchain.getCurrentBlockIndex());
+        TestCase.assertEquals(hash(block), hash(blockchain.getCurrentBlock()));
+        TestCase.assertEquals(hash(genesis), hash(blockchain.getGenesisBlock()));
+    }
+
+    @Test
+    public void testRestoreFromDiskReplaysWhenTheTipStateIsNotStored() throws Exception {
+        Block genesis = createBlock(null, genesisRoot);
+        Block block = createBlock(genesis, genesisRoot);
+        bootstrapService.storeExecutedBlock(genesis, hash(genesis), blockchain);
+        bootstrapService.storeExecutedBlock(block, hash(block), blockchain);
+
+        // the accounts were not committed up to the tip, its root is not in the db
+        ChainMetadata metadata = new ChainMetadata(BigInteger.ONE, hash(block), new byte[]{1, 2, 3});
+        blockchainService.putLocal(ChainMetadata.KEY, metadata, blockchain, BlockchainUnitType.CHAIN_METADATA);
+
+        ExecutionReport report = bootstrapService.restoreFromDisk(BigInteger.ONE, state, context);
+
+        TestCase.assertTrue(report.toString(), report.isOk());
+        TestCase.assertEquals(hash(block), hash(blockchain.getCurrentBlock()));
+        TestCase.assertEquals(hash(genesis), hash(blockchain.getGenesisBlock()));
+    }
+
+    @Test
+    public void testRestoreFromDiskStopsAtAGap() throws Exception {
+        Block genesis = createBlock(null, genesisRoot);
+        Block block = createBlock(genesis, genesisRoot);
+        Block last = createBlock(block, genesisRoot);
+        bootstrapService.storeExecutedBlock(genesis, hash(genesis), blockchain);
+        // the block at height 1 never came
+        bootstrapService.storeExecutedBlock(last, hash(last), blockchain);
+        ChainMetadata metadata = new ChainMetadata(BigInteger.valueOf(2), hash(last), new byte[]{1, 2, 3});
+        blockchainService.putLocal(ChainMetadata.KEY, metadata, blockchain, BlockchainUnitType.CHAIN_METADATA);
+
+        ExecutionReport report = bootstrapService.restoreFromDisk(BigInteger.valueOf(2), state, context);
+
+        TestCase.assertTrue(report.toString(), report.isOk());
+        TestCase.assertEquals(BigInteger.ZERO, blockchain.getCurrentBlockIndex());
+        TestCase.assertEquals(hash(genesis), hash(blockchain.getCurrentBlock()));
+    }
+
+    @Test
+    public void testRestoreFromDiskMigratesTheLegacyIndex() throws Exception {
+        Block genesis = createBlock(null, genesisRoot);
+        Block block = createBlock(genesis, genesisRoot);
+        for (Block stored : Arrays.asList(genesis, block)) {
+            String legacyIndex = SettingsType.HEIGHT_BLOCK.toString() + "_" + stored.getNonce().toString(10);
+            blockchainService.putLocal(hash(stored), stored, blockchain, BlockchainUnitType.BLOCK);
+            blockchainService.putLocal(legacyIndex, hash(stored), blockchain, BlockchainUnitType.BLOCK_INDEX);
+        }
+        TestCase.assertNull(bootstrapService.getChainMetadata(blockchain));
+
+        ExecutionReport report = bootstrapService.restoreFromDisk(BigInteger.ONE, state, context);
+
+        TestCase.assertTrue(report.toString(), report.isOk());
+        ChainMetadata metadata = bootstrapService.getChainMetadata(blockchain);
+        TestCase.assertEquals(BigInteger.ONE, metadata.getHeight());
+        TestCase.assertEquals(hash(block), metadata.getBlockHash());
+        TestCase.assertEquals(hash(genesis), blockchainService.getLocal(BigInteger.ZERO, blockchain, BlockchainUnitType.BLOCK_INDEX));
+        TestCase.assertEquals(hash(block), blockchainService.getLocal(BigInteger.ONE, blockchain, BlockchainUnitType.BLOCK_INDEX));
+        TestCase.assertEquals(BigInteger.ONE, blockchain.getCurrentBlockIndex());
+        TestCase.assertEquals(hash(block), hash(blockchain.getCurrentBlock()));
+    }
+}
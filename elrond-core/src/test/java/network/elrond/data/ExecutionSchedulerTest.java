@@ -0,0 +1,57 @@
+package network.elrond.data;
+
+import network.elrond.data.model.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExecutionSchedulerTest {
+
+    private Transaction transaction(String sender, String receiver) {
+        Transaction transaction = new Transaction();
+        transaction.setSenderAddress(sender);
+        transaction.setReceiverAddress(receiver);
+        transaction.setNonce(BigInteger.ZERO);
+        transaction.setValue(BigInteger.ONE);
+        return transaction;
+    }
+
+    @Test
+    public void testGroupByAccountsEmpty() {
+        Assert.assertTrue(ExecutionScheduler.groupByAccounts(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void testGroupByAccountsIndependentTransactions() {
+        Transaction tx1 = transaction("01", "02");
+        Transaction tx2 = transaction("03", "04");
+        Transaction tx3 = transaction("05", "06");
+
+        List<List<Transaction>> groups = ExecutionScheduler.groupByAccounts(Arrays.asList(tx1, tx2, tx3));
+
+        Assert.assertEquals(3, groups.size());
+        Assert.assertSame(tx1, groups.get(0).get(0));
+        Assert.assertSame(tx2, groups.get(1).get(0));
+        Assert.assertSame(tx3, groups.get(2).get(0));
+    }
+
+    @Test
+    public void testGroupByAccountsKeepsBlockOrderInsideGroups() {
+        Transaction tx1 = transaction("01", "02");
+        Transaction tx2 = transaction("03", "04");
+        Transaction tx3 = transaction("02", "05");
+        Transaction tx4 = transaction("06", "07");
+        // joins the groups of tx2 and tx3
+        Transaction tx5 = transaction("04", "05");
+
+        List<List<Transaction>> groups = ExecutionScheduler.groupByAccounts(Arrays.asList(tx1, tx2, tx3, tx4, tx5));
+
+        Assert.assertEquals(2, groups.size());
+        Assert.assertEquals(Arrays.asList(tx1, tx2, tx3, tx5), groups.get(0));
+        Assert.assertEquals(Arrays.asList(tx4), groups.get(1));
+    }
+}
@@ -1,9 +1,12 @@
 package network.elrond.data;
 
 import junit.framework.TestCase;
+import network.elrond.core.Util;
 import network.elrond.crypto.PrivateKey;
 import network.elrond.crypto.PublicKey;
 import network.elrond.data.model.Block;
+import network.elrond.data.model.Receipt;
+import network.elrond.data.model.ReceiptStatus;
 import network.elrond.data.model.Transaction;
 import network.elrond.data.service.SerializationService;
 import network.elrond.data.service.TransactionService;
@@ -15,8 +18,14 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class SerializationServiceTest {
@@ -130,6 +139,142 @@ public class SerializationServiceTest {
         Assert.assertEquals(hashString, blkHashString);
     }
 
+    @Test
+    public void testTransactionBinaryEncodeDecode() {
+        Transaction tx = transactionService.generateTransaction(pbKeySender, pbKeyRecv, 10, 3);
+        tx.setSignature(new byte[]{1, 2, 3});
+        tx.setChallenge(new byte[]{4, 5, 6});
+
+        byte[] encodedTransaction = serializationService.encodeBinary(tx);
+        Transaction decodedTransaction = serializationService.decodeBinary(encodedTransaction, Transaction.class);
+
+        TestCase.assertEquals(serializationService.encodeJSON(tx), serializationService.encodeJSON(decodedTransaction));
+        Assert.assertArrayEquals(encodedTransaction, serializationService.encodeBinary(decodedTransaction));
+        Assert.assertArrayEquals(serializationService.getHash(tx), serializationService.getHash(decodedTransaction));
+    }
+
+    @Test
+    public void testBlockBinaryEncodeDecode() {
+        Block blk = getTestBlock();
+        blk.setTimestamp(1520000000000L);
+        blk.setRoundIndex(42);
+        // enough hashes to need a long list prefix
+        for (int i = 0; i < 1000; i++) {
+            blk.addTXHash(Util.SHA3.get().digest(new byte[]{(byte) i}));
+        }
+
+        byte[] encodedBlock = serializationService.encodeBinary(blk);
+        Block decodedBlock = serializationService.decodeBinary(encodedBlock, Block.class);
+
+        TestCase.assertEquals(serializationService.encodeJSON(blk), serializationService.encodeJSON(decodedBlock));
+        Assert.assertTrue(encodedBlock.length < serializationService.encodeJSON(blk).length());
+    }
+
+    @Test
+    public void testBinaryEncodingIgnoresEmptySignature() {
+        Block blk = getTestBlock();
+        blk.setSignature(null);
+        blk.setCommitment(null);
+        byte[] hash = serializationService.getHash(blk);
+
+        blk.setSignature(new byte[0]);
+        blk.setCommitment(new byte[0]);
+        Assert.assertArrayEquals(hash, serializationService.getHash(blk));
+    }
+
+    @Test
+    public void testReceiptBinaryEncodeDecode() {
+        Receipt receipt = new Receipt("blockHash", "txHash", ReceiptStatus.REJECTED, "log1", "log2");
+
+        Receipt decodedReceipt = serializationService.decodeBinary(serializationService.encodeBinary(receipt), Receipt.class);
+
+        Assert.assertEquals(receipt.toString(), decodedReceipt.toString());
+    }
+
+    @Test
+    public void testJavaSerializationUsesBinaryEncoding() throws IOException, ClassNotFoundException {
+        Block blk = getTestBlock();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(blk);
+        }
+        Object object;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            object = in.readObject();
+        }
+
+        Assert.assertTrue(object instanceof Block);
+        TestCase.assertEquals(serializationService.encodeJSON(blk), serializationService.encodeJSON(object));
+    }
+
+    @Test
+    public void testHashIsKeptUntilMutation() {
+        Transaction tx = transactionService.generateTransaction(pbKeySender, pbKeyRecv, 10, 3);
+        Assert.assertNull(tx.cachedHash());
+
+        byte[] hash = serializationService.getHash(tx);
+        Assert.assertArrayEquals(hash, tx.cachedHash());
+        Assert.assertArrayEquals(hash, serializationService.getHash(tx));
+
+        tx.setValue(BigInteger.ONE);
+        Assert.assertNull(tx.cachedHash());
+        Assert.assertFalse(Arrays.equals(hash, serializationService.getHash(tx)));
+    }
+
+    @Test
+    public void testBlockHashFollowsListChanges() {
+        Block blk = getTestBlock();
+        byte[] hash = serializationService.getHash(blk);
+
+        // reading the lists keeps the hash
+        blk.getListTXHashes();
+        blk.getPeers();
+        Assert.assertArrayEquals(hash, blk.cachedHash());
+
+        blk.addTXHash(new byte[]{21, 22, 23});
+        Assert.assertFalse(Arrays.equals(hash, serializationService.getHash(blk)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testBlockListsCanNotBeChangedInPlace() {
+        getTestBlock().getListTXHashes().add(new byte[]{21, 22, 23});
+    }
+
+    @Test
+    public void testBlockKeepsACopyOfASetList() {
+        Block blk = getTestBlock();
+        List<String> peers = new ArrayList<>(Arrays.asList("peer1", "peer2"));
+        blk.setPeers(peers);
+        byte[] hash = serializationService.getHash(blk);
+
+        peers.add("peer3");
+
+        Assert.assertEquals(2, blk.getPeers().size());
+        Assert.assertArrayEquals(hash, serializationService.getHash(blk));
+    }
+
+    @Test
+    public void testVerifyKeepsTransactionHash() {
+        Transaction tx = transactionService.generateTransaction(pbKeySender, pbKeyRecv, 10, 3);
+        transactionService.signTransaction(tx, pvKeySender.getValue(), pbKeySender.getValue());
+        byte[] hash = serializationService.getHash(tx);
+
+        Assert.assertTrue(transactionService.verifyTransaction(tx));
+        Assert.assertArrayEquals(hash, tx.cachedHash());
+    }
+
+    @Test
+    public void testSigningHashLeavesOutSignature() {
+        Block blk = getTestBlock();
+        byte[] signingHash = serializationService.getSigningHash(blk);
+        Assert.assertArrayEquals(new byte[]{6, 7, 8}, blk.getSignature());
+
+        blk.setSignature(null);
+        blk.setCommitment(null);
+        Assert.assertArrayEquals(serializationService.getHash(blk), signingHash);
+    }
+
     private Block getTestBlock() {
         Block blk = new Block();
         blk.setNonce(BigInteger.ONE);
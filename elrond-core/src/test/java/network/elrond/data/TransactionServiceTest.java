@@ -16,7 +16,12 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class TransactionServiceTest extends ExpectedExceptionTest {
 
@@ -126,4 +131,46 @@ public class TransactionServiceTest extends ExpectedExceptionTest {
         Assert.assertTrue(transactionService.verifyTransaction(tx));
     }
 
+    @Test
+    public void testVerifyTransactionsMarksTamperedTransactions() {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Transaction tx = transactionService.generateTransaction(publicKeySender, publicKeyReceiver, value.longValue(), i);
+            transactionService.signTransaction(tx, privateKeySender.getValue(), publicKeySender.getValue());
+            transactions.add(tx);
+        }
+        transactions.get(3).setValue(value.add(BigInteger.ONE));
+        transactions.get(37).setNonce(BigInteger.valueOf(100));
+
+        BitSet verified = transactionService.verifyTransactions(transactions);
+
+        Assert.assertEquals(38, verified.cardinality());
+        Assert.assertFalse(verified.get(3));
+        Assert.assertFalse(verified.get(37));
+        Assert.assertTrue(verified.get(0));
+        Assert.assertTrue(verified.get(39));
+    }
+
+    @Test
+    public void testVerifyTransactionFromManyThreads() throws Exception {
+        Transaction tx = transactionService.generateTransaction(publicKeySender, publicKeyReceiver, value.longValue(), nonce.longValue());
+        transactionService.signTransaction(tx, privateKeySender.getValue(), publicKeySender.getValue());
+        byte[] signature = tx.getSignature();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(executor.submit(() -> transactionService.verifyTransaction(tx)));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertSame(signature, tx.getSignature());
+    }
+
 }
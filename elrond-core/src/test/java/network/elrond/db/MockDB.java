@@ -2,6 +2,7 @@ package network.elrond.db;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 //import network.elrond.db.ByteArrayWrapper;
@@ -17,6 +18,7 @@ import org.iq80.leveldb.WriteOptions;
 public class MockDB implements DB {
 
     Map<ByteArrayWrapper, byte[]> storage = new HashMap<>();
+    int writes;
 
     @Override
     public void close() throws IOException {
@@ -30,13 +32,12 @@ public class MockDB implements DB {
 
     @Override
     public WriteBatch createWriteBatch() {
-        // TODO Auto-generated method stub
-        return null;
+        return new MockWriteBatch();
     }
 
     @Override
     public void delete(byte[] arg0) throws DBException {
-        storage.remove(arg0);
+        storage.remove(new ByteArrayWrapper(arg0));
     }
 
     @Override
@@ -113,13 +114,20 @@ public class MockDB implements DB {
 
     @Override
     public void write(WriteBatch arg0) throws DBException {
-        // TODO Auto-generated method stub
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : ((MockWriteBatch) arg0).updates.entrySet()) {
+            if (entry.getValue() == null) {
+                storage.remove(entry.getKey());
+            } else {
+                storage.put(entry.getKey(), entry.getValue());
+            }
+        }
+        writes++;
     }
 
     @Override
     public Snapshot write(WriteBatch arg0, WriteOptions arg1)
             throws DBException {
-        // TODO Auto-generated method stub
+        write(arg0);
         return null;
     }
 
@@ -131,4 +139,36 @@ public class MockDB implements DB {
     public int getAddedItems() {
         return storage.size();
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the number of batches written to this Mock DB
+     *
+     * @return int
+     */
+    public int getBatchWrites() {
+        return writes;
+    }
+
+    private static class MockWriteBatch implements WriteBatch {
+
+        // null values are deletes
+        private final Map<ByteArrayWrapper, byte[]> updates = new LinkedHashMap<>();
+
+        @Override
+        public WriteBatch put(byte[] key, byte[] value) {
+            updates.put(new ByteArrayWrapper(key), value);
+            return this;
+        }
+
+        @Override
+        public WriteBatch delete(byte[] key) {
+            updates.put(new ByteArrayWrapper(key), null);
+            return this;
+        }
+
+        @Override
+        public void close() throws IOException {
+            updates.clear();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package network.elrond.db;
+
+import network.elrond.core.ThreadUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class WeightedCacheTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCacheWithZeroWeightShouldThrowException() {
+        new WeightedCache<String, String>(0, 0, TimeUnit.MILLISECONDS, (key, value) -> 1);
+    }
+
+    @Test
+    public void testWeightStaysWithinBudget() {
+        WeightedCache<Integer, String> cache = new WeightedCache<>(100, 0, TimeUnit.MILLISECONDS, (key, value) -> value.length());
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "0123456789");
+            Assert.assertTrue(cache.getWeightedSize() <= 100);
+        }
+
+        Assert.assertEquals(10, cache.size());
+        Assert.assertEquals(100, cache.getWeightedSize());
+        Assert.assertEquals("0123456789", cache.get(99));
+    }
+
+    @Test
+    public void testTooHeavyValueIsNotCached() {
+        WeightedCache<String, String> cache = new WeightedCache<>(5, 0, TimeUnit.MILLISECONDS, (key, value) -> value.length());
+
+        cache.put("key", "0123456789");
+
+        Assert.assertNull(cache.get("key"));
+        Assert.assertEquals(1, cache.getRejectionCount());
+    }
+
+    @Test
+    public void testOverwriteKeepsWeight() {
+        WeightedCache<String, String> cache = new WeightedCache<>(100, 0, TimeUnit.MILLISECONDS, (key, value) -> value.length());
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key", "value" + (i % 10));
+        }
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(6, cache.getWeightedSize());
+        Assert.assertEquals("value9", cache.get("key"));
+    }
+
+    @Test
+    public void testFrequentKeysSurviveAScan() {
+        // the window takes one entry of the hundred
+        WeightedCache<String, String> cache = new WeightedCache<>(100);
+        for (int i = 0; i < 90; i++) {
+            cache.put("hot" + i, "value");
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 90; i++) {
+                cache.get("hot" + i);
+            }
+        }
+
+        // keys written once each, never read
+        for (int i = 0; i < 1000; i++) {
+            cache.put("cold" + i, "value");
+        }
+
+        for (int i = 0; i < 90; i++) {
+            Assert.assertNotNull("Expected hot" + i + " cached", cache.get("hot" + i));
+        }
+        Assert.assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void testJustWrittenEntryIsCachedWhenFull() {
+        WeightedCache<String, String> cache = new WeightedCache<>(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put("old" + i, "value");
+            cache.get("old" + i);
+        }
+
+        cache.put("new", "value");
+        Assert.assertEquals("value", cache.get("new"));
+        cache.get("new");
+
+        // read more than the others, it stays once out of the window
+        cache.put("next", "value");
+        Assert.assertEquals("value", cache.get("new"));
+        Assert.assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void testEntryExpiresAfterTimeToLive() {
+        WeightedCache<String, String> cache = new WeightedCache<>(10, 50, TimeUnit.MILLISECONDS, (key, value) -> 1);
+
+        cache.put("key", "value");
+        Assert.assertEquals("value", cache.get("key"));
+
+        ThreadUtil.sleep(100);
+        Assert.assertNull(cache.get("key"));
+        Assert.assertFalse(cache.containsKey("key"));
+        Assert.assertEquals(0, cache.getWeightedSize());
+    }
+
+    @Test
+    public void testPutIfAbsentKeepsTheCachedValue() {
+        WeightedCache<String, String> cache = new WeightedCache<>(10);
+
+        Assert.assertNull(cache.putIfAbsent("key", "first"));
+        Assert.assertEquals("first", cache.putIfAbsent("key", "second"));
+        Assert.assertEquals("first", cache.get("key"));
+    }
+
+    @Test
+    public void testHitRatio() {
+        WeightedCache<String, String> cache = new WeightedCache<>(10);
+        cache.put("key", "value");
+
+        cache.get("key");
+        cache.get("key");
+        cache.get("key");
+        cache.get("missing");
+
+        Assert.assertEquals(3, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(0.75, cache.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void testClearRemovesAll() {
+        WeightedCache<String, String> cache = new WeightedCache<>(10);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        cache.clear();
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getWeightedSize());
+        Assert.assertNull(cache.get("a"));
+    }
+}
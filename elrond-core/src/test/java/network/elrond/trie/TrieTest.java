@@ -3,6 +3,7 @@ package network.elrond.trie;
 import network.elrond.account.AccountAddress;
 import network.elrond.account.AccountState;
 import network.elrond.account.AccountStateService;
+import network.elrond.db.ByteArrayWrapper;
 import network.elrond.db.MockDB;
 import network.elrond.service.AppServiceProvider;
 import org.junit.After;
@@ -429,6 +430,596 @@ public class TrieTest {
         assertNotEquals("Expected data to be persisted", mockDb.getAddedItems(), 0);
     }
 
+    @Test
+    public void testTrieSyncWritesOneBatch() {
+        TrieImpl trie = new TrieImpl(mockDb);
+
+        trie.update(dog, LONG_STRING);
+        trie.update(doge, LONG_STRING);
+        trie.update(cat, LONG_STRING);
+        trie.sync();
+
+        assertEquals("Expected one batch per sync", 1, mockDb.getBatchWrites());
+        assertEquals(mockDb.getAddedItems(), trie.getCache().getLastCommitNodes());
+        assertTrue(trie.getCache().getLastCommitBytes() > 0);
+        assertEquals(trie.getCache().getLastCommitBytes(), trie.getCache().getBytesWritten());
+
+        // nothing changed, nothing to write
+        trie.sync();
+        assertEquals(1, mockDb.getBatchWrites());
+
+        trie.update(test, LONG_STRING);
+        trie.sync();
+        assertEquals(2, mockDb.getBatchWrites());
+        assertTrue(trie.getCache().getBytesWritten() > trie.getCache().getLastCommitBytes());
+    }
+
+    @Test
+    public void testRestoreRootOfSyncedTrie() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        trie.update(dog, LONG_STRING);
+        trie.update(cat, LONG_STRING);
+        trie.sync();
+        byte[] rootHash = trie.getRootHash();
+
+        TrieImpl restored = new TrieImpl(mockDb);
+        assertTrue(restored.restoreRoot(rootHash));
+        assertArrayEquals(rootHash, restored.getRootHash());
+        assertEquals(LONG_STRING, new String(restored.get(cat)));
+
+        // a root never synced is not restored
+        assertFalse(restored.restoreRoot(Hex.decode("0000000000000000000000000000000000000000000000000000000000000000")));
+        assertArrayEquals(rootHash, restored.getRootHash());
+    }
+
+    @Test
+    public void testDeleteGivesSameTrieAsNeverInserted() {
+        Set<String> uniqueWords = new LinkedHashSet<>();
+        for (String word : randomDictionary.split(",")) {
+            uniqueWords.add(word.trim());
+        }
+        List<String> randomWords = new ArrayList<>(uniqueWords);
+        TrieImpl trie = new TrieImpl(mockDb);
+        TrieImpl expected = new TrieImpl(mockDb_2);
+        for (int i = 0; i < randomWords.size(); i++) {
+            String word = randomWords.get(i).trim();
+            trie.update(word, word + LONG_STRING);
+            if (i % 2 == 0) {
+                expected.update(word, word + LONG_STRING);
+            }
+        }
+        for (int i = 1; i < randomWords.size(); i += 2) {
+            trie.delete(randomWords.get(i).trim());
+        }
+
+        assertArrayEquals(expected.getRootHash(), trie.getRootHash());
+        for (int i = 0; i < randomWords.size(); i += 2) {
+            String word = randomWords.get(i).trim();
+            assertEquals(word + LONG_STRING, new String(trie.get(word)));
+        }
+    }
+
+    @Test
+    public void testDeleteBinaryKeys() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        byte[] first = Hex.decode("80ff01");
+        byte[] second = Hex.decode("80fe02");
+        trie.update(first, LONG_STRING.getBytes());
+        byte[] rootHash = trie.getRootHash();
+        trie.update(second, LONG_STRING.getBytes());
+
+        trie.delete(second);
+        assertArrayEquals(rootHash, trie.getRootHash());
+        assertArrayEquals(LONG_STRING.getBytes(), trie.get(first));
+        assertEquals(0, trie.get(second).length);
+
+        trie.delete(first);
+        assertEquals(0, trie.getRootHash().length);
+    }
+
+    @Test
+    public void testUpdateAllGivesSameRootsAsSingleUpdates() {
+        List<String> randomWords = Arrays.asList(randomDictionary.split(","));
+        Random generator = new Random(7);
+
+        for (boolean deferred : new boolean[] {false, true}) {
+            TrieImpl single = new TrieImpl(new MockDB());
+            TrieImpl batched = new TrieImpl(new MockDB());
+            batched.setDeferredHashing(deferred);
+
+            for (int round = 0; round < 5; round++) {
+                Map<ByteArrayWrapper, byte[]> changes = new HashMap<>();
+                for (int i = 0; i < 60; i++) {
+                    String word = randomWords.get(generator.nextInt(randomWords.size())).trim();
+                    // prefixes of the words end on branch values
+                    String key = word.substring(0, 2 + generator.nextInt(word.length() - 1));
+                    String value = (generator.nextInt(4) == 0) ? "" : key + round + LONG_STRING;
+                    changes.put(new ByteArrayWrapper(key.getBytes()), value.getBytes());
+                }
+
+                for (Map.Entry<ByteArrayWrapper, byte[]> entry : changes.entrySet()) {
+                    single.update(entry.getKey().getData(), entry.getValue());
+                }
+                batched.updateAll(changes);
+                assertArrayEquals(single.getRootHash(), batched.getRootHash());
+
+                for (Map.Entry<ByteArrayWrapper, byte[]> entry : changes.entrySet()) {
+                    assertArrayEquals(entry.getValue(), batched.get(entry.getKey().getData()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateAllBinaryKeys() {
+        TrieImpl single = new TrieImpl(mockDb);
+        TrieImpl batched = new TrieImpl(mockDb_2);
+        Random generator = new Random(3);
+
+        Map<ByteArrayWrapper, byte[]> changes = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            byte[] key = new byte[20];
+            generator.nextBytes(key);
+            changes.put(new ByteArrayWrapper(key), LONG_STRING.getBytes());
+            single.update(key, LONG_STRING.getBytes());
+        }
+        batched.updateAll(changes);
+        assertArrayEquals(single.getRootHash(), batched.getRootHash());
+
+        // deleting everything leaves the empty trie
+        for (ByteArrayWrapper key : changes.keySet()) {
+            changes.put(key, new byte[0]);
+        }
+        batched.updateAll(changes);
+        assertEquals(0, batched.getRootHash().length);
+    }
+
+    @Test
+    public void testProofsOfPresentAndAbsentKeys() {
+        List<String> randomWords = Arrays.asList(randomDictionary.split(","));
+        TrieImpl trie = new TrieImpl(mockDb);
+        trie.setDeferredHashing(true);
+        for (String word : randomWords) {
+            trie.update(word.trim(), word.trim() + LONG_STRING);
+        }
+        trie.sync();
+        byte[] rootHash = trie.getRootHash();
+
+        for (String word : randomWords.subList(0, 50)) {
+            TrieProof proof = trie.getProof(word.trim().getBytes());
+            assertArrayEquals(rootHash, proof.getRootHash());
+            assertEquals(word.trim() + LONG_STRING, new String(proof.verify(rootHash)));
+        }
+
+        // a key ending in a branch and one leaving a path
+        assertEquals(0, trie.getProof(dog.getBytes()).verify(rootHash).length);
+        assertEquals(0, trie.getProof("spinnerie".getBytes()).verify(rootHash).length);
+
+        // a proof holds for its own root only
+        TrieProof proof = trie.getProof(cat.getBytes());
+        trie.update(cat, LONG_STRING);
+        assertNull(proof.verify(trie.getRootHash()));
+        assertArrayEquals(LONG_STRING.getBytes(), trie.getProof(cat.getBytes()).verify(trie.getRootHash()));
+
+        // the synced proof is still the one of the committed root
+        assertEquals(0, trie.getSyncedProof(cat.getBytes()).verify(rootHash).length);
+
+        // a changed node breaks the proof
+        TrieProof valid = trie.getSyncedProof("untangible".getBytes());
+        List<byte[]> nodes = new ArrayList<>(valid.getNodes());
+        byte[] last = nodes.get(nodes.size() - 1).clone();
+        last[last.length - 1] ^= 1;
+        nodes.set(nodes.size() - 1, last);
+        assertNull(new TrieProof(rootHash, valid.getKey(), nodes).verify(rootHash));
+    }
+
+    @Test
+    public void testProofsOfSmallTries() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        assertEquals(0, trie.getProof(dog.getBytes()).verify(trie.getRootHash()).length);
+
+        // the root is shorter than a hash
+        trie.update(dog, "puppy");
+        TrieProof proof = trie.getProof(dog.getBytes());
+        assertEquals(1, proof.getNodes().size());
+        assertEquals("puppy", new String(proof.verify(trie.getRootHash())));
+        assertEquals(0, trie.getProof(cat.getBytes()).verify(trie.getRootHash()).length);
+    }
+
+    @Test
+    public void testSnapshotSharesNodesAndIsolatesChanges() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        trie.update(dog, LONG_STRING);
+        trie.update(doge, LONG_STRING);
+        trie.update(cat, LONG_STRING);
+        trie.sync();
+        int batches = mockDb.getBatchWrites();
+
+        TrieImpl snapshot = trie.snapshot();
+        assertArrayEquals(trie.getRootHash(), snapshot.getRootHash());
+        assertEquals("Expected no nodes copied", 0, snapshot.getCache().getNodes().size());
+
+        snapshot.update(dog, "puppy");
+        snapshot.delete(cat);
+        trie.update(test, LONG_STRING);
+
+        assertEquals(LONG_STRING, new String(trie.get(dog)));
+        assertEquals(LONG_STRING, new String(trie.get(cat)));
+        assertEquals("puppy", new String(snapshot.get(dog)));
+        assertEquals("", new String(snapshot.get(cat)));
+        assertEquals("", new String(snapshot.get(test)));
+
+        byte[] snapshotRoot = snapshot.getRootHash();
+        snapshot.sync();
+        assertEquals("Expected the snapshot never writes", batches, mockDb.getBatchWrites());
+
+        snapshot.update(doge, "changed");
+        snapshot.undo();
+        assertArrayEquals(snapshotRoot, snapshot.getRootHash());
+        assertEquals(LONG_STRING, new String(snapshot.get(doge)));
+    }
+
+    @Test
+    public void testSnapshotKeepsNodesNotCommitted() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        trie.setDeferredHashing(true);
+        trie.update(dog, LONG_STRING);
+        trie.update(cat, LONG_STRING);
+        trie.sync();
+        trie.update(doge, LONG_STRING + LONG_STRING);
+        trie.update(test, LONG_STRING);
+        byte[] rootHash = trie.getRootHash();
+
+        TrieImpl snapshot = trie.snapshot();
+        trie.undo();
+
+        assertEquals("", new String(trie.get(doge)));
+        assertArrayEquals(rootHash, snapshot.getRootHash());
+        assertEquals(LONG_STRING + LONG_STRING, new String(snapshot.get(doge)));
+        assertEquals(LONG_STRING, new String(snapshot.get(test)));
+        snapshot.update(dog, "puppy");
+        snapshot.undo();
+        assertEquals(LONG_STRING, new String(snapshot.get(dog)));
+    }
+
+    @Test
+    public void testCacheEvictsCleanNodesOverBudget() {
+        List<String> randomWords = Arrays.asList(randomDictionary.split(","));
+        TrieImpl trie = new TrieImpl(mockDb);
+        trie.setPinnedLevels(1);
+        for (String word : randomWords) {
+            trie.update(word.trim(), word.trim() + LONG_STRING);
+        }
+        trie.sync();
+
+        Cache cache = trie.getCache();
+        int cached = cache.getNodes().size();
+        assertEquals(0, cache.getEvictions());
+
+        // reading a key pins the root
+        trie.get(dog);
+        cache.setMemoryBudget(cache.getUsedBytes() / 4);
+        assertTrue("Expected evictions", cache.getEvictions() > 0);
+        assertTrue(cache.getNodes().size() < cached);
+        assertTrue(cache.getUsedBytes() <= cache.getMemoryBudget());
+        assertTrue("Expected the root to be pinned", cache.getNodes().containsKey(new ByteArrayWrapper(trie.getRootHash())));
+
+        // evicted nodes are read again from the db
+        long misses = cache.getMisses();
+        for (String word : randomWords) {
+            assertEquals(word.trim() + LONG_STRING, new String(trie.get(word.trim())));
+        }
+        assertTrue(cache.getMisses() > misses);
+        assertTrue(cache.getHits() > 0);
+        assertTrue(cache.getUsedBytes() <= cache.getMemoryBudget());
+    }
+
+    @Test
+    public void testPruningKeepsOnlyLastRoots() {
+        List<String> randomWords = Arrays.asList(randomDictionary.split(","));
+        TrieImpl pruned = new TrieImpl(mockDb);
+        pruned.setDeferredHashing(true);
+        pruned.enablePruning(2, Runnable::run);
+        TrieImpl unpruned = new TrieImpl(mockDb_2);
+        Random generator = new Random(11);
+
+        List<byte[]> roots = new ArrayList<>();
+        List<Map<String, String>> contents = new ArrayList<>();
+        Map<String, String> content = new HashMap<>();
+        for (int block = 0; block < 10; block++) {
+            for (int i = 0; i < 40; i++) {
+                String word = randomWords.get(generator.nextInt(randomWords.size())).trim();
+                String value = word + block + LONG_STRING;
+                if (generator.nextInt(5) == 0) {
+                    pruned.delete(word);
+                    unpruned.delete(word);
+                    content.remove(word);
+                } else {
+                    pruned.update(word, value);
+                    unpruned.update(word, value);
+                    content.put(word, value);
+                }
+            }
+            pruned.sync();
+            unpruned.sync();
+            assertArrayEquals(unpruned.getRootHash(), pruned.getRootHash());
+            roots.add(pruned.getRootHash());
+            contents.add(new HashMap<>(content));
+        }
+
+        assertEquals(0, pruned.getPruner().getPendingNodes());
+        assertTrue(pruned.getPruner().getPrunedNodes() > 0);
+        assertTrue(mockDb.getAddedItems() < mockDb_2.getAddedItems());
+
+        // the two kept roots read back from the db as without pruning
+        for (int block = 8; block < 10; block++) {
+            TrieImpl reader = new TrieImpl(mockDb, roots.get(block));
+            TrieImpl expected = new TrieImpl(mockDb_2, roots.get(block));
+            for (Map.Entry<String, String> entry : contents.get(block).entrySet()) {
+                assertEquals(entry.getValue(), new String(expected.get(entry.getKey())));
+                assertEquals(entry.getValue(), new String(reader.get(entry.getKey())));
+            }
+        }
+
+        // the counts survive a restart
+        TrieImpl reopened = new TrieImpl(mockDb, roots.get(9));
+        reopened.enablePruning(2, Runnable::run);
+        assertEquals(2, reopened.getPruner().getKeptRoots().size());
+        assertArrayEquals(roots.get(9), reopened.getPruner().getKeptRoots().get(1));
+    }
+
+    @Test
+    public void testNodesReleasedBeforeARestartArePruned() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        // nothing is pruned before the restart
+        trie.enablePruning(1, task -> { });
+        trie.update(dog, LONG_STRING);
+        trie.sync();
+        byte[] oldRoot = trie.getRootHash();
+        trie.update(dog, LONG_STRING + LONG_STRING);
+        trie.sync();
+        assertTrue(trie.getPruner().getPendingNodes() > 0);
+        assertNotNull(mockDb.get(oldRoot));
+
+        TrieImpl reopened = new TrieImpl(mockDb, trie.getRootHash());
+        reopened.enablePruning(1, Runnable::run);
+
+        assertEquals(0, reopened.getPruner().getPendingNodes());
+        assertNull(mockDb.get(oldRoot));
+        assertEquals(LONG_STRING + LONG_STRING, new String(reopened.get(dog)));
+    }
+
+    @Test
+    public void testPendingChunksAreDeletedOncePruned() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        List<Runnable> tasks = new ArrayList<>();
+        trie.enablePruning(1, tasks::add);
+        for (int i = 0; i < 5; i++) {
+            trie.update(dog, LONG_STRING + i);
+            trie.sync();
+        }
+        assertNotNull(mockDb.get(TriePruner.pendingChunkKey(0)));
+
+        tasks.forEach(Runnable::run);
+
+        assertEquals(0, trie.getPruner().getPendingNodes());
+        for (long sequence = 0; sequence < 5; sequence++) {
+            assertNull(mockDb.get(TriePruner.pendingChunkKey(sequence)));
+        }
+        assertEquals(LONG_STRING + 4, new String(trie.get(dog)));
+    }
+
+    @Test
+    public void testIteratorGivesKeysInOrder() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        trie.setDeferredHashing(true);
+        TreeMap<String, String> expected = new TreeMap<>();
+        for (String word : randomDictionary.split(",")) {
+            trie.update(word.trim(), word.trim() + LONG_STRING);
+            expected.put(word.trim(), word.trim() + LONG_STRING);
+        }
+        // keys ending at a branch or an extension
+        for (String key : Arrays.asList(c, ca, cat, dog, doge)) {
+            trie.update(key, key);
+            expected.put(key, key);
+        }
+        trie.sync();
+        trie.update(test, "changed after the sync");
+        expected.put(test, "changed after the sync");
+
+        assertEquals(new ArrayList<>(expected.entrySet()), toStrings(trie.getIterator()));
+        assertEquals(new ArrayList<>(expected.subMap("ca", "doge").entrySet()), toStrings(trie.getIterator(ca.getBytes(), doge.getBytes())));
+        assertEquals(new ArrayList<>(expected.subMap("cb", "dogf").entrySet()), toStrings(trie.getIterator("cb".getBytes(), "dogf".getBytes())));
+        assertEquals(new ArrayList<>(expected.subMap("un", "uo").entrySet()), toStrings(trie.getPrefixIterator("un".getBytes())));
+        assertFalse(trie.getIterator(dog.getBytes(), dog.getBytes()).hasNext());
+        assertFalse(new TrieImpl(mockDb_2).getIterator().hasNext());
+
+        // the iterator walks the root it was created with
+        TrieIterator iterator = trie.getIterator();
+        trie.delete(c);
+        assertEquals(new ArrayList<>(expected.entrySet()), toStrings(iterator));
+    }
+
+    @Test
+    public void testIteratorOrdersBinaryKeysUnsigned() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        List<byte[]> keys = Arrays.asList(new byte[] {0x00}, new byte[] {0x00, 0x00}, new byte[] {0x01, (byte) 0xFF},
+                new byte[] {0x7F}, new byte[] {(byte) 0x80}, new byte[] {(byte) 0xFF}, new byte[] {(byte) 0xFF, 0x01});
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            trie.update(keys.get(i), LONG_STRING.getBytes());
+        }
+
+        TrieIterator iterator = trie.getIterator();
+        for (byte[] key : keys) {
+            assertArrayEquals(key, iterator.next().getKey());
+        }
+        assertFalse(iterator.hasNext());
+
+        iterator = trie.getPrefixIterator(new byte[] {(byte) 0xFF});
+        assertArrayEquals(keys.get(5), iterator.next().getKey());
+        assertArrayEquals(keys.get(6), iterator.next().getKey());
+        assertFalse(iterator.hasNext());
+        assertNull(TrieIterator.prefixEnd(new byte[] {(byte) 0xFF}));
+        assertArrayEquals(new byte[] {0x02}, TrieIterator.prefixEnd(new byte[] {0x01, (byte) 0xFF}));
+    }
+
+    private List<Map.Entry<String, String>> toStrings(TrieIterator iterator) {
+        List<Map.Entry<String, String>> entries = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Map.Entry<byte[], byte[]> entry = iterator.next();
+            entries.add(new AbstractMap.SimpleEntry<>(new String(entry.getKey()), new String(entry.getValue())));
+        }
+        return entries;
+    }
+
+    @Test
+    public void testSyncDownloadsMissingNodes() {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(randomDictionary.split(","))));
+        TrieImpl source = new TrieImpl(mockDb);
+        TrieImpl target = new TrieImpl(mockDb_2);
+        target.setDeferredHashing(true);
+        target.enablePruning(1, Runnable::run);
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i).trim();
+            source.update(word, word + LONG_STRING);
+            if (i % 2 == 0) {
+                // an older state sharing part of the nodes
+                target.update(word, word + LONG_STRING);
+            }
+        }
+        source.sync();
+        target.sync();
+        int sourceNodes = mockDb.getAddedItems();
+
+        TrieSync sync = new TrieSync(target, source::getEncodedNodes, Runnable::run);
+        sync.setBatchSize(16);
+        sync.sync(source.getRootHash());
+
+        assertArrayEquals(source.getRootHash(), target.getRootHash());
+        assertTrue("Expected the stored nodes not downloaded", sync.getSyncedNodes() < sourceNodes);
+        assertTrue(sync.getRequests() > 1);
+        assertFalse(target.getCache().isDirty());
+
+        // the old root is pruned, the shared nodes stay
+        target.update(dog, LONG_STRING);
+        target.sync();
+        TrieImpl reopened = new TrieImpl(mockDb_2, target.getRootHash());
+        for (String word : words) {
+            assertEquals(word.trim() + LONG_STRING, new String(reopened.get(word.trim())));
+        }
+        assertEquals(LONG_STRING, new String(reopened.get(dog)));
+    }
+
+    @Test
+    public void testSyncStoresCompleteSubtriesAsTheyArrive() {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(randomDictionary.split(","))));
+        TrieImpl source = new TrieImpl(mockDb);
+        for (String word : words) {
+            source.update(word.trim(), word.trim() + LONG_STRING);
+        }
+        source.sync();
+
+        // the source goes away after a few requests
+        TrieImpl target = new TrieImpl(mockDb_2);
+        int[] calls = {0};
+        TrieSync failing = new TrieSync(target, hashes -> {
+            if (++calls[0] > 20) {
+                return Collections.emptyList();
+            }
+            return source.getEncodedNodes(hashes);
+        }, Runnable::run);
+        failing.setBatchSize(16);
+        failing.setMaxAttempts(1);
+        try {
+            failing.sync(source.getRootHash());
+            fail("Expected the sync to fail");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertTrue("Expected nodes written before the end", mockDb_2.getBatchWrites() > 0);
+        assertFalse(target.getCache().isDirty());
+
+        // what was stored is whole, the next sync only asks for the rest
+        TrieSync sync = new TrieSync(target, source::getEncodedNodes, Runnable::run);
+        sync.setBatchSize(16);
+        sync.sync(source.getRootHash());
+
+        TrieSync full = new TrieSync(new TrieImpl(new MockDB()), source::getEncodedNodes, Runnable::run);
+        full.sync(source.getRootHash());
+        assertTrue("Expected the complete subtries not downloaded again", sync.getSyncedNodes() < full.getSyncedNodes());
+        TrieImpl reopened = new TrieImpl(mockDb_2, source.getRootHash());
+        for (String word : words) {
+            assertEquals(word.trim() + LONG_STRING, new String(reopened.get(word.trim())));
+        }
+    }
+
+    @Test
+    public void testNodesOfAnAbandonedSyncArePruned() {
+        TrieImpl source = new TrieImpl(mockDb);
+        for (String word : randomDictionary.split(",")) {
+            source.update(word.trim(), word.trim() + LONG_STRING);
+        }
+        source.sync();
+
+        TrieImpl target = new TrieImpl(mockDb_2);
+        target.enablePruning(1, Runnable::run);
+        int[] calls = {0};
+        TrieSync failing = new TrieSync(target, hashes -> ++calls[0] > 20 ? Collections.emptyList() : source.getEncodedNodes(hashes), Runnable::run);
+        failing.setBatchSize(16);
+        failing.setMaxAttempts(1);
+        try {
+            failing.sync(source.getRootHash());
+            fail("Expected the sync to fail");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        int pending = target.getPruner().getPendingNodes();
+        assertTrue("Expected the stored subtries queued", pending > 0);
+        assertEquals(0, target.getPruner().getPrunedNodes());
+
+        // the trie goes on at another root
+        target.update(test, LONG_STRING);
+        target.sync();
+
+        assertEquals(0, target.getPruner().getPendingNodes());
+        assertTrue(target.getPruner().getPrunedNodes() >= pending);
+        assertEquals(LONG_STRING, new String(target.get(test)));
+    }
+
+    @Test
+    public void testSyncRejectsNodesNotAskedFor() {
+        TrieImpl source = new TrieImpl(mockDb);
+        source.update(dog, LONG_STRING);
+        source.update(doge, LONG_STRING);
+        source.update(cat, LONG_STRING);
+        source.sync();
+
+        TrieImpl target = new TrieImpl(mockDb_2);
+        target.update(test, LONG_STRING);
+        target.sync();
+        byte[] targetRoot = target.getRootHash();
+
+        // every node changed in one byte, none of them hashes to a requested one
+        TrieSync sync = new TrieSync(target, hashes -> {
+            List<byte[]> nodes = source.getEncodedNodes(hashes);
+            for (byte[] node : nodes) {
+                node[node.length - 1] ^= 1;
+            }
+            return nodes;
+        }, Runnable::run);
+        sync.setMaxAttempts(2);
+
+        try {
+            sync.sync(source.getRootHash());
+            fail("Expected the sync to fail");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        assertEquals(0, sync.getSyncedNodes());
+        assertArrayEquals(targetRoot, target.getRootHash());
+        assertEquals(LONG_STRING, new String(target.get(test)));
+    }
+
     @Test
     public void TestTrieDirtyTracking() {
         TrieImpl trie = new TrieImpl(mockDb);
@@ -469,6 +1060,37 @@ public class TrieTest {
         assertTrue(trie.equals(trie2));
     }
 
+    @Test
+    public void testDeferredHashingGivesSameRoots() {
+        List<String> randomWords = Arrays.asList(randomDictionary.split(","));
+        TrieImpl eager = new TrieImpl(mockDb);
+        TrieImpl deferred = new TrieImpl(mockDb_2);
+        deferred.setDeferredHashing(true);
+        Random generator = new Random(7);
+
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                String word1 = randomWords.get(generator.nextInt(randomWords.size())).trim();
+                String word2 = randomWords.get(generator.nextInt(randomWords.size())).trim();
+
+                if (generator.nextInt(4) == 0) {
+                    eager.delete(word1);
+                    deferred.delete(word1);
+                } else {
+                    eager.update(word1, word2 + LONG_STRING);
+                    deferred.update(word1, word2 + LONG_STRING);
+                }
+                assertEquals(new String(eager.get(word1)), new String(deferred.get(word1)));
+            }
+            assertEquals(Hex.toHexString(eager.getRootHash()), Hex.toHexString(deferred.getRootHash()));
+        }
+
+        deferred.sync();
+        assertFalse("Expected trie not to be dirty", deferred.getCache().isDirty());
+        TrieImpl reloaded = new TrieImpl(mockDb_2, deferred.getRootHash());
+        assertEquals(Hex.toHexString(eager.getRootHash()), Hex.toHexString(reloaded.getRootHash()));
+    }
+
     @Test
     public void testMasiveUpdate(){
         boolean massiveUpdateTestEnabled = false;